@@ -132,6 +132,9 @@ public abstract class BaseIngestHelper extends AbstractIngestHelper implements C
     
     private static final Logger log = ThreadConfigurableLogger.getLogger(BaseIngestHelper.class);
     
+    private static final int DEFAULT_EXPECTED_FIELDS = 16;
+    private static final int EXPECTED_VALUES_PER_FIELD = 2;
+    
     private Multimap<String,datawave.data.type.Type<?>> typeFieldMap = null;
     private Multimap<String,datawave.data.type.Type<?>> typePatternMap = null;
     private Multimap<Matcher,datawave.data.type.Type<?>> typeCompiledPatternMap = null;
@@ -697,6 +700,10 @@ public abstract class BaseIngestHelper extends AbstractIngestHelper implements C
                                 + normalizedContent);
             }
             Collection<datawave.data.type.Type<?>> dataTypes = getDataTypes(normalizedContent.getIndexedFieldName());
+            datawave.data.type.Type<?> singleType = getSingleType(dataTypes);
+            if (singleType != null && !(singleType instanceof OneToManyNormalizerType)) {
+                return Collections.singleton(normalize(normalizedContent, singleType));
+            }
             HashSet<NormalizedContentInterface> values = new HashSet<>(dataTypes.size());
             for (datawave.data.type.Type<?> dataType : dataTypes) {
                 if (dataType instanceof OneToManyNormalizerType) {
@@ -718,6 +725,10 @@ public abstract class BaseIngestHelper extends AbstractIngestHelper implements C
                                 + normalizedContent);
             }
             Collection<datawave.data.type.Type<?>> dataTypes = getDataTypes(normalizedContent.getIndexedFieldName());
+            datawave.data.type.Type<?> singleType = getSingleType(dataTypes);
+            if (singleType != null) {
+                return Collections.singleton(normalizeFieldValue(normalizedContent, singleType));
+            }
             HashSet<NormalizedContentInterface> values = new HashSet<>(dataTypes.size());
             for (datawave.data.type.Type<?> dataType : dataTypes) {
                 values.add(normalizeFieldValue(normalizedContent, dataType));
@@ -732,6 +743,10 @@ public abstract class BaseIngestHelper extends AbstractIngestHelper implements C
                 log.debug("not a normalized field: " + indexedFieldName + " nor " + eventFieldName);
             }
             Collection<datawave.data.type.Type<?>> dataTypes = getDataTypes(normalizedContent.getIndexedFieldName());
+            datawave.data.type.Type<?> singleType = getSingleType(dataTypes);
+            if (singleType != null) {
+                return Collections.singleton(normalize(normalizedContent, singleType));
+            }
             HashSet<NormalizedContentInterface> values = new HashSet<>(dataTypes.size());
             for (datawave.data.type.Type<?> dataType : dataTypes) {
                 values.add(normalize(normalizedContent, dataType));
@@ -743,6 +758,24 @@ public abstract class BaseIngestHelper extends AbstractIngestHelper implements C
         }
     }
     
+    /**
+     * Most fields have a single data type, and their normalized forms are returned without building a set to hold them.
+     * 
+     * @param dataTypes
+     * @return the data type if there is exactly one, otherwise null
+     */
+    private static datawave.data.type.Type<?> getSingleType(Collection<datawave.data.type.Type<?>> dataTypes) {
+        return (dataTypes.size() == 1 ? dataTypes.iterator().next() : null);
+    }
+    
+    /**
+     * @param fields
+     * @return the number of distinct fields to size a normalized copy of the fields for
+     */
+    private static int expectedFields(Multimap<String,?> fields) {
+        return Math.max(DEFAULT_EXPECTED_FIELDS, fields.keySet().size());
+    }
+    
     @Override
     public boolean isNormalizedField(String fieldName) {
         if (this.normalizedFields.contains(fieldName)) {
@@ -837,7 +870,7 @@ public abstract class BaseIngestHelper extends AbstractIngestHelper implements C
      *            A map of the original field name to the original value
      */
     public Multimap<String,NormalizedContentInterface> normalize(Multimap<String,String> fields) {
-        Multimap<String,NormalizedContentInterface> results = HashMultimap.create();
+        Multimap<String,NormalizedContentInterface> results = HashMultimap.create(expectedFields(fields), EXPECTED_VALUES_PER_FIELD);
         
         for (Entry<String,String> e : fields.entries()) {
             if (e.getValue() != null) {
@@ -855,7 +888,7 @@ public abstract class BaseIngestHelper extends AbstractIngestHelper implements C
      *            A map of the original field name to a field
      */
     public Multimap<String,NormalizedContentInterface> normalizeMap(Multimap<String,NormalizedContentInterface> fields) {
-        Multimap<String,NormalizedContentInterface> results = HashMultimap.create();
+        Multimap<String,NormalizedContentInterface> results = HashMultimap.create(expectedFields(fields), EXPECTED_VALUES_PER_FIELD);
         
         for (Entry<String,NormalizedContentInterface> e : fields.entries()) {
             if (e.getValue() != null) {
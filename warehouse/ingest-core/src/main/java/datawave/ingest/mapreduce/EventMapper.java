@@ -1,8 +1,8 @@
 package datawave.ingest.mapreduce;
 
 import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import datawave.data.normalizer.DateNormalizer;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.Type;
@@ -43,6 +43,8 @@ import datawave.util.time.TraceStopwatch;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.CounterGroup;
 import org.apache.hadoop.mapreduce.Counters;
@@ -53,9 +55,11 @@ import org.apache.log4j.NDC;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -65,6 +69,12 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -77,9 +87,10 @@ import java.util.concurrent.TimeUnit;
  * is within the window, then the map will parse the Event into a map of field names and field values, the map method will call the process() method on each
  * DataTypeHandler implementation that has been configured for the Type of Event.
  *
- * This class no longer supports processing events in a multi-threaded fashion as that was proven to NOT be beneficial in the long run (i.e. The bulk of the
- * time is spent in the ContextWriter which is synchronized. Also multithreading mean potentially more memory use which we should already be maximizing per
- * machine in the hadoop map-reduce cluster.)
+ * By default events are processed one at a time on the map thread. When {@link #PROCESSING_THREADS} is set above one, events are parsed and run through the
+ * DataTypeHandlers on a pool of worker threads, each with its own handler instances, while the map thread writes the results to the ContextWriter and commits
+ * them in input order. Events whose handlers write to the ContextWriter themselves, and events being reprocessed from the error table, are still processed on
+ * the map thread once the events before them have been committed.
  *
  *
  *
@@ -126,6 +137,16 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     
     public static final String ID_FILTER_FSTS = "ingest.event.mapper.id.filter.fsts";
     
+    /**
+     * The number of threads processing events. One, the default, processes the events on the map thread.
+     */
+    public static final String PROCESSING_THREADS = "ingest.event.mapper.processing.threads";
+    
+    /**
+     * The number of events that may be processed ahead of the one being committed, which defaults to four per processing thread.
+     */
+    public static final String PROCESSING_QUEUE_SIZE = "ingest.event.mapper.processing.queue.size";
+    
     protected Map<String,List<DataTypeHandler<K1>>> typeMap = new HashMap<>();
     
     /**
@@ -159,6 +180,10 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     private MetricsService<K2,V2> metricsService;
     private ReusableMetricsLabels metricsLabels;
     
+    private EventPipeline pipeline = null;
+    
+    private EventWorkspace workspace = null;
+    
     /**
      * Set up the datatype handlers
      */
@@ -274,6 +299,20 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         
         offset = 0;
         
+        boolean reuseFields = context.getConfiguration().getBoolean(EventWorkspace.REUSE_EVENT_FIELDS, true);
+        workspace = new EventWorkspace(reuseFields);
+        
+        int processingThreads = context.getConfiguration().getInt(PROCESSING_THREADS, 1);
+        if (processingThreads > 1) {
+            if (metricsEnabled) {
+                log.warn("Ingest metrics are not supported when processing events on multiple threads, processing events on the map thread");
+            } else {
+                pipeline = new EventPipeline(processingThreads, context.getConfiguration().getInt(PROCESSING_QUEUE_SIZE, processingThreads * 4),
+                                reuseFields);
+                log.info("EventMapper configured to process events on " + processingThreads + " threads");
+            }
+        }
+        
         if (log.isInfoEnabled()) {
             log.info("EventMapper configured. Bulk Ingest = true");
             log.info("EventMapper configured with the following filters: " + getDataTypeFilterClassNames());
@@ -287,6 +326,14 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
      * @return the data type handlers
      */
     private List<DataTypeHandler<K1>> loadDataType(String typeStr, Context context) {
+        return loadDataType(typeStr, context, typeMap, validators, reporter);
+    }
+    
+    /**
+     * Get the data type handlers for a given type name from a set of handlers, loading them into that set if needed
+     */
+    private List<DataTypeHandler<K1>> loadDataType(String typeStr, Context context, Map<String,List<DataTypeHandler<K1>>> typeMap,
+                    Multimap<String,FieldValidator> validators, StandaloneStatusReporter reporter) {
         // Do not load the type twice
         if (!typeMap.containsKey(typeStr)) {
             
@@ -417,7 +464,13 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         }
         
         // First lets clear this event from the error table if we are reprocessing a previously errored event
-        if (value.getAuxData() instanceof EventErrorSummary) {
+        boolean reprocessing = value.getAuxData() instanceof EventErrorSummary;
+        if (reprocessing) {
+            // the events before this one must be committed before it is purged
+            if (pipeline != null) {
+                pipeline.drain(context);
+            }
+            
             EventErrorSummary errorSummary = (EventErrorSummary) (value.getAuxData());
             value.setAuxData(null);
             
@@ -461,6 +514,7 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         List<DataTypeHandler<K1>> handlers = new ArrayList<>();
         handlers.addAll(typeHandlers);
         handlers.addAll(loadDataType(TypeRegistry.ALL_PREFIX, context));
+        List<String> handlerTypes = new ArrayList<>(Arrays.asList(value.getDataType().typeName(), TypeRegistry.ALL_PREFIX));
         
         // Always include any event errors in the counters
         for (String error : value.getErrors()) {
@@ -471,9 +525,11 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         if (value.fatalError()) {
             // now clear out the handlers to avoid processing this event
             handlers.clear();
+            handlerTypes.clear();
             if (!value.ignorableError()) {
                 // since this is not an ignorable error, lets add the error handlers back into the list
                 handlers.addAll(loadDataType(TypeRegistry.ERROR_PREFIX, context));
+                handlerTypes.add(TypeRegistry.ERROR_PREFIX);
                 
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR).increment(1);
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR.name(), "ValidationError").increment(1);
@@ -485,49 +541,20 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             context.progress();
         }
         
-        Multimap<String,NormalizedContentInterface> fields = HashMultimap.create();
+        if (pipeline != null) {
+            if (!reprocessing && pipeline.accepts(handlers) && pipeline.submit(key, value, handlerTypes, context)) {
+                getCounter(context, IngestOutput.EVENTS_PROCESSED.name(), value.getDataType().typeName().toUpperCase()).increment(1);
+                offset++;
+                return;
+            }
+            pipeline.drain(context);
+        }
+        
+        Multimap<String,NormalizedContentInterface> fields = workspace.reset();
         try {
             processEvent(key, value, handlers, fields, context);
         } catch (Exception e) {
-            // Rollback anything written for this event
-            contextWriter.rollback();
-            
-            // Fail job on constraint violations
-            if (e instanceof ConstraintChecker.ConstraintViolationException) {
-                throw ((RuntimeException) e);
-            }
-            
-            // ensure they know we are still working on it
-            context.progress();
-            
-            // log error
-            log.error("Runtime exception processing event", e);
-            
-            // now lets dump to the errors table
-            // first set the exception on the event if not a field normalization error in which case the fields contain the errors
-            if (!(e instanceof FieldNormalizationError)) {
-                value.setAuxData(e);
-            }
-            for (DataTypeHandler<K1> handler : loadDataType(TypeRegistry.ERROR_PREFIX, context)) {
-                if (log.isTraceEnabled())
-                    log.trace("executing handler: " + handler.getClass().getName());
-                try {
-                    executeHandler(key, value, fields, handler, context);
-                    context.progress();
-                } catch (Exception e2) {
-                    // This is a real bummer, we had a critical exception attempting to throw the event into the error table.
-                    // lets terminate this job
-                    log.error("Failed to process error data handlers for an event", e2);
-                    throw new IOException("Failed to process error data handlers for an event", e2);
-                }
-            }
-            
-            // now create some counters
-            getCounter(context, IngestProcess.RUNTIME_EXCEPTION).increment(1);
-            List<String> exceptions = getExceptionSynopsis(e);
-            for (String exception : exceptions) {
-                getCounter(context, IngestProcess.RUNTIME_EXCEPTION.name(), exception).increment(1);
-            }
+            processError(key, value, fields, e, context);
         } finally {
             // Remove ORIG_FILE from NDC that was populated by reprocessing events from the error tables
             if (reprocessedNDCPush) {
@@ -552,6 +579,57 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         }
     }
     
+    /**
+     * Rollback anything written for an event that failed and write it to the error table instead
+     *
+     * @param fields
+     *            the fields of the event, as far as they were parsed
+     * @param e
+     *            the reason the event failed
+     */
+    private void processError(K1 key, V1 value, Multimap<String,NormalizedContentInterface> fields, Exception e, Context context) throws IOException,
+                    InterruptedException {
+        // Rollback anything written for this event
+        contextWriter.rollback();
+        
+        // Fail job on constraint violations
+        if (e instanceof ConstraintChecker.ConstraintViolationException) {
+            throw ((RuntimeException) e);
+        }
+        
+        // ensure they know we are still working on it
+        context.progress();
+        
+        // log error
+        log.error("Runtime exception processing event", e);
+        
+        // now lets dump to the errors table
+        // first set the exception on the event if not a field normalization error in which case the fields contain the errors
+        if (!(e instanceof FieldNormalizationError)) {
+            value.setAuxData(e);
+        }
+        for (DataTypeHandler<K1> handler : loadDataType(TypeRegistry.ERROR_PREFIX, context)) {
+            if (log.isTraceEnabled())
+                log.trace("executing handler: " + handler.getClass().getName());
+            try {
+                executeHandler(key, value, fields, handler, context);
+                context.progress();
+            } catch (Exception e2) {
+                // This is a real bummer, we had a critical exception attempting to throw the event into the error table.
+                // lets terminate this job
+                log.error("Failed to process error data handlers for an event", e2);
+                throw new IOException("Failed to process error data handlers for an event", e2);
+            }
+        }
+        
+        // now create some counters
+        getCounter(context, IngestProcess.RUNTIME_EXCEPTION).increment(1);
+        List<String> exceptions = getExceptionSynopsis(e);
+        for (String exception : exceptions) {
+            getCounter(context, IngestProcess.RUNTIME_EXCEPTION.name(), exception).increment(1);
+        }
+    }
+    
     /**
      * Get an exception synopsis that is suitable as a counter. We want at a minimum the exception name and a useful location. A useful location is defined as
      * the highest location that is in the datawave.ingest package
@@ -605,16 +683,32 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     @Override
     public void cleanup(Context context) throws IOException, InterruptedException {
         
+        // commit the events still being processed
+        List<Map<String,List<DataTypeHandler<K1>>>> typeMaps = new ArrayList<>();
+        typeMaps.add(typeMap);
+        List<StandaloneStatusReporter> reporters = new ArrayList<>();
+        reporters.add(reporter);
+        if (pipeline != null) {
+            pipeline.drain(context);
+            pipeline.shutdown();
+            for (WorkerState state : pipeline.workers) {
+                typeMaps.add(state.typeMap);
+                reporters.add(state.reporter);
+            }
+        }
+        
         // Write the metadata to the output
-        for (List<DataTypeHandler<K1>> handlers : typeMap.values()) {
-            for (DataTypeHandler<K1> h : handlers)
-                if (h.getMetadata() != null) {
-                    try {
-                        contextWriter.write(h.getMetadata().getBulkMetadata(), context);
-                    } finally {
-                        contextWriter.commit(context);
+        for (Map<String,List<DataTypeHandler<K1>>> handlerMap : typeMaps) {
+            for (List<DataTypeHandler<K1>> handlers : handlerMap.values()) {
+                for (DataTypeHandler<K1> h : handlers)
+                    if (h.getMetadata() != null) {
+                        try {
+                            contextWriter.write(h.getMetadata().getBulkMetadata(), context);
+                        } finally {
+                            contextWriter.commit(context);
+                        }
                     }
-                }
+            }
         }
         
         // dump any unflushed metrics
@@ -625,17 +719,21 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // cleanup the context writer
         contextWriter.cleanup(context);
         
-        for (List<DataTypeHandler<K1>> handlers : typeMap.values()) {
-            for (DataTypeHandler<K1> h : handlers)
-                h.close(context);
+        for (Map<String,List<DataTypeHandler<K1>>> handlerMap : typeMaps) {
+            for (List<DataTypeHandler<K1>> handlers : handlerMap.values()) {
+                for (DataTypeHandler<K1> h : handlers)
+                    h.close(context);
+            }
+            handlerMap.clear();
         }
-        typeMap.clear();
         
-        // Add the counters from the standalone reporter to this context.
-        Counters counters = reporter.getCounters();
-        for (CounterGroup cg : counters) {
-            for (Counter c : cg) {
-                getCounter(context, cg.getName(), c.getName()).increment(c.getValue());
+        // Add the counters from the standalone reporters to this context.
+        for (StandaloneStatusReporter standaloneReporter : reporters) {
+            Counters counters = standaloneReporter.getCounters();
+            for (CounterGroup cg : counters) {
+                for (Counter c : cg) {
+                    getCounter(context, cg.getName(), c.getName()).increment(c.getValue());
+                }
             }
         }
         
@@ -731,6 +829,21 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     }
     
     public Multimap<String,NormalizedContentInterface> getFields(RawRecordContainer value, DataTypeHandler<K1> handler) throws Exception {
+        return getFields(value, handler, offset, (createSequenceFileName ? NDC.peek() : null), dateNormalizer);
+    }
+    
+    /**
+     * Parse the fields of an event, without relying on the state of the map thread
+     *
+     * @param offset
+     *            the offset of the event within the split
+     * @param sourceFileName
+     *            the name of the file the event was read from
+     * @param dateNormalizer
+     *            the normalizer to use for the load date
+     */
+    private Multimap<String,NormalizedContentInterface> getFields(RawRecordContainer value, DataTypeHandler<K1> handler, long offset, String sourceFileName,
+                    DateNormalizer dateNormalizer) throws Exception {
         Multimap<String,NormalizedContentInterface> newFields;
         // Parse the event into its field names and field values using the DataTypeHandler's BaseIngestHelper object.
         newFields = handler.getHelper(value.getDataType()).getEventFields(value);
@@ -765,7 +878,7 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         
         // place the sequence filename into the event
         if (createSequenceFileName) {
-            seqFileName = NDC.peek();
+            seqFileName = sourceFileName;
             
             if (trimSequenceFileName) {
                 seqFileName = StringUtils.substringAfterLast(seqFileName, "/");
@@ -857,6 +970,231 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         }
     }
     
+    /**
+     * The handlers and other state used by one processing thread, which are never shared with the other threads
+     */
+    private class WorkerState {
+        private final Map<String,List<DataTypeHandler<K1>>> typeMap = new HashMap<>();
+        private final Multimap<String,FieldValidator> validators = ArrayListMultimap.create();
+        private final StandaloneStatusReporter reporter = new StandaloneStatusReporter();
+        private final DateNormalizer dateNormalizer = new DateNormalizer();
+    }
+    
+    /**
+     * An event being processed, and what its handlers produced
+     */
+    private class PendingEvent {
+        private final K1 key;
+        private final V1 value;
+        private final List<String> handlerTypes;
+        private final long offset;
+        private final String sourceFileName;
+        
+        private final EventWorkspace workspace;
+        private final Multimap<String,NormalizedContentInterface> fields;
+        private final List<Multimap<BulkIngestKey,Value>> results = new ArrayList<>();
+        private Exception error = null;
+        
+        PendingEvent(K1 key, V1 value, List<String> handlerTypes, long offset, String sourceFileName, EventWorkspace workspace) {
+            this.key = key;
+            this.value = value;
+            this.handlerTypes = handlerTypes;
+            this.offset = offset;
+            this.sourceFileName = sourceFileName;
+            this.workspace = workspace;
+            this.fields = workspace.reset();
+        }
+    }
+    
+    /**
+     * Processes events on a pool of threads and commits them in the order they were submitted. Only the map thread submits and commits events, and the
+     * handlers of each thread are only loaded while no events are being processed.
+     */
+    private class EventPipeline {
+        private final List<WorkerState> workers = new ArrayList<>();
+        private final BlockingQueue<WorkerState> idleWorkers;
+        private final ExecutorService executor;
+        private final int maxPending;
+        private final Deque<Future<PendingEvent>> pending = new ArrayDeque<>();
+        // the workspaces of committed events, to be used again by the events submitted next
+        private final Deque<EventWorkspace> workspaces = new ArrayDeque<>();
+        private final boolean reuseFields;
+        private boolean copyable = true;
+        
+        EventPipeline(int threads, int maxPending, boolean reuseFields) {
+            for (int i = 0; i < threads; i++) {
+                workers.add(new WorkerState());
+            }
+            this.idleWorkers = new ArrayBlockingQueue<>(threads, false, workers);
+            this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("EventMapper processor %d").build());
+            this.maxPending = Math.max(1, maxPending);
+            this.reuseFields = reuseFields;
+        }
+        
+        /**
+         * @return true if the handlers only return what they produce, rather than writing it to the ContextWriter themselves
+         */
+        boolean accepts(List<DataTypeHandler<K1>> handlers) {
+            if (!copyable) {
+                return false;
+            }
+            for (DataTypeHandler<K1> handler : handlers) {
+                if (handler instanceof ExtendedDataTypeHandler) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Submit a copy of an event to be processed, as the record reader reuses its key and value for the next event
+         *
+         * @return false if the event could not be copied, in which case it must be processed on the map thread
+         */
+        @SuppressWarnings("unchecked")
+        boolean submit(K1 key, V1 value, List<String> handlerTypes, Context context) throws IOException, InterruptedException {
+            V1 valueCopy;
+            try {
+                valueCopy = (V1) value.copy();
+            } catch (UnsupportedOperationException e) {
+                log.warn(value.getClass().getName() + " can not be copied, processing events on the map thread", e);
+                copyable = false;
+                return false;
+            }
+            K1 keyCopy = key;
+            if (key instanceof Writable) {
+                keyCopy = (K1) WritableUtils.clone((Writable) key, context.getConfiguration());
+            }
+            
+            load(handlerTypes, context);
+            while (pending.size() >= maxPending) {
+                commit(pending.poll(), context);
+            }
+            EventWorkspace workspace = workspaces.poll();
+            if (workspace == null) {
+                workspace = new EventWorkspace(reuseFields);
+            }
+            final PendingEvent event = new PendingEvent(keyCopy, valueCopy, handlerTypes, offset, (createSequenceFileName ? NDC.peek() : null), workspace);
+            pending.add(executor.submit(() -> process(event)));
+            return true;
+        }
+        
+        /**
+         * Commit all of the events submitted so far
+         */
+        void drain(Context context) throws IOException, InterruptedException {
+            while (!pending.isEmpty()) {
+                commit(pending.poll(), context);
+            }
+        }
+        
+        void shutdown() {
+            executor.shutdownNow();
+        }
+        
+        private void load(List<String> handlerTypes, Context context) throws IOException, InterruptedException {
+            for (String handlerType : handlerTypes) {
+                if (!workers.get(0).typeMap.containsKey(handlerType)) {
+                    drain(context);
+                    for (WorkerState worker : workers) {
+                        loadDataType(handlerType, context, worker.typeMap, worker.validators, worker.reporter);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Run the handlers of an event on a processing thread, keeping what they produce for the map thread to write
+         */
+        private PendingEvent process(PendingEvent event) throws InterruptedException {
+            WorkerState worker = idleWorkers.take();
+            try {
+                List<DataTypeHandler<K1>> handlers = new ArrayList<>();
+                for (String handlerType : event.handlerTypes) {
+                    handlers.addAll(worker.typeMap.get(handlerType));
+                }
+                
+                RawRecordContainer value = event.value;
+                IngestHelperInterface previousHelper = null;
+                for (DataTypeHandler<K1> handler : handlers) {
+                    IngestHelperInterface thisHelper = handler.getHelper(value.getDataType());
+                    if (thisHelper == null) {
+                        continue;
+                    }
+                    
+                    // parse the event once per helper class, as processEvent does
+                    if (null == previousHelper || !previousHelper.getClass().getName().equals(thisHelper.getClass().getName())) {
+                        event.fields.clear();
+                        Throwable e = null;
+                        for (Map.Entry<String,NormalizedContentInterface> entry : getFields(value, handler, event.offset, event.sourceFileName,
+                                        worker.dateNormalizer).entries()) {
+                            if (entry.getValue().getError() != null) {
+                                e = entry.getValue().getError();
+                            }
+                            event.fields.put(entry.getKey(), entry.getValue());
+                        }
+                        if (e != null) {
+                            throw new FieldNormalizationError("Failed getting all fields", e);
+                        }
+                        previousHelper = thisHelper;
+                    }
+                    
+                    for (FieldValidator validator : worker.validators.get(value.getDataType().outputName())) {
+                        validator.validate(value, event.fields);
+                    }
+                    
+                    Multimap<BulkIngestKey,Value> r = handler.processBulk(event.key, value, event.fields, worker.reporter);
+                    if (r == null) {
+                        worker.reporter.getCounter(IngestInput.EVENT_FATAL_ERROR).increment(1);
+                        worker.reporter.getCounter(IngestInput.EVENT_FATAL_ERROR.name(), "NullMultiMap").increment(1);
+                    } else {
+                        event.results.add(r);
+                        if (r.size() > 0) {
+                            worker.reporter.getCounter(IngestOutput.ROWS_CREATED.name(), handler.getClass().getSimpleName()).increment(r.size());
+                            worker.reporter.getCounter(IngestOutput.ROWS_CREATED).increment(r.size());
+                        }
+                    }
+                    
+                    if (handler.getMetadata() != null) {
+                        handler.getMetadata().addEvent(thisHelper, value, event.fields, now.get());
+                    }
+                }
+            } catch (Exception e) {
+                event.error = e;
+            } finally {
+                idleWorkers.put(worker);
+            }
+            return event;
+        }
+        
+        /**
+         * Write what the handlers of an event produced, or the event to the error table if they failed
+         */
+        private void commit(Future<PendingEvent> future, Context context) throws IOException, InterruptedException {
+            PendingEvent event;
+            try {
+                event = future.get();
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to process event", e.getCause());
+            }
+            
+            try {
+                if (event.error != null) {
+                    throw event.error;
+                }
+                for (Multimap<BulkIngestKey,Value> r : event.results) {
+                    contextWriter.write(r, context);
+                }
+            } catch (Exception e) {
+                processError(event.key, event.value, event.fields, e, context);
+            } finally {
+                contextWriter.commit(context);
+                context.progress();
+                workspaces.push(event.workspace);
+            }
+        }
+    }
+    
     public ContextWriter<K2,V2> getContextWriter() {
         return this.contextWriter;
     }
@@ -0,0 +1,98 @@
+package datawave.ingest.mapreduce;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.ingest.data.config.NormalizedContentInterface;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+
+/**
+ * Holds the fields of the event that a task is processing, so that the collections behind them are reset and reused for each event rather than allocated
+ * again. The map of field names keeps the capacity of the widest event seen so far, and the sets holding the values of each field are cleared and handed out
+ * again for the next event, which saves rehashing and reallocating them for records with hundreds of fields.
+ * <p>
+ * The fields returned by {@link #reset()} are only valid until the next call to reset. The normalized values in them are not reused, so a handler that needs
+ * to keep the fields of an event beyond the call it was given them in (for example to process them later or on another thread) only has to keep a
+ * {@link #copyOf(Multimap)} of them. Setting {@link #REUSE_EVENT_FIELDS} to false gives each event new collections instead.
+ */
+public class EventWorkspace {
+    
+    public static final String REUSE_EVENT_FIELDS = "ingest.event.mapper.reuse.event.fields";
+    
+    private static final int DEFAULT_EXPECTED_FIELDS = 64;
+    private static final int EXPECTED_VALUES_PER_FIELD = 2;
+    
+    private final boolean reuse;
+    private final Map<String,Collection<NormalizedContentInterface>> fieldMap;
+    private final Deque<Set<NormalizedContentInterface>> valueSets = new ArrayDeque<>();
+    private Multimap<String,NormalizedContentInterface> fields;
+    
+    public EventWorkspace() {
+        this(true);
+    }
+    
+    public EventWorkspace(boolean reuse) {
+        this.reuse = reuse;
+        this.fieldMap = new HashMap<>(DEFAULT_EXPECTED_FIELDS * 4 / 3);
+        this.fields = newFields();
+    }
+    
+    /**
+     * Empties the workspace for the next event.
+     * 
+     * @return the (empty) fields of the next event
+     */
+    public Multimap<String,NormalizedContentInterface> reset() {
+        if (!reuse) {
+            fields = HashMultimap.create();
+            return fields;
+        }
+        
+        // recycle the value sets of the last event before the multimap lets go of them
+        for (Collection<NormalizedContentInterface> values : fieldMap.values()) {
+            values.clear();
+            valueSets.push((Set<NormalizedContentInterface>) values);
+        }
+        fields.clear();
+        return fields;
+    }
+    
+    /**
+     * @return the fields of the current event
+     */
+    public Multimap<String,NormalizedContentInterface> getFields() {
+        return fields;
+    }
+    
+    /**
+     * Copies the fields of an event into new collections, for a caller that keeps them past the next {@link #reset()}.
+     * 
+     * @param fields
+     * @return a copy of the fields
+     */
+    public static Multimap<String,NormalizedContentInterface> copyOf(Multimap<String,NormalizedContentInterface> fields) {
+        return HashMultimap.create(fields);
+    }
+    
+    private Multimap<String,NormalizedContentInterface> newFields() {
+        if (!reuse) {
+            return HashMultimap.create();
+        }
+        return Multimaps.newSetMultimap(fieldMap, new Supplier<Set<NormalizedContentInterface>>() {
+            @Override
+            public Set<NormalizedContentInterface> get() {
+                Set<NormalizedContentInterface> values = valueSets.poll();
+                return (values == null ? new HashSet<NormalizedContentInterface>(EXPECTED_VALUES_PER_FIELD * 2) : values);
+            }
+        });
+    }
+}
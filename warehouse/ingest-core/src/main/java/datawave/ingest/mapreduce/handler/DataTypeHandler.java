@@ -43,7 +43,8 @@ public interface DataTypeHandler<KEYIN> {
     int[] getTableLoaderPriorities(Configuration conf);
     
     /**
-     * This method is called by the EventMapper to process the current Event for Bulk ingest.
+     * This method is called by the EventMapper to process the current Event for Bulk ingest. The fields are reused by the EventMapper for the next Event, so
+     * a handler that keeps them beyond this call must keep a copy of them (see {@link datawave.ingest.mapreduce.EventWorkspace#copyOf(Multimap)}).
      * 
      * @param key
      * @param event
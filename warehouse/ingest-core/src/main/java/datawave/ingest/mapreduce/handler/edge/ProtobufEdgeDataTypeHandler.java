@@ -28,9 +28,7 @@ import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinitionConfiguration
 import datawave.ingest.mapreduce.handler.edge.define.EdgeDirection;
 import datawave.ingest.mapreduce.handler.edge.define.VertexValue;
 import datawave.ingest.mapreduce.handler.edge.define.VertexValue.ValueType;
-import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionCacheHelper;
-import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionJexlContext;
-import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionJexlEvaluation;
+import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionEvaluator;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
 import datawave.ingest.metadata.RawRecordMetadata;
@@ -44,7 +42,6 @@ import datawave.util.time.DateHelper;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.commons.jexl2.Script;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.StatusReporter;
@@ -111,6 +108,11 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     
     public static final String EVALUATE_PRECONDITIONS = "protobufedge.evaluate.preconditions";
     
+    /**
+     * Parameter for specifying whether preconditions that can be compiled to predicates are evaluated without JEXL. Defaults to true.
+     */
+    public static final String COMPILE_PRECONDITIONS = "protobufedge.compile.preconditions";
+    
     public static final String INCLUDE_ALL_EDGES = "protobufedge.include.all.edges";
     
     protected static final long ONE_DAY = 1000 * 60 * 60 * 24;
@@ -123,11 +125,9 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     private boolean enableBlacklist = false;
     
     private boolean evaluatePreconditions = false;
+    private boolean compilePreconditions = true;
     private boolean includeAllEdges;
-    private EdgePreconditionJexlContext edgePreconditionContext;
-    private EdgePreconditionJexlEvaluation edgePreconditionEvaluation;
-    private EdgePreconditionCacheHelper edgePreconditionCacheHelper;
-    private Map<String,Script> scriptCache;
+    private EdgePreconditionEvaluator edgePreconditionEvaluator;
     
     protected String edgeTableName = null;
     protected String metadataTableName = null;
@@ -184,6 +184,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         pastDelta = ConfigurationHelper.isNull(conf, ACTIVITY_DATE_PAST_DELTA, Long.class);
         
         evaluatePreconditions = Boolean.parseBoolean(conf.get(EVALUATE_PRECONDITIONS));
+        compilePreconditions = conf.getBoolean(COMPILE_PRECONDITIONS, true);
         includeAllEdges = Boolean.parseBoolean(conf.get(INCLUDE_ALL_EDGES));
         
         if (this.versioningCache == null) {
@@ -293,10 +294,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
          * not waste time evaluating edges where the conditions won't be met
          */
         if (evaluatePreconditions) {
-            edgePreconditionContext = new EdgePreconditionJexlContext(edges);
-            edgePreconditionEvaluation = new EdgePreconditionJexlEvaluation();
-            edgePreconditionCacheHelper = new EdgePreconditionCacheHelper();
-            scriptCache = edgePreconditionCacheHelper.createScriptCacheFromEdges(edges);
+            edgePreconditionEvaluator = new EdgePreconditionEvaluator(edges, compilePreconditions);
         } else if (!includeAllEdges) {
             
             // Else remove edges with a precondition. No conditional edge defs will be evaluated possibly resulting in fewer edges
@@ -354,10 +352,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     public void setUpPreconditions() {
         // Set up the EdgePreconditionJexlContext, if enabled
         if (evaluatePreconditions) {
-            edgePreconditionContext = new EdgePreconditionJexlContext(edges);
-            edgePreconditionEvaluation = new EdgePreconditionJexlEvaluation();
-            edgePreconditionCacheHelper = new EdgePreconditionCacheHelper();
-            scriptCache = edgePreconditionCacheHelper.createScriptCacheFromEdges(edges);
+            edgePreconditionEvaluator = new EdgePreconditionEvaluator(edges, compilePreconditions);
         } else {
             
             // Else remove edges with a precondition
@@ -482,21 +477,10 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         edgeDefs = edgeDefConfigs.getEdges();
         
         /**
-         * If enabled, set the filtered context from the NormalizedContentInterface and create the script cache
+         * If enabled, set the event that the preconditions will be evaluated against
          */
         if (evaluatePreconditions) {
-            long start = System.currentTimeMillis();
-            edgePreconditionContext.setFilteredContextForNormalizedContentInterface(fields);
-            edgePreconditionEvaluation.setJexlContext(edgePreconditionContext);
-            if (log.isTraceEnabled()) {
-                long time = System.currentTimeMillis() - start;
-                // only worth logging those that took some time....
-                if (time > 1) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("Time to set terms on the filtered context & EdgePreconditionJexlEvaluations: " + time + "ms.");
-                    }
-                }
-            }
+            edgePreconditionEvaluator.setEvent(fields);
         }
         
         // Get the load date of the event from the fields map
@@ -586,7 +570,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
                 if (edgeDef.hasJexlPrecondition()) {
                     jexlPreconditions = edgeDef.getJexlPrecondition();
                     long start = System.currentTimeMillis();
-                    if (!edgePreconditionEvaluation.apply(scriptCache.get(jexlPreconditions))) {
+                    if (!edgePreconditionEvaluator.evaluate(jexlPreconditions)) {
                         
                         if (log.isTraceEnabled()) {
                             log.trace("Time to evaluate event(-): " + (System.currentTimeMillis() - start) + "ms.");
@@ -0,0 +1,230 @@
+package datawave.ingest.mapreduce.handler.edge.evaluation;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTEmptyFunction;
+import org.apache.commons.jexl2.parser.ASTFalseNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.ASTTrueNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.apache.commons.jexl2.parser.Parser;
+import org.apache.commons.jexl2.parser.TokenMgrError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiles the common shapes of edge preconditions into predicates over the fields of an event, so that they can be evaluated without populating an
+ * {@link EdgePreconditionJexlContext} and interpreting the script. The supported shapes are equality ({@code FIELD == 'value'} and {@code !=}), regular
+ * expressions ({@code FIELD =~ 'regex'} and {@code !~}), existence ({@code empty(FIELD)}), {@code true} and {@code false}, combined with and, or, not and
+ * parentheses. As with the {@link MultiMapArithmetic}, a field with multiple values is equal to (or matches) a literal if any of its values does.
+ * <p>
+ * Any other precondition is not compiled, and is left to be evaluated by JEXL.
+ */
+public class EdgePreconditionCompiler {
+    
+    private static final Logger log = LoggerFactory.getLogger(EdgePreconditionCompiler.class);
+    
+    /**
+     * Compiles a precondition.
+     *
+     * @param jexlPrecondition
+     *            the precondition
+     * @return a predicate over the fields of an event, or null if the precondition can not be compiled
+     */
+    public Predicate<Multimap<String,NormalizedContentInterface>> compile(String jexlPrecondition) {
+        ASTJexlScript script;
+        try {
+            script = new Parser(new StringReader(";")).parse(new StringReader(jexlPrecondition), null);
+        } catch (ParseException | TokenMgrError e) {
+            log.debug("Unable to parse precondition " + jexlPrecondition + ", it will be evaluated by JEXL", e);
+            return null;
+        }
+        
+        Predicate<Multimap<String,NormalizedContentInterface>> predicate = null;
+        if (script.jjtGetNumChildren() == 1) {
+            predicate = compile(script.jjtGetChild(0));
+        }
+        if (predicate == null) {
+            log.debug("Unable to compile precondition " + jexlPrecondition + ", it will be evaluated by JEXL");
+        }
+        return predicate;
+    }
+    
+    private Predicate<Multimap<String,NormalizedContentInterface>> compile(JexlNode node) {
+        if ((node instanceof ASTReference || node instanceof ASTReferenceExpression) && node.jjtGetNumChildren() == 1
+                        && !(node.jjtGetChild(0) instanceof ASTIdentifier)) {
+            // parentheses
+            return compile(node.jjtGetChild(0));
+        } else if (node instanceof ASTAndNode) {
+            List<Predicate<Multimap<String,NormalizedContentInterface>>> children = compileChildren(node);
+            return (children == null ? null : Predicates.and(children));
+        } else if (node instanceof ASTOrNode) {
+            List<Predicate<Multimap<String,NormalizedContentInterface>>> children = compileChildren(node);
+            return (children == null ? null : Predicates.or(children));
+        } else if (node instanceof ASTNotNode) {
+            Predicate<Multimap<String,NormalizedContentInterface>> child = (node.jjtGetNumChildren() == 1 ? compile(node.jjtGetChild(0)) : null);
+            return (child == null ? null : Predicates.not(child));
+        } else if (node instanceof ASTEQNode || node instanceof ASTNENode) {
+            String field = getFieldName(node.jjtGetChild(0));
+            String literal = getStringLiteral(node.jjtGetChild(1));
+            if (field == null || literal == null) {
+                return null;
+            }
+            Predicate<Multimap<String,NormalizedContentInterface>> equals = new FieldEquals(field, literal);
+            return (node instanceof ASTEQNode ? equals : Predicates.not(equals));
+        } else if (node instanceof ASTERNode || node instanceof ASTNRNode) {
+            String field = getFieldName(node.jjtGetChild(0));
+            String literal = getStringLiteral(node.jjtGetChild(1));
+            if (field == null || literal == null) {
+                return null;
+            }
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(literal);
+            } catch (PatternSyntaxException e) {
+                return null;
+            }
+            Predicate<Multimap<String,NormalizedContentInterface>> matches = new FieldMatches(field, pattern);
+            return (node instanceof ASTERNode ? matches : Predicates.not(matches));
+        } else if (node instanceof ASTEmptyFunction) {
+            String field = (node.jjtGetNumChildren() == 1 ? getFieldName(node.jjtGetChild(0)) : null);
+            return (field == null ? null : new FieldEmpty(field));
+        } else if (node instanceof ASTTrueNode) {
+            return Predicates.alwaysTrue();
+        } else if (node instanceof ASTFalseNode) {
+            return Predicates.alwaysFalse();
+        }
+        return null;
+    }
+    
+    private List<Predicate<Multimap<String,NormalizedContentInterface>>> compileChildren(JexlNode node) {
+        List<Predicate<Multimap<String,NormalizedContentInterface>>> children = new ArrayList<>(node.jjtGetNumChildren());
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            Predicate<Multimap<String,NormalizedContentInterface>> child = compile(node.jjtGetChild(i));
+            if (child == null) {
+                return null;
+            }
+            children.add(child);
+        }
+        return children;
+    }
+    
+    /**
+     * Gets the name of the event field referenced by an identifier, or null if the node is not a simple identifier. Identifiers are only compiled when the
+     * {@link EdgePreconditionJexlContext} would store the field under the same name, i.e. the only $ is the one escaping a leading digit.
+     */
+    private String getFieldName(JexlNode node) {
+        if (node instanceof ASTReference && node.jjtGetNumChildren() == 1) {
+            node = node.jjtGetChild(0);
+        }
+        if (!(node instanceof ASTIdentifier) || node.jjtGetNumChildren() != 0 || node.image == null) {
+            return null;
+        }
+        String field = node.image.replace("$", "");
+        if (field.isEmpty()) {
+            return null;
+        }
+        String term = (Character.isDigit(field.charAt(0)) ? "$" + field : field);
+        return (term.equals(node.image) ? field : null);
+    }
+    
+    private String getStringLiteral(JexlNode node) {
+        return (node instanceof ASTStringLiteral ? ((ASTStringLiteral) node).getLiteral() : null);
+    }
+    
+    private static class FieldEquals implements Predicate<Multimap<String,NormalizedContentInterface>> {
+        private final String field;
+        private final String value;
+        
+        FieldEquals(String field, String value) {
+            this.field = field;
+            this.value = value;
+        }
+        
+        @Override
+        public boolean apply(Multimap<String,NormalizedContentInterface> fields) {
+            Collection<NormalizedContentInterface> values = fields.get(field);
+            if (values != null) {
+                for (NormalizedContentInterface nci : values) {
+                    if (value.equals(nci.getEventFieldValue())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public String toString() {
+            return field + " == '" + value + "'";
+        }
+    }
+    
+    private static class FieldMatches implements Predicate<Multimap<String,NormalizedContentInterface>> {
+        private final String field;
+        private final Pattern pattern;
+        
+        FieldMatches(String field, Pattern pattern) {
+            this.field = field;
+            this.pattern = pattern;
+        }
+        
+        @Override
+        public boolean apply(Multimap<String,NormalizedContentInterface> fields) {
+            Collection<NormalizedContentInterface> values = fields.get(field);
+            if (values != null) {
+                for (NormalizedContentInterface nci : values) {
+                    if (nci.getEventFieldValue() != null && pattern.matcher(nci.getEventFieldValue()).matches()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public String toString() {
+            return field + " =~ '" + pattern + "'";
+        }
+    }
+    
+    private static class FieldEmpty implements Predicate<Multimap<String,NormalizedContentInterface>> {
+        private final String field;
+        
+        FieldEmpty(String field) {
+            this.field = field;
+        }
+        
+        @Override
+        public boolean apply(Multimap<String,NormalizedContentInterface> fields) {
+            Collection<NormalizedContentInterface> values = fields.get(field);
+            return (values == null || values.isEmpty());
+        }
+        
+        @Override
+        public String toString() {
+            return "empty(" + field + ")";
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package datawave.ingest.mapreduce.handler.edge.evaluation;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinition;
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinitionConfigurationHelper;
+import org.apache.commons.jexl2.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the preconditions of edge definitions against an event. The preconditions that the {@link EdgePreconditionCompiler} can compile are evaluated
+ * directly against the fields of the event. The rest are evaluated by JEXL against an {@link EdgePreconditionJexlContext} that holds only the fields those
+ * preconditions reference, and that is only populated for an event once one of them has to be evaluated. Edge definitions often share a precondition, so the
+ * result of each precondition is kept until the next event.
+ */
+public class EdgePreconditionEvaluator {
+    
+    private static final Logger log = LoggerFactory.getLogger(EdgePreconditionEvaluator.class);
+    
+    private final Map<String,Predicate<Multimap<String,NormalizedContentInterface>>> compiledPreconditions = new HashMap<>();
+    private final Map<String,Script> scriptCache = new HashMap<>();
+    private final EdgePreconditionJexlContext jexlContext;
+    private final EdgePreconditionJexlEvaluation jexlEvaluation;
+    
+    private final Map<String,Boolean> results = new HashMap<>();
+    private Multimap<String,NormalizedContentInterface> fields;
+    private boolean jexlContextSet = false;
+    
+    /**
+     * @param edgesByDataType
+     *            the edge definitions of each data type
+     * @param compile
+     *            whether to compile the preconditions that can be, rather than evaluating them all with JEXL
+     */
+    public EdgePreconditionEvaluator(Map<String,EdgeDefinitionConfigurationHelper> edgesByDataType, boolean compile) {
+        EdgePreconditionCompiler compiler = new EdgePreconditionCompiler();
+        EdgePreconditionCacheHelper cacheHelper = new EdgePreconditionCacheHelper();
+        List<EdgeDefinition> interpretedEdges = new ArrayList<>();
+        for (EdgeDefinitionConfigurationHelper helper : edgesByDataType.values()) {
+            for (EdgeDefinition edgeDef : helper.getEdges()) {
+                if (!edgeDef.hasJexlPrecondition()) {
+                    continue;
+                }
+                String precondition = edgeDef.getJexlPrecondition();
+                if (compiledPreconditions.containsKey(precondition) || scriptCache.containsKey(precondition)) {
+                    continue;
+                }
+                Predicate<Multimap<String,NormalizedContentInterface>> predicate = (compile ? compiler.compile(precondition) : null);
+                if (predicate != null) {
+                    compiledPreconditions.put(precondition, predicate);
+                } else {
+                    scriptCache.put(precondition, cacheHelper.createScriptFromString(precondition));
+                    interpretedEdges.add(edgeDef);
+                }
+            }
+        }
+        jexlContext = new EdgePreconditionJexlContext(interpretedEdges);
+        jexlEvaluation = new EdgePreconditionJexlEvaluation(jexlContext);
+        
+        log.info("Compiled " + compiledPreconditions.size() + " of " + (compiledPreconditions.size() + scriptCache.size()) + " edge preconditions");
+    }
+    
+    /**
+     * Sets the event that the preconditions are evaluated against. This should be called once per process() call.
+     *
+     * @param fields
+     *            the fields of the event
+     */
+    public void setEvent(Multimap<String,NormalizedContentInterface> fields) {
+        this.fields = fields;
+        this.results.clear();
+        this.jexlContextSet = false;
+    }
+    
+    /**
+     * @param jexlPrecondition
+     *            the precondition of an edge definition
+     * @return true if the current event satisfies the precondition, false otherwise
+     */
+    public boolean evaluate(String jexlPrecondition) {
+        Boolean result = results.get(jexlPrecondition);
+        if (result == null) {
+            Predicate<Multimap<String,NormalizedContentInterface>> predicate = compiledPreconditions.get(jexlPrecondition);
+            if (predicate != null) {
+                result = predicate.apply(fields);
+            } else {
+                if (!jexlContextSet) {
+                    jexlContext.setFilteredContextForNormalizedContentInterface(fields);
+                    jexlContextSet = true;
+                }
+                result = jexlEvaluation.apply(scriptCache.get(jexlPrecondition));
+            }
+            results.put(jexlPrecondition, result);
+        }
+        return result;
+    }
+    
+    /**
+     * @return true if the precondition will be evaluated without JEXL
+     */
+    public boolean isCompiled(String jexlPrecondition) {
+        return compiledPreconditions.containsKey(jexlPrecondition);
+    }
+}
@@ -35,4 +35,36 @@ public class MultiMapArithmetic extends JexlArithmetic {
         
         return super.compare(left, right, operator);
     }
+    
+    /**
+     * A field with multiple values is equal to a value if any of its values is equal to it
+     */
+    @Override
+    public boolean equals(Object left, Object right) {
+        if (left instanceof Collection && !(right instanceof Collection)) {
+            for (Object value : (Collection<?>) left) {
+                if (super.equals(value, right)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return super.equals(left, right);
+    }
+    
+    /**
+     * A field with multiple values matches a pattern if any of its values matches it
+     */
+    @Override
+    public boolean matches(Object left, Object right) {
+        if (left instanceof Collection) {
+            for (Object value : (Collection<?>) left) {
+                if (value != null && super.matches(value, right)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return super.matches(left, right);
+    }
 }
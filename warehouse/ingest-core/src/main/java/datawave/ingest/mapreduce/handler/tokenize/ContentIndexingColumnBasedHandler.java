@@ -4,7 +4,9 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -104,6 +106,15 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
     
     private int termPosition = 0;
     
+    // the analyzer is kept for the life of the handler so that its token streams, and their attribute buffers, are reused across fields and events
+    private Analyzer analyzer;
+    
+    // token types with their angle brackets removed, e.g. <FOO> => FOO
+    private final Map<String,String> tokenTypes = new HashMap<>();
+    
+    // reused for every term frequency value written, rather than allocating a builder per term
+    private final TermWeight.Info.Builder termWeightBuilder = TermWeight.Info.newBuilder();
+    
     @Override
     public void setup(TaskAttemptContext context) {
         super.setup(context);
@@ -135,6 +146,15 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         }
     }
     
+    @Override
+    public void close(TaskAttemptContext context) {
+        super.close(context);
+        if (analyzer != null) {
+            analyzer.close();
+            analyzer = null;
+        }
+    }
+    
     @Override
     public Multimap<BulkIngestKey,Value> processBulk(KEYIN key, RawRecordContainer event, Multimap<String,NormalizedContentInterface> eventFields,
                     StatusReporter reporter) {
@@ -233,69 +253,67 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         index = HashMultimap.create();
         reverse = HashMultimap.create();
         
-        Analyzer analyzer = tokenHelper.getAnalyzer();
+        if (analyzer == null) {
+            analyzer = tokenHelper.getAnalyzer();
+        }
         
-        try {
-            String lastFieldName = "";
+        String lastFieldName = "";
+        
+        for (Entry<String,NormalizedContentInterface> e : eventFields.entries()) {
+            NormalizedContentInterface nci = e.getValue();
             
-            for (Entry<String,NormalizedContentInterface> e : eventFields.entries()) {
-                NormalizedContentInterface nci = e.getValue();
-                
-                // Put the normalized field name and normalized value into the index
-                if (createGlobalIndexTerms) {
-                    if (helper.isIndexedField(nci.getIndexedFieldName())) {
-                        index.put(nci.getIndexedFieldName(), nci);
-                    }
+            // Put the normalized field name and normalized value into the index
+            if (createGlobalIndexTerms) {
+                if (helper.isIndexedField(nci.getIndexedFieldName())) {
+                    index.put(nci.getIndexedFieldName(), nci);
                 }
-                
-                // Put the normalized field name and normalized value into the reverse
-                if (createGlobalReverseIndexTerms) {
-                    if (helper.isReverseIndexedField(nci.getIndexedFieldName())) {
-                        NormalizedContentInterface rField = (NormalizedContentInterface) (nci.clone());
-                        rField.setEventFieldValue(new StringBuilder(rField.getEventFieldValue()).reverse().toString());
-                        rField.setIndexedFieldValue(new StringBuilder(rField.getIndexedFieldValue()).reverse().toString());
-                        reverse.put(nci.getIndexedFieldName(), rField);
-                    }
-                }
-                
-                // Skip any fields that should not be included in the shard table.
-                if (helper.isShardExcluded(nci.getIndexedFieldName())) {
-                    continue;
-                }
-                
-                // Put the event field name and original value into the fields
-                fields.put(nci.getIndexedFieldName(), nci);
-                
-                String indexedFieldName = nci.getIndexedFieldName();
-                
-                // reset term position to zero if the indexed field name has changed, otherwise
-                // bump the offset based on the inter-field position increment.
-                if (!lastFieldName.equals(indexedFieldName)) {
-                    termPosition = 0;
-                    lastFieldName = indexedFieldName;
-                } else {
-                    termPosition = tokenHelper.getInterFieldPositionIncrement();
+            }
+            
+            // Put the normalized field name and normalized value into the reverse
+            if (createGlobalReverseIndexTerms) {
+                if (helper.isReverseIndexedField(nci.getIndexedFieldName())) {
+                    NormalizedContentInterface rField = (NormalizedContentInterface) (nci.clone());
+                    rField.setEventFieldValue(new StringBuilder(rField.getEventFieldValue()).reverse().toString());
+                    rField.setIndexedFieldValue(new StringBuilder(rField.getIndexedFieldValue()).reverse().toString());
+                    reverse.put(nci.getIndexedFieldName(), rField);
                 }
-                
-                boolean indexField = contentHelper.isContentIndexField(indexedFieldName);
-                boolean reverseIndexField = contentHelper.isReverseContentIndexField(indexedFieldName);
-                
-                if ((createGlobalIndexTerms && indexField) || (createGlobalReverseIndexTerms && reverseIndexField)) {
-                    try {
-                        if (isTokenizationBySubtypeEnabled()) {
-                            if (determineTokenizationBySubtype(nci.getIndexedFieldName())) {
-                                tokenizeField(analyzer, nci, indexField, reverseIndexField, reporter);
-                            }
-                        } else {
+            }
+            
+            // Skip any fields that should not be included in the shard table.
+            if (helper.isShardExcluded(nci.getIndexedFieldName())) {
+                continue;
+            }
+            
+            // Put the event field name and original value into the fields
+            fields.put(nci.getIndexedFieldName(), nci);
+            
+            String indexedFieldName = nci.getIndexedFieldName();
+            
+            // reset term position to zero if the indexed field name has changed, otherwise
+            // bump the offset based on the inter-field position increment.
+            if (!lastFieldName.equals(indexedFieldName)) {
+                termPosition = 0;
+                lastFieldName = indexedFieldName;
+            } else {
+                termPosition = tokenHelper.getInterFieldPositionIncrement();
+            }
+            
+            boolean indexField = contentHelper.isContentIndexField(indexedFieldName);
+            boolean reverseIndexField = contentHelper.isReverseContentIndexField(indexedFieldName);
+            
+            if ((createGlobalIndexTerms && indexField) || (createGlobalReverseIndexTerms && reverseIndexField)) {
+                try {
+                    if (isTokenizationBySubtypeEnabled()) {
+                        if (determineTokenizationBySubtype(nci.getIndexedFieldName())) {
                             tokenizeField(analyzer, nci, indexField, reverseIndexField, reporter);
                         }
-                    } catch (Exception ex) {
-                        throw new RuntimeException(ex);
+                    } else {
+                        tokenizeField(analyzer, nci, indexField, reverseIndexField, reporter);
                     }
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
                 }
             }
-        } finally {
-            analyzer.close();
         }
         
         validateIndexedFields(createGlobalIndexTerms, createGlobalReverseIndexTerms, reporter);
@@ -381,21 +399,16 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                     break; // eof
                 }
                 
-                // Get the term and any synonyms for it
-                String token = termAtt.toString();
-                String type = typeAtt.type();
+                String type = getTokenType(typeAtt.type());
                 
                 // term positions aren't reset between fields of the same name, see getShardNamesAndValues.
                 termPosition += posIncrAtt.getPositionIncrement();
                 
-                if (type.startsWith("<") && type.endsWith(">")) {
-                    type = type.substring(1, type.length() - 1); // <FOO> => FOO without regex
-                }
-                
-                // Make sure the term length is greater than the minimum allowed length
-                int tlen = token.length();
+                // Make sure the term length is greater than the minimum allowed length. The length is checked on the term attribute's buffer
+                // so that no String is created for the terms that are skipped.
+                int tlen = termAtt.length();
                 if (tlen < tokenHelper.getTermLengthMinimum()) {
-                    log.debug("Ignoring token of length " + token.length() + " because it is too short");
+                    log.debug("Ignoring token of length " + tlen + " because it is too short");
                     counters.increment(ContentIndexCounters.TOO_SHORT_COUNTER, reporter);
                     continue;
                 }
@@ -410,6 +423,9 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                     continue;
                 }
                 
+                // Get the term and any synonyms for it
+                String token = termAtt.toString();
+                
                 if (tlen > tokenHelper.getTermLengthWarningLimit()) {
                     log.warn("Encountered long term: " + tlen + " characters, '" + token + "'");
                     counters.increment(ContentIndexCounters.LENGTH_WARNING_COUNTER, reporter);
@@ -534,6 +550,26 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         }
     }
     
+    /**
+     * Strips the angle brackets from a token type, {@code <FOO>} to {@code FOO}, without regex. The stripped types are kept as there are only a handful of
+     * them, so that a new String is not created for every token.
+     * 
+     * @param type
+     *            the type attribute of a token
+     * @return the type without angle brackets
+     */
+    private String getTokenType(String type) {
+        String tokenType = tokenTypes.get(type);
+        if (tokenType == null) {
+            tokenType = type;
+            if (type.startsWith("<") && type.endsWith(">")) {
+                tokenType = type.substring(1, type.length() - 1);
+            }
+            tokenTypes.put(type, tokenType);
+        }
+        return tokenType;
+    }
+    
     /**
      * Creates a Term Frequency index key in the "tf" column family.
      * 
@@ -549,11 +585,11 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
     protected void createTermFrequencyIndex(RawRecordContainer event, Multimap<BulkIngestKey,Value> values, byte[] shardId, NormalizedFieldAndValue nfv,
                     List<Integer> offsets, byte[] visibility) throws IOException, InterruptedException {
         
-        TermWeight.Info.Builder builder = TermWeight.Info.newBuilder();
+        termWeightBuilder.clear();
         for (Integer offset : offsets) {
-            builder.addTermOffset(offset);
+            termWeightBuilder.addTermOffset(offset);
         }
-        Value value = new Value(builder.build().toByteArray());
+        Value value = new Value(termWeightBuilder.build().toByteArray());
         
         StringBuilder colq = new StringBuilder(this.eventDataTypeName.length() + this.eventUid.length() + nfv.getIndexedFieldName().length()
                         + nfv.getIndexedFieldValue().length() + 3);
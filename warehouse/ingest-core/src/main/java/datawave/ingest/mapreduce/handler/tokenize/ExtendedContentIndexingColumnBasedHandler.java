@@ -153,6 +153,9 @@ public abstract class ExtendedContentIndexingColumnBasedHandler<KEYIN,KEYOUT,VAL
     
     protected TokenizationHelper tokenHelper = null;
     
+    // reused for every term frequency value written, rather than allocating a builder per term
+    private final TermWeight.Info.Builder termWeightBuilder = TermWeight.Info.newBuilder();
+    
     @Override
     public void setup(TaskAttemptContext context) {
         super.setup(context);
@@ -365,8 +368,7 @@ public abstract class ExtendedContentIndexingColumnBasedHandler<KEYIN,KEYOUT,VAL
                     counters.incrementValue(ContentIndexCounters.TOKENIZER_OFFSET_CACHE_POSITIONS_OVERFLOWED, overflow.offsets.size(), reporter);
                 }
             } else {
-                createTermFrequencyIndex(event, contextWriter, context, this.shardId, nfv, Arrays.asList(position), fieldVisibility,
-                                this.ingestHelper.getDeleteMode());
+                createTermFrequencyIndex(event, contextWriter, context, this.shardId, nfv, position, fieldVisibility, this.ingestHelper.getDeleteMode());
             }
         }
     }
@@ -723,11 +725,42 @@ public abstract class ExtendedContentIndexingColumnBasedHandler<KEYIN,KEYOUT,VAL
                     TaskInputOutputContext<KEYIN,? extends RawRecordContainer,KEYOUT,VALUEOUT> context, byte[] shardId, NormalizedFieldAndValue nfv,
                     List<Integer> offsets, byte[] visibility, boolean deleteMode) throws IOException, InterruptedException {
         
-        TermWeight.Info.Builder builder = TermWeight.Info.newBuilder();
+        termWeightBuilder.clear();
         for (Integer offset : offsets) {
-            builder.addTermOffset(offset);
+            termWeightBuilder.addTermOffset(offset);
         }
-        Value value = new Value(builder.build().toByteArray());
+        writeTermFrequencyIndex(event, contextWriter, context, shardId, nfv, visibility, deleteMode);
+    }
+    
+    /**
+     * Creates a Term Frequency index key in the "tf" column family for a term that occurs at a single position, without collecting the position into a list
+     * first.
+     * 
+     * @param event
+     * @param contextWriter
+     * @param context
+     * @param shardId
+     * @param nfv
+     * @param position
+     * @param visibility
+     * @param deleteMode
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    protected void createTermFrequencyIndex(RawRecordContainer event, ContextWriter<KEYOUT,VALUEOUT> contextWriter,
+                    TaskInputOutputContext<KEYIN,? extends RawRecordContainer,KEYOUT,VALUEOUT> context, byte[] shardId, NormalizedFieldAndValue nfv,
+                    int position, byte[] visibility, boolean deleteMode) throws IOException, InterruptedException {
+        
+        termWeightBuilder.clear();
+        termWeightBuilder.addTermOffset(position);
+        writeTermFrequencyIndex(event, contextWriter, context, shardId, nfv, visibility, deleteMode);
+    }
+    
+    private void writeTermFrequencyIndex(RawRecordContainer event, ContextWriter<KEYOUT,VALUEOUT> contextWriter,
+                    TaskInputOutputContext<KEYIN,? extends RawRecordContainer,KEYOUT,VALUEOUT> context, byte[] shardId, NormalizedFieldAndValue nfv,
+                    byte[] visibility, boolean deleteMode) throws IOException, InterruptedException {
+        
+        Value value = new Value(termWeightBuilder.build().toByteArray());
         
         StringBuilder colq = new StringBuilder(this.eventDataTypeName.length() + this.eventUid.length() + nfv.getIndexedFieldName().length()
                         + nfv.getIndexedFieldValue().length() + 3);
@@ -0,0 +1,184 @@
+package datawave.ingest.mapreduce.job;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs the bulk imports for the {@link BulkIngestMapFileLoader}. Imports are queued per table, and a fixed number of threads run them. Each thread takes its
+ * next import from the table with the highest priority (as configured by the table priorities) that is not already running its maximum number of imports, so a
+ * slow table will only hold up later imports into that same table. The imports for a table are run in the order of the jobs they came from.
+ */
+public class BulkImportScheduler {
+    private static final Logger log = Logger.getLogger(BulkImportScheduler.class);
+    
+    private static final Comparator<ImportTask> JOB_ORDER = Comparator.comparingLong((ImportTask t) -> t.jobSequence).thenComparingLong(t -> t.submitSequence);
+    
+    private final Map<String,Integer> tablePriorities;
+    private final int maxImportsPerTable;
+    private final Map<String,PriorityQueue<ImportTask>> queues = new HashMap<>();
+    private final Map<String,Integer> running = new HashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private long submitSequence = 0;
+    private boolean shutdown = false;
+    
+    public BulkImportScheduler(int numThreads, int maxImportsPerTable, Map<String,Integer> tablePriorities) {
+        this.tablePriorities = (tablePriorities == null ? new HashMap<>() : tablePriorities);
+        this.maxImportsPerTable = Math.max(1, maxImportsPerTable);
+        for (int i = 0; i < Math.max(1, numThreads); i++) {
+            Thread thread = new Thread(this::runImports, "bulk-import-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+    
+    /**
+     * Queues an import into {@code tableName}.
+     * 
+     * @param tableName
+     *            the table being imported into
+     * @param jobSequence
+     *            the order of the job the import came from, imports from earlier jobs are run first
+     * @param importTask
+     *            the import
+     * @return a future that completes when the import has been run
+     */
+    public synchronized Future<Void> submit(String tableName, long jobSequence, Callable<Void> importTask) {
+        ImportTask task = new ImportTask(tableName, jobSequence, submitSequence++, importTask);
+        if (shutdown) {
+            task.cancel(false);
+            return task;
+        }
+        queues.computeIfAbsent(tableName, k -> new PriorityQueue<>(JOB_ORDER)).add(task);
+        notifyAll();
+        return task;
+    }
+    
+    /**
+     * @return the number of imports waiting to run for {@code tableName}
+     */
+    public synchronized int getQueueDepth(String tableName) {
+        PriorityQueue<ImportTask> queue = queues.get(tableName);
+        return (queue == null ? 0 : queue.size());
+    }
+    
+    /**
+     * @return the number of imports waiting to run for each table that has any
+     */
+    public synchronized Map<String,Integer> getQueueDepths() {
+        Map<String,Integer> depths = new TreeMap<>();
+        for (Map.Entry<String,PriorityQueue<ImportTask>> entry : queues.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                depths.put(entry.getKey(), entry.getValue().size());
+            }
+        }
+        return depths;
+    }
+    
+    /**
+     * @return the number of imports currently running for {@code tableName}
+     */
+    public synchronized int getRunning(String tableName) {
+        Integer count = running.get(tableName);
+        return (count == null ? 0 : count);
+    }
+    
+    /**
+     * Cancels the queued imports and stops the threads once their current imports complete.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        for (PriorityQueue<ImportTask> queue : queues.values()) {
+            for (ImportTask task : queue) {
+                task.cancel(false);
+            }
+            queue.clear();
+        }
+        notifyAll();
+    }
+    
+    private void runImports() {
+        while (true) {
+            ImportTask task;
+            synchronized (this) {
+                task = nextTask();
+                while (task == null && !shutdown) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        log.warn("Interrupted while waiting for imports, exiting", e);
+                        return;
+                    }
+                    task = nextTask();
+                }
+                if (task == null) {
+                    return;
+                }
+                running.merge(task.tableName, 1, Integer::sum);
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    running.merge(task.tableName, -1, Integer::sum);
+                    notifyAll();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes the next import to run: the earliest import of the highest priority table that is not running its maximum number of imports.
+     */
+    private ImportTask nextTask() {
+        if (shutdown) {
+            return null;
+        }
+        PriorityQueue<ImportTask> next = null;
+        for (Map.Entry<String,PriorityQueue<ImportTask>> entry : queues.entrySet()) {
+            PriorityQueue<ImportTask> queue = entry.getValue();
+            if (!queue.isEmpty() && getRunning(entry.getKey()) < maxImportsPerTable && (next == null || compare(queue.peek(), next.peek()) < 0)) {
+                next = queue;
+            }
+        }
+        return (next == null ? null : next.poll());
+    }
+    
+    private int compare(ImportTask t1, ImportTask t2) {
+        Integer p1 = tablePriorities.get(t1.tableName);
+        Integer p2 = tablePriorities.get(t2.tableName);
+        if (p1 == null) {
+            if (p2 != null) {
+                return 1;
+            }
+        } else if (p2 == null) {
+            return -1;
+        } else if (!p1.equals(p2)) {
+            return p1.compareTo(p2);
+        }
+        return JOB_ORDER.compare(t1, t2);
+    }
+    
+    private static class ImportTask extends FutureTask<Void> {
+        private final String tableName;
+        private final long jobSequence;
+        private final long submitSequence;
+        
+        ImportTask(String tableName, long jobSequence, long submitSequence, Callable<Void> importTask) {
+            super(importTask);
+            this.tableName = tableName;
+            this.jobSequence = jobSequence;
+            this.submitSequence = submitSequence;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.hadoop.io.SequenceFile.CompressionType;
 import org.apache.hadoop.io.SequenceFile.Writer;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.tools.DistCp;
 import org.apache.hadoop.tools.DistCpOptions;
@@ -56,17 +57,24 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A processor whose job is to watch for completed Bulk Ingest jobs and bring the map files produced by them online in accumulo. This class attempts to bring
  * multiple map files online at once if many jobs have completed, and also attempts to throttle itself to prevent queuing up too many major compactions on the
  * various tablet servers.
+ * <p>
+ * Each job directory is loaded in stages: the map files are copied to the destination file system if needed, the tables are imported in priority order,
+ * each table directory being prepared just before its import, and then the job directory is cleaned up. Up to {@code -maxConcurrentJobs} job directories are
+ * loaded at once, each by its own thread, while the imports themselves are queued per table with the {@link BulkImportScheduler} so that a slow table only
+ * holds up later imports into that same table.
  */
 public final class BulkIngestMapFileLoader implements Runnable {
     private static Logger log = Logger.getLogger(BulkIngestMapFileLoader.class);
@@ -78,6 +86,8 @@ public final class BulkIngestMapFileLoader implements Runnable {
     private static int MAJC_WAIT_TIMEOUT = 0;// 2 * 60 * 1000;
     private static int SHUTDOWN_PORT = 24111;
     private static boolean FIFO = true;
+    private static int MAX_CONCURRENT_JOBS = 4;
+    private static int MAX_IMPORTS_PER_TABLE = 1;
     
     public static final String COMPLETE_FILE_MARKER = "job.complete";
     public static final String LOADING_FILE_MARKER = "job.loading";
@@ -99,7 +109,13 @@ public final class BulkIngestMapFileLoader implements Runnable {
     private String jobtracker;
     private StandaloneStatusReporter reporter = new StandaloneStatusReporter();
     private volatile boolean running;
+    private volatile long lastOnlineTime = 0;
     private ExecutorService executor;
+    private ExecutorService jobExecutor;
+    private BulkImportScheduler importScheduler;
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final AtomicInteger fsAccessFailures = new AtomicInteger();
+    private final AtomicLong jobSequence = new AtomicLong();
     
     public static void main(String[] args) throws AccumuloSecurityException, IOException {
         
@@ -111,7 +127,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
         ArrayList<String[]> properties = new ArrayList<>();
         
         if (args.length < 6) {
-            log.error("usage: BulkIngestMapFileLoader hdfsWorkDir jobDirPattern instanceName zooKeepers username password [-sleepTime sleepTime] [-majcThreshold threshold] [-majcCheckInterval count] [-majcDelay majcDelay] [-seqFileHdfs seqFileSystemUri] [-srcHdfs srcFileSystemURI] [-destHdfs destFileSystemURI] [-jt jobTracker] [-shutdownPort portNum] confFile [{confFile}]");
+            log.error("usage: BulkIngestMapFileLoader hdfsWorkDir jobDirPattern instanceName zooKeepers username password [-sleepTime sleepTime] [-majcThreshold threshold] [-majcCheckInterval count] [-majcDelay majcDelay] [-seqFileHdfs seqFileSystemUri] [-srcHdfs srcFileSystemURI] [-destHdfs destFileSystemURI] [-jt jobTracker] [-shutdownPort portNum] [-numThreads numImportThreads] [-maxConcurrentJobs count] [-maxImportsPerTable count] confFile [{confFile}]");
             System.exit(-1);
         }
         
@@ -210,6 +226,28 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         log.error("-numAssignThreads must be followed by the number of bulk import assignment threads", e);
                         System.exit(-2);
                     }
+                } else if ("-maxConcurrentJobs".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-maxConcurrentJobs must be followed by the number of job directories to load at once");
+                        System.exit(-2);
+                    }
+                    try {
+                        MAX_CONCURRENT_JOBS = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-maxConcurrentJobs must be followed by the number of job directories to load at once", e);
+                        System.exit(-2);
+                    }
+                } else if ("-maxImportsPerTable".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-maxImportsPerTable must be followed by the number of concurrent bulk imports allowed into one table");
+                        System.exit(-2);
+                    }
+                    try {
+                        MAX_IMPORTS_PER_TABLE = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-maxImportsPerTable must be followed by the number of concurrent bulk imports allowed into one table", e);
+                        System.exit(-2);
+                    }
                 } else if ("-seqFileHdfs".equalsIgnoreCase(args[i])) {
                     if (i + 2 > args.length) {
                         log.error("-seqFileHdfs must be followed a file system URI (e.g. hdfs://hostname:54310).");
@@ -297,6 +335,8 @@ public final class BulkIngestMapFileLoader implements Runnable {
         log.info("Using " + numBulkThreads + " bulk load threads");
         log.info("Using " + numHdfsThreads + " HDFS operation threads");
         log.info("Using " + numBulkAssignThreads + " bulk assign threads");
+        log.info("Loading a max of " + MAX_CONCURRENT_JOBS + " job directories at once");
+        log.info("Running a max of " + MAX_IMPORTS_PER_TABLE + " bulk imports into a table at once");
         log.info("Using " + seqFileHdfs + " as the file system containing the original sequence files");
         log.info("Using " + srcHdfs + " as the source file system");
         log.info("Using " + destHdfs + " as the destination file system");
@@ -330,7 +370,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
         
         Credentials credentials = new Credentials(args[4], new PasswordToken(passwordStr));
         BulkIngestMapFileLoader processor = new BulkIngestMapFileLoader(workDir, jobDirPattern, instanceName, zooKeepers, credentials, seqFileHdfs, srcHdfs,
-                        destHdfs, jobtracker, tablePriorities, conf, SHUTDOWN_PORT, numHdfsThreads);
+                        destHdfs, jobtracker, tablePriorities, conf, SHUTDOWN_PORT, numHdfsThreads, numBulkThreads);
         Thread t = new Thread(processor, "map-file-watcher");
         t.start();
     }
@@ -347,6 +387,13 @@ public final class BulkIngestMapFileLoader implements Runnable {
     
     public BulkIngestMapFileLoader(String workDir, String jobDirPattern, String instanceName, String zooKeepers, Credentials credentials, URI seqFileHdfs,
                     URI srcHdfs, URI destHdfs, String jobtracker, Map<String,Integer> tablePriorities, Configuration conf, int shutdownPort, int numHdfsThreads) {
+        this(workDir, jobDirPattern, instanceName, zooKeepers, credentials, seqFileHdfs, srcHdfs, destHdfs, jobtracker, tablePriorities, conf, shutdownPort,
+                        numHdfsThreads, 8);
+    }
+    
+    public BulkIngestMapFileLoader(String workDir, String jobDirPattern, String instanceName, String zooKeepers, Credentials credentials, URI seqFileHdfs,
+                    URI srcHdfs, URI destHdfs, String jobtracker, Map<String,Integer> tablePriorities, Configuration conf, int shutdownPort, int numHdfsThreads,
+                    int numImportThreads) {
         this.conf = conf;
         this.tablePriorities = tablePriorities;
         this.workDir = new Path(workDir);
@@ -360,6 +407,8 @@ public final class BulkIngestMapFileLoader implements Runnable {
         this.jobtracker = jobtracker;
         this.running = true;
         this.executor = Executors.newFixedThreadPool(numHdfsThreads > 0 ? numHdfsThreads : 1);
+        this.jobExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_JOBS > 0 ? MAX_CONCURRENT_JOBS : 1);
+        this.importScheduler = new BulkImportScheduler(numImportThreads, MAX_IMPORTS_PER_TABLE, tablePriorities);
         try {
             if (shutdownPort > 0) {
                 final ServerSocket serverSocket = new ServerSocket(shutdownPort);
@@ -377,9 +426,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
     @Override
     public void run() {
         log.info("Starting process to monitor map files.");
-        long lastOnlineTime = 0;
         long lastLoadMessageTime = 0;
-        int fsAccessFailures = 0;
         Path[] jobDirectories = new Path[0];
         int nextJobIndex = 0;
         try {
@@ -394,6 +441,13 @@ public final class BulkIngestMapFileLoader implements Runnable {
                     boolean logMessages = (loadMessageDelta > (5 * 60 * 1000));
                     if (logMessages) {
                         lastLoadMessageTime = System.currentTimeMillis();
+                        log.info(activeJobs.get() + " job directories are being loaded, with queued imports: " + importScheduler.getQueueDepths());
+                    }
+                    if (activeJobs.get() >= MAX_CONCURRENT_JOBS) {
+                        if (logMessages) {
+                            log.info("Waiting for job directories to finish loading before bringing more map files online.");
+                        }
+                        continue;
                     }
                     if (!canBringMapFilesOnline(lastOnlineTime, logMessages)) {
                         if (logMessages) {
@@ -401,75 +455,35 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         }
                         continue;
                     }
-                    List<Path> processedDirectories = new ArrayList<>();
+                    int startedJobs = 0;
                     if (nextJobIndex >= jobDirectories.length) {
                         jobDirectories = getJobDirectories();
                         nextJobIndex = 0;
                     }
-                    if (jobDirectories.length > 0) {
-                        while (processedDirectories.size() < MAJC_CHECK_INTERVAL && jobDirectories.length > 0) {
-                            Path srcJobDirectory = jobDirectories[nextJobIndex++];
-                            if (!running)
-                                break;
-                            // take ownership of the job directory if we can
-                            if (takeOwnershipJobDirectory(srcJobDirectory)) {
-                                processedDirectories.add(srcJobDirectory);
-                                Path mapFilesDir = new Path(srcJobDirectory, "mapFiles");
-                                reporter.getCounter("MapFileLoader.StartTimes", srcJobDirectory.getName()).increment(System.currentTimeMillis());
-                                Path dstJobDirectory = srcJobDirectory;
-                                URI workingHdfs = srcHdfs;
-                                
+                    while (startedJobs < MAJC_CHECK_INTERVAL && activeJobs.get() < MAX_CONCURRENT_JOBS && jobDirectories.length > 0) {
+                        Path srcJobDirectory = jobDirectories[nextJobIndex++];
+                        if (!running)
+                            break;
+                        // take ownership of the job directory if we can, and hand it off to be loaded
+                        if (takeOwnershipJobDirectory(srcJobDirectory)) {
+                            startedJobs++;
+                            incrementCounter("MapFileLoader.StartTimes", srcJobDirectory.getName(), System.currentTimeMillis());
+                            final long sequence = jobSequence.getAndIncrement();
+                            activeJobs.incrementAndGet();
+                            jobExecutor.execute(() -> {
                                 try {
-                                    log.info("Started processing " + mapFilesDir);
-                                    long start = System.currentTimeMillis();
-                                    
-                                    // copy the data if needed
-                                    dstJobDirectory = distCpDirectory(srcJobDirectory);
-                                    workingHdfs = destHdfs;
-                                    
-                                    // recreate the map files directory reference in case it moved filesystems
-                                    mapFilesDir = new Path(dstJobDirectory, "mapFiles");
-                                    
-                                    // now if we have a destination work directory, then move then move the files
-                                    bringMapFilesOnline(mapFilesDir);
-                                    
-                                    // ensure everything got loaded
-                                    verifyNothingLeftBehind(mapFilesDir);
-                                    
-                                    cleanUpJobDirectory(mapFilesDir);
-                                    long end = System.currentTimeMillis();
-                                    log.info("Finished processing " + mapFilesDir + ", duration (sec): " + ((end - start) / 1000));
-                                    
-                                    // now that we actually processed something, reset the last load message time to force a message on the next round
-                                    lastLoadMessageTime = 0;
-                                } catch (Exception e) {
-                                    log.error("Failed to process " + mapFilesDir, e);
-                                    boolean marked = markJobDirectoryFailed(workingHdfs, dstJobDirectory);
-                                    if (!marked) {
-                                        ++fsAccessFailures;
-                                        if (fsAccessFailures >= 3) {
-                                            log.error("Too many failures updating marker files.  Exiting...");
-                                            shutdown();
-                                        } else {
-                                            log.warn("Failed to mark " + dstJobDirectory + " as failed. Sleeping in case this was a transient failure.");
-                                            try {
-                                                Thread.sleep(FAILURE_SLEEP_TIME);
-                                            } catch (InterruptedException ie) {
-                                                log.warn("Interrupted while sleeping.", ie);
-                                            }
-                                        }
-                                    }
+                                    loadJobDirectory(srcJobDirectory, sequence);
+                                } finally {
+                                    activeJobs.decrementAndGet();
                                 }
-                            }
-                            if (nextJobIndex >= jobDirectories.length) {
-                                jobDirectories = getJobDirectories();
-                                nextJobIndex = 0;
-                            }
+                            });
                             
+                            // now that we actually processed something, reset the last load message time to force a message on the next round
+                            lastLoadMessageTime = 0;
                         }
-                        if (!processedDirectories.isEmpty()) {
-                            writeStats(processedDirectories.toArray(new Path[processedDirectories.size()]));
-                            lastOnlineTime = System.currentTimeMillis();
+                        if (nextJobIndex >= jobDirectories.length) {
+                            jobDirectories = getJobDirectories();
+                            nextJobIndex = 0;
                         }
                     }
                 } catch (Exception e) {
@@ -477,12 +491,79 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 }
             }
         } finally {
+            log.info("Waiting for " + activeJobs.get() + " job directories to finish loading");
+            jobExecutor.shutdown();
+            try {
+                while (!jobExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.info("Waiting for " + activeJobs.get() + " job directories to finish loading");
+                }
+            } catch (InterruptedException e) {
+                log.warn("Interrupted while waiting for job directories to finish loading.", e);
+            }
             log.info("Shutting down executor service");
+            importScheduler.shutdown();
             executor.shutdown();
         }
         log.info("Bulk map file loader shutting down.");
     }
     
+    /**
+     * Loads the map files of a job directory that we have taken ownership of, marking the job directory as failed if they could not all be loaded.
+     */
+    private void loadJobDirectory(Path srcJobDirectory, long sequence) {
+        Path mapFilesDir = new Path(srcJobDirectory, "mapFiles");
+        Path dstJobDirectory = srcJobDirectory;
+        URI workingHdfs = srcHdfs;
+        
+        try {
+            log.info("Started processing " + mapFilesDir);
+            long start = System.currentTimeMillis();
+            
+            // copy the data if needed
+            dstJobDirectory = distCpDirectory(srcJobDirectory);
+            workingHdfs = destHdfs;
+            recordStageTime("copy", start);
+            
+            // recreate the map files directory reference in case it moved filesystems
+            mapFilesDir = new Path(dstJobDirectory, "mapFiles");
+            
+            // now if we have a destination work directory, then move then move the files
+            bringMapFilesOnline(mapFilesDir, sequence);
+            
+            // ensure everything got loaded
+            long cleanupStart = System.currentTimeMillis();
+            verifyNothingLeftBehind(mapFilesDir);
+            
+            cleanUpJobDirectory(mapFilesDir);
+            recordStageTime("cleanup", cleanupStart);
+            long end = System.currentTimeMillis();
+            log.info("Finished processing " + mapFilesDir + ", duration (sec): " + ((end - start) / 1000));
+        } catch (Exception e) {
+            log.error("Failed to process " + mapFilesDir, e);
+            boolean marked = markJobDirectoryFailed(workingHdfs, dstJobDirectory);
+            if (!marked) {
+                if (fsAccessFailures.incrementAndGet() >= 3) {
+                    log.error("Too many failures updating marker files.  Exiting...");
+                    shutdown();
+                } else {
+                    log.warn("Failed to mark " + dstJobDirectory + " as failed. Sleeping in case this was a transient failure.");
+                    try {
+                        Thread.sleep(FAILURE_SLEEP_TIME);
+                    } catch (InterruptedException ie) {
+                        log.warn("Interrupted while sleeping.", ie);
+                    }
+                }
+            }
+        }
+        
+        try {
+            writeStats(new Path[] {srcJobDirectory});
+        } catch (Exception e) {
+            log.error("Error: " + e.getMessage(), e);
+        }
+        lastOnlineTime = System.currentTimeMillis();
+    }
+    
     protected void shutdown() {
         running = false;
     }
@@ -658,6 +739,16 @@ public final class BulkIngestMapFileLoader implements Runnable {
      * tables for which map files are to be loaded. Under those directories should be "part-XXXXX" directories which in turn contain the map/index files.
      */
     public void bringMapFilesOnline(Path mapFilesDir) throws IOException, AccumuloException, AccumuloSecurityException, TableNotFoundException {
+        bringMapFilesOnline(mapFilesDir, jobSequence.getAndIncrement());
+    }
+    
+    /**
+     * Brings all map files in {@code mapFilesDir} online in accumulo, with imports queued behind those of jobs with a lower {@code sequence}. The tables are
+     * imported in priority order, concurrently importing those with the same priority, and each table directory is prepared just before its import so that
+     * nothing is left behind for the tables after a failed one.
+     */
+    private void bringMapFilesOnline(Path mapFilesDir, long sequence) throws IOException, AccumuloException, AccumuloSecurityException,
+                    TableNotFoundException {
         log.info("Bringing all mapFiles under " + mapFilesDir + " online.");
         
         // By now the map files should be on the local filesystem
@@ -687,9 +778,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
             }
         });
         
-        // now load the tables in the prioritized order, concurrently loading those with the same priority
+        // group the tables into those with the same priority, in the prioritized order
+        List<List<TableImport>> priorityGroups = new ArrayList<>();
         Integer priority = null;
-        Stack<ImportRunnable> imports = new Stack<>();
         Map<String,Path> tableNames = new HashMap<>();
         for (FileStatus stat : tableDirs) {
             Path tableDir = stat.getPath();
@@ -711,105 +802,79 @@ public final class BulkIngestMapFileLoader implements Runnable {
             }
             tableNames.put(tableName, tableDir);
             
-            Integer newPriority = tablePriorities.get(stat.getPath().getName());
-            if (!Objects.equal(priority, newPriority)) {
-                Exception e = null;
-                while (!imports.isEmpty()) {
-                    ImportRunnable importTask = imports.pop();
-                    try {
-                        importTask.waitForCompletion();
-                        if (e == null)
-                            e = importTask.getException();
-                    } catch (InterruptedException interrupted) {
-                        // this task was interrupted, wait for the others and then terminate
-                        if (e == null)
-                            e = interrupted;
-                    }
-                }
-                // if an exception occurred during processing, terminate
-                if (e != null)
-                    throw new IOException(e);
-                
-                priority = tablePriorities.get(stat.getPath().getName());
+            Integer newPriority = tablePriorities.get(tableName);
+            if (priorityGroups.isEmpty() || !Objects.equal(priority, newPriority)) {
+                priorityGroups.add(new ArrayList<>());
+                priority = newPriority;
             }
-            imports.push(startImport(mapFilesDir, tableName, tableDir, tops));
+            TableImport tableImport = new TableImport(mapFilesDir, tableName, tableDir, tops);
+            priorityGroups.get(priorityGroups.size() - 1).add(tableImport);
         }
         
+        // now load the tables in the prioritized order, concurrently loading those with the same priority
+        long start = System.currentTimeMillis();
+        for (List<TableImport> priorityGroup : priorityGroups) {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (TableImport tableImport : priorityGroup) {
+                tableImport.submitTime = System.currentTimeMillis();
+                futures.add(importScheduler.submit(tableImport.tableName, sequence, tableImport));
+                updateMaxCounter("MapFileLoader.MaxQueueDepth", tableImport.tableName, importScheduler.getQueueDepth(tableImport.tableName));
+            }
+            // if an exception occurred during processing, terminate
+            waitFor(futures);
+        }
+        recordStageTime("import", start);
+    }
+    
+    /**
+     * Waits for all of the {@code futures} to complete, throwing the first failure if any of them failed.
+     */
+    private void waitFor(List<Future<Void>> futures) throws IOException {
         Exception e = null;
-        while (!imports.isEmpty()) {
-            ImportRunnable importTask = imports.pop();
+        for (Future<Void> future : futures) {
             try {
-                importTask.waitForCompletion();
+                future.get();
+            } catch (ExecutionException failed) {
                 if (e == null)
-                    e = importTask.getException();
-            } catch (InterruptedException interrupted) {
-                // this task was interrupted, wait for the others and then terminate
+                    e = (failed.getCause() instanceof Exception ? (Exception) failed.getCause() : failed);
+            } catch (Exception interrupted) {
+                // this task was interrupted or cancelled, wait for the others and then terminate
                 if (e == null)
                     e = interrupted;
             }
         }
-        // if an exception occurred during processing, terminate
         if (e != null)
             throw new IOException(e);
     }
     
-    public ImportRunnable startImport(Path mapFilesDir, String tableName, Path tableDir, TableOperations tops) {
-        ImportRunnable runnable = new ImportRunnable(mapFilesDir, tableName, tableDir, tops);
-        Thread thread = new Thread(runnable);
-        runnable.setThread(thread);
-        thread.start();
-        return runnable;
-    }
-    
-    public class ImportRunnable implements Runnable {
-        private boolean complete = false;
+    /**
+     * Imports the map files for one table of a job directory.
+     */
+    public class TableImport implements Callable<Void> {
         private String tableName;
         private Path tableDir;
         private TableOperations tops;
         private Path mapFilesDir;
-        private Exception exception = null;
-        private Thread thread = null;
+        private String failuresDir;
+        private long submitTime = System.currentTimeMillis();
         
-        private ImportRunnable(Path mapFilesDir, String tableName, Path tableDir, TableOperations tops) {
+        private TableImport(Path mapFilesDir, String tableName, Path tableDir, TableOperations tops) {
             this.tableName = tableName;
             this.tableDir = tableDir;
             this.tops = tops;
             this.mapFilesDir = mapFilesDir;
+            this.failuresDir = mapFilesDir + "/failures/" + tableName;
         }
         
-        private void setThread(Thread thread) {
-            this.thread = thread;
-        }
-        
-        public Exception getException() {
-            return exception;
-        }
-        
-        public boolean isComplete() {
-            return complete;
-        }
-        
-        public void waitForCompletion() throws InterruptedException {
-            synchronized (this) {
-                while (!complete) {
-                    if (!thread.isAlive()) {
-                        throw new InterruptedException("This thread is no longer alive but yet the task is incomplete");
-                    }
-                    if (thread.isInterrupted()) {
-                        throw new InterruptedException("This thread has been interrupted");
-                    }
-                    this.wait(10000);
-                }
-            }
-        }
-        
-        public void run() {
+        /**
+         * Prepares the table directory for import, ensuring all of the files are just under the table directory and creating the failures directory.
+         */
+        private void prepare() throws IOException {
             try {
                 // Ensure all of the files put just under tableDir....
                 collapseDirectory();
                 
                 // create the failures directory
-                String failuresDir = mapFilesDir + "/failures/" + tableName;
                 Path failuresPath = new Path(failuresDir);
                 FileSystem fileSystem = FileSystem.get(srcHdfs, new Configuration());
                 if (fileSystem.exists(failuresPath)) {
@@ -817,6 +882,19 @@ public final class BulkIngestMapFileLoader implements Runnable {
                     throw new IOException("Cannot bring map files online because a failures directory already exists: " + failuresDir);
                 }
                 fileSystem.mkdirs(failuresPath);
+            } catch (IOException e) {
+                log.error("Error preparing to import files into table " + tableName + " from directory " + mapFilesDir, e);
+                throw e;
+            }
+        }
+        
+        @Override
+        public Void call() throws Exception {
+            long start = System.currentTimeMillis();
+            incrementCounter("MapFileLoader.ImportQueueTimes", tableName, start - submitTime);
+            try {
+                prepare();
+                incrementCounter("MapFileLoader.PrepareTimes", tableName, System.currentTimeMillis() - start);
                 
                 // import the directory
                 log.info("Bringing Map Files online for " + tableName);
@@ -825,13 +903,11 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 validateComplete();
             } catch (Exception e) {
                 log.error("Error importing files into table " + tableName + " from directory " + mapFilesDir, e);
-                this.exception = e;
+                throw e;
             } finally {
-                this.complete = true;
-                synchronized (this) {
-                    this.notifyAll();
-                }
+                incrementCounter("MapFileLoader.ImportTimes", tableName, System.currentTimeMillis() - start);
             }
+            return null;
         }
         
         private void collapseDirectory() throws IOException {
@@ -1117,10 +1193,41 @@ public final class BulkIngestMapFileLoader implements Runnable {
         }
     }
     
+    /**
+     * Adds {@code amount} to a counter. The counters are shared by the threads loading job directories, so they are only updated through these methods.
+     */
+    private synchronized void incrementCounter(String group, String name, long amount) {
+        reporter.getCounter(group, name).increment(amount);
+    }
+    
+    private synchronized void updateMaxCounter(String group, String name, long value) {
+        Counter counter = reporter.getCounter(group, name);
+        if (value > counter.getValue()) {
+            counter.setValue(value);
+        }
+    }
+    
+    /**
+     * Records the time spent in a stage of loading a job directory, which started at {@code start}.
+     */
+    private void recordStageTime(String stage, long start) {
+        incrementCounter("MapFileLoader.StageTimes", stage, System.currentTimeMillis() - start);
+        incrementCounter("MapFileLoader.StageCounts", stage, 1);
+    }
+    
     private void writeStats(Path[] jobDirectories) throws IOException {
         long now = System.currentTimeMillis();
-        for (Path p : jobDirectories)
-            reporter.getCounter("MapFileLoader.EndTimes", p.getName()).increment(now);
+        Counters c;
+        synchronized (this) {
+            for (Path p : jobDirectories)
+                reporter.getCounter("MapFileLoader.EndTimes", p.getName()).increment(now);
+            c = reporter.getCounters();
+            
+            // reset reporter so that old metrics don't persist over time
+            if (null != c && c.countCounters() > 0) {
+                this.reporter = new StandaloneStatusReporter();
+            }
+        }
         // Write out the metrics.
         // We are going to serialize the counters into a file in HDFS.
         // The context was set in the processKeyValues method below, and should not be null. We'll guard against NPE anyway
@@ -1130,7 +1237,6 @@ public final class BulkIngestMapFileLoader implements Runnable {
         CompressionCodec cc = new GzipCodec();
         CompressionType ct = CompressionType.BLOCK;
         
-        Counters c = reporter.getCounters();
         if (null != c && c.countCounters() > 0) {
             // Serialize the counters to a file in HDFS.
             Path src = new Path(File.createTempFile("MapFileLoader", ".metrics").getAbsolutePath());
@@ -1156,9 +1262,6 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 // If an error occurs in the copy, then we will leave in the local metrics directory.
                 log.error("Error copying metrics file into HDFS, will remain in metrics directory.");
             }
-            
-            // reset reporter so that old metrics don't persist over time
-            this.reporter = new StandaloneStatusReporter();
         }
         
     }
@@ -3,9 +3,11 @@ package datawave.ingest.mapreduce.job;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
 
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.mapreduce.AccumuloOutputFormat;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.accumulo.core.data.Mutation;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.RecordWriter;
@@ -13,17 +15,54 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class CBMutationOutputFormatter extends AccumuloOutputFormat {
     
     private static final Logger log = Logger.getLogger(CBMutationOutputFormatter.class);
     
+    // The sizing of the batch writer that all of a task's mutations are written through. Any that are not set keep the BatchWriterConfig defaults.
+    public static final String BATCH_WRITER_MAX_MEMORY = "ingest.live.batch.writer.max.memory";
+    public static final String BATCH_WRITER_MAX_LATENCY = "ingest.live.batch.writer.max.latency.ms";
+    public static final String BATCH_WRITER_MAX_WRITE_THREADS = "ingest.live.batch.writer.max.write.threads";
+    
     public static void setOutputInfo(Job job, String user, byte[] passwd, boolean createTables, String defaultTable) throws AccumuloSecurityException {
         AccumuloOutputFormat.setConnectorInfo(job, user, new PasswordToken(passwd));
         AccumuloOutputFormat.setCreateTables(job, createTables);
         AccumuloOutputFormat.setDefaultTableName(job, defaultTable);
     }
     
+    /**
+     * Size the batch writer that the record writer of each task writes its mutations through, from the job's configuration.
+     * 
+     * @param job
+     */
+    public static void configureBatchWriter(Job job) {
+        AccumuloOutputFormat.setBatchWriterOptions(job, getBatchWriterConfig(job.getConfiguration()));
+    }
+    
+    /**
+     * Get the batch writer configuration from the {@link #BATCH_WRITER_MAX_MEMORY} (bytes), {@link #BATCH_WRITER_MAX_LATENCY} (milliseconds) and
+     * {@link #BATCH_WRITER_MAX_WRITE_THREADS} properties.
+     * 
+     * @param conf
+     * @return the batch writer configuration
+     */
+    public static BatchWriterConfig getBatchWriterConfig(Configuration conf) {
+        BatchWriterConfig config = new BatchWriterConfig();
+        if (conf.get(BATCH_WRITER_MAX_MEMORY) != null) {
+            config.setMaxMemory(conf.getLong(BATCH_WRITER_MAX_MEMORY, config.getMaxMemory()));
+        }
+        if (conf.get(BATCH_WRITER_MAX_LATENCY) != null) {
+            config.setMaxLatency(conf.getLong(BATCH_WRITER_MAX_LATENCY, config.getMaxLatency(TimeUnit.MILLISECONDS)), TimeUnit.MILLISECONDS);
+        }
+        if (conf.get(BATCH_WRITER_MAX_WRITE_THREADS) != null) {
+            config.setMaxWriteThreads(conf.getInt(BATCH_WRITER_MAX_WRITE_THREADS, config.getMaxWriteThreads()));
+        }
+        log.info("Writing mutations with " + config);
+        return config;
+    }
+    
     @Override
     public RecordWriter<Text,Mutation> getRecordWriter(TaskAttemptContext attempt) throws IOException {
         return new CBRecordWriter(super.getRecordWriter(attempt), attempt);
@@ -22,6 +22,9 @@ import datawave.ingest.mapreduce.job.writer.ChainedContextWriter;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
 import datawave.ingest.mapreduce.job.writer.DedupeContextWriter;
 import datawave.ingest.mapreduce.job.writer.LiveContextWriter;
+import datawave.ingest.mapreduce.job.writer.RowGroupingLiveContextWriter;
+import datawave.ingest.mapreduce.job.writer.SortedBufferingContextWriter;
+import datawave.ingest.mapreduce.job.writer.SortingContextWriter;
 import datawave.ingest.mapreduce.job.writer.TableCachingContextWriter;
 import datawave.ingest.mapreduce.partition.MultiTableRangePartitioner;
 import datawave.ingest.metric.IngestInput;
@@ -119,18 +122,19 @@ import java.util.Set;
 
 /**
  * Class that starts a MapReduce job to create Accumulo Map files that to be bulk imported into Accumulo If outputMutations is specified, then Mutations are
- * created instead which will modify accumulo directly instead of using Accumulo Map files (e.g. use for live ingest). If mapOnly is specified (only valid for
- * live ingest), then the combiner and reducers will be run as part of the map process. Beware that potentially more data may be cached in memory when doing
- * mapOnly processing. This will only be an issue if something like the EdgeDataTypeHandler produces an unreasonable number of edges for one event. The general
- * sequence of events is as follows:
+ * created instead which will modify accumulo directly instead of using Accumulo Map files (e.g. use for live ingest). If mapOnly is specified, then the
+ * combiner and reducers will be run as part of the map process, and for bulk ingest the map output is sorted within each map task. Beware that potentially more
+ * data may be cached in memory when doing mapOnly processing. This will only be an issue if something like the EdgeDataTypeHandler produces an unreasonable
+ * number of edges for one event. The general sequence of events is as follows:
  * <p>
  * EventSequenceFileInputFormat produces an EventSequenceFileReader to read files of Event objects EventMapper used in map phase which calls processBulk on
  * DataTypeHelper implementations to produce BulkIngestKey,Value pairs BulkIngestDedupeCombiner is invoked from the DedupeContextWriter to primarily dedupe
  * BulkIngestKey,Value pairs if not running a mapOnly job, then the Delegating Partitioner will run, using the Partitioners that are configured for each table
  * or the default Partitioner if none is specified for a table. BulkIngestAggregatingReducer is used as the reducer (or invoked from the
- * AggregatingContextWriter in mapOnly mode) to produce dedupped BulkIngestKey,Value pairs The BulkContextWriter or the LiveContextWriter are at all stages to
- * write data to the context in the appropriate format For bulk ingest the MultiRFileOutputFormatter is then used to format the output which is placed in the
- * {@code <workDir>/mapFiles} directory For live ingest the AccumuloOutputFormat is then used to apply the mutations directly to accumulo
+ * AggregatingContextWriter or SortingContextWriter in mapOnly mode) to produce dedupped BulkIngestKey,Value pairs The BulkContextWriter or the
+ * LiveContextWriter are at all stages to write data to the context in the appropriate format For bulk ingest the MultiRFileOutputFormatter is then used to
+ * format the output which is placed in the {@code <workDir>/mapFiles} directory For live ingest the AccumuloOutputFormat is then used to apply the mutations
+ * directly to accumulo
  */
 public class IngestJob implements Tool {
     
@@ -165,6 +169,8 @@ public class IngestJob implements Tool {
     protected boolean useMapOnly = false;
     protected boolean useCombiner = false;
     protected boolean useInlineCombiner = false;
+    protected boolean useOffHeapTableCache = false;
+    protected boolean groupLiveMutationsByRow = false;
     protected boolean verboseCounters = false;
     protected boolean tableCounters = false;
     protected boolean fileNameCounters = true;
@@ -236,6 +242,7 @@ public class IngestJob implements Tool {
         System.out.println("                     [-outputMutations]");
         System.out.println("                     [-mapreduce.job.reduces=numReducers]");
         System.out.println("                     [-disableSpeculativeExecution] [-mapOnly] [-useCombiner] [-useInlineCombiner]");
+        System.out.println("                     [-offHeapTableCache] [-groupLiveMutationsByRow]");
         System.out.println("                     [-verboseCounters]");
         System.out.println("                     [-tableCounters] [-contextWriterCounters] [-noFileNameCounters]");
         System.out.println("                     [-generateMapFileRowKeys]");
@@ -609,6 +616,10 @@ public class IngestJob implements Tool {
                 useCombiner = true;
             } else if (args[i].equals("-useInlineCombiner")) {
                 useInlineCombiner = true;
+            } else if (args[i].equals("-offHeapTableCache")) {
+                useOffHeapTableCache = true;
+            } else if (args[i].equals("-groupLiveMutationsByRow")) {
+                groupLiveMutationsByRow = true;
             } else if (args[i].equals("-pipelineId")) {
                 pipelineId = args[++i];
             } else if (args[i].equals("-markerFileReducePercentage")) {
@@ -710,11 +721,6 @@ public class IngestJob implements Tool {
                 return null;
             }
             
-            if (useMapOnly && !outputMutations) {
-                log.error("ERROR: Cannot do bulk ingest mapOnly (i.e. without the reduce phase).  Bulk ingest required sorted keys.");
-                return null;
-            }
-            
             if (!outputMutations && destHdfs == null) {
                 log.error("ERROR: -destHdfs must be specified for bulk ingest");
                 return null;
@@ -842,6 +848,14 @@ public class IngestJob implements Tool {
             }
         }
         
+        // The table caching context writer combines entries across events before they leave the mapper. The off heap version bounds the cache by bytes
+        // and combines sorted runs of entries.
+        Class<? extends ContextWriter> tableCachingContextWriterClass = (useOffHeapTableCache ? SortedBufferingContextWriter.class
+                        : TableCachingContextWriter.class);
+        
+        // The live context writer translates BulkIngestKeys to Mutations. The row grouping version writes one mutation per row rather than one per entry.
+        Class<? extends ContextWriter> liveContextWriterClass = (groupLiveMutationsByRow ? RowGroupingLiveContextWriter.class : LiveContextWriter.class);
+        
         // Setup the job output and reducer classes
         if (outputMutations) {
             job.setOutputKeyClass(Text.class);
@@ -863,15 +877,15 @@ public class IngestJob implements Tool {
                     // The dedupe context writer invokes the BulkIngestKeyDedupeCombiner.
                     // We are running the DedupeContextWriter in the context writer stream instead of using a combiner for performance reasons
                     job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, DedupeContextWriter.class, ChainedContextWriter.class);
-                    job.getConfiguration().setClass(DedupeContextWriter.CONTEXT_WRITER_CLASS, TableCachingContextWriter.class, ContextWriter.class);
+                    job.getConfiguration().setClass(DedupeContextWriter.CONTEXT_WRITER_CLASS, tableCachingContextWriterClass, ContextWriter.class);
                 } else {
-                    job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, TableCachingContextWriter.class, ChainedContextWriter.class);
+                    job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, tableCachingContextWriterClass, ChainedContextWriter.class);
                 }
                 job.getConfiguration().setClass(TableCachingContextWriter.CONTEXT_WRITER_CLASS, BulkContextWriter.class, ContextWriter.class);
                 
                 // Aggregating reducer will remove dupes for each reduce task and reset the reset timestamps
                 // The reducer will take care of translating from BulkIngestKeys to Mutations by using the LiveContextWriter
-                job.getConfiguration().setClass(BulkIngestKeyAggregatingReducer.CONTEXT_WRITER_CLASS, LiveContextWriter.class, ContextWriter.class);
+                job.getConfiguration().setClass(BulkIngestKeyAggregatingReducer.CONTEXT_WRITER_CLASS, liveContextWriterClass, ContextWriter.class);
                 job.getConfiguration().setBoolean(BulkIngestKeyAggregatingReducer.CONTEXT_WRITER_OUTPUT_TABLE_COUNTERS, tableCounters);
                 job.setReducerClass(BulkIngestKeyAggregatingReducer.class);
             } else {
@@ -884,13 +898,13 @@ public class IngestJob implements Tool {
                 
                 if (useCombiner || useInlineCombiner) {
                     job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, DedupeContextWriter.class, ChainedContextWriter.class);
-                    job.getConfiguration().setClass(DedupeContextWriter.CONTEXT_WRITER_CLASS, TableCachingContextWriter.class, ContextWriter.class);
+                    job.getConfiguration().setClass(DedupeContextWriter.CONTEXT_WRITER_CLASS, tableCachingContextWriterClass, ContextWriter.class);
                 } else {
-                    job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, TableCachingContextWriter.class, ChainedContextWriter.class);
+                    job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, tableCachingContextWriterClass, ChainedContextWriter.class);
                 }
                 
                 job.getConfiguration().setClass(TableCachingContextWriter.CONTEXT_WRITER_CLASS, AggregatingContextWriter.class, ContextWriter.class);
-                job.getConfiguration().setClass(AggregatingContextWriter.CONTEXT_WRITER_CLASS, LiveContextWriter.class, ContextWriter.class);
+                job.getConfiguration().setClass(AggregatingContextWriter.CONTEXT_WRITER_CLASS, liveContextWriterClass, ContextWriter.class);
             }
             
         } else {
@@ -912,9 +926,9 @@ public class IngestJob implements Tool {
                     // The dedupe context writer invokes the BulkIngestKeyDedupeCombiner.
                     // We are running the DedupeContextWriter in the context writer stream instead of using a combiner for performance reasons
                     job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, DedupeContextWriter.class, ChainedContextWriter.class);
-                    job.getConfiguration().setClass(DedupeContextWriter.CONTEXT_WRITER_CLASS, TableCachingContextWriter.class, ContextWriter.class);
+                    job.getConfiguration().setClass(DedupeContextWriter.CONTEXT_WRITER_CLASS, tableCachingContextWriterClass, ContextWriter.class);
                 } else {
-                    job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, TableCachingContextWriter.class, ChainedContextWriter.class);
+                    job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, tableCachingContextWriterClass, ChainedContextWriter.class);
                 }
                 job.getConfiguration().setClass(TableCachingContextWriter.CONTEXT_WRITER_CLASS, BulkContextWriter.class, ContextWriter.class);
                 
@@ -923,19 +937,20 @@ public class IngestJob implements Tool {
                 job.getConfiguration().setBoolean(BulkIngestKeyAggregatingReducer.CONTEXT_WRITER_OUTPUT_TABLE_COUNTERS, tableCounters);
                 job.setReducerClass(BulkIngestKeyAggregatingReducer.class);
             } else {
-                // The dedupe context writer invokes the BulkIngestKeyDedupeCombiner, and the aggregating context writer
-                // invokes the BulkIngestKeyAggregatingReducer. The LiveContextWriter will take care of translating from BulkIngestKeys to Mutations
+                // The dedupe context writer invokes the BulkIngestKeyDedupeCombiner, and the sorting context writer sorts everything written by the
+                // task (spilling to local disk as needed) and then invokes the BulkIngestKeyAggregatingReducer, so that the BulkContextWriter
+                // writes the keys in order and the MultiRFileOutputFormatter can write the map files directly from the map task
                 job.getConfiguration().setBoolean(EventMapper.CONTEXT_WRITER_OUTPUT_TABLE_COUNTERS, tableCounters);
                 
                 if (useCombiner || useInlineCombiner) {
                     job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, DedupeContextWriter.class, ChainedContextWriter.class);
-                    job.getConfiguration().setClass(DedupeContextWriter.CONTEXT_WRITER_CLASS, TableCachingContextWriter.class, ContextWriter.class);
+                    job.getConfiguration().setClass(DedupeContextWriter.CONTEXT_WRITER_CLASS, tableCachingContextWriterClass, ContextWriter.class);
                 } else {
-                    job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, TableCachingContextWriter.class, ChainedContextWriter.class);
+                    job.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, tableCachingContextWriterClass, ChainedContextWriter.class);
                 }
                 
-                job.getConfiguration().setClass(TableCachingContextWriter.CONTEXT_WRITER_CLASS, AggregatingContextWriter.class, ContextWriter.class);
-                job.getConfiguration().setClass(AggregatingContextWriter.CONTEXT_WRITER_CLASS, BulkContextWriter.class, ContextWriter.class);
+                job.getConfiguration().setClass(TableCachingContextWriter.CONTEXT_WRITER_CLASS, SortingContextWriter.class, ContextWriter.class);
+                job.getConfiguration().setClass(SortingContextWriter.CONTEXT_WRITER_CLASS, BulkContextWriter.class, ContextWriter.class);
             }
         }
         
@@ -963,6 +978,7 @@ public class IngestJob implements Tool {
         if (outputMutations) {
             CBMutationOutputFormatter.setZooKeeperInstance(job, ClientConfiguration.loadDefault().withInstance(instanceName).withZkHosts(zooKeepers));
             CBMutationOutputFormatter.setOutputInfo(job, userName, password, true, null);
+            CBMutationOutputFormatter.configureBatchWriter(job);
             job.setOutputFormatClass(CBMutationOutputFormatter.class);
         } else {
             FileOutputFormat.setOutputPath(job, new Path(workDirPath, "mapFiles"));
@@ -0,0 +1,75 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import com.google.common.collect.Multimap;
+
+/**
+ * A live context writer that groups the entries of each commit by table and row, and passes one mutation per row with all of its columns to the context,
+ * rather than one mutation per entry. The shard table in particular receives many entries for the same row with each event, so this cuts down the number of
+ * mutations (and the per-mutation overhead in the tablet servers' write-ahead logs) that the AccumuloOutputFormat's batch writer has to send.
+ * <p>
+ * A row's mutation is passed to the context early if it grows past {@link #MAX_MUTATION_SIZE} bytes, so that it stays well within the batch writer's memory.
+ * The entries of a row are added to its mutation in the order they were written, so a delete and a put of the same key are applied in the same order as they
+ * would be by the {@link LiveContextWriter}.
+ */
+public class RowGroupingLiveContextWriter extends LiveContextWriter {
+    
+    public static final String MAX_MUTATION_SIZE = "context.writer.max.mutation.size";
+    public static final long DEFAULT_MAX_MUTATION_SIZE = 4 * 1024 * 1024;
+    
+    private long maxMutationSize = DEFAULT_MAX_MUTATION_SIZE;
+    
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+        super.setup(conf, outputTableCounters);
+        maxMutationSize = conf.getLong(MAX_MUTATION_SIZE, DEFAULT_MAX_MUTATION_SIZE);
+    }
+    
+    @Override
+    protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,Text,Mutation> context) throws IOException, InterruptedException {
+        Map<Text,Map<ByteSequence,Mutation>> mutations = new HashMap<>();
+        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+            Text table = entry.getKey().getTableName();
+            Key key = entry.getKey().getKey();
+            
+            Map<ByteSequence,Mutation> rows = mutations.get(table);
+            if (rows == null) {
+                rows = new LinkedHashMap<>();
+                mutations.put(table, rows);
+            }
+            
+            ByteSequence row = key.getRowData();
+            Mutation m = rows.get(row);
+            if (m == null) {
+                m = new Mutation(row.toArray());
+                rows.put(row, m);
+            }
+            addToMutation(m, key, entry.getValue());
+            
+            if (m.numBytes() >= maxMutationSize) {
+                context.write(table, m);
+                rows.remove(row);
+            }
+        }
+        
+        for (Map.Entry<Text,Map<ByteSequence,Mutation>> table : mutations.entrySet()) {
+            for (Mutation m : table.getValue().values()) {
+                context.write(table.getKey(), m);
+            }
+        }
+    }
+}
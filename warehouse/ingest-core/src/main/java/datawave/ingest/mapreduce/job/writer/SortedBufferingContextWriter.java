@@ -0,0 +1,429 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.reduce.BulkIngestKeyDedupeCombiner;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a caching context writer like the {@link TableCachingContextWriter}, except that the cache of each table is bounded by bytes rather than by entries,
+ * and is held off of the heap. The entries for a table are serialized into a direct buffer as they are received. When the buffer is full, the entries are
+ * sorted in place, each run of equal keys is passed through the table's combiners, and the result is written to the chained context writer in sorted order.
+ * <p>
+ * The tables to buffer are configured by setting a {@code <tablename>.table.context.writer.buffer} property where the value is the size of the buffer in
+ * bytes. Tables configured for the {@link TableCachingContextWriter} with a {@code <tablename>.table.context.writer.cache} property are buffered with the
+ * default buffer size, so this writer may replace it without further configuration. Note that the buffers count against the JVM's direct memory limit
+ * (-XX:MaxDirectMemorySize).
+ */
+public class SortedBufferingContextWriter extends AbstractContextWriter<BulkIngestKey,Value> implements ChainedContextWriter<BulkIngestKey,Value> {
+    
+    private static final Logger log = Logger.getLogger(SortedBufferingContextWriter.class);
+    
+    // The property used for to configure the next writer in the chain, shared with the TableCachingContextWriter so that this writer can replace it
+    public static final String CONTEXT_WRITER_CLASS = TableCachingContextWriter.CONTEXT_WRITER_CLASS;
+    
+    // The property used to determine whether we are outputting mutations or keys such that a default chained context writer can be configured
+    public static final String MAPRED_OUTPUT_VALUE_CLASS = "mapreduce.job.output.value.class";
+    
+    // counters to keep track of how often the buffer for a table gets flushed, and how many entries go in and come out
+    public static final String FLUSHED_BUFFER_COUNTER = "SORTED_BUFFER_FLUSHES";
+    public static final String FLUSHED_BUFFER_TOTAL = "SORTED_BUFFER_FLUSHED_ENTRIES";
+    public static final String FLUSHED_BUFFER_OUTPUT = "SORTED_BUFFER_OUTPUT_ENTRIES";
+    
+    // the tables to buffer will be configured by setting a <tablename>.table.context.writer.buffer property where the value is the size of the buffer in bytes
+    public static final String TABLES_TO_BUFFER_SUFFIX = ".table.context.writer.buffer";
+    
+    // the buffer size used for the tables configured for the TableCachingContextWriter
+    public static final int DEFAULT_BUFFER_SIZE = 32 * 1024 * 1024;
+    
+    // the serialized size of an entry, excluding the bytes of the key fields and value
+    private static final int ENTRY_OVERHEAD = 4 * 4 + 8 + 1 + 4;
+    
+    // runs shorter than this are sorted by insertion
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    
+    // This is the buffer configuration
+    private final Map<Text,Integer> tableBufferConf = new HashMap<>();
+    
+    // These are the buffers
+    private final Map<Text,TableBuffer> buffers = new HashMap<>();
+    
+    // This is the combiner used to aggregate values
+    private CapturingContextWriter combinerCache = new CapturingContextWriter();
+    private BulkIngestKeyDedupeCombiner<BulkIngestKey,Value> combiner = new BulkIngestKeyDedupeCombiner<BulkIngestKey,Value>() {
+        @Override
+        protected void setupContextWriter(Configuration conf) throws IOException {
+            setContextWriter(combinerCache);
+        }
+    };
+    
+    // The chained context writer
+    private ContextWriter<BulkIngestKey,Value> contextWriter;
+    
+    @Override
+    public void configureChainedContextWriter(Configuration conf, Class<? extends ContextWriter<BulkIngestKey,Value>> contextWriterClass) {
+        conf.setClass(CONTEXT_WRITER_CLASS, contextWriterClass, ContextWriter.class);
+    }
+    
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+        super.setup(conf, false);
+        
+        // Configure the combiner
+        combiner.setup(conf);
+        
+        // get the tables to buffer configuration, letting an explicit buffer size override the default for tables configured for the table caching writer
+        for (Map.Entry<String,String> prop : conf) {
+            if (prop.getKey().endsWith(TableCachingContextWriter.TABLES_TO_CACHE_SUFFIX)) {
+                String tableName = prop.getKey().substring(0, prop.getKey().length() - TableCachingContextWriter.TABLES_TO_CACHE_SUFFIX.length());
+                Text table = new Text(tableName);
+                if (!tableBufferConf.containsKey(table)) {
+                    tableBufferConf.put(table, DEFAULT_BUFFER_SIZE);
+                }
+            }
+        }
+        for (Map.Entry<String,String> prop : conf) {
+            if (prop.getKey().endsWith(TABLES_TO_BUFFER_SUFFIX)) {
+                String tableName = prop.getKey().substring(0, prop.getKey().length() - TABLES_TO_BUFFER_SUFFIX.length());
+                tableBufferConf.put(new Text(tableName), Integer.parseInt(prop.getValue()));
+            }
+        }
+        
+        // create and setup the chained context writer
+        Class<ContextWriter<BulkIngestKey,Value>> contextWriterClass = null;
+        if (Mutation.class.equals(conf.getClass(MAPRED_OUTPUT_VALUE_CLASS, null))) {
+            contextWriterClass = (Class<ContextWriter<BulkIngestKey,Value>>) conf.getClass(CONTEXT_WRITER_CLASS, LiveContextWriter.class, ContextWriter.class);
+        } else {
+            contextWriterClass = (Class<ContextWriter<BulkIngestKey,Value>>) conf.getClass(CONTEXT_WRITER_CLASS, BulkContextWriter.class, ContextWriter.class);
+        }
+        try {
+            contextWriter = contextWriterClass.newInstance();
+            contextWriter.setup(conf, outputTableCounters);
+        } catch (Exception e) {
+            throw new IOException("Failed to initialized " + contextWriterClass + " from property " + CONTEXT_WRITER_CLASS, e);
+        }
+    }
+    
+    @Override
+    public void commit(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        super.commit(context);
+        contextWriter.commit(context);
+    }
+    
+    @Override
+    protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                    InterruptedException {
+        Multimap<BulkIngestKey,Value> residual = HashMultimap.create();
+        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+            Integer bufferSize = tableBufferConf.get(entry.getKey().getTableName());
+            if (bufferSize != null) {
+                buffer(entry.getKey(), entry.getValue(), bufferSize, context);
+            } else {
+                residual.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!residual.isEmpty()) {
+            contextWriter.write(residual, context);
+        }
+    }
+    
+    @Override
+    public void rollback() throws IOException, InterruptedException {
+        super.rollback();
+        contextWriter.rollback();
+    }
+    
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        super.cleanup(context);
+        for (TableBuffer buffer : buffers.values()) {
+            flush(buffer, context);
+        }
+        // release the direct buffers
+        buffers.clear();
+        contextWriter.cleanup(context);
+    }
+    
+    private void buffer(BulkIngestKey key, Value value, int bufferSize, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                    InterruptedException {
+        Key k = key.getKey();
+        int size = ENTRY_OVERHEAD + k.getRowData().length() + k.getColumnFamilyData().length() + k.getColumnQualifierData().length()
+                        + k.getColumnVisibilityData().length() + value.getSize();
+        if (size > bufferSize) {
+            // this entry will never fit, so pass it straight through
+            contextWriter.write(key, value, context);
+            return;
+        }
+        
+        TableBuffer buffer = buffers.get(key.getTableName());
+        if (buffer == null) {
+            buffer = new TableBuffer(key.getTableName(), bufferSize);
+            buffers.put(key.getTableName(), buffer);
+        }
+        if (size > buffer.arena.remaining()) {
+            flush(buffer, context);
+        }
+        buffer.append(k, value);
+    }
+    
+    /**
+     * Sort the entries of a table's buffer, combine each run of equal keys, and pass the result through the delegate
+     */
+    private void flush(TableBuffer buffer, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        if (buffer.count == 0) {
+            return;
+        }
+        
+        long start = System.currentTimeMillis();
+        ByteBuffer arena = buffer.arena;
+        int[] offsets = buffer.offsets;
+        sort(arena, offsets, Arrays.copyOf(offsets, buffer.count), 0, buffer.count);
+        
+        long output = 0;
+        List<Value> values = new ArrayList<>();
+        int runStart = 0;
+        while (runStart < buffer.count) {
+            int runEnd = runStart + 1;
+            while (runEnd < buffer.count && compareKeys(arena, offsets[runStart], offsets[runEnd]) == 0) {
+                runEnd++;
+            }
+            
+            BulkIngestKey key = new BulkIngestKey(buffer.table, readKey(arena, offsets[runStart]));
+            if (runEnd - runStart == 1) {
+                contextWriter.write(key, readValue(arena, offsets[runStart]), context);
+                output++;
+            } else {
+                for (int i = runStart; i < runEnd; i++) {
+                    values.add(readValue(arena, offsets[i]));
+                }
+                combiner.doReduce(key, values, context);
+                values.clear();
+                output += combinerCache.reduced.size();
+                contextWriter.write(combinerCache.reduced, context);
+                combinerCache.clear();
+            }
+            runStart = runEnd;
+        }
+        
+        // register that we filled the buffer for this table
+        String table = buffer.table.toString();
+        getCounter(context, FLUSHED_BUFFER_TOTAL, table).increment(buffer.count);
+        getCounter(context, FLUSHED_BUFFER_OUTPUT, table).increment(output);
+        getCounter(context, FLUSHED_BUFFER_COUNTER, table).increment(1);
+        if (log.isDebugEnabled()) {
+            log.debug("Flushed " + buffer.count + " entries (" + buffer.arena.position() + " bytes) for " + table + " as " + output + " entries in "
+                            + (System.currentTimeMillis() - start) + "ms");
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Merge sort the entry offsets in {@code [from, to)} of {@code dest} by key. The sort is stable, so the values of a run of equal keys are combined in the
+     * order they were written. {@code src} must hold the same offsets as {@code dest} on entry.
+     */
+    private static void sort(ByteBuffer arena, int[] dest, int[] src, int from, int to) {
+        if (to - from < INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int offset = dest[i];
+                int j = i;
+                while (j > from && compareKeys(arena, dest[j - 1], offset) > 0) {
+                    dest[j] = dest[j - 1];
+                    j--;
+                }
+                dest[j] = offset;
+            }
+            return;
+        }
+        
+        // sort each half of src using dest as scratch, then merge the halves into dest
+        int mid = (from + to) >>> 1;
+        sort(arena, src, dest, from, mid);
+        sort(arena, src, dest, mid, to);
+        if (compareKeys(arena, src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, from, dest, from, to - from);
+            return;
+        }
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            if (q >= to || (p < mid && compareKeys(arena, src[p], src[q]) <= 0)) {
+                dest[i] = src[p++];
+            } else {
+                dest[i] = src[q++];
+            }
+        }
+    }
+    
+    /**
+     * Compare two serialized keys in the same order as {@link Key#compareTo(Key)}
+     */
+    static int compareKeys(ByteBuffer arena, int a, int b) {
+        // row, column family, column qualifier, and column visibility
+        for (int field = 0; field < 4; field++) {
+            int aLength = arena.getInt(a);
+            int bLength = arena.getInt(b);
+            a += 4;
+            b += 4;
+            int comparison = compareBytes(arena, a, aLength, b, bLength);
+            if (comparison != 0) {
+                return comparison;
+            }
+            a += aLength;
+            b += bLength;
+        }
+        // newer timestamps sort first
+        int comparison = Long.compare(arena.getLong(b), arena.getLong(a));
+        if (comparison != 0) {
+            return comparison;
+        }
+        // deletes sort before the entries they delete
+        return Boolean.compare(arena.get(b + 8) != 0, arena.get(a + 8) != 0);
+    }
+    
+    private static int compareBytes(ByteBuffer arena, int a, int aLength, int b, int bLength) {
+        int length = Math.min(aLength, bLength);
+        int i = 0;
+        // the buffer is big endian, so comparing eight bytes at a time as unsigned longs matches comparing them one at a time
+        for (; i + 8 <= length; i += 8) {
+            long aBytes = arena.getLong(a + i);
+            long bBytes = arena.getLong(b + i);
+            if (aBytes != bBytes) {
+                return Long.compareUnsigned(aBytes, bBytes);
+            }
+        }
+        for (; i < length; i++) {
+            int comparison = (arena.get(a + i) & 0xff) - (arena.get(b + i) & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return aLength - bLength;
+    }
+    
+    private static Key readKey(ByteBuffer arena, int offset) {
+        byte[][] fields = new byte[4][];
+        for (int field = 0; field < 4; field++) {
+            fields[field] = new byte[arena.getInt(offset)];
+            offset += 4;
+            read(arena, offset, fields[field]);
+            offset += fields[field].length;
+        }
+        return new Key(fields[0], fields[1], fields[2], fields[3], arena.getLong(offset), arena.get(offset + 8) != 0, false);
+    }
+    
+    private static Value readValue(ByteBuffer arena, int offset) {
+        // skip the key fields, timestamp, and delete flag
+        for (int field = 0; field < 4; field++) {
+            offset += 4 + arena.getInt(offset);
+        }
+        offset += 9;
+        byte[] value = new byte[arena.getInt(offset)];
+        read(arena, offset + 4, value);
+        return new Value(value, false);
+    }
+    
+    private static void read(ByteBuffer arena, int offset, byte[] bytes) {
+        ByteBuffer view = arena.duplicate();
+        view.position(offset);
+        view.get(bytes);
+    }
+    
+    /**
+     * The serialized entries of one table, and the offset of each entry. Each entry is the length and bytes of the row, column family, column qualifier, and
+     * column visibility, followed by the timestamp, the delete flag, and the length and bytes of the value.
+     */
+    private static class TableBuffer {
+        private final Text table;
+        private final ByteBuffer arena;
+        private int[] offsets = new int[1024];
+        private int count = 0;
+        
+        TableBuffer(Text table, int size) {
+            this.table = table;
+            this.arena = ByteBuffer.allocateDirect(size);
+        }
+        
+        void append(Key key, Value value) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = arena.position();
+            put(key.getRowData());
+            put(key.getColumnFamilyData());
+            put(key.getColumnQualifierData());
+            put(key.getColumnVisibilityData());
+            arena.putLong(key.getTimestamp());
+            arena.put((byte) (key.isDeleted() ? 1 : 0));
+            arena.putInt(value.getSize());
+            arena.put(value.get(), 0, value.getSize());
+        }
+        
+        private void put(ByteSequence bytes) {
+            arena.putInt(bytes.length());
+            arena.put(bytes.getBackingArray(), bytes.offset(), bytes.length());
+        }
+        
+        void clear() {
+            arena.clear();
+            count = 0;
+        }
+    }
+    
+    /**
+     * This is a context writer that simply captures the output of the combiner, in the order it was written
+     */
+    private static class CapturingContextWriter implements ContextWriter<BulkIngestKey,Value> {
+        
+        private Multimap<BulkIngestKey,Value> reduced = ArrayListMultimap.create();
+        
+        public void clear() {
+            reduced = ArrayListMultimap.create();
+        }
+        
+        @Override
+        public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            reduced.put(key, value);
+        }
+        
+        @Override
+        public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                        InterruptedException {
+            reduced.putAll(entries);
+        }
+        
+        @Override
+        public void commit(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void rollback() throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            
+        }
+    }
+}
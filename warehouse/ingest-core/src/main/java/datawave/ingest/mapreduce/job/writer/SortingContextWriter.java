@@ -0,0 +1,282 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.reduce.BulkIngestKeyAggregatingReducer;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.LocalDirAllocator;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * This is a context writer for map only bulk ingest, which sorts all of the entries written by a task so that they can be written directly to RFiles by the
+ * {@link datawave.ingest.mapreduce.job.MultiRFileOutputFormatter}, doing the work of the shuffle and the reducer within the mapper.
+ * <p>
+ * The entries are held in memory until their estimated size reaches the {@code ingest.sorting.context.writer.buffer.size} property, then sorted and spilled to
+ * the task's local directories. When the task completes, the spilled runs are merged with the entries still in memory, and each run of equal keys is passed
+ * through the {@link BulkIngestKeyAggregatingReducer}, which writes the result to the chained context writer in sorted order.
+ */
+public class SortingContextWriter extends AbstractContextWriter<BulkIngestKey,Value> implements ChainedContextWriter<BulkIngestKey,Value> {
+    
+    private static final Logger log = Logger.getLogger(SortingContextWriter.class);
+    
+    public static final String CONTEXT_WRITER_CLASS = BulkIngestKeyAggregatingReducer.CONTEXT_WRITER_CLASS;
+    
+    // the estimated size in bytes of the entries held in memory before they are sorted and spilled to disk
+    public static final String SORT_BUFFER_SIZE = "ingest.sorting.context.writer.buffer.size";
+    public static final long DEFAULT_SORT_BUFFER_SIZE = 256L * 1024 * 1024;
+    
+    // the local directories of the task, which hold the spill files
+    public static final String LOCAL_DIRS = "mapreduce.cluster.local.dir";
+    
+    // counters to keep track of how often the buffer gets spilled
+    public static final String SPILL_COUNTER = "SORT_BUFFER_SPILLS";
+    public static final String SPILLED_ENTRIES = "SORT_BUFFER_SPILLED_ENTRIES";
+    
+    // estimated size of an entry in the buffer, excluding the bytes of its key and value
+    private static final int ENTRY_OVERHEAD = 96;
+    
+    private BulkIngestKeyAggregatingReducer<BulkIngestKey,Value> reducer = new BulkIngestKeyAggregatingReducer<>();
+    
+    private Configuration conf;
+    private LocalDirAllocator localDirs = null;
+    private long maxBufferSize = DEFAULT_SORT_BUFFER_SIZE;
+    
+    private List<Map.Entry<BulkIngestKey,Value>> buffer = new ArrayList<>();
+    private long bufferSize = 0;
+    private final List<File> spillFiles = new ArrayList<>();
+    
+    @Override
+    public void configureChainedContextWriter(Configuration conf, Class<? extends ContextWriter<BulkIngestKey,Value>> contextWriterClass) {
+        conf.setClass(CONTEXT_WRITER_CLASS, contextWriterClass, ContextWriter.class);
+    }
+    
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+        super.setup(conf, false);
+        conf.setBoolean(BulkIngestKeyAggregatingReducer.CONTEXT_WRITER_OUTPUT_TABLE_COUNTERS, outputTableCounters);
+        reducer.setup(conf);
+        
+        this.conf = conf;
+        this.maxBufferSize = conf.getLong(SORT_BUFFER_SIZE, DEFAULT_SORT_BUFFER_SIZE);
+        if (conf.get(LOCAL_DIRS) != null) {
+            localDirs = new LocalDirAllocator(LOCAL_DIRS);
+        }
+    }
+    
+    @Override
+    protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                    InterruptedException {
+        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+            buffer.add(Maps.immutableEntry(entry.getKey(), entry.getValue()));
+            bufferSize += ENTRY_OVERHEAD + entry.getKey().getTableName().getLength() + entry.getKey().getKey().getSize() + entry.getValue().getSize();
+            if (bufferSize >= maxBufferSize) {
+                spill(context);
+            }
+        }
+    }
+    
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        // Note we are not calling the "countWrite" method as this will be done by the underlying ContextWriter if so configured
+        commit(context);
+        try {
+            reduceSorted(context);
+        } finally {
+            for (File spillFile : spillFiles) {
+                if (!spillFile.delete()) {
+                    log.warn("Unable to delete sort spill file " + spillFile);
+                }
+            }
+            spillFiles.clear();
+        }
+        reducer.finish(context);
+        super.cleanup(context);
+    }
+    
+    /**
+     * Sort the buffer and write it to a new spill file
+     */
+    private void spill(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException {
+        long start = System.currentTimeMillis();
+        buffer.sort(Map.Entry.comparingByKey());
+        
+        File file = createSpillFile();
+        spillFiles.add(file);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(buffer.size());
+            for (Map.Entry<BulkIngestKey,Value> entry : buffer) {
+                entry.getKey().write(output);
+                entry.getValue().write(output);
+            }
+        }
+        
+        getCounter(context, SPILL_COUNTER, "TOTAL").increment(1);
+        getCounter(context, SPILLED_ENTRIES, "TOTAL").increment(buffer.size());
+        if (log.isDebugEnabled()) {
+            log.debug("Spilled " + buffer.size() + " entries (estimated at " + bufferSize + " bytes) to " + file + " in " + (System.currentTimeMillis() - start)
+                            + "ms");
+        }
+        
+        // buffer.clear() can be fairly expensive, so let's let garbage collection do that
+        buffer = new ArrayList<>();
+        bufferSize = 0;
+    }
+    
+    private File createSpillFile() throws IOException {
+        if (localDirs != null) {
+            return localDirs.createTmpFileForWrite("sort.spill", -1, conf);
+        }
+        File file = File.createTempFile("sort", ".spill");
+        file.deleteOnExit();
+        return file;
+    }
+    
+    /**
+     * Merge the spill files with the buffer, passing each run of equal keys through the reducer
+     */
+    private void reduceSorted(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        buffer.sort(Map.Entry.comparingByKey());
+        
+        // runs are ordered by their next key, and then by the order they were written so that the values of a key stay in the order they were written
+        PriorityQueue<Run> runs = new PriorityQueue<>();
+        try {
+            for (File spillFile : spillFiles) {
+                Run run = new Run(runs.size(), new SpillFileIterator(spillFile));
+                if (run.advance()) {
+                    runs.add(run);
+                }
+            }
+            Run memory = new Run(spillFiles.size(), buffer.iterator());
+            if (memory.advance()) {
+                runs.add(memory);
+            }
+            
+            BulkIngestKey key = null;
+            List<Value> values = new ArrayList<>();
+            while (!runs.isEmpty()) {
+                Run run = runs.poll();
+                Map.Entry<BulkIngestKey,Value> entry = run.entry;
+                if (run.advance()) {
+                    runs.add(run);
+                }
+                
+                if (key != null && !key.equals(entry.getKey())) {
+                    reducer.doReduce(key, values, context);
+                    values = new ArrayList<>();
+                }
+                key = entry.getKey();
+                values.add(entry.getValue());
+            }
+            if (key != null) {
+                reducer.doReduce(key, values, context);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+            buffer = new ArrayList<>();
+            bufferSize = 0;
+        }
+    }
+    
+    /**
+     * The next entry of a sorted run of entries
+     */
+    private static class Run implements Comparable<Run> {
+        private final int index;
+        private final Iterator<Map.Entry<BulkIngestKey,Value>> entries;
+        private Map.Entry<BulkIngestKey,Value> entry;
+        
+        Run(int index, Iterator<Map.Entry<BulkIngestKey,Value>> entries) {
+            this.index = index;
+            this.entries = entries;
+        }
+        
+        boolean advance() {
+            if (entries.hasNext()) {
+                entry = entries.next();
+                return true;
+            }
+            close();
+            return false;
+        }
+        
+        void close() {
+            if (entries instanceof SpillFileIterator) {
+                ((SpillFileIterator) entries).close();
+            }
+        }
+        
+        @Override
+        public int compareTo(Run o) {
+            int result = entry.getKey().compareTo(o.entry.getKey());
+            return (result == 0 ? Integer.compare(index, o.index) : result);
+        }
+    }
+    
+    /**
+     * Reads the entries of a spill file in order
+     */
+    private static class SpillFileIterator implements Iterator<Map.Entry<BulkIngestKey,Value>> {
+        private final File file;
+        private final DataInputStream input;
+        private int remaining;
+        
+        SpillFileIterator(File file) throws IOException {
+            this.file = file;
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            this.remaining = input.readInt();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+        
+        @Override
+        public Map.Entry<BulkIngestKey,Value> next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            try {
+                BulkIngestKey key = new BulkIngestKey();
+                key.readFields(input);
+                Value value = new Value();
+                value.readFields(input);
+                return Maps.immutableEntry(key, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read sort spill file " + file, e);
+            }
+        }
+        
+        void close() {
+            try {
+                input.close();
+            } catch (IOException e) {
+                log.warn("Unable to close sort spill file " + file, e);
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import datawave.ingest.mapreduce.handler.shard.ShardIdFactory;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.mapreduce.job.ShardedTableMapFile;
 import datawave.util.time.DateHelper;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Value;
 import org.apache.commons.lang.time.DateUtils;
 import org.apache.hadoop.conf.Configurable;
@@ -15,12 +16,13 @@ import org.apache.hadoop.mapreduce.Partitioner;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The BalancedShardPartitioner takes advantage of the way that shards are balanced. See ShardedTableTabletBalancer. * The partitioner is designed to have no
@@ -30,45 +32,63 @@ import java.util.TreeMap;
  * of each day's shards and the hashCode function caused collisions for a given day's shards. * The number of days without collisions = floor(min(r, ts) / x)
  * 'ts' = number of tablet servers, 'r' = number of partitioners 'x' = number of shards in a given day * Depends on the ShardedTableMapFile for getting splits
  * and for identifying the tables it might see (ShardedTableMapFile.CONFIGURED_SHARDED_TABLE_NAMES), also assumes that the num of shard ids property is set.
+ * The assignments of a table are computed once and then read without locking, so getPartition may be called from several threads.
  */
 public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> implements Configurable, DelegatePartitioner {
     private static final Logger log = Logger.getLogger(BalancedShardPartitioner.class);
     private static final long now = System.currentTimeMillis();
     private static final String today = formatDay(0);
     private Configuration conf;
-    private Map<String,Map<Text,Integer>> shardPartitionsByTable;
+    // the assignments of each table, replaced rather than modified so that they can be read without locking
+    private volatile Map<Text,ShardAssignments> assignmentsByTable = Collections.emptyMap();
     private Map<String,TreeMap<Text,String>> shardIdToLocations = Maps.newHashMap();
     private Map<Text,Integer> offsetsFactorByTable;
-    int missingShardIdCount = 0;
+    private final AtomicInteger missingShardIdCount = new AtomicInteger();
     
     public static final String MISSING_SHARD_STRATEGY_PROP = "datawave.ingest.mapreduce.partition.BalancedShardPartitioner.missing.shard.strategy";
     
+    // the most entries held in the dense table of a table's assignments, beyond which the oldest days are looked up in the map
+    private static final int MAX_DENSE_ASSIGNMENTS = 1 << 22;
+    
     private ShardIdFactory shardIdFactory = null;
     
     @Override
-    public synchronized int getPartition(BulkIngestKey key, Value value, int numReduceTasks) {
-        try {
-            // partition will be balanced for a given day, more so for recent days
-            int partition = getAssignedPartition(key.getTableName().toString(), key.getKey().getRow());
-            
-            // the offsets should help send today's shard data to a different set of reducers than today's error shard data
-            int offsetForTable = shardIdFactory.getNumShards(key.getKey().getTimestamp()) * offsetsFactorByTable.get(key.getTableName());
-            
-            return (partition + offsetForTable) % numReduceTasks;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    public int getPartition(BulkIngestKey key, Value value, int numReduceTasks) {
+        ShardAssignments assignments = getAssignments(key.getTableName());
+        
+        // partition will be balanced for a given day, more so for recent days
+        int partition = getAssignedPartition(assignments, key.getKey().getRowData());
+        
+        // the offsets should help send today's shard data to a different set of reducers than today's error shard data
+        int offsetForTable = shardIdFactory.getNumShards(key.getKey().getTimestamp()) * assignments.offsetFactor;
+        
+        return (partition + offsetForTable) % numReduceTasks;
+    }
+    
+    private ShardAssignments getAssignments(Text tableName) {
+        ShardAssignments assignments = assignmentsByTable.get(tableName);
+        if (assignments == null) {
+            try {
+                assignments = lazilyCreateAssignments(tableName);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
         }
+        return assignments;
     }
     
     /**
      */
-    private int getAssignedPartition(String tableName, Text shardId) throws IOException {
-        Map<Text,Integer> assignments = lazilyCreateAssignments(tableName);
-        
-        Integer partitionId = assignments.get(shardId);
-        if (partitionId != null) {
+    private int getAssignedPartition(ShardAssignments assignments, ByteSequence row) {
+        int partitionId = assignments.getPartition(row);
+        if (partitionId >= 0) {
             return partitionId;
         }
+        Text shardId = new Text(row.toArray());
+        Integer assignment = assignments.partitionsByShardId.get(shardId);
+        if (assignment != null) {
+            return assignment;
+        }
         // if the partitionId is not there, either shards were not created for the day
         // or not all shards were created for the day
         
@@ -76,23 +96,21 @@ public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> i
         switch (missingShardStrategy) {
             case "hash":
                 // only warn a few times per partitioner to avoid flooding the logs
-                if (missingShardIdCount < 10) {
+                if (missingShardIdCount.get() < 10 && missingShardIdCount.getAndIncrement() < 10) {
                     log.warn("shardId didn't have a partition assigned to it: " + shardId);
-                    missingShardIdCount++;
                 }
                 return (shardId.hashCode() & Integer.MAX_VALUE);
             case "collapse":
-                ArrayList<Text> keys = new ArrayList<>(assignments.keySet());
-                Collections.sort(keys);
-                int closestAssignment = Collections.binarySearch(keys, shardId);
+                Text[] keys = assignments.sortedShardIds;
+                int closestAssignment = Arrays.binarySearch(keys, shardId);
                 if (closestAssignment >= 0) {
                     // Should have found it earlier, but just in case go ahead and return it
                     log.warn("Something is screwy, found " + shardId + " on the second try");
-                    return assignments.get(shardId);
+                    return assignments.partitionsByShardId.get(shardId);
                 }
                 // <tt>(-(<i>insertion point</i>) - 1)</tt> // insertion point in the index of the key greater
-                Text shardString = keys.get(Math.abs(closestAssignment + 1));
-                return assignments.get(shardString);
+                Text shardString = keys[Math.abs(closestAssignment + 1)];
+                return assignments.partitionsByShardId.get(shardString);
             default:
                 throw new RuntimeException("Unsupported missing shard strategy " + MISSING_SHARD_STRATEGY_PROP + "=" + missingShardStrategy);
         }
@@ -101,14 +119,17 @@ public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> i
     /**
      * For a given tablename, provides the mapping from {@code shard id -> partition}
      */
-    private Map<Text,Integer> lazilyCreateAssignments(String tableName) throws IOException {
-        if (this.shardPartitionsByTable == null) {
-            this.shardPartitionsByTable = new HashMap<>();
-        }
-        if (null == this.shardPartitionsByTable.get(tableName)) {
-            this.shardPartitionsByTable.put(tableName, getPartitionsByShardId(tableName));
+    private synchronized ShardAssignments lazilyCreateAssignments(Text tableName) throws IOException {
+        ShardAssignments assignments = this.assignmentsByTable.get(tableName);
+        if (null == assignments) {
+            assignments = new ShardAssignments(getPartitionsByShardId(tableName.toString()), offsetsFactorByTable.get(tableName));
+            // the number of shards is configured on first use, so do that before other threads can use it without locking
+            shardIdFactory.getNumShards(now);
+            Map<Text,ShardAssignments> assignmentsByTable = new HashMap<>(this.assignmentsByTable);
+            assignmentsByTable.put(new Text(tableName), assignments);
+            this.assignmentsByTable = assignmentsByTable;
         }
-        return this.shardPartitionsByTable.get(tableName);
+        return assignments;
     }
     
     /**
@@ -212,6 +233,112 @@ public class BalancedShardPartitioner extends Partitioner<BulkIngestKey,Value> i
         return partitionsByShardId;
     }
     
+    /**
+     * The partition of each shard id of a table. Shard ids of the form yyyyMMdd_n are looked up by their date and shard number in a dense table, without
+     * building a {@link Text}, and any others in the map. It is not modified once built, so threads can share it without locking.
+     */
+    private static class ShardAssignments {
+        private final Map<Text,Integer> partitionsByShardId;
+        private final Text[] sortedShardIds;
+        private final int offsetFactor;
+        
+        // indexed by (day - firstDay) * shardsPerDay + shard number, holding -1 for the shard ids without a partition
+        private final int[] partitions;
+        private final int firstDay;
+        private final int days;
+        private final int shardsPerDay;
+        
+        ShardAssignments(Map<Text,Integer> partitionsByShardId, int offsetFactor) {
+            this.partitionsByShardId = partitionsByShardId;
+            this.sortedShardIds = partitionsByShardId.keySet().toArray(new Text[partitionsByShardId.size()]);
+            Arrays.sort(sortedShardIds);
+            this.offsetFactor = offsetFactor;
+            
+            int minDay = Integer.MAX_VALUE;
+            int maxDay = -1;
+            int maxShard = -1;
+            for (Text shardId : sortedShardIds) {
+                long parsed = parse(shardId.getBytes(), 0, shardId.getLength());
+                if (parsed >= 0) {
+                    minDay = Math.min(minDay, (int) (parsed >>> 32));
+                    maxDay = Math.max(maxDay, (int) (parsed >>> 32));
+                    maxShard = Math.max(maxShard, (int) parsed);
+                }
+            }
+            
+            // keep the most recent days if all of them would make the table too large
+            this.shardsPerDay = maxShard + 1;
+            this.days = (shardsPerDay == 0 ? 0 : Math.min(maxDay - minDay + 1, MAX_DENSE_ASSIGNMENTS / shardsPerDay));
+            this.firstDay = maxDay - days + 1;
+            this.partitions = new int[days * shardsPerDay];
+            Arrays.fill(partitions, -1);
+            for (Map.Entry<Text,Integer> entry : partitionsByShardId.entrySet()) {
+                // shards on a tserver that only hosts future shards have no partition
+                int index = getIndex(entry.getKey().getBytes(), 0, entry.getKey().getLength());
+                if (index >= 0 && entry.getValue() != null) {
+                    partitions[index] = entry.getValue();
+                }
+            }
+        }
+        
+        /**
+         * @return the partition of the shard id, or -1 if it has to be looked up in the map
+         */
+        int getPartition(ByteSequence shardId) {
+            int index = getIndex(shardId.getBackingArray(), shardId.offset(), shardId.length());
+            return (index < 0 ? -1 : partitions[index]);
+        }
+        
+        private int getIndex(byte[] bytes, int offset, int length) {
+            long parsed = parse(bytes, offset, length);
+            if (parsed < 0) {
+                return -1;
+            }
+            int day = (int) (parsed >>> 32) - firstDay;
+            int shard = (int) parsed;
+            if (day < 0 || day >= days || shard >= shardsPerDay) {
+                return -1;
+            }
+            return day * shardsPerDay + shard;
+        }
+        
+        /**
+         * Parses a shard id of the form yyyyMMdd_n. The days are numbered as though every month had 31 days, which gives each date its own number without a
+         * calendar.
+         *
+         * @return the day number in the upper 32 bits and the shard number in the lower 32 bits, or -1 if this is not a shard id in that form
+         */
+        static long parse(byte[] bytes, int offset, int length) {
+            // the shard number must fit in an int and, to match the shard id exactly, have no leading zeros
+            if (length < 10 || length > 18 || bytes[offset + 8] != '_' || (bytes[offset + 9] == '0' && length > 10)) {
+                return -1;
+            }
+            int date = 0;
+            for (int i = 0; i < 8; i++) {
+                int digit = bytes[offset + i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                date = date * 10 + digit;
+            }
+            int shard = 0;
+            for (int i = 9; i < length; i++) {
+                int digit = bytes[offset + i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                shard = shard * 10 + digit;
+            }
+            int month = date / 100 % 100;
+            int dayOfMonth = date % 100;
+            if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > 31) {
+                return -1;
+            }
+            long day = ((date / 10000) * 12 + month - 1) * 31 + dayOfMonth - 1;
+            return (day << 32) | shard;
+        }
+    }
+    
     @Override
     public void configureWithPrefix(String prefix) {/* no op */}
     
@@ -1,12 +1,15 @@
 package datawave.ingest.table.aggregator;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.log4j.Logger;
 
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import datawave.ingest.protobuf.Uid;
@@ -15,18 +18,27 @@ import datawave.ingest.protobuf.Uid;
  * Implementation of an Aggregator that aggregates objects of the type Uid.List. This is an optimization for the shardIndex and shardReverseIndex, where the
  * list of UIDs for events will be maintained in the global index for low cardinality terms.
  * 
- * 
+ * The values are read in place with a {@link UidListReader} and the UIDs are interned as byte slices by a {@link UidInterner}, so the sets of UIDs below are
+ * bit sets over the interned ids rather than sets of Strings. The aggregated Uid.List is encoded directly from the interned bytes, with each list of UIDs in
+ * sorted order; the encoding is otherwise identical to that of the protobuf builder.
  * 
  */
 public class GlobalIndexUidAggregator extends PropogatingCombiner {
     private static final Logger log = Logger.getLogger(GlobalIndexUidAggregator.class);
-    private Uid.List.Builder builder = Uid.List.newBuilder();
+    
+    private final UidInterner interner = new UidInterner();
+    private final UidListReader reader = new UidListReader();
     
     /**
      * Using a set instead of a list so that duplicate UIDs are filtered out of the list. This might happen in the case of rows with masked fields that share a
      * UID.
      */
-    private HashSet<String> uids = new HashSet<>();
+    private BitSet uids = new BitSet();
+    
+    /**
+     * The number of UIDs in uids.
+     */
+    private int uidCount = 0;
     
     public GlobalIndexUidAggregator(int max) {
         this.maxUids = max;
@@ -39,17 +51,17 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> uidsToRemove = new HashSet<>();
+    private BitSet uidsToRemove = new BitSet();
     
     /**
-     * List of UIDs to remove.
+     * List of quarantined UIDs.
      */
-    private HashSet<String> quarantinedIds = new HashSet<>();
+    private BitSet quarantinedIds = new BitSet();
     
     /**
-     * List of UIDs to remove.
+     * List of released UIDs.
      */
-    private HashSet<String> releasedUids = new HashSet<>();
+    private BitSet releasedUids = new BitSet();
     
     /**
      * flag for whether or not we have seen ignore
@@ -74,56 +86,85 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
     /**
      * temporary set for removals.
      */
-    protected HashSet<String> tempSet;
+    protected BitSet tempSet = new BitSet();
+    
+    /**
+     * The UID lists of the Uid.List being built. Like the protobuf builder these survive across calls to aggregate until reset.
+     */
+    private final IdList outputUids = new IdList();
+    private final IdList outputRemovedUids = new IdList();
+    private final IdList outputQuarantinedUids = new IdList();
     
     public Value aggregate() {
         
         // as a backup, we remove the intersection of the UID sets
         
-        builder.setCOUNT(count);
-        
+        boolean ignore;
         if (seenIgnore || count > maxUids) {
-            builder.setIGNORE(true);
-            builder.clearUID();
+            ignore = true;
+            outputUids.clear();
             // if we catch seenIgnore, then there is
             // no need to propogate removals.
             propogate = false;
         } else {
-            builder.setIGNORE(false);
+            ignore = false;
             
-            uidsToRemove.removeAll(quarantinedIds);
-            uidsToRemove.removeAll(releasedUids);
-            quarantinedIds.removeAll(releasedUids);
+            uidsToRemove.andNot(quarantinedIds);
+            uidsToRemove.andNot(releasedUids);
+            quarantinedIds.andNot(releasedUids);
             
-            uids.removeAll(uidsToRemove);
-            uids.removeAll(quarantinedIds);
+            uids.andNot(uidsToRemove);
+            uids.andNot(quarantinedIds);
             
             if (!releasedUids.isEmpty()) {
                 if (log.isDebugEnabled())
                     log.debug("Adding released UIDS");
-                uids.addAll(releasedUids);
+                uids.or(releasedUids);
             }
+            uidCount = uids.cardinality();
             
-            builder.addAllUID(uids);
+            outputUids.addAllSorted(uids, interner);
         }
         
         if (log.isDebugEnabled())
             log.debug("Propogating: " + propogate);
         
         // clear all removals
-        builder.clearREMOVEDUID();
+        outputRemovedUids.clear();
         
         if (propogate) {
             
-            builder.addAllREMOVEDUID(uidsToRemove);
-            builder.addAllQUARANTINEUID(quarantinedIds);
+            outputRemovedUids.addAllSorted(uidsToRemove, interner);
+            outputQuarantinedUids.addAllSorted(quarantinedIds, interner);
         }
         if (log.isDebugEnabled())
-            log.debug("Building aggregate. Count is " + count + ", uids.size() is " + uids.size() + ". builder size is " + builder.getUIDList().size());
-        return new Value(builder.build().toByteArray());
+            log.debug("Building aggregate. Count is " + count + ", uids.size() is " + uidCount + ". builder size is " + outputUids.size());
+        return new Value(encode(ignore));
         
     }
     
+    /**
+     * Encode the Uid.List exactly as {@link Uid.List#toByteArray()} would, with the fields in field number order.
+     */
+    private byte[] encode(boolean ignore) {
+        int size = CodedOutputStream.computeBoolSize(UidListReader.IGNORE_FIELD, ignore) + CodedOutputStream.computeUInt64Size(UidListReader.COUNT_FIELD, count)
+                        + outputUids.serializedSize(interner) + outputRemovedUids.serializedSize(interner) + outputQuarantinedUids.serializedSize(interner);
+        byte[] bytes = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        try {
+            output.writeBool(UidListReader.IGNORE_FIELD, ignore);
+            output.writeUInt64(UidListReader.COUNT_FIELD, count);
+            outputUids.writeTo(output, UidListReader.UID_FIELD, interner);
+            outputRemovedUids.writeTo(output, UidListReader.REMOVEDUID_FIELD, interner);
+            outputQuarantinedUids.writeTo(output, UidListReader.QUARANTINEUID_FIELD, interner);
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            // cannot happen when writing to a byte array of the computed size
+            throw new IllegalStateException("Unable to encode Uid.List", e);
+        }
+        return bytes;
+    }
+    
     /**
      * We should closely examine the possible use cases to ensure that we have covered all scenarios.
      * 
@@ -145,15 +186,16 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
             
             // Collect the values, which are serialized Uid.List objects
             try {
-                Uid.List v = Uid.List.parseFrom(value.get());
+                byte[] bytes = value.get();
+                reader.reset(bytes, 0, bytes.length);
                 
-                long delta = v.getCOUNT();
+                long delta = reader.getCount();
                 
                 count += delta;
                 /**
                  * Fail fast approach.
                  */
-                if (v.getIGNORE()) {
+                if (reader.getIgnore()) {
                     seenIgnore = true;
                     if (log.isDebugEnabled())
                         log.debug("SeenIgnore is true. Skipping collections");
@@ -163,21 +205,24 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                 // in the protobuf into our object's uid list.
                 if (delta > 0) {
                     
-                    for (String uid : v.getQUARANTINEUIDList()) {
-                        
-                        quarantinedIds.remove(uid);
-                        releasedUids.add(uid);
+                    reader.seek(UidListReader.QUARANTINEUID_FIELD);
+                    while (reader.next()) {
+                        int id = intern();
+                        quarantinedIds.clear(id);
+                        releasedUids.set(id);
                     }
                     
-                    for (String uid : v.getUIDList()) {
+                    reader.seek(UidListReader.UID_FIELD);
+                    while (reader.next()) {
                         
                         // check that a removal has not occurred
                         // if it has, we decrement the count, from above.
-                        if (!uidsToRemove.contains(uid) && !quarantinedIds.contains(uid)) {
+                        int id = interner.find(reader.getBuffer(), reader.getUidOffset(), reader.getUidLength());
+                        if (id < 0 || (!uidsToRemove.get(id) && !quarantinedIds.get(id))) {
                             
                             // add the UID iff we are under our MAX
-                            if (uids.size() < maxUids)
-                                uids.add(uid);
+                            if (uidCount < maxUids)
+                                addUid(id < 0 ? intern() : id);
                             
                         }
                         
@@ -190,30 +235,25 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                 } else if (delta < 0 && !seenIgnore) {
                     
                     // so that we can perform the decrement
-                    for (String uid : v.getREMOVEDUIDList()) {
-                        
-                        uidsToRemove.add(uid);
-                        
-                        if (uids.contains(uid)) {
-                            
-                            uids.remove(uid);
-                        }
-                        
+                    reader.seek(UidListReader.REMOVEDUID_FIELD);
+                    while (reader.next()) {
+                        removeUid(intern());
                     }
                     
-                    quarantinedIds.addAll(v.getQUARANTINEUIDList());
+                    reader.seek(UidListReader.QUARANTINEUID_FIELD);
+                    while (reader.next()) {
+                        quarantinedIds.set(intern());
+                    }
                     
                     /**
                      * This is added for backwards compatability. The removal list was added to ensure that removals are propogated across compactions. In the
                      * case where compactions did not occur, and the indices are converted into the newer protobuff, we must use the UID list to maintain
                      * removals for deltas less than 0
                      */
-                    for (String uid : v.getUIDList()) {
+                    reader.seek(UidListReader.UID_FIELD);
+                    while (reader.next()) {
                         // add to uidsToRemove, and decrement count if the uid is in UIDS
-                        uidsToRemove.add(uid);
-                        if (uids.contains(uid)) {
-                            uids.remove(uid);
-                        }
+                        removeUid(intern());
                     }
                 }
                 
@@ -228,16 +268,42 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         return aggregate();
     }
     
+    /**
+     * @return the interned id of the reader's current UID
+     */
+    private int intern() {
+        return interner.intern(reader.getBuffer(), reader.getUidOffset(), reader.getUidLength());
+    }
+    
+    private void addUid(int id) {
+        if (!uids.get(id)) {
+            uids.set(id);
+            uidCount++;
+        }
+    }
+    
+    private void removeUid(int id) {
+        uidsToRemove.set(id);
+        if (uids.get(id)) {
+            uids.clear(id);
+            uidCount--;
+        }
+    }
+    
     public void reset() {
         if (log.isDebugEnabled())
             log.debug("Resetting GlobalIndexUidAggregator");
         count = 0;
         seenIgnore = false;
-        builder = Uid.List.newBuilder();
+        outputUids.clear();
+        outputRemovedUids.clear();
+        outputQuarantinedUids.clear();
         uids.clear();
+        uidCount = 0;
         uidsToRemove.clear();
         releasedUids.clear();
         quarantinedIds.clear();
+        interner.clear();
     }
     
     /*
@@ -254,18 +320,108 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         if ((seenIgnore && count > maxUids) || !quarantinedIds.isEmpty())
             return true;
         
-        HashSet<String> uidsCopy = new HashSet<>(uids);
-        uidsCopy.removeAll(uidsToRemove);
+        tempSet.clear();
+        tempSet.or(uids);
+        tempSet.andNot(uidsToRemove);
         
         if (log.isDebugEnabled()) {
-            log.debug(count + " " + uids.size() + " " + uidsToRemove.size() + " " + uidsCopy.size() + " removing " + (count == 0 && uidsCopy.isEmpty()));
+            log.debug(count + " " + uidCount + " " + uidsToRemove.cardinality() + " " + tempSet.cardinality() + " removing "
+                            + (count == 0 && tempSet.isEmpty()));
         }
         
         // if <= 0 and uids is empty, we can safely remove
-        if (count <= 0 && uidsCopy.isEmpty())
+        if (count <= 0 && tempSet.isEmpty())
             return false;
         else
             return true;
     }
     
+    /**
+     * A growable list of interned UID ids, used in place of the repeated fields of a Uid.List builder
+     */
+    private static class IdList {
+        private int[] ids = new int[16];
+        private int size = 0;
+        
+        int size() {
+            return size;
+        }
+        
+        void clear() {
+            size = 0;
+        }
+        
+        /**
+         * Append the ids in the set, sorted by their UID bytes
+         */
+        void addAllSorted(BitSet set, UidInterner interner) {
+            int from = size;
+            for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = id;
+            }
+            sort(from, size - 1, interner);
+        }
+        
+        int serializedSize(UidInterner interner) {
+            int serializedSize = 0;
+            for (int i = 0; i < size; i++) {
+                int length = interner.length(ids[i]);
+                // a one byte tag, the length, and the bytes
+                serializedSize += 1 + CodedOutputStream.computeRawVarint32Size(length) + length;
+            }
+            return serializedSize;
+        }
+        
+        void writeTo(CodedOutputStream output, int field, UidInterner interner) throws IOException {
+            byte[] bytes = interner.bytes();
+            for (int i = 0; i < size; i++) {
+                int id = ids[i];
+                output.writeTag(field, 2);
+                output.writeRawVarint32(interner.length(id));
+                output.writeRawBytes(bytes, interner.offset(id), interner.length(id));
+            }
+        }
+        
+        private void sort(int low, int high, UidInterner interner) {
+            while (high - low > 8) {
+                // quicksort with the middle element as the pivot, recursing into the smaller partition
+                int pivot = ids[(low + high) >>> 1];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (interner.compare(ids[i], pivot) < 0) {
+                        i++;
+                    }
+                    while (interner.compare(ids[j], pivot) > 0) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int tmp = ids[i];
+                        ids[i++] = ids[j];
+                        ids[j--] = tmp;
+                    }
+                }
+                if (j - low < high - i) {
+                    sort(low, j, interner);
+                    low = i;
+                } else {
+                    sort(i, high, interner);
+                    high = j;
+                }
+            }
+            // insertion sort for the small ranges
+            for (int i = low + 1; i <= high; i++) {
+                int id = ids[i];
+                int j = i - 1;
+                while (j >= low && interner.compare(ids[j], id) > 0) {
+                    ids[j + 1] = ids[j];
+                    j--;
+                }
+                ids[j + 1] = id;
+            }
+        }
+    }
 }
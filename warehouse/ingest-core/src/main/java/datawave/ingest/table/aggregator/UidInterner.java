@@ -0,0 +1,173 @@
+package datawave.ingest.table.aggregator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns UIDs as byte slices, assigning each distinct UID a dense integer id. The bytes of every interned UID are copied once into a single growing arena and
+ * looked up through an open addressing hash table, so membership tests and interning do not create any objects. The ids can be used as indices into a
+ * {@link java.util.BitSet} to represent sets of UIDs.
+ */
+public class UidInterner {
+    
+    private static final int INITIAL_ENTRIES = 64;
+    
+    private byte[] arena = new byte[INITIAL_ENTRIES * 32];
+    private int arenaUsed = 0;
+    
+    private int[] offsets = new int[INITIAL_ENTRIES];
+    private int[] lengths = new int[INITIAL_ENTRIES];
+    private int[] hashes = new int[INITIAL_ENTRIES];
+    private int size = 0;
+    
+    // id + 1 of the entry in each slot, 0 for an empty slot. Always a power of two and at most half full.
+    private int[] table = new int[INITIAL_ENTRIES * 2];
+    
+    /**
+     * @return the id of the UID in <code>bytes[offset, offset + length)</code>, or -1 if it has not been interned
+     */
+    public int find(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int mask = table.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && equals(id, bytes, offset, length)) {
+                return id;
+            }
+        }
+    }
+    
+    /**
+     * @return the id of the UID in <code>bytes[offset, offset + length)</code>, interning it if it has not been seen before
+     */
+    public int intern(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                break;
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && equals(id, bytes, offset, length)) {
+                return id;
+            }
+        }
+        
+        int id = size++;
+        ensureEntryCapacity(size);
+        ensureArenaCapacity(arenaUsed + length);
+        System.arraycopy(bytes, offset, arena, arenaUsed, length);
+        offsets[id] = arenaUsed;
+        lengths[id] = length;
+        hashes[id] = hash;
+        arenaUsed += length;
+        table[slot] = id + 1;
+        
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+    
+    /**
+     * Compares two interned UIDs by their unsigned bytes, which matches the ordering of the UID strings for ASCII UIDs
+     */
+    public int compare(int id1, int id2) {
+        int off1 = offsets[id1];
+        int off2 = offsets[id2];
+        int len1 = lengths[id1];
+        int len2 = lengths[id2];
+        int len = Math.min(len1, len2);
+        for (int i = 0; i < len; i++) {
+            int diff = (arena[off1 + i] & 0xff) - (arena[off2 + i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return len1 - len2;
+    }
+    
+    /**
+     * @return the arena holding the bytes of the interned UIDs. Only valid until the next call to {@link #intern(byte[], int, int)}.
+     */
+    public byte[] bytes() {
+        return arena;
+    }
+    
+    public int offset(int id) {
+        return offsets[id];
+    }
+    
+    public int length(int id) {
+        return lengths[id];
+    }
+    
+    public String toString(int id) {
+        return new String(arena, offsets[id], lengths[id], StandardCharsets.UTF_8);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+        arenaUsed = 0;
+    }
+    
+    private boolean equals(int id, byte[] bytes, int offset, int length) {
+        if (lengths[id] != length) {
+            return false;
+        }
+        int start = offsets[id];
+        for (int i = 0; i < length; i++) {
+            if (arena[start + i] != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // spread the low bits as the table size is a power of two
+        return hash ^ (hash >>> 16);
+    }
+    
+    private void ensureEntryCapacity(int entries) {
+        if (entries > offsets.length) {
+            int capacity = Math.max(entries, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+    }
+    
+    private void ensureArenaCapacity(int bytes) {
+        if (bytes > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(bytes, arena.length * 2));
+        }
+    }
+    
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+}
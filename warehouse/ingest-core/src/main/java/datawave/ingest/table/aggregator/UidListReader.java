@@ -0,0 +1,204 @@
+package datawave.ingest.table.aggregator;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import datawave.ingest.protobuf.Uid;
+
+/**
+ * Reads a serialized {@link Uid.List} in place, without building the message or decoding the UIDs into Strings. {@link #reset(byte[], int, int)} validates the
+ * whole message up front, rejecting the same inputs as {@link Uid.List#parseFrom(byte[])}, so callers can act on the repeated fields one at a time knowing the
+ * value is well formed. The UIDs of a repeated field are then visited with {@link #seek(int)} and {@link #next()}, which expose each UID as a slice of the
+ * original buffer.
+ */
+public class UidListReader {
+    
+    public static final int IGNORE_FIELD = Uid.List.IGNORE_FIELD_NUMBER;
+    public static final int COUNT_FIELD = Uid.List.COUNT_FIELD_NUMBER;
+    public static final int UID_FIELD = Uid.List.UID_FIELD_NUMBER;
+    public static final int REMOVEDUID_FIELD = Uid.List.REMOVEDUID_FIELD_NUMBER;
+    public static final int QUARANTINEUID_FIELD = Uid.List.QUARANTINEUID_FIELD_NUMBER;
+    
+    // see com.google.protobuf.WireFormat
+    private static final int TAG_TYPE_BITS = 3;
+    private static final int TAG_TYPE_MASK = (1 << TAG_TYPE_BITS) - 1;
+    private static final int WIRETYPE_VARINT = 0;
+    private static final int WIRETYPE_FIXED64 = 1;
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRETYPE_FIXED32 = 5;
+    
+    private byte[] buffer;
+    private int start;
+    private int end;
+    
+    private boolean ignore;
+    private long count;
+    
+    // the repeated field being visited and the position of the next tag to read
+    private int field;
+    private int position;
+    // the current UID
+    private int uidOffset;
+    private int uidLength;
+    
+    // the position following the last varint read
+    private int varintEnd;
+    
+    /**
+     * Point the reader at a serialized Uid.List and validate it
+     *
+     * @throws InvalidProtocolBufferException
+     *             if the value is truncated, malformed, or missing the required IGNORE or COUNT fields
+     */
+    public void reset(byte[] buffer, int offset, int length) throws InvalidProtocolBufferException {
+        this.buffer = buffer;
+        this.start = offset;
+        this.end = offset + length;
+        this.field = 0;
+        this.position = end;
+        this.ignore = false;
+        this.count = 0;
+        
+        boolean hasIgnore = false;
+        boolean hasCount = false;
+        int pos = start;
+        while (pos < end) {
+            int tag = (int) readVarint(pos);
+            pos = varintEnd;
+            int fieldNumber = (tag >>> TAG_TYPE_BITS);
+            int wireType = (tag & TAG_TYPE_MASK);
+            if (fieldNumber == 0) {
+                throw new InvalidProtocolBufferException("Protocol message contained an invalid tag (zero).");
+            }
+            if (wireType == WIRETYPE_VARINT) {
+                long value = readVarint(pos);
+                pos = varintEnd;
+                // as with the generated parser, the last occurrence of a singular field wins
+                if (fieldNumber == IGNORE_FIELD) {
+                    ignore = (value != 0);
+                    hasIgnore = true;
+                } else if (fieldNumber == COUNT_FIELD) {
+                    count = value;
+                    hasCount = true;
+                }
+            } else {
+                pos = skip(pos, wireType);
+            }
+        }
+        
+        if (!hasIgnore || !hasCount) {
+            throw new InvalidProtocolBufferException("Message missing required fields: " + (hasIgnore ? "" : "IGNORE ") + (hasCount ? "" : "COUNT"));
+        }
+    }
+    
+    public boolean getIgnore() {
+        return ignore;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Start visiting the values of a repeated string field
+     */
+    public void seek(int field) {
+        this.field = field;
+        this.position = start;
+    }
+    
+    /**
+     * Advance to the next value of the field passed to {@link #seek(int)}
+     *
+     * @return true if there is another value, available through {@link #getUidOffset()} and {@link #getUidLength()}
+     */
+    public boolean next() {
+        try {
+            while (position < end) {
+                int tag = (int) readVarint(position);
+                position = varintEnd;
+                int wireType = (tag & TAG_TYPE_MASK);
+                if ((tag >>> TAG_TYPE_BITS) == field && wireType == WIRETYPE_LENGTH_DELIMITED) {
+                    uidLength = (int) readVarint(position);
+                    uidOffset = varintEnd;
+                    position = uidOffset + uidLength;
+                    return true;
+                }
+                position = (wireType == WIRETYPE_VARINT ? skipVarint(position) : skip(position, wireType));
+            }
+        } catch (InvalidProtocolBufferException e) {
+            // cannot happen as the buffer was validated in reset
+            throw new IllegalStateException(e);
+        }
+        return false;
+    }
+    
+    public byte[] getBuffer() {
+        return buffer;
+    }
+    
+    public int getUidOffset() {
+        return uidOffset;
+    }
+    
+    public int getUidLength() {
+        return uidLength;
+    }
+    
+    private int skipVarint(int pos) throws InvalidProtocolBufferException {
+        readVarint(pos);
+        return varintEnd;
+    }
+    
+    /**
+     * Skip a non-varint field value, returning the position following it
+     */
+    private int skip(int pos, int wireType) throws InvalidProtocolBufferException {
+        switch (wireType) {
+            case WIRETYPE_VARINT:
+                return skipVarint(pos);
+            case WIRETYPE_FIXED64:
+                return checkBounds(pos + 8);
+            case WIRETYPE_FIXED32:
+                return checkBounds(pos + 4);
+            case WIRETYPE_LENGTH_DELIMITED:
+                int length = (int) readVarint(pos);
+                if (length < 0) {
+                    throw new InvalidProtocolBufferException("CodedInputStream encountered an embedded string or message which claimed to have negative size.");
+                }
+                return checkBounds(varintEnd + length);
+            default:
+                // groups are not used by Uid.List and are treated as corrupt data
+                throw new InvalidProtocolBufferException("Protocol message tag had invalid wire type.");
+        }
+    }
+    
+    private int checkBounds(int pos) throws InvalidProtocolBufferException {
+        if (pos > end || pos < start) {
+            throw truncated();
+        }
+        return pos;
+    }
+    
+    /**
+     * Read a varint at <code>pos</code>, leaving the position following it in varintEnd
+     */
+    private long readVarint(int pos) throws InvalidProtocolBufferException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= end) {
+                throw truncated();
+            }
+            byte b = buffer[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                varintEnd = pos;
+                return result;
+            }
+        }
+        throw new InvalidProtocolBufferException("CodedInputStream encountered a malformed varint.");
+    }
+    
+    private static InvalidProtocolBufferException truncated() {
+        return new InvalidProtocolBufferException("While parsing a protocol message, the input ended unexpectedly in the middle of a field.");
+    }
+}
@@ -17,6 +17,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -92,6 +93,10 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
     protected ExecutorService executor;
     private final FlagMakerConfig fmc;
     private FlagDistributor fd;
+    // the distributors and scanners of each data type for incremental file discovery
+    private final Map<String,FlagDistributor> distributors = new HashMap<>();
+    private final Map<String,IncrementalFileScanner> scanners = new HashMap<>();
+    private long lastFullScan = 0;
     private volatile boolean running = true;
     private FlagSocket flagSocket;
     private final DecimalFormat df = new DecimalFormat("#0.00");
@@ -232,16 +237,17 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
     protected void processFlags() throws IOException {
         FileSystem fs = getHadoopFS();
         log.trace("Querying for files on {}", fs.getUri().toString());
+        boolean fullScan = isFullScanDue();
         for (FlagDataTypeConfig fc : fmc.getFlagConfigs()) {
             long startTime = System.currentTimeMillis();
             String dataName = fc.getDataName();
-            fd.setup(fc);
+            FlagDistributor distributor = getDistributor(fc, fullScan);
             log.trace("Checking for files for {}", dataName);
             
             for (String folder : fc.getFolder()) {
                 String folderPattern = folder + "/" + fmc.getFilePattern();
                 log.trace("searching for {} files in {}", dataName, folderPattern);
-                FileStatus[] files = fs.globStatus(new Path(folderPattern));
+                FileStatus[] files = findFiles(fs, fc, folderPattern, fullScan);
                 if (files == null || files.length == 0) {
                     log.trace("files: {}", (files == null ? "null" : files.length));
                     continue;
@@ -265,8 +271,8 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
                         log.warn("Skipping subdirectory {}", status.getPath());
                     } else {
                         try {
-                            fd.addInputFile(new InputFile(folder, status.getPath(), status.getBlockSize(), status.getLen(), getTimestamp(status.getPath(),
-                                            status.getModificationTime())));
+                            distributor.addInputFile(new InputFile(folder, status.getPath(), status.getBlockSize(), status.getLen(),
+                                            getTimestamp(status.getPath(), status.getModificationTime())));
                         } catch (UnusableFileException e) {
                             log.warn("Skipping unusable file " + status.getPath(), e);
                         }
@@ -274,9 +280,81 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
                 }
             }
             
-            while (fd.hasNext(shouldOnlyCreateFullFlags(fc)) && running) {
+            while (distributor.hasNext(shouldOnlyCreateFullFlags(fc)) && running) {
                 initStats(startTime);
-                writeFlagFile(fc, fd.next(this));
+                Collection<InputFile> inFiles = distributor.next(this);
+                writeFlagFile(fc, inFiles);
+                forgetFiles(fc, inFiles);
+            }
+        }
+    }
+    
+    /**
+     * Determines whether every input directory should be listed in full on this pass. This is always the case unless incremental discovery is enabled, in which
+     * case a full scan is done every fullScanMilliSecs to pick up any files that incremental discovery has missed.
+     */
+    private boolean isFullScanDue() {
+        if (!fmc.isIncrementalDiscovery()) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastFullScan >= fmc.getFullScanMilliSecs()) {
+            log.debug("Performing a full scan of the input directories");
+            lastFullScan = now;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Gets the distributor for a data type. When incremental discovery is enabled, each data type keeps its own distributor between passes so that only newly
+     * discovered files need to be added to it, and the distributor is only reset when a full scan is done.
+     */
+    private FlagDistributor getDistributor(FlagDataTypeConfig fc, boolean fullScan) {
+        if (!fmc.isIncrementalDiscovery()) {
+            fd.setup(fc);
+            return fd;
+        }
+        FlagDistributor distributor = distributors.get(fc.getDataName());
+        if (distributor == null || fullScan) {
+            distributor = createDistributor(fmc.getDistributorType());
+            distributor.setup(fc);
+            distributors.put(fc.getDataName(), distributor);
+        }
+        return distributor;
+    }
+    
+    /**
+     * Finds the input files matching a folder pattern. When incremental discovery is enabled, only the files that have arrived since the last pass are
+     * returned.
+     */
+    private FileStatus[] findFiles(FileSystem fs, FlagDataTypeConfig fc, String folderPattern, boolean fullScan) throws IOException {
+        if (!fmc.isIncrementalDiscovery()) {
+            return fs.globStatus(new Path(folderPattern));
+        }
+        String key = fc.getDataName() + '\0' + folderPattern;
+        IncrementalFileScanner scanner = scanners.get(key);
+        if (scanner == null || fullScan) {
+            scanner = new IncrementalFileScanner(folderPattern);
+            scanners.put(key, scanner);
+        }
+        List<FileStatus> files = scanner.scan(fs);
+        return files.toArray(new FileStatus[files.size()]);
+    }
+    
+    /**
+     * Removes the files in a flag file from the incremental discovery index, so that any of them left in the input directories can be found again.
+     */
+    private void forgetFiles(FlagDataTypeConfig fc, Collection<InputFile> inFiles) {
+        if (!fmc.isIncrementalDiscovery()) {
+            return;
+        }
+        for (String folder : fc.getFolder()) {
+            IncrementalFileScanner scanner = scanners.get(fc.getDataName() + '\0' + folder + "/" + fmc.getFilePattern());
+            if (scanner != null) {
+                for (InputFile inFile : inFiles) {
+                    scanner.forget(inFile.getPath());
+                }
             }
         }
     }
@@ -715,13 +793,7 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
             throw new IllegalArgumentException("Invalid Distributor type provided: " + dtype + ". Must be one of the following: simple|date|folderdate");
         }
         
-        if ("simple".equals(dtype)) {
-            fd = new SimpleFlagDistributor();
-        } else if ("date".equals(dtype)) {
-            fd = new DateFlagDistributor();
-        } else if ("folderdate".equals(dtype)) {
-            fd = new DateFolderFlagDistributor();
-        }
+        fd = createDistributor(dtype);
         for (FlagDataTypeConfig cfg : fmc.getFlagConfigs()) {
             if (cfg.getInputFormat() == null)
                 throw new IllegalArgumentException("Input Format Class must be specified for data type: " + cfg.getDataName());
@@ -780,6 +852,15 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
         executor = Executors.newFixedThreadPool(fmc.getMaxHdfsThreads());
     }
     
+    private static FlagDistributor createDistributor(String dtype) {
+        if ("date".equals(dtype)) {
+            return new DateFlagDistributor();
+        } else if ("folderdate".equals(dtype)) {
+            return new DateFolderFlagDistributor();
+        }
+        return new SimpleFlagDistributor();
+    }
+    
     private void initStats(long startTime) {
         this.ctx = new StandaloneTaskAttemptContext<>(new Configuration(), new StandaloneStatusReporter());
         ctx.putIfAbsent(datawave.metrics.util.flag.InputFile.FLAGMAKER_START_TIME, startTime);
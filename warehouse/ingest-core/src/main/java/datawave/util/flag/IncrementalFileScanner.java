@@ -0,0 +1,112 @@
+package datawave.util.flag;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.GlobFilter;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the files matching a folder pattern incrementally. Each scan globs the directories matching all but the last component of the pattern, but only lists
+ * the directories that have been modified since they were last listed, and only returns the files that an earlier scan has not already returned. Adding or
+ * removing a file modifies its directory, so the cost of a scan depends on the number of directories and new arrivals rather than on the number of files
+ * waiting to be flagged.
+ */
+public class IncrementalFileScanner {
+    
+    private static final Logger log = LoggerFactory.getLogger(IncrementalFileScanner.class);
+    
+    // directories modified this recently are listed again on the next scan, in case they were modified again within the granularity of the modification time
+    static final long SETTLE_MILLISECS = 2000L;
+    
+    private final Path directoryPattern;
+    private final PathFilter fileFilter;
+    // the modification time of each directory when it was last listed
+    private final Map<Path,Long> listedDirectories = new HashMap<>();
+    // the files returned by a scan that have not been forgotten since
+    private final Set<Path> knownFiles = new HashSet<>();
+    
+    /**
+     * @param pattern
+     *            the glob pattern of the files to find, e.g. /data/ShardIngest/foo/2*&#47;*&#47;*&#47;*
+     * @throws IOException
+     *             if the last component of the pattern is not a valid glob
+     */
+    public IncrementalFileScanner(String pattern) throws IOException {
+        int index = pattern.lastIndexOf('/');
+        this.directoryPattern = new Path(index <= 0 ? "/" : pattern.substring(0, index));
+        this.fileFilter = new GlobFilter(pattern.substring(index + 1));
+    }
+    
+    /**
+     * Finds the files that have arrived since the last scan.
+     *
+     * @param fs
+     *            the file system to scan
+     * @return the files matching the pattern that were not returned by an earlier scan, or have been forgotten since
+     * @throws IOException
+     */
+    public List<FileStatus> scan(FileSystem fs) throws IOException {
+        long now = System.currentTimeMillis();
+        List<FileStatus> newFiles = new ArrayList<>();
+        Set<Path> directories = new HashSet<>();
+        FileStatus[] statuses = fs.globStatus(directoryPattern);
+        if (statuses != null) {
+            for (FileStatus directory : statuses) {
+                if (!directory.isDirectory()) {
+                    continue;
+                }
+                Path dir = directory.getPath();
+                directories.add(dir);
+                
+                long modified = directory.getModificationTime();
+                Long listed = listedDirectories.get(dir);
+                if (listed != null && listed == modified && (now - modified) > SETTLE_MILLISECS) {
+                    continue;
+                }
+                
+                log.trace("Listing modified directory {}", dir);
+                for (FileStatus file : fs.listStatus(dir, fileFilter)) {
+                    if (file.isDirectory()) {
+                        log.warn("Skipping subdirectory {}", file.getPath());
+                    } else if (knownFiles.add(file.getPath())) {
+                        newFiles.add(file);
+                    }
+                }
+                listedDirectories.put(dir, modified);
+            }
+        }
+        
+        // stop tracking the directories that are gone
+        listedDirectories.keySet().retainAll(directories);
+        return newFiles;
+    }
+    
+    /**
+     * Forgets a file returned by an earlier scan, so that it will be returned again if it is still there the next time its directory is listed. This should be
+     * called once a file has been put into a flag file.
+     *
+     * @param file
+     *            the file
+     */
+    public void forget(Path file) {
+        knownFiles.remove(file);
+    }
+    
+    /**
+     * @return the number of files returned by scans that have not been forgotten
+     */
+    public int getKnownFileCount() {
+        return knownFiles.size();
+    }
+}
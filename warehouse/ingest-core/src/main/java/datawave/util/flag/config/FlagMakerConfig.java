@@ -54,6 +54,10 @@ public class FlagMakerConfig {
     protected int directoryCacheSize = 2000;
     // directory cache timeout. Default is 2 Hours
     protected long directoryCacheTimeout = (2 * 60 * 60 * 1000);
+    // only list the input directories that have changed, and only add new files to the distributors. Default is to list every directory on every cycle
+    private boolean incrementalDiscovery = false;
+    // when using incremental discovery, how often to list every input directory anyway. Default is 10 minutes
+    private long fullScanMilliSecs = (10L * DateUtils.A_MINUTE);
     
     public FlagDataTypeConfig getDefaultCfg() {
         return defaultCfg;
@@ -159,6 +163,22 @@ public class FlagMakerConfig {
         this.directoryCacheTimeout = directoryCacheTimeout;
     }
     
+    public boolean isIncrementalDiscovery() {
+        return incrementalDiscovery;
+    }
+    
+    public void setIncrementalDiscovery(boolean incrementalDiscovery) {
+        this.incrementalDiscovery = incrementalDiscovery;
+    }
+    
+    public long getFullScanMilliSecs() {
+        return fullScanMilliSecs;
+    }
+    
+    public void setFullScanMilliSecs(long fullScanMilliSecs) {
+        this.fullScanMilliSecs = fullScanMilliSecs;
+    }
+    
     public int getMaxFileLength() {
         return maxFileLength;
     }
@@ -240,6 +260,8 @@ public class FlagMakerConfig {
         result.append("maxHdfsThreads: " + this.getMaxHdfsThreads() + "\n");
         result.append("directoryCacheSize: " + this.getDirectoryCacheSize() + "\n");
         result.append("directoryCacheTimeout: " + this.getDirectoryCacheTimeout() + "\n");
+        result.append("incrementalDiscovery: " + this.isIncrementalDiscovery() + "\n");
+        result.append("fullScanMilliSecs: " + this.getFullScanMilliSecs() + "\n");
         return result.toString();
     }
 }
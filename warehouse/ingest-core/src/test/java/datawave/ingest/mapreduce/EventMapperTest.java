@@ -12,18 +12,28 @@ import datawave.ingest.mapreduce.job.metrics.Metric;
 import datawave.ingest.mapreduce.job.metrics.MetricsConfiguration;
 import datawave.ingest.mapreduce.job.metrics.TestEventCountMetricsReceiver;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
+import datawave.ingest.test.StandaloneStatusReporter;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
 import org.apache.hadoop.mrunit.mapreduce.MapDriver;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class EventMapperTest {
     
@@ -137,6 +147,94 @@ public class EventMapperTest {
         assertEquals(4, written.size());
     }
     
+    @Test
+    public void shouldCommitEventsProcessedOnMultipleThreads() throws IOException {
+        conf.setInt(EventMapper.PROCESSING_THREADS, 4);
+        conf.setInt(EventMapper.PROCESSING_QUEUE_SIZE, 3);
+        for (int i = 0; i < 20; i++) {
+            driver.addInput(new LongWritable(i), record);
+        }
+        driver.run();
+        
+        Multimap<BulkIngestKey,Value> written = TestContextWriter.getWritten();
+        
+        // each event is written with the offset it was read at
+        Set<String> offsets = new HashSet<>();
+        for (Map.Entry<BulkIngestKey,Value> entry : written.entries()) {
+            if (entry.getKey().getKey().getColumnFamily().toString().equals(EventMapper.SEQUENCE_FILE_FIELDNAME)) {
+                String origFile = entry.getKey().getKey().getColumnQualifier().toString();
+                offsets.add(origFile.substring(origFile.lastIndexOf('|') + 1));
+            }
+        }
+        assertEquals(20, offsets.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(offsets.contains(Integer.toString(i)));
+        }
+        assertNotNull(getRawFileName(written));
+    }
+    
+    @Test
+    public void shouldProcessCopiesOfAReusedRecord() throws Exception {
+        conf.setInt(EventMapper.PROCESSING_THREADS, 4);
+        conf.setInt(EventMapper.PROCESSING_QUEUE_SIZE, 8);
+        
+        // like the record readers, reuse one key and one record for every event, changing them before each call to map()
+        final LongWritable key = new LongWritable();
+        RecordReader<LongWritable,RawRecordContainer> reader = new RecordReader<LongWritable,RawRecordContainer>() {
+            private int next = 0;
+            
+            @Override
+            public void initialize(InputSplit split, TaskAttemptContext context) {}
+            
+            @Override
+            public boolean nextKeyValue() {
+                if (next >= 20) {
+                    return false;
+                }
+                key.set(next);
+                record.setRawFileName("/some/filename" + next);
+                record.setRawRecordNumber(next);
+                next++;
+                return true;
+            }
+            
+            @Override
+            public LongWritable getCurrentKey() {
+                return key;
+            }
+            
+            @Override
+            public RawRecordContainer getCurrentValue() {
+                return record;
+            }
+            
+            @Override
+            public float getProgress() {
+                return next / 20f;
+            }
+            
+            @Override
+            public void close() {}
+        };
+        
+        EventMapper<LongWritable,RawRecordContainer,BulkIngestKey,Value> mapper = new EventMapper<>();
+        MapContextImpl<LongWritable,RawRecordContainer,BulkIngestKey,Value> mapContext = new MapContextImpl<>(conf, new TaskAttemptID(), reader, null, null,
+                        new StandaloneStatusReporter(), null);
+        mapper.run(new WrappedMapper<LongWritable,RawRecordContainer,BulkIngestKey,Value>().getMapContext(mapContext));
+        
+        // each event is written with the file name it had when it was read
+        Set<String> rawFileNames = new HashSet<>();
+        for (Map.Entry<BulkIngestKey,Value> entry : TestContextWriter.getWritten().entries()) {
+            if (entry.getKey().getKey().getColumnFamily().toString().equals(EventMapper.RAW_FILE_FIELDNAME)) {
+                rawFileNames.add(entry.getKey().getKey().getColumnQualifier().toString());
+            }
+        }
+        assertEquals(20, rawFileNames.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(rawFileNames.contains("/some/filename" + i));
+        }
+    }
+    
     private Map.Entry<BulkIngestKey,Value> getMetric(Multimap<BulkIngestKey,Value> written) {
         return getFieldEntry(written, Metric.EVENT_COUNT.toString());
     }
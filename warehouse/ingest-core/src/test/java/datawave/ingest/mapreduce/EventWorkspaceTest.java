@@ -0,0 +1,62 @@
+package datawave.ingest.mapreduce;
+
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.data.config.NormalizedFieldAndValue;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventWorkspaceTest {
+    
+    @Test
+    public void testResetReusesFields() {
+        EventWorkspace workspace = new EventWorkspace();
+        
+        Multimap<String,NormalizedContentInterface> fields = workspace.reset();
+        put(fields, "FOO", "a");
+        put(fields, "FOO", "b");
+        put(fields, "BAR", "c");
+        assertEquals(3, fields.size());
+        assertEquals(2, fields.get("FOO").size());
+        
+        Multimap<String,NormalizedContentInterface> copy = EventWorkspace.copyOf(fields);
+        
+        Multimap<String,NormalizedContentInterface> next = workspace.reset();
+        assertSame(fields, next);
+        assertSame(next, workspace.getFields());
+        assertTrue(next.isEmpty());
+        assertTrue(next.get("FOO").isEmpty());
+        
+        put(next, "BAZ", "d");
+        put(next, "FOO", "e");
+        assertEquals(2, next.size());
+        assertEquals(1, next.get("FOO").size());
+        assertEquals("e", next.get("FOO").iterator().next().getEventFieldValue());
+        
+        // the copy is unaffected by the reuse
+        assertEquals(3, copy.size());
+        assertEquals(2, copy.get("FOO").size());
+        assertEquals(1, copy.get("BAR").size());
+    }
+    
+    @Test
+    public void testResetWithoutReuse() {
+        EventWorkspace workspace = new EventWorkspace(false);
+        
+        Multimap<String,NormalizedContentInterface> fields = workspace.reset();
+        put(fields, "FOO", "a");
+        
+        Multimap<String,NormalizedContentInterface> next = workspace.reset();
+        assertNotSame(fields, next);
+        assertTrue(next.isEmpty());
+        assertEquals(1, fields.size());
+    }
+    
+    private static void put(Multimap<String,NormalizedContentInterface> fields, String field, String value) {
+        fields.put(field, new NormalizedFieldAndValue(field, value));
+    }
+}
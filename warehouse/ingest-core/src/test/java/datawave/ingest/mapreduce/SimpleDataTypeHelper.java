@@ -1,5 +1,6 @@
 package datawave.ingest.mapreduce;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import datawave.ingest.data.config.NormalizedContentInterface;
 import datawave.ingest.data.config.ingest.IngestHelperInterface;
@@ -43,7 +44,8 @@ public class SimpleDataTypeHelper implements InvocationHandler {
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         if (method.getName().equals("getEventFields")) {
-            return fields;
+            // a copy per event, as the EventMapper adds its own fields to what is returned
+            return HashMultimap.create(fields);
         } else {
             throw new UnsupportedOperationException("Sorry, " + this.getClass() + " does not currently support the " + method.getName()
                             + " method. Feel free to implement it!");
@@ -0,0 +1,108 @@
+package datawave.ingest.mapreduce.handler.edge.evaluation;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.data.config.NormalizedFieldAndValue;
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinition;
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinitionConfigurationHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EdgePreconditionEvaluatorTest {
+    
+    private static final List<String> COMPILED = Arrays.asList("FOO_FIELD == 'foo'", "FOO_FIELD != 'foo'", "BAR_FIELD =~ 'ba.*'", "BAR_FIELD !~ 'ba.*'",
+                    "!empty(EVENT_DATE)", "empty(MISSING)", "FOO_FIELD == 'foo' && (BAR_FIELD == 'bar' || BAR_FIELD == 'baz')",
+                    "not (FOO_FIELD eq 'foo') or $1FIELD == 'one'", "true && !false");
+    
+    private static final List<String> INTERPRETED = Arrays.asList("FOO_FIELD.length() > 2", "size(BAR_FIELD) > 1", "FOO_FIELD == 1");
+    
+    private Map<String,EdgeDefinitionConfigurationHelper> edges;
+    
+    @Before
+    public void setup() {
+        List<EdgeDefinition> edgeDefs = new ArrayList<>();
+        for (String precondition : COMPILED) {
+            edgeDefs.add(edgeDefinition(precondition));
+        }
+        for (String precondition : INTERPRETED) {
+            edgeDefs.add(edgeDefinition(precondition));
+        }
+        EdgeDefinitionConfigurationHelper helper = new EdgeDefinitionConfigurationHelper();
+        helper.setEdgeAttribute2("FOO_FIELD");
+        helper.setEdgeAttribute3("BAR_FIELD");
+        helper.setActivityDateField("EVENT_DATE");
+        helper.setEdges(edgeDefs);
+        helper.init(new HashSet<>(), new HashSet<>());
+        edges = Collections.singletonMap("mycsv", helper);
+    }
+    
+    @Test
+    public void testCompiledPreconditions() {
+        EdgePreconditionEvaluator evaluator = new EdgePreconditionEvaluator(edges, true);
+        for (String precondition : COMPILED) {
+            assertTrue(precondition, evaluator.isCompiled(precondition));
+        }
+        for (String precondition : INTERPRETED) {
+            assertFalse(precondition, evaluator.isCompiled(precondition));
+        }
+        
+        evaluator.setEvent(event("FOO_FIELD", "foo", "BAR_FIELD", "bar", "BAR_FIELD", "qux"));
+        assertTrue(evaluator.evaluate("FOO_FIELD == 'foo'"));
+        assertFalse(evaluator.evaluate("FOO_FIELD != 'foo'"));
+        assertTrue(evaluator.evaluate("BAR_FIELD =~ 'ba.*'"));
+        assertFalse(evaluator.evaluate("BAR_FIELD !~ 'ba.*'"));
+        assertFalse(evaluator.evaluate("!empty(EVENT_DATE)"));
+        assertTrue(evaluator.evaluate("empty(MISSING)"));
+        assertTrue(evaluator.evaluate("FOO_FIELD == 'foo' && (BAR_FIELD == 'bar' || BAR_FIELD == 'baz')"));
+        assertFalse(evaluator.evaluate("not (FOO_FIELD eq 'foo') or $1FIELD == 'one'"));
+        assertTrue(evaluator.evaluate("true && !false"));
+        
+        evaluator.setEvent(event("FOO_FIELD", "food", "1FIELD", "one", "EVENT_DATE", "2018-01-01"));
+        assertFalse(evaluator.evaluate("FOO_FIELD == 'foo'"));
+        assertFalse(evaluator.evaluate("BAR_FIELD =~ 'ba.*'"));
+        assertTrue(evaluator.evaluate("!empty(EVENT_DATE)"));
+        assertTrue(evaluator.evaluate("not (FOO_FIELD eq 'foo') or $1FIELD == 'one'"));
+    }
+    
+    @Test
+    public void testCompiledPreconditionsMatchJexl() {
+        EdgePreconditionEvaluator compiled = new EdgePreconditionEvaluator(edges, true);
+        EdgePreconditionEvaluator interpreted = new EdgePreconditionEvaluator(edges, false);
+        List<Multimap<String,NormalizedContentInterface>> events = Arrays.asList(event(), event("FOO_FIELD", "foo"), event("FOO_FIELD", "bar", "BAR_FIELD",
+                        "baz"), event("FOO_FIELD", "foo", "BAR_FIELD", "bar", "BAR_FIELD", "qux", "EVENT_DATE", "2018-01-01"),
+                        event("FOO_FIELD", "foo", "FOO_FIELD", "fo", "1FIELD", "one", "MISSING", "here"));
+        for (Multimap<String,NormalizedContentInterface> event : events) {
+            compiled.setEvent(event);
+            interpreted.setEvent(event);
+            for (String precondition : COMPILED) {
+                assertEquals(precondition + " " + event, interpreted.evaluate(precondition), compiled.evaluate(precondition));
+            }
+        }
+    }
+    
+    private static EdgeDefinition edgeDefinition(String precondition) {
+        EdgeDefinition edgeDef = new EdgeDefinition();
+        edgeDef.setJexlPrecondition(precondition);
+        return edgeDef;
+    }
+    
+    private static Multimap<String,NormalizedContentInterface> event(String... fieldsAndValues) {
+        Multimap<String,NormalizedContentInterface> fields = HashMultimap.create();
+        for (int i = 0; i < fieldsAndValues.length; i += 2) {
+            fields.put(fieldsAndValues[i], new NormalizedFieldAndValue(fieldsAndValues[i], fieldsAndValues[i + 1]));
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,129 @@
+package datawave.ingest.mapreduce.job;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BulkImportSchedulerTest {
+    
+    private BulkImportScheduler scheduler;
+    
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+    
+    @Test
+    public void testImportsRunInPriorityThenJobOrder() throws Exception {
+        Map<String,Integer> priorities = new HashMap<>();
+        priorities.put("shard", 10);
+        priorities.put("shardIndex", 20);
+        scheduler = new BulkImportScheduler(1, 1, priorities);
+        
+        // hold the only thread while the rest of the imports are queued
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<Void> blocker = scheduler.submit("blocker", 0, () -> {
+            started.countDown();
+            blocked.await();
+            return null;
+        });
+        started.await(10, TimeUnit.SECONDS);
+        
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Void>> futures = new ArrayList<>();
+        futures.add(scheduler.submit("metadata", 1, record(order, "metadata-1")));
+        futures.add(scheduler.submit("shardIndex", 2, record(order, "shardIndex-2")));
+        futures.add(scheduler.submit("shard", 2, record(order, "shard-2")));
+        futures.add(scheduler.submit("shardIndex", 1, record(order, "shardIndex-1")));
+        futures.add(scheduler.submit("shard", 1, record(order, "shard-1")));
+        Assert.assertEquals(2, scheduler.getQueueDepth("shard"));
+        
+        blocked.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+        for (Future<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        
+        Assert.assertEquals(5, order.size());
+        Assert.assertEquals("shard-1", order.get(0));
+        Assert.assertEquals("shard-2", order.get(1));
+        Assert.assertEquals("shardIndex-1", order.get(2));
+        Assert.assertEquals("shardIndex-2", order.get(3));
+        Assert.assertEquals("metadata-1", order.get(4));
+        Assert.assertTrue(scheduler.getQueueDepths().isEmpty());
+    }
+    
+    @Test
+    public void testSlowTableDoesNotBlockOtherTables() throws Exception {
+        scheduler = new BulkImportScheduler(4, 1, new HashMap<>());
+        
+        CountDownLatch slow = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger concurrentShardImports = new AtomicInteger();
+        AtomicInteger maxConcurrentShardImports = new AtomicInteger();
+        Callable<Void> shardImport = () -> {
+            maxConcurrentShardImports.accumulateAndGet(concurrentShardImports.incrementAndGet(), Math::max);
+            started.countDown();
+            slow.await();
+            concurrentShardImports.decrementAndGet();
+            return null;
+        };
+        Future<Void> first = scheduler.submit("shard", 0, shardImport);
+        started.await(10, TimeUnit.SECONDS);
+        Future<Void> second = scheduler.submit("shard", 1, shardImport);
+        
+        // the other threads are free to import into other tables
+        scheduler.submit("shardIndex", 1, () -> null).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(1, scheduler.getRunning("shard"));
+        Assert.assertEquals(1, scheduler.getQueueDepth("shard"));
+        
+        slow.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(1, maxConcurrentShardImports.get());
+    }
+    
+    @Test
+    public void testShutdownCancelsQueuedImports() throws Exception {
+        scheduler = new BulkImportScheduler(1, 1, new HashMap<>());
+        
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<Void> running = scheduler.submit("shard", 0, () -> {
+            started.countDown();
+            blocked.await();
+            return null;
+        });
+        Future<Void> queued = scheduler.submit("shardIndex", 0, () -> null);
+        started.await(10, TimeUnit.SECONDS);
+        
+        scheduler.shutdown();
+        Assert.assertTrue(queued.isCancelled());
+        Assert.assertTrue(scheduler.submit("shard", 1, () -> null).isCancelled());
+        
+        // the running import is allowed to complete
+        blocked.countDown();
+        running.get(10, TimeUnit.SECONDS);
+    }
+    
+    private static Callable<Void> record(List<String> order, String name) {
+        return () -> {
+            order.add(name);
+            return null;
+        };
+    }
+}
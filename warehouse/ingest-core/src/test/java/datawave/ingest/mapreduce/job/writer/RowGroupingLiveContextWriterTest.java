@@ -0,0 +1,107 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import datawave.ingest.mapreduce.StandaloneTaskAttemptContext;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RowGroupingLiveContextWriterTest {
+    
+    private static final Text INDEX_TABLE = new Text("shardIndex");
+    private static final Text EVENT_TABLE = new Text("shard");
+    
+    private Configuration conf;
+    private List<Text> tables;
+    private List<Mutation> mutations;
+    private StandaloneTaskAttemptContext<?,?,Text,Mutation> context;
+    
+    @Before
+    public void setup() {
+        conf = new Configuration();
+        conf.setInt(AbstractContextWriter.CONTEXT_WRITER_MAX_CACHE_SIZE, 100);
+        tables = new ArrayList<>();
+        mutations = new ArrayList<>();
+        context = new StandaloneTaskAttemptContext<Object,Object,Text,Mutation>(conf, null) {
+            @Override
+            public void write(Text table, Mutation m) {
+                tables.add(table);
+                mutations.add(m);
+            }
+        };
+    }
+    
+    @Test
+    public void testOneMutationPerTableAndRow() throws Exception {
+        RowGroupingLiveContextWriter writer = new RowGroupingLiveContextWriter();
+        writer.setup(conf, false);
+        
+        writer.write(new BulkIngestKey(EVENT_TABLE, new Key("20180101_1", "csv\0uid1", "FIELD\0a", "A", 1L)), new Value(new byte[0]), context);
+        writer.write(new BulkIngestKey(EVENT_TABLE, new Key("20180101_1", "fi\0FIELD", "a\0csv\0uid1", "A", 1L)), new Value(new byte[0]), context);
+        writer.write(new BulkIngestKey(EVENT_TABLE, new Key("20180101_2", "csv\0uid2", "FIELD\0b", "A", 1L)), new Value(new byte[0]), context);
+        writer.write(new BulkIngestKey(INDEX_TABLE, new Key("a", "FIELD", "20180101_1\0csv", "A", 1L)), new Value("uid".getBytes()), context);
+        Key delete = new Key("20180101_1", "csv\0uid0", "FIELD\0z", "A", 1L);
+        delete.setDeleted(true);
+        writer.write(new BulkIngestKey(EVENT_TABLE, delete), new Value(new byte[0]), context);
+        assertTrue(mutations.isEmpty());
+        writer.commit(context);
+        
+        assertEquals(3, mutations.size());
+        int updates = 0;
+        for (int i = 0; i < mutations.size(); i++) {
+            Mutation m = mutations.get(i);
+            String row = new String(m.getRow());
+            if (tables.get(i).equals(INDEX_TABLE)) {
+                assertEquals("a", row);
+                assertEquals(1, m.size());
+                assertArrayEquals("uid".getBytes(), m.getUpdates().get(0).getValue());
+            } else if (row.equals("20180101_1")) {
+                assertEquals(3, m.size());
+                int deletes = 0;
+                for (ColumnUpdate update : m.getUpdates()) {
+                    deletes += (update.isDeleted() ? 1 : 0);
+                }
+                assertEquals(1, deletes);
+            } else {
+                assertEquals("20180101_2", row);
+                assertEquals(1, m.size());
+            }
+            updates += m.size();
+        }
+        assertEquals(5, updates);
+    }
+    
+    @Test
+    public void testLargeRowsAreSplit() throws Exception {
+        conf.setLong(RowGroupingLiveContextWriter.MAX_MUTATION_SIZE, 1024);
+        RowGroupingLiveContextWriter writer = new RowGroupingLiveContextWriter();
+        writer.setup(conf, false);
+        
+        for (int i = 0; i < 50; i++) {
+            writer.write(new BulkIngestKey(EVENT_TABLE, new Key("20180101_1", "csv\0uid" + i, "FIELD\0value", "A", 1L)), new Value(new byte[100]), context);
+        }
+        writer.commit(context);
+        
+        assertTrue(mutations.size() > 1);
+        int updates = 0;
+        for (Mutation m : mutations) {
+            assertEquals("20180101_1", new String(m.getRow()));
+            assertFalse(m.numBytes() > 1024 + 256);
+            updates += m.size();
+        }
+        assertEquals(50, updates);
+    }
+}
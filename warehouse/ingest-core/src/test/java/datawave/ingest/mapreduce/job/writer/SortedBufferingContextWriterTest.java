@@ -0,0 +1,161 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import com.google.common.collect.Multimap;
+import datawave.ingest.mapreduce.StandaloneTaskAttemptContext;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.reduce.BulkIngestKeyDedupeCombiner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SortedBufferingContextWriterTest {
+    
+    private static final Text INDEX_TABLE = new Text("shardIndex");
+    private static final Text EVENT_TABLE = new Text("shard");
+    
+    private Configuration conf;
+    private StandaloneTaskAttemptContext<?,?,BulkIngestKey,Value> context;
+    
+    @Before
+    public void setup() {
+        conf = new Configuration();
+        conf.setBoolean(BulkIngestKeyDedupeCombiner.USING_COMBINER, true);
+        conf.setClass(SortedBufferingContextWriter.CONTEXT_WRITER_CLASS, RecordingContextWriter.class, ContextWriter.class);
+        conf.setInt(AbstractContextWriter.CONTEXT_WRITER_MAX_CACHE_SIZE, 10);
+        context = new StandaloneTaskAttemptContext<>(conf, null);
+        RecordingContextWriter.written.clear();
+    }
+    
+    @Test
+    public void testDuplicatesAreRemovedAcrossFlushes() throws Exception {
+        // small enough to force several flushes
+        conf.setInt(INDEX_TABLE + SortedBufferingContextWriter.TABLES_TO_BUFFER_SUFFIX, 2000);
+        SortedBufferingContextWriter writer = new SortedBufferingContextWriter();
+        writer.setup(conf, false);
+        
+        Random random = new Random(11);
+        TreeSet<Key> expected = new TreeSet<>();
+        for (int i = 0; i < 500; i++) {
+            Key key = new Key("row" + random.nextInt(50), "cf", "cq" + random.nextInt(2), "A", 10L + random.nextInt(2));
+            expected.add(key);
+            writer.write(new BulkIngestKey(INDEX_TABLE, key), new Value(new byte[0]), context);
+            if (i % 7 == 0) {
+                writer.commit(context);
+            }
+        }
+        writer.cleanup(context);
+        
+        List<Key> written = RecordingContextWriter.keys(INDEX_TABLE);
+        assertTrue(written.size() < 500);
+        assertEquals(expected, new TreeSet<>(written));
+        assertTrue(context.getCounter(SortedBufferingContextWriter.FLUSHED_BUFFER_COUNTER, INDEX_TABLE.toString()).getValue() > 1);
+        assertEquals(500, context.getCounter(SortedBufferingContextWriter.FLUSHED_BUFFER_TOTAL, INDEX_TABLE.toString()).getValue());
+    }
+    
+    @Test
+    public void testFlushIsSorted() throws Exception {
+        conf.setInt(INDEX_TABLE + SortedBufferingContextWriter.TABLES_TO_BUFFER_SUFFIX, 1024 * 1024);
+        SortedBufferingContextWriter writer = new SortedBufferingContextWriter();
+        writer.setup(conf, false);
+        
+        Random random = new Random(5);
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // vary the field lengths so that prefixes, timestamps and deletes are all compared
+            Key key = new Key("row" + random.nextInt(100), "cf" + random.nextInt(3), "qualifier" + random.nextInt(20), "A", random.nextInt(3));
+            key.setDeleted(random.nextBoolean());
+            keys.add(key);
+            writer.write(new BulkIngestKey(INDEX_TABLE, key), new Value(new byte[0]), context);
+        }
+        writer.cleanup(context);
+        
+        List<Key> written = RecordingContextWriter.keys(INDEX_TABLE);
+        assertEquals(new ArrayList<>(new TreeSet<>(keys)), written);
+        for (Key key : written) {
+            assertTrue(key.getTimestamp() >= 0);
+        }
+    }
+    
+    @Test
+    public void testUnbufferedTablesPassThrough() throws Exception {
+        conf.setInt(INDEX_TABLE + SortedBufferingContextWriter.TABLES_TO_BUFFER_SUFFIX, 1024);
+        SortedBufferingContextWriter writer = new SortedBufferingContextWriter();
+        writer.setup(conf, false);
+        
+        Key key = new Key("row", "cf", "cq");
+        writer.write(new BulkIngestKey(EVENT_TABLE, key), new Value("a".getBytes()), context);
+        writer.write(new BulkIngestKey(EVENT_TABLE, key), new Value("b".getBytes()), context);
+        // larger than the buffer
+        writer.write(new BulkIngestKey(INDEX_TABLE, key), new Value(new byte[2048]), context);
+        writer.commit(context);
+        
+        assertEquals(2, RecordingContextWriter.keys(EVENT_TABLE).size());
+        assertEquals(1, RecordingContextWriter.keys(INDEX_TABLE).size());
+        writer.cleanup(context);
+    }
+    
+    /**
+     * Records the entries written to it, in order
+     */
+    public static class RecordingContextWriter implements ContextWriter<BulkIngestKey,Value> {
+        
+        private static final List<BulkIngestKey> written = new ArrayList<>();
+        
+        static List<Key> keys(Text table) {
+            List<Key> keys = new ArrayList<>();
+            for (BulkIngestKey key : written) {
+                if (key.getTableName().equals(table)) {
+                    keys.add(key.getKey());
+                }
+            }
+            return keys;
+        }
+        
+        @Override
+        public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            written.add(key);
+        }
+        
+        @Override
+        public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                        InterruptedException {
+            for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+                written.add(entry.getKey());
+            }
+        }
+        
+        @Override
+        public void commit(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void rollback() throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import com.google.common.collect.Multimap;
+import datawave.ingest.mapreduce.StandaloneTaskAttemptContext;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SortingContextWriterTest {
+    
+    private static final Text INDEX_TABLE = new Text("shardIndex");
+    private static final Text EVENT_TABLE = new Text("shard");
+    
+    private Configuration conf;
+    private StandaloneTaskAttemptContext<?,?,BulkIngestKey,Value> context;
+    
+    @Before
+    public void setup() {
+        conf = new Configuration();
+        conf.setClass(SortingContextWriter.CONTEXT_WRITER_CLASS, RecordingContextWriter.class, ContextWriter.class);
+        conf.setInt(AbstractContextWriter.CONTEXT_WRITER_MAX_CACHE_SIZE, 10);
+        context = new StandaloneTaskAttemptContext<>(conf, null);
+        RecordingContextWriter.written.clear();
+    }
+    
+    @Test
+    public void testSpilledEntriesAreSortedAndDeduped() throws Exception {
+        // small enough to force several spills
+        conf.setLong(SortingContextWriter.SORT_BUFFER_SIZE, 4096);
+        SortingContextWriter writer = new SortingContextWriter();
+        writer.setup(conf, false);
+        
+        Random random = new Random(17);
+        TreeSet<Key> expectedIndex = new TreeSet<>();
+        TreeSet<Key> expectedEvent = new TreeSet<>();
+        for (int i = 0; i < 1000; i++) {
+            Key key = new Key("row" + random.nextInt(100), "cf" + random.nextInt(3), "cq" + random.nextInt(5), "A", random.nextInt(3));
+            key.setDeleted(random.nextInt(10) == 0);
+            Text table = (random.nextBoolean() ? INDEX_TABLE : EVENT_TABLE);
+            (table == INDEX_TABLE ? expectedIndex : expectedEvent).add(key);
+            writer.write(new BulkIngestKey(table, key), new Value(new byte[0]), context);
+        }
+        writer.cleanup(context);
+        
+        // nothing is written until all of the entries have been sorted, so each table is written in order and without duplicates
+        assertEquals(new ArrayList<>(expectedIndex), RecordingContextWriter.keys(INDEX_TABLE));
+        assertEquals(new ArrayList<>(expectedEvent), RecordingContextWriter.keys(EVENT_TABLE));
+        assertTrue(context.getCounter(SortingContextWriter.SPILL_COUNTER, "TOTAL").getValue() > 1);
+    }
+    
+    @Test
+    public void testNothingIsWrittenBeforeCleanup() throws Exception {
+        SortingContextWriter writer = new SortingContextWriter();
+        writer.setup(conf, false);
+        
+        writer.write(new BulkIngestKey(INDEX_TABLE, new Key("b")), new Value(new byte[0]), context);
+        writer.write(new BulkIngestKey(EVENT_TABLE, new Key("c")), new Value(new byte[0]), context);
+        writer.write(new BulkIngestKey(INDEX_TABLE, new Key("a")), new Value(new byte[0]), context);
+        writer.commit(context);
+        assertTrue(RecordingContextWriter.keys(INDEX_TABLE).isEmpty());
+        writer.cleanup(context);
+        
+        assertEquals(Arrays.asList(new Key("a"), new Key("b")), RecordingContextWriter.keys(INDEX_TABLE));
+        assertEquals(Collections.singletonList(new Key("c")), RecordingContextWriter.keys(EVENT_TABLE));
+        assertEquals(0, context.getCounter(SortingContextWriter.SPILL_COUNTER, "TOTAL").getValue());
+    }
+    
+    /**
+     * Records the entries written to it, in order
+     */
+    public static class RecordingContextWriter implements ContextWriter<BulkIngestKey,Value> {
+        
+        private static final List<BulkIngestKey> written = new ArrayList<>();
+        
+        static List<Key> keys(Text table) {
+            List<Key> keys = new ArrayList<>();
+            for (BulkIngestKey key : written) {
+                if (key.getTableName().equals(table)) {
+                    keys.add(key.getKey());
+                }
+            }
+            return keys;
+        }
+        
+        @Override
+        public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            written.add(key);
+        }
+        
+        @Override
+        public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                        InterruptedException {
+            for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+                written.add(entry.getKey());
+            }
+        }
+        
+        @Override
+        public void commit(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void rollback() throws IOException, InterruptedException {
+            
+        }
+        
+        @Override
+        public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            
+        }
+    }
+}
@@ -9,6 +9,9 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import datawave.ingest.mapreduce.handler.shard.ShardIdFactory;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
@@ -27,6 +30,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -191,6 +195,52 @@ public class BalancedShardPartitionerTest {
         assertEquals(nextPartition, partition);
     }
     
+    @Test
+    public void testConcurrentCallersGetTheSamePartitions() throws Exception {
+        final List<BulkIngestKey> keys = new ArrayList<>();
+        for (int daysAgo = -2; daysAgo < 30; daysAgo++) {
+            String day = formatDay(daysAgo);
+            for (int i = 0; i < SHARDS_PER_DAY + 5; i++) {
+                keys.add(new BulkIngestKey(new Text("shard"), new Key(day + "_" + i)));
+            }
+        }
+        
+        // the expected partitions come from another partitioner used by a single thread
+        BalancedShardPartitioner serial = new BalancedShardPartitioner();
+        serial.setConf(conf);
+        int[] expected = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            expected[i] = serial.getPartition(keys.get(i), new Value(), NUM_REDUCE_TASKS);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    int[] partitions = new int[keys.size()];
+                    for (int i = 0; i < keys.size(); i++) {
+                        partitions[i] = partitioner.getPartition(keys.get(i), new Value(), NUM_REDUCE_TASKS);
+                    }
+                    return partitions;
+                }));
+            }
+            for (Future<int[]> future : futures) {
+                assertArrayEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testShardIdWithLeadingZeroIsHashed() {
+        // the shard id of shard 1 with a leading zero is a different row, which has no partition assigned
+        String shardId = formatDay(1) + "_01";
+        int partition = partitioner.getPartition(new BulkIngestKey(new Text("shard"), new Key(shardId)), new Value(), NUM_REDUCE_TASKS);
+        assertEquals((new Text(shardId).hashCode() & Integer.MAX_VALUE) % NUM_REDUCE_TASKS, partition);
+    }
+    
     private void simulateDifferentNumberShardsPerDay(String missingShardStrategy, String tableName) throws IOException {
         // This emulates today, yesterday and the day before have SHARDS_PER_DAY splits and
         // 3 days ago and 4 days ago only have 2 splits, _0 and _1.
@@ -228,4 +228,89 @@ public class GlobalIndexUidAggregatorTest {
         assertEquals(1, resultList.getUIDCount());
         
     }
+    
+    @Test
+    public void testEncodingMatchesBuilder() throws Exception {
+        agg.reset();
+        Collection<Value> values = Lists.newArrayList();
+        Builder b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(2);
+        b.addUID("uid.c");
+        b.addUID("uid.a");
+        values.add(new Value(b.build().toByteArray()));
+        b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(2);
+        b.addUID("uid.b");
+        b.addUID("uid.d");
+        values.add(new Value(b.build().toByteArray()));
+        b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(-1);
+        b.addREMOVEDUID("uid.d");
+        b.addQUARANTINEUID("uid.q");
+        values.add(new Value(b.build().toByteArray()));
+        
+        Value result = agg.reduce(new Key("key"), values.iterator());
+        
+        // the uid lists are written in sorted order, otherwise the bytes are those of the protobuf builder
+        b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(3);
+        b.addUID("uid.a");
+        b.addUID("uid.b");
+        b.addUID("uid.c");
+        b.addREMOVEDUID("uid.d");
+        b.addQUARANTINEUID("uid.q");
+        assertEquals(0, new Value(b.build().toByteArray()).compareTo(result.get()));
+        assertTrue(agg.propogateKey());
+    }
+    
+    @Test
+    public void testReleasedQuarantine() throws Exception {
+        agg.reset();
+        Collection<Value> values = Lists.newArrayList();
+        Builder b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(-1);
+        b.addQUARANTINEUID("uid.a");
+        values.add(new Value(b.build().toByteArray()));
+        b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(1);
+        b.addQUARANTINEUID("uid.a");
+        values.add(new Value(b.build().toByteArray()));
+        
+        Value result = agg.reduce(new Key("key"), values.iterator());
+        Uid.List resultList = Uid.List.parseFrom(result.get());
+        assertEquals(0, resultList.getCOUNT());
+        assertEquals(Lists.newArrayList("uid.a"), resultList.getUIDList());
+        assertEquals(0, resultList.getQUARANTINEUIDCount());
+        assertEquals(0, resultList.getREMOVEDUIDCount());
+    }
+    
+    @Test
+    public void testFullRemoval() throws Exception {
+        agg.reset();
+        Collection<Value> values = Lists.newArrayList();
+        Builder b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(1);
+        b.addUID("uid.a");
+        values.add(new Value(b.build().toByteArray()));
+        b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(-1);
+        b.addREMOVEDUID("uid.a");
+        values.add(new Value(b.build().toByteArray()));
+        
+        Value result = agg.reduce(new Key("key"), values.iterator());
+        Uid.List resultList = Uid.List.parseFrom(result.get());
+        assertEquals(0, resultList.getCOUNT());
+        assertEquals(0, resultList.getUIDCount());
+        assertEquals(Lists.newArrayList("uid.a"), resultList.getREMOVEDUIDList());
+        // nothing left, so the key can be dropped
+        assertEquals(false, agg.propogateKey());
+    }
 }
@@ -153,6 +153,31 @@ public class FlagMakerTest {
         assertEquals(0, cleanCnt);
     }
     
+    /**
+     * Test of processFlags using incremental discovery, which should only flag the files that arrive between cycles.
+     */
+    @Test
+    public void testProcessFlagsIncremental() throws Exception {
+        File f = setUpFlagDir();
+        fmc.setIncrementalDiscovery(true);
+        createTestFiles(2, 5);
+        FlagMaker instance = new TestWrappedFlagMaker(fmc);
+        instance.processFlags();
+        assertEquals(2, f.listFiles().length);
+        
+        // nothing new has arrived
+        instance.processFlags();
+        assertEquals(2, f.listFiles().length);
+        
+        // another two days, 5 files each day, two folders in fmc = 20 more files, which make 2 more flag files
+        createTestFiles(2, 5);
+        instance.processFlags();
+        assertEquals("Incorrect files.  Expected 4 but got " + f.listFiles().length + ": " + Arrays.toString(f.listFiles()), 4, f.listFiles().length);
+        for (File file : f.listFiles()) {
+            assertTrue(file.getName().endsWith(".flag"));
+        }
+    }
+    
     /**
      * Test of time stamps of the flag files
      */
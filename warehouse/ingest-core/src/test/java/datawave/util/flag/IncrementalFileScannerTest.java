@@ -0,0 +1,126 @@
+package datawave.util.flag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IncrementalFileScannerTest {
+    
+    private static final String BASE_DIR = "target/test/IncrementalFileScanner";
+    
+    private File baseDir;
+    private CountingFileSystem fs;
+    private IncrementalFileScanner scanner;
+    
+    @Before
+    public void setUp() throws Exception {
+        baseDir = new File(BASE_DIR).getAbsoluteFile();
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectory(baseDir);
+        }
+        baseDir.mkdirs();
+        fs = new CountingFileSystem(FileSystem.getLocal(new Configuration()));
+        scanner = new IncrementalFileScanner(baseDir.getPath() + "/2*/*/*/[0-9a-zA-Z]*[0-9a-zA-Z]");
+    }
+    
+    @Test
+    public void testOnlyNewFilesAreReturned() throws Exception {
+        File day1 = createFiles("2013/01/01", "a1", "a2");
+        File day2 = createFiles("2013/01/02", "b1", "b2._COPYING_");
+        assertEquals(names("a1", "a2", "b1"), names(scanner.scan(fs)));
+        assertEquals(3, scanner.getKnownFileCount());
+        
+        // the directories have not changed since they were listed
+        settle(day1, day2);
+        fs.listings = 0;
+        assertTrue(scanner.scan(fs).isEmpty());
+        assertEquals(0, fs.listings);
+        
+        // only the modified directory is listed again
+        createFiles("2013/01/02", "b3");
+        assertEquals(names("b3"), names(scanner.scan(fs)));
+        assertEquals(1, fs.listings);
+    }
+    
+    @Test
+    public void testForgottenFilesAreReturnedAgain() throws Exception {
+        File day1 = createFiles("2013/01/01", "a1", "a2");
+        assertEquals(names("a1", "a2"), names(scanner.scan(fs)));
+        
+        assertTrue(scanner.scan(fs).isEmpty());
+        
+        // both files were flagged, but only a1 was moved away
+        new File(day1, "a1").delete();
+        scanner.forget(new Path(new File(day1, "a1").toURI()));
+        scanner.forget(new Path(new File(day1, "a2").toURI()));
+        assertEquals(names("a2"), names(scanner.scan(fs)));
+        assertEquals(1, scanner.getKnownFileCount());
+    }
+    
+    private File createFiles(String dir, String... names) throws IOException {
+        File directory = new File(baseDir, dir);
+        directory.mkdirs();
+        for (String name : names) {
+            FileUtils.writeStringToFile(new File(directory, name), name);
+        }
+        return directory;
+    }
+    
+    /**
+     * Backdates the directories so that the scanner does not list them again just because they were recently modified
+     */
+    private void settle(File... directories) throws IOException {
+        for (File directory : directories) {
+            Path path = new Path(directory.toURI());
+            long modified = fs.getFileStatus(path).getModificationTime();
+            assertTrue(directory.setLastModified(modified - 2 * IncrementalFileScanner.SETTLE_MILLISECS));
+        }
+        // the new modification times look like changes, so let the scanner see them once
+        scanner.scan(fs);
+    }
+    
+    private static Set<String> names(String... names) {
+        Set<String> set = new HashSet<>();
+        for (String name : names) {
+            set.add(name);
+        }
+        return set;
+    }
+    
+    private static Set<String> names(List<FileStatus> files) {
+        Set<String> set = new HashSet<>();
+        for (FileStatus file : files) {
+            set.add(file.getPath().getName());
+        }
+        return set;
+    }
+    
+    private static class CountingFileSystem extends FilterFileSystem {
+        private int listings = 0;
+        
+        CountingFileSystem(FileSystem fs) {
+            super(fs);
+        }
+        
+        @Override
+        public FileStatus[] listStatus(Path path, PathFilter filter) throws IOException {
+            listings++;
+            return super.listStatus(path, filter);
+        }
+    }
+}
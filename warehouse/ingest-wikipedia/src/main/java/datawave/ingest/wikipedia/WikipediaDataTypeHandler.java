@@ -3,7 +3,6 @@ package datawave.ingest.wikipedia;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
-import java.util.Arrays;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -78,6 +77,8 @@ public class WikipediaDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> extends ExtendedCon
     private DocumentBuilder parser = null;
     private WikipediaIngestHelper ingestHelper = null;
     private WikipediaHelper helper = null;
+    private WikipediaTokenizer wikiTokenizer = null;
+    private CharTermAttribute termAttr = null;
     
     @Override
     public void setup(TaskAttemptContext context) {
@@ -239,29 +240,32 @@ public class WikipediaDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> extends ExtendedCon
                 }
             }
             
-            WikipediaTokenizer wikiTokenizer = new WikipediaTokenizer();
+            // the tokenizer and its term buffer are reused across text nodes and events
+            if (wikiTokenizer == null) {
+                wikiTokenizer = new WikipediaTokenizer();
+                termAttr = wikiTokenizer.addAttribute(CharTermAttribute.class);
+            }
             wikiTokenizer.setReader(contentReader);
-            CharTermAttribute termAttr = wikiTokenizer.addAttribute(CharTermAttribute.class);
             wikiTokenizer.reset();
             
             while (wikiTokenizer.incrementToken()) {
-                String term = termAttr.toString();
                 
                 // getting the next token can take a long time depending on the compexity of the data...
                 // so lets report progress to hadoop on each round
                 if (context != null)
                     context.progress();
                 
-                if (StringUtils.isBlank(term)) {
+                if (isBlank(termAttr)) {
                     context.getCounter("Tokenization", "Blank tokens (null, empty, or whitespace)").increment(1l);
                     continue;
                 }
                 
-                processTerm(event, position, term, null, context, contextWriter, fieldName, fieldNameToken, reporter);
+                processTerm(event, position, termAttr.toString(), null, context, contextWriter, fieldName, fieldNameToken, reporter);
                 
                 // Get the word position for this term
                 position++;
             }
+            wikiTokenizer.end();
             
             // now flush out the offset queue
             if (tokenOffsetCache != null) {
@@ -307,11 +311,31 @@ public class WikipediaDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> extends ExtendedCon
             if (null != tokenOffsetCache) {
                 tokenOffsetCache.clear();
             }
+            // release the reader so that the tokenizer can be reset with the next text node
+            if (null != wikiTokenizer) {
+                wikiTokenizer.close();
+            }
         }
         
         return position;
     }
     
+    /**
+     * Checks the term attribute for a blank term in place, so that a String is only created for the terms that are processed.
+     * 
+     * @param term
+     * @return true if the term is empty or all whitespace
+     */
+    private static boolean isBlank(CharTermAttribute term) {
+        final char[] buffer = term.buffer();
+        for (int i = 0, len = term.length(); i < len; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     /**
      * Creates and writes the BulkIngestKey for the event's field/value to the ContextWriter (instead of the Multimap that the {@link ShardedDataTypeHandler}
      * uses).
@@ -517,7 +541,7 @@ public class WikipediaDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> extends ExtendedCon
                     counters.incrementValue(ContentIndexCounters.TOKENIZER_OFFSET_CACHE_POSITIONS_OVERFLOWED, overflow.offsets.size(), reporter);
                 }
             } else {
-                createTermFrequencyIndex(event, contextWriter, context, this.shardId, nfv, Arrays.asList(position), fieldVisibility, false);
+                createTermFrequencyIndex(event, contextWriter, context, this.shardId, nfv, position, fieldVisibility, false);
             }
         }
     }
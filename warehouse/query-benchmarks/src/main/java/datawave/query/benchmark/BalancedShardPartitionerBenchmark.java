@@ -0,0 +1,134 @@
+package datawave.query.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import datawave.ingest.mapreduce.handler.shard.ShardIdFactory;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.ShardedTableMapFile;
+import datawave.ingest.mapreduce.partition.BalancedShardPartitioner;
+import datawave.util.time.DateHelper;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.commons.lang.time.DateUtils;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures partitioning shard table keys with the precomputed lookup of the {@link BalancedShardPartitioner} and the
+ * {@link SynchronizedBalancedShardPartitioner} it replaced. The splits cover a year of days with <code>shardsPerDay</code> shards each, and most keys fall in
+ * the last few days, as they do during live ingest. The contended benchmark shares one partitioner between several threads, as a mapper writing from more
+ * than one thread does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BalancedShardPartitionerBenchmark {
+    
+    private static final int KEYS = 10000;
+    private static final int REDUCERS = 500;
+    private static final String TABLE = "shard";
+    
+    @Param({"synchronized", "precomputed"})
+    public String implementation;
+    
+    @Param({"241", "1000"})
+    public int shardsPerDay;
+    
+    @Param({"365"})
+    public int days;
+    
+    @Param({"800"})
+    public int tservers;
+    
+    private File splitsFile;
+    private Partitioner<BulkIngestKey,Value> partitioner;
+    private BulkIngestKey[] keys;
+    private Value value = new Value(new byte[0]);
+    
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(0xDA7AL);
+        long now = System.currentTimeMillis();
+        
+        // spread each day's shards across the tservers, as the ShardedTableTabletBalancer does
+        TreeMap<Text,String> splits = new TreeMap<>();
+        for (int daysAgo = -2; daysAgo < days; daysAgo++) {
+            String day = DateHelper.format(now - daysAgo * DateUtils.MILLIS_PER_DAY);
+            int first = random.nextInt(tservers);
+            for (int shard = 0; shard < shardsPerDay; shard++) {
+                splits.put(new Text(day + "_" + shard), "tserver" + ((first + shard) % tservers));
+            }
+        }
+        splitsFile = Files.createTempFile("shards", ".seq").toFile();
+        Configuration conf = new Configuration();
+        conf.setInt(ShardIdFactory.NUM_SHARDS, shardsPerDay);
+        ShardedTableMapFile.writeSplitsFile(splits, new Path(splitsFile.toURI()), conf);
+        ShardedTableMapFile.addToConf(conf, Collections.singletonMap(TABLE, new Path(splitsFile.toURI())));
+        
+        partitioner = "synchronized".equals(implementation) ? new SynchronizedBalancedShardPartitioner() : new BalancedShardPartitioner();
+        ((Configurable) partitioner).setConf(conf);
+        
+        // most keys are for the last few days
+        Text table = new Text(TABLE);
+        keys = new BulkIngestKey[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            int daysAgo = (random.nextInt(10) == 0 ? random.nextInt(days) : random.nextInt(3));
+            String shardId = DateHelper.format(now - daysAgo * DateUtils.MILLIS_PER_DAY) + "_" + random.nextInt(shardsPerDay);
+            keys[i] = new BulkIngestKey(table, new Key(shardId, "fi\u0000FIELD", "value\u0000datatype\u0000uid", now));
+        }
+        
+        // load the splits before measuring
+        partition();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        if (!splitsFile.delete()) {
+            splitsFile.deleteOnExit();
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int partition() {
+        int sum = 0;
+        for (BulkIngestKey key : keys) {
+            sum += partitioner.getPartition(key, value, REDUCERS);
+        }
+        return sum;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    @Threads(4)
+    public int partitionContended() {
+        return partition();
+    }
+}
@@ -0,0 +1,39 @@
+package datawave.query.benchmark;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the shaded benchmarks jar. Accepts the standard JMH command line, but unless a result format or file is given the results are written as
+ * JSON to <code>jmh-result-&lt;version&gt;-&lt;timestamp&gt;.json</code> (or the directory named by the <code>datawave.benchmark.results.dir</code> system
+ * property) so that runs from different releases can be compared by tooling.
+ */
+public class BenchmarkRunner {
+    
+    public static final String RESULTS_DIR_PROPERTY = "datawave.benchmark.results.dir";
+    
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLine);
+        
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+            String timestamp = new SimpleDateFormat("yyyyMMdd'T'HHmmss").format(new Date());
+            String name = "jmh-result-" + (version == null ? "dev" : version) + "-" + timestamp + ".json";
+            File dir = new File(System.getProperty(RESULTS_DIR_PROPERTY, "."));
+            builder.result(new File(dir, name).getPath());
+        }
+        
+        new Runner(builder.build()).run();
+    }
+}
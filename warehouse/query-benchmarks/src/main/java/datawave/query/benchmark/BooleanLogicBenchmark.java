@@ -0,0 +1,98 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.logic.AndIterator;
+import datawave.query.iterator.logic.OrIterator;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the merge join of {@link AndIterator} and the merge union of {@link OrIterator} over leaf terms of a given size and selectivity. Each term selects
+ * a random <code>selectivity</code> fraction of the documents in the shard, so the expected size of an intersection shrinks with the number of terms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BooleanLogicBenchmark {
+    
+    @Param({"10000", "100000"})
+    public int documentsInShard;
+    
+    @Param({"2", "4", "8"})
+    public int terms;
+    
+    @Param({"0.001", "0.1", "0.5"})
+    public double selectivity;
+    
+    private List<List<Key>> postings;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(0xDA7AL);
+        Text row = new Text(SyntheticShard.SHARD);
+        postings = new ArrayList<>(terms);
+        for (int term = 0; term < terms; term++) {
+            TreeSet<Key> keys = new TreeSet<>();
+            for (int doc = 0; doc < documentsInShard; doc++) {
+                if (random.nextDouble() < selectivity) {
+                    keys.add(new Key(row, new Text(SyntheticShard.DATATYPE + '\u0000' + SyntheticShard.uid(doc))));
+                }
+            }
+            postings.add(new ArrayList<>(keys));
+        }
+    }
+    
+    private List<NestedIterator<Key>> leaves() {
+        List<NestedIterator<Key>> leaves = new ArrayList<>(terms);
+        for (List<Key> keys : postings) {
+            leaves.add(new SortedListIterator<>(keys));
+        }
+        return leaves;
+    }
+    
+    private static void drain(NestedIterator<Key> iterator, Blackhole blackhole) {
+        iterator.initialize();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+    
+    @Benchmark
+    public void and(Blackhole blackhole) {
+        drain(new AndIterator<>(leaves()), blackhole);
+    }
+    
+    @Benchmark
+    public void or(Blackhole blackhole) {
+        drain(new OrIterator<>(leaves(), true), blackhole);
+    }
+    
+    @Benchmark
+    public void andNot(Blackhole blackhole) {
+        List<NestedIterator<Key>> leaves = leaves();
+        List<NestedIterator<Key>> excludes = new ArrayList<>(leaves.subList(1, leaves.size()));
+        drain(new AndIterator<>(leaves.subList(0, 1), excludes), blackhole);
+    }
+}
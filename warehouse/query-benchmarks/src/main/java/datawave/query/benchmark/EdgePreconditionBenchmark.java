@@ -0,0 +1,158 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.data.config.NormalizedFieldAndValue;
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinition;
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinitionConfigurationHelper;
+import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionCacheHelper;
+import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionEvaluator;
+import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionJexlContext;
+import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionJexlEvaluation;
+
+import org.apache.commons.jexl2.Script;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * Measures evaluating the edge preconditions of an event the way the ProtobufEdgeDataTypeHandler used to, by loading every precondition field into an
+ * {@link EdgePreconditionJexlContext} and running the script of each edge definition, against the {@link EdgePreconditionEvaluator} with and without compiled
+ * preconditions. The edge definitions use the fields of the mycsv data type in the ingest test configs (FOO_FIELD, BAR_FIELD, EVENT_DATE and the
+ * EDGE_VERTEX_FROM and EDGE_VERTEX_TO vertices), which have no preconditions of their own, so each one is given one of {@link #PRECONDITIONS}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EdgePreconditionBenchmark {
+    
+    private static final int NUM_EVENTS = 256;
+    
+    public static final String[] PRECONDITIONS = {
+            // equality and existence
+            "FOO_FIELD == 'foo1' && !empty(EVENT_DATE)",
+            // a disjunction of equalities, and a regex
+            "(BAR_FIELD == 'bar1' || BAR_FIELD == 'bar2') && EDGE_VERTEX_FROM =~ 'v1.*'",
+            // negation
+            "!(FOO_FIELD == 'foo2') && EDGE_VERTEX_TO !~ 'v2.*'",
+            // not compiled, so always evaluated by JEXL
+            "size(BAR_FIELD) > 1"};
+    
+    @Param({"jexl", "interpreted", "compiled"})
+    public String implementation;
+    
+    @Param({"4", "32"})
+    public int edgeDefinitions;
+    
+    @Param({"10", "100"})
+    public int fieldsPerEvent;
+    
+    private List<EdgeDefinition> edgeDefs;
+    private List<Multimap<String,NormalizedContentInterface>> events;
+    private int next = 0;
+    
+    private EdgePreconditionJexlContext jexlContext;
+    private EdgePreconditionJexlEvaluation jexlEvaluation;
+    private Map<String,Script> scriptCache;
+    private EdgePreconditionEvaluator evaluator;
+    
+    @Setup
+    public void setup() {
+        List<EdgeDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < edgeDefinitions; i++) {
+            EdgeDefinition edgeDef = new EdgeDefinition();
+            edgeDef.setEdgeType("MY_EDGE_TYPE");
+            edgeDef.setSourceFieldName("EDGE_VERTEX_FROM");
+            edgeDef.setSinkFieldName("EDGE_VERTEX_TO");
+            edgeDef.setJexlPrecondition(PRECONDITIONS[i % PRECONDITIONS.length]);
+            definitions.add(edgeDef);
+        }
+        EdgeDefinitionConfigurationHelper helper = new EdgeDefinitionConfigurationHelper();
+        helper.setEdgeAttribute2("FOO_FIELD");
+        helper.setEdgeAttribute3("BAR_FIELD");
+        helper.setActivityDateField("EVENT_DATE");
+        helper.setEdges(definitions);
+        helper.init(new HashSet<>(), new HashSet<>());
+        Map<String,EdgeDefinitionConfigurationHelper> edges = Collections.singletonMap("mycsv", helper);
+        edgeDefs = helper.getEdges();
+        
+        if ("jexl".equals(implementation)) {
+            jexlContext = new EdgePreconditionJexlContext(edges);
+            jexlEvaluation = new EdgePreconditionJexlEvaluation();
+            scriptCache = new EdgePreconditionCacheHelper().createScriptCacheFromEdges(edges);
+        } else {
+            evaluator = new EdgePreconditionEvaluator(edges, "compiled".equals(implementation));
+        }
+        
+        Random random = new Random(7);
+        events = new ArrayList<>(NUM_EVENTS);
+        for (int i = 0; i < NUM_EVENTS; i++) {
+            Multimap<String,NormalizedContentInterface> event = HashMultimap.create();
+            put(event, "FOO_FIELD", "foo" + random.nextInt(3));
+            for (int j = random.nextInt(3); j > 0; j--) {
+                put(event, "BAR_FIELD", "bar" + random.nextInt(4));
+            }
+            if (random.nextBoolean()) {
+                put(event, "EVENT_DATE", "2013-01-0" + (1 + random.nextInt(9)));
+            }
+            put(event, "EDGE_VERTEX_FROM", "v" + random.nextInt(4) + "-" + i);
+            put(event, "EDGE_VERTEX_TO", "v" + random.nextInt(4) + "-" + i);
+            for (int j = event.size(); j < fieldsPerEvent; j++) {
+                put(event, "FIELD_" + j, "value" + random.nextInt(100));
+            }
+            events.add(event);
+        }
+    }
+    
+    private static void put(Multimap<String,NormalizedContentInterface> event, String field, String value) {
+        event.put(field, new NormalizedFieldAndValue(field, value));
+    }
+    
+    /**
+     * Evaluates the precondition of every edge definition against the next event, as ProtobufEdgeDataTypeHandler.process does
+     */
+    @Benchmark
+    public int evaluate() {
+        next = (next + 1) % NUM_EVENTS;
+        Multimap<String,NormalizedContentInterface> event = events.get(next);
+        int satisfied = 0;
+        if (evaluator == null) {
+            jexlContext.setFilteredContextForNormalizedContentInterface(event);
+            jexlEvaluation.setJexlContext(jexlContext);
+            for (EdgeDefinition edgeDef : edgeDefs) {
+                if (jexlEvaluation.apply(scriptCache.get(edgeDef.getJexlPrecondition()))) {
+                    satisfied++;
+                }
+            }
+        } else {
+            evaluator.setEvent(event);
+            for (EdgeDefinition edgeDef : edgeDefs) {
+                if (evaluator.evaluate(edgeDef.getJexlPrecondition())) {
+                    satisfied++;
+                }
+            }
+        }
+        return satisfied;
+    }
+}
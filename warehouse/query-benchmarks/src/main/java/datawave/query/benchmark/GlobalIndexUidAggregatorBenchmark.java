@@ -0,0 +1,96 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import datawave.ingest.protobuf.Uid;
+import datawave.ingest.table.aggregator.GlobalIndexUidAggregator;
+import datawave.ingest.table.aggregator.PropogatingCombiner;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures combining the Uid.List values of a single shardIndex key, as done by the tservers during compactions and scans, for the current
+ * {@link GlobalIndexUidAggregator} and the {@link HashSetGlobalIndexUidAggregator} it replaced. Run with <code>-prof gc</code> to compare the allocation rate
+ * (gc.alloc.rate.norm is the bytes allocated per reduce).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlobalIndexUidAggregatorBenchmark {
+    
+    @Param({"hashset", "interned"})
+    public String implementation;
+    
+    // the number of Uid.List values combined per key
+    @Param({"10", "200"})
+    public int valuesPerKey;
+    
+    @Param({"1", "20"})
+    public int uidsPerValue;
+    
+    @Param({"20", "5000"})
+    public int maxUids;
+    
+    // the fraction of the values that are removals
+    @Param({"0.0", "0.1"})
+    public double removalFraction;
+    
+    private final Key key = new Key("term", "field", "20190101_0\u0000datatype");
+    private PropogatingCombiner aggregator;
+    private List<Value> values;
+    
+    @Setup
+    public void setup() {
+        aggregator = "hashset".equals(implementation) ? new HashSetGlobalIndexUidAggregator(maxUids) : new GlobalIndexUidAggregator(maxUids);
+        
+        Random random = new Random(0xDA7AL);
+        List<String> uids = new ArrayList<>();
+        values = new ArrayList<>(valuesPerKey);
+        for (int i = 0; i < valuesPerKey; i++) {
+            Uid.List.Builder builder = Uid.List.newBuilder().setIGNORE(false);
+            if (!uids.isEmpty() && random.nextDouble() < removalFraction) {
+                builder.setCOUNT(-1);
+                builder.addREMOVEDUID(uids.get(random.nextInt(uids.size())));
+            } else {
+                builder.setCOUNT(uidsPerValue);
+                for (int j = 0; j < uidsPerValue; j++) {
+                    String uid = SyntheticShard.uid(i * uidsPerValue + j) + '.' + Integer.toHexString(random.nextInt());
+                    uids.add(uid);
+                    builder.addUID(uid);
+                }
+            }
+            values.add(new Value(builder.build().toByteArray()));
+        }
+    }
+    
+    @Benchmark
+    public Value reduce() {
+        aggregator.reset();
+        return aggregator.reduce(key, values.iterator());
+    }
+    
+    @Benchmark
+    public boolean reduceAndPropogate() {
+        aggregator.reset();
+        aggregator.reduce(key, values.iterator());
+        return aggregator.propogateKey();
+    }
+}
@@ -0,0 +1,41 @@
+package datawave.query.benchmark;
+
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
+import datawave.query.index.lookup.IndexInfo;
+import datawave.query.index.lookup.IndexMatch;
+import datawave.query.index.lookup.IndexMatchType;
+import datawave.query.index.lookup.UidIntersector;
+
+/**
+ * The HashMultimap based UID intersection that preceded the sorted intersection of {@link IndexInfo}, kept as the baseline for {@link IndexInfoBenchmark}.
+ */
+public class HashMultimapUidIntersector implements UidIntersector {
+    
+    @Override
+    public Set<IndexMatch> intersect(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        HashMultimap<String,JexlNode> ids = HashMultimap.create();
+        for (IndexMatch match : Iterables.concat(uids1, uids2)) {
+            JexlNode newNode = match.getNode();
+            if (null != newNode)
+                ids.put(match.getUid(), newNode);
+        }
+        
+        Set<IndexMatch> matches = Sets.newHashSet();
+        for (String uid : ids.keySet()) {
+            Set<JexlNode> nodes = Sets.newHashSet(ids.get(uid));
+            if (nodes.size() > 1) {
+                nodes.addAll(delayedNodes);
+                matches.add(new IndexMatch(nodes, uid, IndexMatchType.AND));
+            }
+        }
+        return matches;
+    }
+}
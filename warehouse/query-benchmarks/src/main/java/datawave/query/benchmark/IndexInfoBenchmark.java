@@ -0,0 +1,98 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.index.lookup.IndexInfo;
+import datawave.query.index.lookup.IndexMatch;
+import datawave.query.index.lookup.UidIntersector;
+import datawave.query.jexl.JexlASTHelper;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures combining the UIDs of the terms of a conjunction within a single shard, as done by the Intersection of global index streams during planning, for
+ * the sorted intersection of {@link IndexInfo} and the {@link HashMultimapUidIntersector} it replaced. The first term selects <code>uidsPerTerm</code> UIDs
+ * and each of the others selects <code>uidsPerTerm / skew</code>, so a skew above one measures a broad term intersected with selective ones. The union of the
+ * terms does not depend on the implementation and is measured for comparison with earlier runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexInfoBenchmark {
+    
+    @Param({"hashmultimap", "sorted"})
+    public String implementation;
+    
+    @Param({"2", "4"})
+    public int terms;
+    
+    @Param({"20", "1000"})
+    public int uidsPerTerm;
+    
+    @Param({"1", "50"})
+    public int skew;
+    
+    // the number of distinct UIDs the terms select from
+    @Param({"5000"})
+    public int uidsInShard;
+    
+    private UidIntersector intersector;
+    private List<IndexInfo> infos;
+    
+    @Setup
+    public void setup() throws ParseException {
+        intersector = "hashmultimap".equals(implementation) ? new HashMultimapUidIntersector() : new IndexInfo();
+        
+        Random random = new Random(0xDA7AL);
+        infos = new ArrayList<>(terms);
+        for (int term = 0; term < terms; term++) {
+            int size = (term == 0 ? uidsPerTerm : Math.max(1, uidsPerTerm / skew));
+            List<IndexMatch> matches = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                matches.add(new IndexMatch(SyntheticShard.uid(random.nextInt(uidsInShard))));
+            }
+            IndexInfo info = new IndexInfo(matches);
+            info.applyNode(JexlASTHelper.parseJexlQuery("FIELD" + term + " == 'value'"));
+            infos.add(info);
+        }
+    }
+    
+    @Benchmark
+    public IndexInfo intersect() {
+        List<JexlNode> delayedNodes = Collections.emptyList();
+        IndexInfo merged = infos.get(0);
+        for (int i = 1; i < infos.size(); i++) {
+            merged = merged.intersect(infos.get(i), delayedNodes, intersector);
+        }
+        return merged;
+    }
+    
+    @Benchmark
+    public IndexInfo union() {
+        List<JexlNode> delayedNodes = Collections.emptyList();
+        IndexInfo merged = infos.get(0);
+        for (int i = 1; i < infos.size(); i++) {
+            merged = merged.union(infos.get(i), delayedNodes);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,86 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.attributes.Document;
+import datawave.query.function.JexlEvaluation;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.jexl.DefaultArithmetic;
+import datawave.query.jexl.HitListArithmetic;
+import datawave.query.util.Tuple3;
+
+import org.apache.accumulo.core.data.Key;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JexlEvaluation} of a query against documents already loaded into a {@link DatawaveJexlContext}, with and without hit list tracking.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JexlEvaluationBenchmark {
+    
+    private static final int NUM_DOCUMENTS = 256;
+    
+    public static final String[] QUERIES = {
+            // simple conjunction of the two hit terms
+            "FIELD_0 == 'hit' && FIELD_1 == 'hit'",
+            // disjunction with a regex, which is evaluated against every value of the field
+            "FIELD_0 == 'hit' || FIELD_1 =~ 'v1.*'",
+            // negation and a range
+            "FIELD_0 == 'hit' && !(FIELD_1 == 'hit') && ((FIELD_2 >= 'v1') && (FIELD_2 <= 'v5'))"};
+    
+    @Param({"0", "1", "2"})
+    public int query;
+    
+    @Param({"10", "100"})
+    public int fieldsPerDocument;
+    
+    @Param({"0.1", "0.9"})
+    public double selectivity;
+    
+    @Param({"false", "true"})
+    public boolean hitList;
+    
+    private JexlEvaluation evaluation;
+    private List<Tuple3<Key,Document,DatawaveJexlContext>> inputs;
+    private int next = 0;
+    
+    @Setup
+    public void setup() {
+        evaluation = new JexlEvaluation(QUERIES[query], hitList ? new HitListArithmetic() : new DefaultArithmetic());
+        
+        SyntheticShard shard = new SyntheticShard(NUM_DOCUMENTS, Math.max(fieldsPerDocument, 3), 100, 8, selectivity);
+        List<Map<String,String>> fields = shard.documents();
+        inputs = new ArrayList<>(NUM_DOCUMENTS);
+        for (int doc = 0; doc < NUM_DOCUMENTS; doc++) {
+            Document document = shard.document(doc, fields.get(doc));
+            DatawaveJexlContext context = new DatawaveJexlContext();
+            document.visit(Collections.emptySet(), context);
+            inputs.add(new Tuple3<>(document.getMetadata(), document, context));
+        }
+    }
+    
+    @Benchmark
+    public boolean evaluate() {
+        next = (next + 1) % NUM_DOCUMENTS;
+        return evaluation.apply(inputs.get(next));
+    }
+}
@@ -0,0 +1,106 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.attributes.Document;
+import datawave.query.function.deserializer.DocumentDeserializer;
+import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.deserializer.PooledKryoDocumentDeserializer;
+import datawave.query.function.serializer.DocumentSerializer;
+import datawave.query.function.serializer.KryoDocumentSerializer;
+import datawave.query.function.serializer.PooledKryoDocumentSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Measures the cost of turning a Document into the Value returned by the QueryIterator and back again, as done by the tservers and the web tier respectively,
+ * for the kryo and pooledkryo return types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KryoDocumentBenchmark {
+    
+    private static final int NUM_DOCUMENTS = 256;
+    
+    @Param({"10", "100", "500"})
+    public int fieldsPerDocument;
+    
+    @Param({"8", "128"})
+    public int valueLength;
+    
+    @Param({"false", "true"})
+    public boolean compress;
+    
+    @Param({"kryo", "pooledkryo"})
+    public String returnType;
+    
+    private DocumentSerializer serializer;
+    private DocumentDeserializer deserializer;
+    private List<Map.Entry<Key,Document>> documents;
+    private List<Map.Entry<Key,Value>> values;
+    private int next = 0;
+    
+    @Setup
+    public void setup() {
+        if ("pooledkryo".equals(returnType)) {
+            serializer = new PooledKryoDocumentSerializer(false, compress);
+            deserializer = new PooledKryoDocumentDeserializer();
+        } else {
+            serializer = new KryoDocumentSerializer(false, compress);
+            deserializer = new KryoDocumentDeserializer();
+        }
+        
+        SyntheticShard shard = new SyntheticShard(NUM_DOCUMENTS, fieldsPerDocument, 1000, valueLength, 0.1);
+        List<Map<String,String>> fields = shard.documents();
+        documents = new ArrayList<>(NUM_DOCUMENTS);
+        values = new ArrayList<>(NUM_DOCUMENTS);
+        for (int doc = 0; doc < NUM_DOCUMENTS; doc++) {
+            Document document = shard.document(doc, fields.get(doc));
+            Map.Entry<Key,Document> entry = Maps.immutableEntry(document.getMetadata(), document);
+            documents.add(entry);
+            values.add(serializer.apply(entry));
+        }
+    }
+    
+    private int nextIndex() {
+        next = (next + 1) % NUM_DOCUMENTS;
+        return next;
+    }
+    
+    @Benchmark
+    public Map.Entry<Key,Value> serialize() {
+        return serializer.apply(documents.get(nextIndex()));
+    }
+    
+    @Benchmark
+    public Map.Entry<Key,Document> deserialize() {
+        return deserializer.apply(values.get(nextIndex()));
+    }
+    
+    @Benchmark
+    public void roundTrip(Blackhole blackhole) {
+        blackhole.consume(deserializer.apply(serializer.apply(documents.get(nextIndex()))));
+    }
+}
@@ -0,0 +1,107 @@
+package datawave.query.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.Constants;
+import datawave.query.DocumentSerialization;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.QueryOptions;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures a full scan of one synthetic shard through the {@link QueryIterator}, from the field index lookups through evaluation and serialization of the
+ * returned documents. The shard is held in an in-memory accumulo instance, so the numbers exclude RFile and network costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class QueryIteratorBenchmark {
+    
+    public static final String[] QUERIES = {
+            // intersection of two field index terms
+            "FIELD_0 == 'hit' && FIELD_1 == 'hit'",
+            // union of two field index terms
+            "FIELD_0 == 'hit' || FIELD_1 == 'hit'",
+            // field index term filtered by an event-only regex evaluated per document
+            "FIELD_0 == 'hit' && filter:includeRegex(FIELD_2, 'v1.*')"};
+    
+    @Param({"10000"})
+    public int documentsInShard;
+    
+    @Param({"10", "100"})
+    public int fieldsPerDocument;
+    
+    @Param({"10", "10000"})
+    public int fieldCardinality;
+    
+    @Param({"0.01", "0.5"})
+    public double selectivity;
+    
+    @Param({"0", "1", "2"})
+    public int query;
+    
+    @Param({"true", "false"})
+    public boolean serialEvaluationPipeline;
+    
+    private Connector connector;
+    private SyntheticShard shard;
+    
+    @Setup
+    public void setup() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        shard = new SyntheticShard(documentsInShard, fieldsPerDocument, fieldCardinality, 8, selectivity);
+        connector = shard.load(QueryIteratorBenchmark.class.getSimpleName());
+    }
+    
+    private IteratorSetting iteratorSetting() {
+        Map<String,String> options = new HashMap<>();
+        options.put(QueryOptions.QUERY, QUERIES[query]);
+        options.put(QueryOptions.QUERY_ID, QueryIteratorBenchmark.class.getSimpleName());
+        options.put(QueryOptions.TYPE_METADATA, shard.typeMetadata().toString());
+        options.put(QueryOptions.INDEX_ONLY_FIELDS, "");
+        options.put(QueryOptions.START_TIME, Long.toString(0L));
+        options.put(QueryOptions.END_TIME, Long.toString(Long.MAX_VALUE));
+        options.put(QueryOptions.SERIAL_EVALUATION_PIPELINE, Boolean.toString(serialEvaluationPipeline));
+        options.put(Constants.RETURN_TYPE, DocumentSerialization.ReturnType.kryo.name());
+        return new IteratorSetting(50, QueryIterator.class, options);
+    }
+    
+    @Benchmark
+    public void scanShard(Blackhole blackhole) throws Exception {
+        Scanner scanner = connector.createScanner(SyntheticShard.TABLE_NAME, SyntheticShard.AUTHS);
+        try {
+            scanner.setRange(new Range(SyntheticShard.SHARD));
+            scanner.addScanIterator(iteratorSetting());
+            for (Map.Entry<Key,Value> result : scanner) {
+                blackhole.consume(result);
+            }
+        } finally {
+            scanner.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package datawave.query.benchmark;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+
+/**
+ * A leaf {@link NestedIterator} over an in-memory sorted list, standing in for a field index term so that the boolean logic iterators can be measured without
+ * the cost of the underlying accumulo sources. {@link #move(Comparable)} uses a binary search, as a field index seek would.
+ */
+public class SortedListIterator<T extends Comparable<T>> implements NestedIterator<T> {
+    
+    private final List<T> values;
+    private final Document document = new Document();
+    private int position = 0;
+    
+    public SortedListIterator(List<T> values) {
+        this.values = values;
+    }
+    
+    @Override
+    public void initialize() {
+        position = 0;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return position < values.size();
+    }
+    
+    @Override
+    public T next() {
+        return values.get(position++);
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("This iterator does not support remove.");
+    }
+    
+    @Override
+    public T move(T minimum) {
+        int index = Collections.binarySearch(values.subList(position, values.size()), minimum);
+        position += index < 0 ? -(index + 1) : index;
+        return hasNext() ? next() : null;
+    }
+    
+    @Override
+    public Collection<NestedIterator<T>> leaves() {
+        return Collections.singleton(this);
+    }
+    
+    @Override
+    public Collection<NestedIterator<T>> children() {
+        return Collections.emptyList();
+    }
+    
+    @Override
+    public Document document() {
+        return document;
+    }
+}
@@ -0,0 +1,201 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.util.TypeMetadata;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+
+import com.google.common.base.Strings;
+
+/**
+ * Generates a deterministic, single-shard data set in the layout written by the ingest shard handlers (event keys plus field index keys). The shape of the
+ * data is controlled by the number of fields per document, the number of distinct values per field, the length of each value and the fraction of documents
+ * that contain the {@link #HIT_VALUE} for the two {@link #HIT_FIELDS}.
+ */
+public class SyntheticShard {
+    
+    public static final String TABLE_NAME = "shard";
+    public static final String SHARD = "20190101_0";
+    public static final String DATATYPE = "bench";
+    public static final String VISIBILITY = "PUBLIC";
+    public static final Authorizations AUTHS = new Authorizations(VISIBILITY);
+    public static final String FIELD_PREFIX = "FIELD_";
+    public static final String HIT_VALUE = "hit";
+    public static final String[] HIT_FIELDS = {FIELD_PREFIX + 0, FIELD_PREFIX + 1};
+    
+    private static final long TIMESTAMP = 1546300800000L;
+    private static final Value EMPTY_VALUE = new Value(new byte[0]);
+    private static final String NULL = "\u0000";
+    
+    private final int numDocuments;
+    private final int fieldsPerDocument;
+    private final int fieldCardinality;
+    private final int valueLength;
+    private final double selectivity;
+    private final long seed;
+    
+    private final ColumnVisibility visibility = new ColumnVisibility(VISIBILITY);
+    
+    public SyntheticShard(int numDocuments, int fieldsPerDocument, int fieldCardinality, int valueLength, double selectivity) {
+        this(numDocuments, fieldsPerDocument, fieldCardinality, valueLength, selectivity, 0xDA7AL);
+    }
+    
+    public SyntheticShard(int numDocuments, int fieldsPerDocument, int fieldCardinality, int valueLength, double selectivity, long seed) {
+        if (fieldsPerDocument < HIT_FIELDS.length) {
+            throw new IllegalArgumentException("fieldsPerDocument must be at least " + HIT_FIELDS.length);
+        }
+        this.numDocuments = numDocuments;
+        this.fieldsPerDocument = fieldsPerDocument;
+        this.fieldCardinality = fieldCardinality;
+        this.valueLength = valueLength;
+        this.selectivity = selectivity;
+        this.seed = seed;
+    }
+    
+    public int getNumDocuments() {
+        return numDocuments;
+    }
+    
+    public static String uid(int doc) {
+        return String.format("uid.%08d", doc);
+    }
+    
+    /**
+     * @return the field name to value pairs of every document, in uid order. Repeated calls return identical data.
+     */
+    public List<Map<String,String>> documents() {
+        Random random = new Random(seed);
+        List<Map<String,String>> documents = new ArrayList<>(numDocuments);
+        for (int doc = 0; doc < numDocuments; doc++) {
+            Map<String,String> fields = new TreeMap<>();
+            for (int field = 0; field < fieldsPerDocument; field++) {
+                fields.put(FIELD_PREFIX + field, value(random.nextInt(fieldCardinality)));
+            }
+            for (String hitField : HIT_FIELDS) {
+                if (random.nextDouble() < selectivity) {
+                    fields.put(hitField, HIT_VALUE);
+                }
+            }
+            documents.add(fields);
+        }
+        return documents;
+    }
+    
+    private String value(int ordinal) {
+        String value = "v" + ordinal;
+        return value.length() >= valueLength ? value : Strings.padEnd(value, valueLength, 'x');
+    }
+    
+    /**
+     * @return the event and field index keys for the shard, sorted as they would be in the table
+     */
+    public SortedMap<Key,Value> shardEntries() {
+        SortedMap<Key,Value> entries = new TreeMap<>();
+        Text row = new Text(SHARD);
+        List<Map<String,String>> documents = documents();
+        for (int doc = 0; doc < documents.size(); doc++) {
+            String uid = uid(doc);
+            for (Map.Entry<String,String> field : documents.get(doc).entrySet()) {
+                entries.put(new Key(row, new Text(DATATYPE + NULL + uid), new Text(field.getKey() + NULL + field.getValue()), visibility, TIMESTAMP),
+                                EMPTY_VALUE);
+                entries.put(new Key(row, new Text("fi" + NULL + field.getKey()), new Text(field.getValue() + NULL + DATATYPE + NULL + uid), visibility,
+                                TIMESTAMP), EMPTY_VALUE);
+            }
+        }
+        return entries;
+    }
+    
+    /**
+     * @return the document keys (row and column family) of every document containing <code>value</code> for <code>field</code>, in sorted order
+     */
+    public List<Key> postings(String field, String value) {
+        List<Key> postings = new ArrayList<>();
+        Text row = new Text(SHARD);
+        List<Map<String,String>> documents = documents();
+        for (int doc = 0; doc < documents.size(); doc++) {
+            if (value.equals(documents.get(doc).get(field))) {
+                postings.add(new Key(row, new Text(DATATYPE + NULL + uid(doc))));
+            }
+        }
+        Collections.sort(postings);
+        return postings;
+    }
+    
+    /**
+     * Builds the Document the QueryIterator would return for the given document number, with a column visibility on every attribute.
+     */
+    public Document document(int doc, Map<String,String> fields) {
+        Key docKey = new Key(new Text(SHARD), new Text(DATATYPE + NULL + uid(doc)), new Text(), visibility, TIMESTAMP);
+        Document document = new Document(docKey, true);
+        for (Map.Entry<String,String> field : fields.entrySet()) {
+            Content content = new Content(field.getValue(), docKey, true);
+            content.setColumnVisibility(visibility);
+            document.put(field.getKey(), content);
+        }
+        return document;
+    }
+    
+    /**
+     * @return type metadata marking every generated field as indexed with a {@link LcNoDiacriticsType}
+     */
+    public TypeMetadata typeMetadata() {
+        TypeMetadata typeMetadata = new TypeMetadata();
+        for (int field = 0; field < fieldsPerDocument; field++) {
+            typeMetadata.put(FIELD_PREFIX + field, DATATYPE, LcNoDiacriticsType.class.getName());
+        }
+        return typeMetadata;
+    }
+    
+    /**
+     * Loads the shard into a new in-memory accumulo instance.
+     *
+     * @return a connector for the root user with {@link #AUTHS}
+     */
+    public Connector load(String instanceName) throws Exception {
+        InMemoryInstance instance = new InMemoryInstance(instanceName);
+        Connector connector = instance.getConnector("root", new PasswordToken(new byte[0]));
+        connector.securityOperations().changeUserAuthorizations("root", AUTHS);
+        connector.tableOperations().create(TABLE_NAME);
+        
+        BatchWriter writer = connector.createBatchWriter(TABLE_NAME, new BatchWriterConfig().setMaxMemory(64L * 1024L * 1024L));
+        try {
+            Mutation mutation = null;
+            for (Map.Entry<Key,Value> entry : shardEntries().entrySet()) {
+                Key key = entry.getKey();
+                if (mutation == null || !key.getRow().equals(new Text(mutation.getRow()))) {
+                    if (mutation != null) {
+                        writer.addMutation(mutation);
+                    }
+                    mutation = new Mutation(key.getRow());
+                }
+                mutation.put(key.getColumnFamily(), key.getColumnQualifier(), visibility, key.getTimestamp(), entry.getValue());
+            }
+            if (mutation != null) {
+                writer.addMutation(mutation);
+            }
+        } finally {
+            writer.close();
+        }
+        return connector;
+    }
+}
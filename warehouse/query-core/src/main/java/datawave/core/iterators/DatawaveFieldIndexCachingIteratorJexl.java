@@ -12,8 +12,12 @@ import datawave.query.iterator.profile.QuerySpanCollector;
 import datawave.query.iterator.profile.SourceTrackingIterator;
 import datawave.query.predicate.TimeFilter;
 import datawave.query.util.TypeMetadata;
+import datawave.query.util.sortedset.BufferedFileBackedSortedSet;
 import datawave.query.util.sortedset.HdfsBackedSortedSet;
 import datawave.query.util.sortedset.KeyValueSerializable;
+import datawave.query.util.sortedset.LocalBackedSortedSet;
+import datawave.query.util.sortedset.SpillBackend;
+import datawave.query.util.sortedset.SpillCounters;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
@@ -30,6 +34,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
@@ -51,7 +56,8 @@ import java.util.stream.Collectors;
  *
  * An iterator for the Datawave shard table, it searches FieldIndex keys and returns Event keys (its topKey must be an Event key).
  * 
- * This version will cache the values in an underlying HDFS file backed sorted set before returning the first top key.
+ * This version will cache the values in an underlying HDFS file backed sorted set before returning the first top key. Alternatively the sorted set can spill to
+ * local scratch directories (see {@link SpillBackend#LOCAL}), in which case HDFS is only used when the local directories are out of space.
  * 
  * FieldIndex keys: fi\0{fieldName}:{fieldValue}\0datatype\0uid
  * 
@@ -82,6 +88,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         protected TypeMetadata typeMetadata;
         private CompositeMetadata compositeMetadata;
         private int compositeSeekThreshold;
+        private SpillBackend spillBackend = SpillBackend.HDFS;
+        private List<String> localSpillDirs = Collections.emptyList();
+        private long localSpillMinFreeBytes = DEFAULT_LOCAL_SPILL_MIN_FREE_BYTES;
         
         @SuppressWarnings("unchecked")
         protected B self() {
@@ -191,6 +200,21 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return self();
         }
         
+        public B withSpillBackend(SpillBackend spillBackend) {
+            this.spillBackend = spillBackend;
+            return self();
+        }
+        
+        public B withLocalSpillDirs(List<String> localSpillDirs) {
+            this.localSpillDirs = localSpillDirs;
+            return self();
+        }
+        
+        public B withLocalSpillMinFreeBytes(long localSpillMinFreeBytes) {
+            this.localSpillMinFreeBytes = localSpillMinFreeBytes;
+            return self();
+        }
+        
         public abstract DatawaveFieldIndexCachingIteratorJexl build();
     }
     
@@ -199,6 +223,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     public static final String NULL_BYTE = Constants.NULL_BYTE_STRING;
     public static final String ONE_BYTE = "\u0001";
     public static final PartialKey DEFAULT_RETURN_KEY_TYPE = PartialKey.ROW_COLFAM;
+    public static final long DEFAULT_LOCAL_SPILL_MIN_FREE_BYTES = 1024L * 1024L * 1024L;
     // This iterator should have no seek column families. This is because all filtering is done by the bounding FI ranges,
     // the timefilter, and the datatype filters.
     // We do not want the underlying iterators to filter keys so that we can check the bounds in this iterator as quickly
@@ -247,6 +272,14 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     private final int hdfsBackedSetBufferSize;
     // the max number of files to open simultaneously during a merge source
     private final int maxOpenFiles;
+    // where the sorted set spills its buffers
+    private SpillBackend spillBackend = SpillBackend.HDFS;
+    // the local scratch directories used by the LOCAL spill backend
+    private List<String> localSpillDirs = Collections.emptyList();
+    // the free space a local scratch directory must keep before we fall back to hdfs
+    private long localSpillMinFreeBytes = DEFAULT_LOCAL_SPILL_MIN_FREE_BYTES;
+    // the spill counters accumulated across the rows processed by this ivarator
+    private final SpillCounters spillCounters = new SpillCounters();
     
     // the current top key
     private Key topKey = null;
@@ -261,10 +294,12 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     // an fiSource used when not doing sorted UIDs
     private SortedKeyValueIterator<Key,Value> fiSource = null;
     
-    // the hdfs backed sorted set
-    private HdfsBackedSortedSet<KeyValueSerializable> set = null;
+    // the hdfs (or local) backed sorted set
+    private BufferedFileBackedSortedSet<KeyValueSerializable> set = null;
     // a thread safe wrapper around the sorted set used by the scan threads
     private SortedSet<KeyValueSerializable> threadSafeSet = null;
+    // the local scratch directories of the current row, removed when the row is cleared
+    private List<File> localRowDirs = Collections.emptyList();
     // the iterator (merge sort) of key values once the sorted set has been filled
     private Iterator<KeyValueSerializable> keyValues = null;
     // the current row covered by the hdfs set
@@ -334,6 +369,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                         builder.hdfsBackedSetBufferSize, builder.maxRangeSplit, builder.maxOpenFiles, builder.fs, builder.uniqueDir, builder.queryLock,
                         builder.allowDirReuse, builder.returnKeyType, builder.sortedUIDs, builder.compositeMetadata, builder.compositeSeekThreshold,
                         builder.typeMetadata);
+        this.spillBackend = builder.spillBackend;
+        this.localSpillDirs = builder.localSpillDirs;
+        this.localSpillMinFreeBytes = builder.localSpillMinFreeBytes;
     }
     
     @SuppressWarnings("hiding")
@@ -399,11 +437,17 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.scanTimeout = other.scanTimeout;
         this.hdfsBackedSetBufferSize = other.hdfsBackedSetBufferSize;
         this.maxOpenFiles = other.maxOpenFiles;
+        this.spillBackend = other.spillBackend;
+        this.localSpillDirs = other.localSpillDirs;
+        this.localSpillMinFreeBytes = other.localSpillMinFreeBytes;
         
         this.set = other.set;
         this.keyValues = other.keyValues;
         this.currentRow = other.currentRow;
         this.createdRowDir = other.createdRowDir;
+        // the copy takes ownership of the set below, so it is the one to delete the local files
+        this.localRowDirs = other.localRowDirs;
+        other.localRowDirs = Collections.emptyList();
         this.maxRangeSplit = other.maxRangeSplit;
         
         this.sortedUIDs = other.sortedUIDs;
@@ -1074,16 +1118,73 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     }
     
     /**
-     * Clear out the current row based hdfs backed set
+     * Clear out the current row based hdfs backed set. The files of a local backed set are scratch space only, so they are deleted along with the local row
+     * dirs. The hdfs backed set files are retained as they may be reused and are cleaned up with the query.
      * 
      * @throws IOException
      */
     protected void clearRowBasedHdfsBackedSet() throws IOException {
+        if (this.set instanceof LocalBackedSortedSet && !this.localRowDirs.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Spill counters after row " + this.currentRow + ": " + spillCounters);
+            }
+            this.set.clear();
+        }
+        for (File rowDir : this.localRowDirs) {
+            deleteLocalFiles(rowDir);
+            if (rowDir.exists() && !rowDir.delete()) {
+                log.warn("Unable to remove local spill directory " + rowDir);
+            }
+        }
+        this.localRowDirs = Collections.emptyList();
         this.keyValues = null;
         this.currentRow = null;
         this.set = null;
     }
     
+    /**
+     * Get the local scratch directories for a row. These mirror the path of the hdfs row dir under each of the local spill directories so that concurrent
+     * queries, scans and terms do not collide. Any files left over from an earlier attempt at this row are removed.
+     * 
+     * @param row
+     * @return the local row dirs
+     */
+    protected List<File> getLocalRowDirs(String row) {
+        String relativeRowDir = getRowDir(row).toUri().getPath();
+        List<File> rowDirs = new ArrayList<>(localSpillDirs.size());
+        for (String localSpillDir : localSpillDirs) {
+            File rowDir = new File(localSpillDir, relativeRowDir);
+            deleteLocalFiles(rowDir);
+            rowDirs.add(rowDir);
+        }
+        return rowDirs;
+    }
+    
+    /**
+     * Delete the files left in a local row dir
+     * 
+     * @param rowDir
+     */
+    private void deleteLocalFiles(File rowDir) {
+        File[] leftovers = rowDir.listFiles();
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                if (!leftover.delete()) {
+                    log.warn("Unable to remove left over spill file " + leftover);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get the spill counters accumulated across all rows processed by this ivarator
+     * 
+     * @return the spill counters
+     */
+    public SpillCounters getSpillCounters() {
+        return spillCounters;
+    }
+    
     /**
      * This will setup the set for the specified range. This will attempt to reuse precomputed and persisted sets if we are allowed to.
      * 
@@ -1113,13 +1214,21 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                 this.createdRowDir = false;
             }
             
-            this.set = new HdfsBackedSortedSet<>(null, hdfsBackedSetBufferSize, fs, rowDir, maxOpenFiles);
+            boolean local = (spillBackend == SpillBackend.LOCAL && !localSpillDirs.isEmpty());
+            if (local) {
+                this.localRowDirs = getLocalRowDirs(row);
+                this.set = new LocalBackedSortedSet<>(null, hdfsBackedSetBufferSize, maxOpenFiles, localRowDirs, localSpillMinFreeBytes, fs, rowDir,
+                                spillCounters);
+            } else {
+                this.set = new HdfsBackedSortedSet<>(null, hdfsBackedSetBufferSize, fs, rowDir, maxOpenFiles);
+            }
             this.threadSafeSet = Collections.synchronizedSortedSet(this.set);
             this.currentRow = row;
             this.setControl.takeOwnership(row, this);
             
             // if this set is not marked as complete (meaning completely filled AND persisted), then we cannot trust the contents and we need to recompute.
-            if (!this.setControl.isCompleteAndPersisted(row)) {
+            // Local spill files are never reloaded (they may have been written by a different tserver), so those are always recomputed.
+            if (local || !this.setControl.isCompleteAndPersisted(row)) {
                 this.set.clear();
                 this.keyValues = null;
             } else {
@@ -10,13 +10,17 @@ import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
+import datawave.query.function.deserializer.ColumnarDocumentDeserializer;
 import datawave.query.function.deserializer.DocumentDeserializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
 import datawave.query.exceptions.InvalidDocumentHeader;
 import datawave.query.exceptions.NoSuchDeserializerException;
 import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.deserializer.PooledKryoDocumentDeserializer;
 import datawave.query.function.deserializer.WritableDocumentDeserializer;
+import datawave.query.function.serializer.ColumnarDocumentSerializer;
 import datawave.query.function.serializer.DocumentSerializer;
+import datawave.query.function.serializer.PooledKryoDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.QueryImpl.Parameter;
@@ -31,13 +35,15 @@ import datawave.webservice.query.exception.QueryException;
 public class DocumentSerialization {
     
     public enum ReturnType {
-        writable, kryo, tostring, noop
+        writable, kryo, tostring, noop, pooledkryo, columnar
     }
     
     public static final ReturnType DEFAULT_RETURN_TYPE = ReturnType.kryo;
     
     private static final int DOC_MAGIC = 0x8b2f;
     
+    public static final int HEADER_LENGTH = 3;
+    
     public static final byte NONE = 0;
     public static final byte GZIP = 1;
     
@@ -65,6 +71,10 @@ public class DocumentSerialization {
     public static DocumentDeserializer getDocumentDeserializer(ReturnType rt) throws NoSuchDeserializerException {
         if (ReturnType.kryo.equals(rt)) {
             return new KryoDocumentDeserializer();
+        } else if (ReturnType.pooledkryo.equals(rt)) {
+            return new PooledKryoDocumentDeserializer();
+        } else if (ReturnType.columnar.equals(rt)) {
+            return new ColumnarDocumentDeserializer();
         } else if (ReturnType.writable.equals(rt)) {
             return new WritableDocumentDeserializer();
         } else {
@@ -80,6 +90,10 @@ public class DocumentSerialization {
     public static DocumentSerializer getDocumentSerializer(ReturnType rt) throws NoSuchDeserializerException {
         if (ReturnType.kryo.equals(rt)) {
             return new KryoDocumentSerializer();
+        } else if (ReturnType.pooledkryo.equals(rt)) {
+            return new PooledKryoDocumentSerializer();
+        } else if (ReturnType.columnar.equals(rt)) {
+            return new ColumnarDocumentSerializer();
         } else if (ReturnType.writable.equals(rt)) {
             return new WritableDocumentSerializer(false);
         } else {
@@ -93,10 +107,18 @@ public class DocumentSerialization {
     }
     
     public static byte[] getHeader(int compression) {
-        
-        return new byte[] {(byte) DOC_MAGIC, // Magic number (short)
-                (byte) (DOC_MAGIC >> 8), // Magic number (short)
-                (byte) compression};
+        byte[] header = new byte[HEADER_LENGTH];
+        writeHeader(header, compression);
+        return header;
+    }
+    
+    /**
+     * Write the header into the first {@link #HEADER_LENGTH} bytes of a buffer
+     */
+    public static void writeHeader(byte[] buffer, int compression) {
+        buffer[0] = (byte) DOC_MAGIC; // Magic number (short)
+        buffer[1] = (byte) (DOC_MAGIC >> 8); // Magic number (short)
+        buffer[2] = (byte) compression;
     }
     
     public static byte[] writeBody(byte[] data, int compression) throws InvalidDocumentHeader {
@@ -122,7 +144,23 @@ public class DocumentSerialization {
     }
     
     public static InputStream consumeHeader(byte[] data) throws InvalidDocumentHeader {
-        if (null == data || 3 > data.length) {
+        int compression = readHeader(data);
+        
+        if (NONE == compression) {
+            return new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+        } else {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+            return new InflaterInputStream(bytes, new Inflater(), 1024);
+        }
+    }
+    
+    /**
+     * Validate the header of a serialized Document
+     *
+     * @return the compression of the data following the header, either {@link #NONE} or {@link #GZIP}
+     */
+    public static int readHeader(byte[] data) throws InvalidDocumentHeader {
+        if (null == data || HEADER_LENGTH > data.length) {
             QueryException qe = new QueryException(DatawaveErrorCode.DATA_INVALID_ERROR, MessageFormat.format("Length: {0}",
                             (null != data ? data.length : null)));
             throw new InvalidDocumentHeader(qe);
@@ -138,15 +176,11 @@ public class DocumentSerialization {
         
         int compression = readUByte(bais);
         
-        if (NONE == compression) {
-            return new ByteArrayInputStream(data, 3, data.length - 3);
-        } else if (GZIP == compression) {
-            ByteArrayInputStream bytes = new ByteArrayInputStream(data, 3, data.length - 3);
-            return new InflaterInputStream(bytes, new Inflater(), 1024);
-        } else {
+        if (NONE != compression && GZIP != compression) {
             BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.UNKNOWN_COMPRESSION_SCHEME, MessageFormat.format("{0}", compression));
             throw new InvalidDocumentHeader(qe);
         }
+        return compression;
     }
     
     /*
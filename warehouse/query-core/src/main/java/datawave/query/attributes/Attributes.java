@@ -81,6 +81,10 @@ public class Attributes extends AttributeBag<Attributes> implements Serializable
         return _count;
     }
     
+    public boolean isTrackSizes() {
+        return trackSizes;
+    }
+    
     @Override
     public long sizeInBytes() {
         return _bytes;
@@ -295,7 +299,7 @@ public class Attributes extends AttributeBag<Attributes> implements Serializable
         
         for (Attribute<? extends Comparable<?>> attr : this.attributes) {
             // Write out the concrete Attribute class
-            output.writeString(attr.getClass().getName());
+            KryoAttributeClasses.writeClass(kryo, output, attr);
             
             // Defer to the concrete instance to write() itself
             attr.write(kryo, output, reducedResponse);
@@ -310,28 +314,8 @@ public class Attributes extends AttributeBag<Attributes> implements Serializable
         
         this.attributes = new LinkedHashSet<>();
         for (int i = 0; i < numAttrs; i++) {
-            String attrClassName = input.readString();
-            Class<?> clz;
-            
-            // Get the name of the concrete Attribute
-            try {
-                clz = Class.forName(attrClassName);
-            } catch (ClassNotFoundException e) {
-                log.error("could not find class for \"" + attrClassName + "\"");
-                throw new RuntimeException(e);
-            }
-            
-            if (!Attribute.class.isAssignableFrom(clz)) {
-                throw new ClassCastException("Found class that was not an instance of Attribute");
-            }
-            
-            // Get the Class for the name of the class of the concrete Attribute
-            Attribute<?> attr;
-            try {
-                attr = (Attribute<?>) clz.newInstance();
-            } catch (InstantiationException | IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
+            // Get an instance of the concrete Attribute
+            Attribute<?> attr = KryoAttributeClasses.newInstance(kryo, input);
             
             // Reload the attribute
             attr.read(kryo, input);
@@ -0,0 +1,206 @@
+package datawave.query.attributes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.ColumnVisibility;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+
+/**
+ * Reads the Documents of a block written by a {@link ColumnarDocumentWriter}. The dictionaries and the document keys are read up front, while the values are
+ * only decoded when a Document is requested. Each column keeps its own position, so reading the Documents in order decodes every value once.
+ */
+public class ColumnarDocumentReader {
+    
+    private final byte[] data;
+    private final boolean reducedResponse;
+    
+    private final byte[][] rows;
+    private final ColumnVisibility[] visibilities;
+    
+    private final String[] fields;
+    private final int[] columnStarts;
+    
+    private final Key[] keys;
+    private final boolean[] trackSizes;
+    private final long[] shardTimestamps;
+    
+    // the next document of each column, and the position it starts at
+    private final Input[] columns;
+    private final int[] columnDocuments;
+    
+    /**
+     * @param data
+     *            the block, starting at <code>offset</code> and continuing to the end of the array
+     */
+    public ColumnarDocumentReader(byte[] data, int offset) {
+        this.data = data;
+        Input input = new Input(data);
+        input.setPosition(offset);
+        
+        int version = input.readInt(true);
+        if (version != ColumnarDocumentWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported columnar document block version " + version);
+        }
+        reducedResponse = input.readBoolean();
+        int size = input.readInt(true);
+        
+        rows = readDictionary(input);
+        byte[][] visibilityBytes = readDictionary(input);
+        visibilities = new ColumnVisibility[visibilityBytes.length];
+        for (int i = 0; i < visibilityBytes.length; i++) {
+            visibilities[i] = new ColumnVisibility(visibilityBytes[i]);
+        }
+        
+        int numFields = input.readInt(true);
+        fields = new String[numFields];
+        int[] columnLengths = new int[numFields];
+        for (int i = 0; i < numFields; i++) {
+            fields[i] = input.readString();
+            columnLengths[i] = input.readInt(true);
+        }
+        
+        keys = new Key[size];
+        trackSizes = new boolean[size];
+        shardTimestamps = new long[size];
+        for (int i = 0; i < size; i++) {
+            byte[] row = rows[input.readInt(true)];
+            byte[] cf = input.readBytes(input.readInt(true));
+            byte[] cq = input.readBytes(input.readInt(true));
+            byte[] cv = visibilityBytes[input.readInt(true)];
+            keys[i] = new Key(row, cf, cq, cv, input.readLong(true));
+            trackSizes[i] = input.readBoolean();
+            shardTimestamps[i] = input.readLong();
+        }
+        
+        columnStarts = new int[numFields];
+        columns = new Input[numFields];
+        columnDocuments = new int[numFields];
+        int position = input.position();
+        for (int i = 0; i < numFields; i++) {
+            columnStarts[i] = position;
+            position += columnLengths[i];
+        }
+        if (position > data.length) {
+            throw new IllegalArgumentException("Columnar document block is truncated");
+        }
+    }
+    
+    public int size() {
+        return keys.length;
+    }
+    
+    public Key getKey(int document) {
+        return keys[document];
+    }
+    
+    public boolean isReducedResponse() {
+        return reducedResponse;
+    }
+    
+    /**
+     * @return the names of the fields found in any of the documents of the block
+     */
+    public List<String> getFields() {
+        List<String> names = new ArrayList<>(fields.length);
+        Collections.addAll(names, fields);
+        return names;
+    }
+    
+    /**
+     * Decode a document
+     *
+     * @param kryo
+     *            a kryo instance registered with {@link KryoAttributeClasses#register(Kryo)}
+     * @param document
+     *            the index of the document in the block
+     * @return the document
+     */
+    public Document getDocument(Kryo kryo, int document) {
+        Document doc = new Document(null, true, trackSizes[document]);
+        for (int field = 0; field < fields.length; field++) {
+            Input column = seek(kryo, field, document);
+            Attribute<?> attribute = readField(kryo, column, keys[document].getTimestamp());
+            columnDocuments[field]++;
+            if (attribute != null) {
+                doc.put(fields[field], attribute, true, reducedResponse);
+            }
+        }
+        doc.shardTimestamp = shardTimestamps[document];
+        return doc;
+    }
+    
+    /**
+     * Position a column at the start of a document, reading past the documents before it
+     */
+    private Input seek(Kryo kryo, int field, int document) {
+        Input column = columns[field];
+        if (column == null) {
+            column = new Input(data);
+            columns[field] = column;
+            column.setPosition(columnStarts[field]);
+            columnDocuments[field] = 0;
+        } else if (columnDocuments[field] > document) {
+            column.setPosition(columnStarts[field]);
+            columnDocuments[field] = 0;
+        }
+        while (columnDocuments[field] < document) {
+            readField(kryo, column, keys[columnDocuments[field]].getTimestamp());
+            columnDocuments[field]++;
+        }
+        return column;
+    }
+    
+    private Attribute<?> readField(Kryo kryo, Input column, long keyTimestamp) {
+        int shape = column.readInt(true);
+        switch (shape) {
+            case ColumnarDocumentWriter.ABSENT:
+                return null;
+            case ColumnarDocumentWriter.SINGLE:
+                return readValue(kryo, column, keyTimestamp);
+            case ColumnarDocumentWriter.BAG:
+                Attributes bag = new Attributes(true, column.readBoolean());
+                int count = column.readInt(true);
+                for (int i = 0; i < count; i++) {
+                    bag.add(readValue(kryo, column, keyTimestamp));
+                }
+                return bag;
+            case ColumnarDocumentWriter.OPAQUE:
+                Attribute<?> attribute = KryoAttributeClasses.newInstance(kryo, column);
+                attribute.read(kryo, column);
+                return attribute;
+            default:
+                throw new IllegalArgumentException("Unknown columnar document value shape " + shape);
+        }
+    }
+    
+    private Attribute<?> readValue(Kryo kryo, Input column, long keyTimestamp) {
+        Attribute<?> attribute = KryoAttributeClasses.newInstance(kryo, column);
+        ColumnVisibility visibility = null;
+        long timestamp = 0;
+        if (!reducedResponse) {
+            int visibilityRef = column.readInt(true);
+            if (visibilityRef > 0) {
+                visibility = visibilities[visibilityRef - 1];
+                timestamp = keyTimestamp + column.readLong(false);
+            }
+        }
+        attribute.read(kryo, column);
+        if (visibility != null) {
+            attribute.setMetadata(visibility, timestamp);
+        }
+        return attribute;
+    }
+    
+    private static byte[][] readDictionary(Input input) {
+        byte[][] dictionary = new byte[input.readInt(true)][];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = input.readBytes(input.readInt(true));
+        }
+        return dictionary;
+    }
+}
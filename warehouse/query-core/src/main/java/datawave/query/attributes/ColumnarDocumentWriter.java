@@ -0,0 +1,239 @@
+package datawave.query.attributes;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Packs a batch of Documents into a single columnar block. Rather than writing each Document as a sequence of field name, class name, and value, the block
+ * holds a dictionary of the field names and visibilities seen across the batch, followed by one column per field holding the values of that field for every
+ * Document. Repeated field names and visibilities are therefore written once per block. The block is read back with a {@link ColumnarDocumentReader}.
+ * <p>
+ * The layout of a block is:
+ *
+ * <pre>
+ * version, reducedResponse, document count
+ * row dictionary:        count, (length, bytes)*
+ * visibility dictionary: count, (length, bytes)*
+ * field dictionary:      count, (name, column length)*
+ * documents:             (row id, column family, column qualifier, visibility id, timestamp, track sizes, shard timestamp)*
+ * columns:               the values of each field for every document, in field dictionary order
+ * </pre>
+ *
+ * Within a column each document starts with a shape: {@link #ABSENT}, a {@link #SINGLE} value, a {@link #BAG} of values, or an {@link #OPAQUE} value written
+ * with its own kryo serialization. Values are written as their registered class, their visibility id and timestamp relative to the document key (unless the
+ * response is reduced), and the attribute's own kryo serialization without the metadata.
+ */
+public class ColumnarDocumentWriter {
+    
+    public static final int VERSION = 1;
+    
+    static final int ABSENT = 0;
+    static final int SINGLE = 1;
+    static final int BAG = 2;
+    static final int OPAQUE = 3;
+    
+    private static final int INITIAL_COLUMN_SIZE = 1024;
+    
+    private final boolean reducedResponse;
+    
+    private final List<Key> keys = new ArrayList<>();
+    private final List<Document> documents = new ArrayList<>();
+    private long bytes = 0;
+    
+    // reused between blocks
+    private final Map<ByteSequence,Integer> rowIds = new LinkedHashMap<>();
+    private final Map<ByteSequence,Integer> visibilityIds = new LinkedHashMap<>();
+    private final Map<String,Integer> fieldIds = new LinkedHashMap<>();
+    private final List<Output> columns = new ArrayList<>();
+    
+    public ColumnarDocumentWriter(boolean reducedResponse) {
+        this.reducedResponse = reducedResponse;
+    }
+    
+    public void add(Key key, Document document) {
+        keys.add(key);
+        documents.add(document);
+        bytes += document.sizeInBytes();
+    }
+    
+    /**
+     * @return the number of documents added since the last {@link #clear()}
+     */
+    public int size() {
+        return documents.size();
+    }
+    
+    /**
+     * @return the estimated in memory size of the documents added since the last {@link #clear()}
+     */
+    public long sizeInBytes() {
+        return bytes;
+    }
+    
+    public Key getLastKey() {
+        return keys.isEmpty() ? null : keys.get(keys.size() - 1);
+    }
+    
+    public boolean isReducedResponse() {
+        return reducedResponse;
+    }
+    
+    public void clear() {
+        keys.clear();
+        documents.clear();
+        bytes = 0;
+    }
+    
+    /**
+     * Write the documents added since the last {@link #clear()} as a block
+     *
+     * @param kryo
+     *            a kryo instance registered with {@link KryoAttributeClasses#register(Kryo)}
+     * @param output
+     *            the output to write the block to
+     */
+    public void write(Kryo kryo, Output output) {
+        rowIds.clear();
+        visibilityIds.clear();
+        fieldIds.clear();
+        
+        // the columns are written first as the dictionaries are filled in while doing so
+        for (int i = 0; i < documents.size(); i++) {
+            Key key = keys.get(i);
+            id(rowIds, key.getRowData());
+            id(visibilityIds, key.getColumnVisibilityData());
+            for (String field : documents.get(i).getDictionary().keySet()) {
+                if (!fieldIds.containsKey(field)) {
+                    fieldIds.put(field, fieldIds.size());
+                }
+            }
+        }
+        while (columns.size() < fieldIds.size()) {
+            columns.add(new Output(INITIAL_COLUMN_SIZE, -1));
+        }
+        for (Entry<String,Integer> field : fieldIds.entrySet()) {
+            Output column = columns.get(field.getValue());
+            column.setPosition(0);
+            for (int i = 0; i < documents.size(); i++) {
+                writeField(kryo, column, documents.get(i).get(field.getKey()), keys.get(i).getTimestamp());
+            }
+        }
+        
+        output.writeInt(VERSION, true);
+        output.writeBoolean(reducedResponse);
+        output.writeInt(documents.size(), true);
+        
+        writeDictionary(output, rowIds);
+        writeDictionary(output, visibilityIds);
+        
+        output.writeInt(fieldIds.size(), true);
+        for (Entry<String,Integer> field : fieldIds.entrySet()) {
+            output.writeString(field.getKey());
+            output.writeInt(columns.get(field.getValue()).position(), true);
+        }
+        
+        for (int i = 0; i < documents.size(); i++) {
+            Key key = keys.get(i);
+            Document document = documents.get(i);
+            output.writeInt(rowIds.get(key.getRowData()), true);
+            writeBytes(output, key.getColumnFamilyData());
+            writeBytes(output, key.getColumnQualifierData());
+            output.writeInt(visibilityIds.get(key.getColumnVisibilityData()), true);
+            output.writeLong(key.getTimestamp(), true);
+            output.writeBoolean(document.isTrackSizes());
+            output.writeLong(document.shardTimestamp);
+        }
+        
+        for (int field = 0; field < fieldIds.size(); field++) {
+            Output column = columns.get(field);
+            output.writeBytes(column.getBuffer(), 0, column.position());
+        }
+        
+        trimColumns();
+    }
+    
+    private void writeField(Kryo kryo, Output column, Attribute<?> attribute, long keyTimestamp) {
+        if (attribute == null) {
+            column.writeInt(ABSENT, true);
+        } else if (attribute instanceof Attributes && isFlat((Attributes) attribute)) {
+            Attributes bag = (Attributes) attribute;
+            column.writeInt(BAG, true);
+            column.writeBoolean(bag.isTrackSizes());
+            column.writeInt(bag.getAttributes().size(), true);
+            for (Attribute<?> child : bag.getAttributes()) {
+                writeValue(kryo, column, child, keyTimestamp);
+            }
+        } else if (attribute instanceof AttributeBag) {
+            column.writeInt(OPAQUE, true);
+            KryoAttributeClasses.writeClass(kryo, column, attribute);
+            attribute.write(kryo, column, reducedResponse);
+        } else {
+            column.writeInt(SINGLE, true);
+            writeValue(kryo, column, attribute, keyTimestamp);
+        }
+    }
+    
+    private void writeValue(Kryo kryo, Output column, Attribute<?> attribute, long keyTimestamp) {
+        KryoAttributeClasses.writeClass(kryo, column, attribute);
+        if (!reducedResponse) {
+            if (attribute.isMetadataSet()) {
+                Key metadata = attribute.getMetadata();
+                column.writeInt(id(visibilityIds, metadata.getColumnVisibilityData()) + 1, true);
+                column.writeLong(metadata.getTimestamp() - keyTimestamp, false);
+            } else {
+                column.writeInt(0, true);
+            }
+        }
+        // the metadata has been written above, so write the value as if the response was reduced
+        attribute.write(kryo, column, true);
+    }
+    
+    private static boolean isFlat(Attributes bag) {
+        for (Attribute<?> child : bag.getAttributes()) {
+            if (child instanceof AttributeBag) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int id(Map<ByteSequence,Integer> dictionary, ByteSequence bytes) {
+        Integer id = dictionary.get(bytes);
+        if (id == null) {
+            id = dictionary.size();
+            // the key may be reused by the caller, so keep a copy
+            dictionary.put(new ArrayByteSequence(bytes.toArray()), id);
+        }
+        return id;
+    }
+    
+    private static void writeDictionary(Output output, Map<ByteSequence,Integer> dictionary) {
+        output.writeInt(dictionary.size(), true);
+        for (ByteSequence bytes : dictionary.keySet()) {
+            writeBytes(output, bytes);
+        }
+    }
+    
+    private static void writeBytes(Output output, ByteSequence bytes) {
+        output.writeInt(bytes.length(), true);
+        output.writeBytes(bytes.getBackingArray(), bytes.offset(), bytes.length());
+    }
+    
+    private void trimColumns() {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getBuffer().length > INITIAL_COLUMN_SIZE * 256) {
+                columns.set(i, new Output(INITIAL_COLUMN_SIZE, -1));
+            }
+        }
+    }
+}
@@ -462,6 +462,10 @@ public class Document extends AttributeBag<Document> implements Serializable {
         return _count;
     }
     
+    public boolean isTrackSizes() {
+        return trackSizes;
+    }
+    
     @Override
     public long sizeInBytes() {
         if (trackSizes) {
@@ -769,7 +773,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
             output.writeString(entry.getKey());
             
             Attribute<?> attribute = entry.getValue();
-            output.writeString(attribute.getClass().getName());
+            KryoAttributeClasses.writeClass(kryo, output, attribute);
             attribute.write(kryo, output, reducedResponse);
         }
         
@@ -790,29 +794,9 @@ public class Document extends AttributeBag<Document> implements Serializable {
             // Get the fieldName
             String fieldName = input.readString();
             
-            // Get the class name for the concrete Attribute
-            String attrClassName = input.readString();
-            Class<?> clz;
-            
-            // Get the Class for the name of the class of the concrete Attribute
-            try {
-                clz = Class.forName(attrClassName);
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException(e);
-            }
+            // Get an instance of the concrete Attribute
+            Attribute<?> attr = KryoAttributeClasses.newInstance(kryo, input);
             
-            Attribute<?> attr;
-            if (Attribute.class.isAssignableFrom(clz)) {
-                // Get an instance of the concrete Attribute
-                try {
-                    attr = (Attribute<?>) clz.newInstance();
-                } catch (InstantiationException | IllegalAccessException e) {
-                    throw new RuntimeException(e);
-                }
-                
-            } else {
-                throw new ClassCastException("Found class that was not an instance of Attribute");
-            }
             // Reload the attribute
             attr.read(kryo, input);
             
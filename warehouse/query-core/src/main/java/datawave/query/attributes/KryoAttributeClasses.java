@@ -0,0 +1,130 @@
+package datawave.query.attributes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.log4j.Logger;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Writes and reads the concrete class of the Attributes nested in a kryo serialized {@link Document}. By default the class name is written before each
+ * Attribute and resolved with {@link Class#forName(String)} when read. A {@link Kryo} instance marked with {@link #register(Kryo)} instead writes a small fixed
+ * id for the known Attribute classes, which is both smaller on the wire and avoids the reflection when read. Both ends of a stream must agree on the format, so
+ * only kryo instances created for the {@link datawave.query.DocumentSerialization.ReturnType#pooledkryo} return type are registered.
+ */
+public class KryoAttributeClasses {
+    
+    private static final Logger log = Logger.getLogger(KryoAttributeClasses.class);
+    
+    private static final String CONTEXT_KEY = KryoAttributeClasses.class.getName();
+    
+    // written in place of an id when the class is not registered, and followed by the class name
+    private static final int UNREGISTERED = 0;
+    
+    private static final List<Class<?>> CLASSES = new ArrayList<>();
+    private static final List<Supplier<Attribute<?>>> FACTORIES = new ArrayList<>();
+    private static final Map<Class<?>,Integer> IDS = new IdentityHashMap<>();
+    
+    static {
+        // The position of a class is its id on the wire, so new classes may only ever be appended
+        add(Document.class, Document::new);
+        add(Attributes.class, Attributes::new);
+        add(Content.class, Content::new);
+        add(DateContent.class, DateContent::new);
+        add(DiacriticContent.class, DiacriticContent::new);
+        add(DocumentKey.class, DocumentKey::new);
+        add(GeoPoint.class, GeoPoint::new);
+        add(Geometry.class, Geometry::new);
+        add(IpAddress.class, IpAddress::new);
+        add(Latitude.class, Latitude::new);
+        add(Longitude.class, Longitude::new);
+        add(Numeric.class, Numeric::new);
+        add(PreNormalizedAttribute.class, PreNormalizedAttribute::new);
+        add(TypeAttribute.class, TypeAttribute::new);
+        add(Cardinality.class, Cardinality::new);
+        add(Metadata.class, Metadata::new);
+        add(TimingMetadata.class, TimingMetadata::new);
+    }
+    
+    private static void add(Class<?> clz, Supplier<Attribute<?>> factory) {
+        CLASSES.add(clz);
+        FACTORIES.add(factory);
+        // ids start at 1 as 0 marks an unregistered class
+        IDS.put(clz, CLASSES.size());
+    }
+    
+    private KryoAttributeClasses() {}
+    
+    /**
+     * Use the registered ids when writing and reading Attributes with this kryo instance
+     */
+    public static void register(Kryo kryo) {
+        kryo.getContext().put(CONTEXT_KEY, Boolean.TRUE);
+    }
+    
+    public static boolean isRegistered(Kryo kryo) {
+        return kryo.getContext().containsKey(CONTEXT_KEY);
+    }
+    
+    /**
+     * @return the registered classes in id order, starting with id 1
+     */
+    public static List<Class<?>> getRegisteredClasses() {
+        return Collections.unmodifiableList(CLASSES);
+    }
+    
+    public static void writeClass(Kryo kryo, Output output, Attribute<?> attribute) {
+        Class<?> clz = attribute.getClass();
+        if (isRegistered(kryo)) {
+            Integer id = IDS.get(clz);
+            if (id != null) {
+                output.writeInt(id, true);
+                return;
+            }
+            output.writeInt(UNREGISTERED, true);
+        }
+        output.writeString(clz.getName());
+    }
+    
+    /**
+     * Read the class written by {@link #writeClass(Kryo, Output, Attribute)} and create an empty instance of it, ready for
+     * {@link Attribute#read(Kryo, Input)}
+     */
+    public static Attribute<?> newInstance(Kryo kryo, Input input) {
+        if (isRegistered(kryo)) {
+            int id = input.readInt(true);
+            if (id != UNREGISTERED) {
+                if (id > FACTORIES.size()) {
+                    throw new IllegalArgumentException("Unknown Attribute class id " + id);
+                }
+                return FACTORIES.get(id - 1).get();
+            }
+        }
+        
+        String attrClassName = input.readString();
+        Class<?> clz;
+        try {
+            clz = Class.forName(attrClassName);
+        } catch (ClassNotFoundException e) {
+            log.error("could not find class for \"" + attrClassName + "\"");
+            throw new RuntimeException(e);
+        }
+        
+        if (!Attribute.class.isAssignableFrom(clz)) {
+            throw new ClassCastException("Found class that was not an instance of Attribute");
+        }
+        
+        try {
+            return (Attribute<?>) clz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import datawave.query.model.QueryModel;
 import datawave.query.tables.ShardQueryLogic;
 import datawave.query.tld.TLDQueryIterator;
 import datawave.query.util.QueryStopwatch;
+import datawave.query.util.sortedset.SpillBackend;
 import datawave.util.UniversalSet;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.QueryImpl;
@@ -264,9 +265,15 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     private int maxFieldIndexRangeSplit = 11;
     private int ivaratorMaxOpenFiles = 100;
+    private SpillBackend ivaratorSpillBackend = SpillBackend.HDFS;
+    private List<String> ivaratorLocalSpillDirs = Collections.emptyList();
+    private long ivaratorLocalSpillMinFreeBytes = 1024L * 1024L * 1024L;
     private int maxIvaratorSources = 33;
     private int maxEvaluationPipelines = 25;
     private int maxPipelineCachedResults = 25;
+    private int evaluationPipelineBatchSize = 1;
+    private int columnarBatchSize = 100;
+    private long columnarBatchBytes = 1024L * 1024L;
     private boolean expandAllTerms = false;
     // Adding the ability to pre-cache the query model for performance sake. If this is null
     // then the query model will be pulled from the MetadataHelper
@@ -282,9 +289,15 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private boolean compositeFilterFunctionsEnabled = false;
     
     private int groupFieldsBatchSize;
+    // the estimated size of the group counts held by the web server before they are spilled to disk
+    private long groupFieldsMaxMemory = 64L * 1024L * 1024L;
+    private String groupFieldsSpillDir = null;
     private boolean accrueStats = false;
     private Set<String> groupFields = new HashSet<>(0);
     private Set<String> uniqueFields = new HashSet<>(0);
+    // the estimated size of the unique signatures held by the web server before they are spilled to disk
+    private long uniqueFieldsMaxMemory = 64L * 1024L * 1024L;
+    private String uniqueFieldsSpillDir = null;
     private boolean cacheModel = false;
     /**
      * should the sizes of documents be tracked for this query
@@ -427,9 +440,15 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setIvaratorCacheScanTimeout(other.getIvaratorCacheScanTimeout());
         this.setMaxFieldIndexRangeSplit(other.getMaxFieldIndexRangeSplit());
         this.setIvaratorMaxOpenFiles(other.getIvaratorMaxOpenFiles());
+        this.setIvaratorSpillBackend(other.getIvaratorSpillBackend());
+        this.setIvaratorLocalSpillDirs(other.getIvaratorLocalSpillDirs() == null ? null : Lists.newArrayList(other.getIvaratorLocalSpillDirs()));
+        this.setIvaratorLocalSpillMinFreeBytes(other.getIvaratorLocalSpillMinFreeBytes());
         this.setMaxIvaratorSources(other.getMaxIvaratorSources());
         this.setMaxEvaluationPipelines(other.getMaxEvaluationPipelines());
         this.setMaxPipelineCachedResults(other.getMaxPipelineCachedResults());
+        this.setEvaluationPipelineBatchSize(other.getEvaluationPipelineBatchSize());
+        this.setColumnarBatchSize(other.getColumnarBatchSize());
+        this.setColumnarBatchBytes(other.getColumnarBatchBytes());
         this.setExpandAllTerms(other.isExpandAllTerms());
         this.setQueryModel(null == other.getQueryModel() ? null : new QueryModel(other.getQueryModel()));
         this.setModelName(other.getModelName());
@@ -440,9 +459,13 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setIndexOnlyFilterFunctionsEnabled(other.isIndexOnlyFilterFunctionsEnabled());
         this.setCompositeFilterFunctionsEnabled(other.isCompositeFilterFunctionsEnabled());
         this.setGroupFieldsBatchSize(other.getGroupFieldsBatchSize());
+        this.setGroupFieldsMaxMemory(other.getGroupFieldsMaxMemory());
+        this.setGroupFieldsSpillDir(other.getGroupFieldsSpillDir());
         this.setAccrueStats(other.getAccrueStats());
         this.setGroupFields(null == other.getGroupFields() ? null : Sets.newHashSet(other.getGroupFields()));
         this.setUniqueFields(null == other.getUniqueFields() ? null : Sets.newHashSet(other.getUniqueFields()));
+        this.setUniqueFieldsMaxMemory(other.getUniqueFieldsMaxMemory());
+        this.setUniqueFieldsSpillDir(other.getUniqueFieldsSpillDir());
         this.setCacheModel(other.getCacheModel());
         this.setTrackSizes(other.isTrackSizes());
         this.setContentFieldNames(null == other.getContentFieldNames() ? null : Lists.newArrayList(other.getContentFieldNames()));
@@ -1135,6 +1158,30 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.ivaratorMaxOpenFiles = ivaratorMaxOpenFiles;
     }
     
+    public SpillBackend getIvaratorSpillBackend() {
+        return ivaratorSpillBackend;
+    }
+    
+    public void setIvaratorSpillBackend(SpillBackend ivaratorSpillBackend) {
+        this.ivaratorSpillBackend = ivaratorSpillBackend;
+    }
+    
+    public List<String> getIvaratorLocalSpillDirs() {
+        return ivaratorLocalSpillDirs;
+    }
+    
+    public void setIvaratorLocalSpillDirs(List<String> ivaratorLocalSpillDirs) {
+        this.ivaratorLocalSpillDirs = ivaratorLocalSpillDirs;
+    }
+    
+    public long getIvaratorLocalSpillMinFreeBytes() {
+        return ivaratorLocalSpillMinFreeBytes;
+    }
+    
+    public void setIvaratorLocalSpillMinFreeBytes(long ivaratorLocalSpillMinFreeBytes) {
+        this.ivaratorLocalSpillMinFreeBytes = ivaratorLocalSpillMinFreeBytes;
+    }
+    
     public int getMaxIvaratorSources() {
         return maxIvaratorSources;
     }
@@ -1159,6 +1206,30 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.maxPipelineCachedResults = maxCachedResults;
     }
     
+    public int getEvaluationPipelineBatchSize() {
+        return evaluationPipelineBatchSize;
+    }
+    
+    public void setEvaluationPipelineBatchSize(int evaluationPipelineBatchSize) {
+        this.evaluationPipelineBatchSize = evaluationPipelineBatchSize;
+    }
+    
+    public int getColumnarBatchSize() {
+        return columnarBatchSize;
+    }
+    
+    public void setColumnarBatchSize(int columnarBatchSize) {
+        this.columnarBatchSize = columnarBatchSize;
+    }
+    
+    public long getColumnarBatchBytes() {
+        return columnarBatchBytes;
+    }
+    
+    public void setColumnarBatchBytes(long columnarBatchBytes) {
+        this.columnarBatchBytes = columnarBatchBytes;
+    }
+    
     public boolean isExpandAllTerms() {
         return expandAllTerms;
     }
@@ -1374,10 +1445,42 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         return "" + groupFieldsBatchSize;
     }
     
+    public long getGroupFieldsMaxMemory() {
+        return groupFieldsMaxMemory;
+    }
+    
+    public void setGroupFieldsMaxMemory(long groupFieldsMaxMemory) {
+        this.groupFieldsMaxMemory = groupFieldsMaxMemory;
+    }
+    
+    public String getGroupFieldsSpillDir() {
+        return groupFieldsSpillDir;
+    }
+    
+    public void setGroupFieldsSpillDir(String groupFieldsSpillDir) {
+        this.groupFieldsSpillDir = groupFieldsSpillDir;
+    }
+    
     public Set<String> getUniqueFields() {
         return uniqueFields;
     }
     
+    public long getUniqueFieldsMaxMemory() {
+        return uniqueFieldsMaxMemory;
+    }
+    
+    public void setUniqueFieldsMaxMemory(long uniqueFieldsMaxMemory) {
+        this.uniqueFieldsMaxMemory = uniqueFieldsMaxMemory;
+    }
+    
+    public String getUniqueFieldsSpillDir() {
+        return uniqueFieldsSpillDir;
+    }
+    
+    public void setUniqueFieldsSpillDir(String uniqueFieldsSpillDir) {
+        this.uniqueFieldsSpillDir = uniqueFieldsSpillDir;
+    }
+    
     public void setUniqueFields(Set<String> uniqueFields) {
         this.uniqueFields = uniqueFields;
     }
@@ -0,0 +1,74 @@
+package datawave.query.function;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.query.attributes.Attribute;
+import datawave.query.attributes.KryoAttributeClasses;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * A thread safe pool of {@link Kryo} instances configured to serialize Documents. Creating a Kryo instance registers all of its default serializers, which is
+ * noticeable when the query iterators are rebuilt on every seek or a deserializer is created for every page of results. The pooled instances are marked with
+ * {@link KryoAttributeClasses#register(Kryo)} and so read and write the {@link datawave.query.DocumentSerialization.ReturnType#pooledkryo} format.
+ */
+public class DocumentKryoPool {
+    
+    public static final int DEFAULT_MAX_IDLE = 64;
+    
+    private static final DocumentKryoPool REDUCED = new DocumentKryoPool(true, DEFAULT_MAX_IDLE);
+    private static final DocumentKryoPool FULL = new DocumentKryoPool(false, DEFAULT_MAX_IDLE);
+    
+    private final boolean reducedResponse;
+    private final int maxIdle;
+    private final Queue<Kryo> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    
+    public DocumentKryoPool(boolean reducedResponse, int maxIdle) {
+        this.reducedResponse = reducedResponse;
+        this.maxIdle = maxIdle;
+    }
+    
+    /**
+     * @return the shared pool for kryo instances writing reduced or full responses
+     */
+    public static DocumentKryoPool get(boolean reducedResponse) {
+        return reducedResponse ? REDUCED : FULL;
+    }
+    
+    /**
+     * Take an instance from the pool, creating one if none are idle. The instance must be returned with {@link #release(Kryo)} once done with it.
+     */
+    public Kryo borrow() {
+        Kryo kryo = idle.poll();
+        if (kryo == null) {
+            return create();
+        }
+        idleCount.decrementAndGet();
+        return kryo;
+    }
+    
+    /**
+     * Return an instance to the pool. Instances beyond the idle limit are left for the garbage collector.
+     */
+    public void release(Kryo kryo) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(kryo);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+    
+    public boolean isReducedResponse() {
+        return reducedResponse;
+    }
+    
+    private Kryo create() {
+        Kryo kryo = new Kryo();
+        kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(reducedResponse));
+        KryoAttributeClasses.register(kryo);
+        return kryo;
+    }
+}
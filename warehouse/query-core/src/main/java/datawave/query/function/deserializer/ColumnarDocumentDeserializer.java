@@ -0,0 +1,124 @@
+package datawave.query.function.deserializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.ColumnarDocumentReader;
+import datawave.query.attributes.Document;
+import datawave.query.function.DocumentKryoPool;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.commons.io.IOUtils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.google.common.collect.Maps;
+
+/**
+ * Transform columnar blocks written by the {@link datawave.query.function.serializer.ColumnarDocumentSerializer} back into Documents. A block holding several
+ * Documents is first split with {@link #expand(Entry)}, which returns one entry per Document whose Value shares the decoded block; the Documents are then
+ * decoded one at a time by {@link #apply(Entry)}. Every field of a Document is decoded, as the projection of the query has already been applied by the
+ * QueryIterator before the Documents were written.
+ */
+public class ColumnarDocumentDeserializer extends DocumentDeserializer implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    @Override
+    public Entry<Key,Document> apply(Entry<Key,Value> from) {
+        if (from.getValue() instanceof DocumentValue) {
+            DocumentValue value = (DocumentValue) from.getValue();
+            return Maps.immutableEntry(from.getKey(), read(value.reader, value.document));
+        }
+        
+        ColumnarDocumentReader reader = reader(from.getValue().get());
+        if (reader.size() != 1) {
+            throw new IllegalArgumentException("Expected a single document but found " + reader.size() + ", the entry must be expanded first");
+        }
+        return Maps.immutableEntry(from.getKey(), read(reader, 0));
+    }
+    
+    @Override
+    public Document deserialize(InputStream data) {
+        byte[] block;
+        try {
+            block = IOUtils.toByteArray(data);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read columnar document block", e);
+        }
+        ColumnarDocumentReader reader = new ColumnarDocumentReader(block, 0);
+        if (reader.size() != 1) {
+            throw new IllegalArgumentException("Expected a single document but found " + reader.size());
+        }
+        return read(reader, 0);
+    }
+    
+    /**
+     * Split a block into one entry per Document, keyed by the key of the Document. The Value of each entry is the block itself, which is only decoded once
+     * for all of the entries.
+     */
+    public Iterator<Entry<Key,Value>> expand(Entry<Key,Value> block) {
+        final byte[] bytes = block.getValue().get();
+        final ColumnarDocumentReader reader = reader(bytes);
+        return new Iterator<Entry<Key,Value>>() {
+            private int next = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return next < reader.size();
+            }
+            
+            @Override
+            public Entry<Key,Value> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int document = next++;
+                return Maps.immutableEntry(reader.getKey(document), new DocumentValue(bytes, reader, document));
+            }
+        };
+    }
+    
+    private ColumnarDocumentReader reader(byte[] bytes) {
+        if (DocumentSerialization.NONE == DocumentSerialization.readHeader(bytes)) {
+            return new ColumnarDocumentReader(bytes, DocumentSerialization.HEADER_LENGTH);
+        }
+        try {
+            return new ColumnarDocumentReader(IOUtils.toByteArray(DocumentSerialization.consumeHeader(bytes)), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to decompress columnar document block", e);
+        }
+    }
+    
+    private Document read(ColumnarDocumentReader reader, int document) {
+        DocumentKryoPool pool = DocumentKryoPool.get(true);
+        Kryo kryo = pool.borrow();
+        try {
+            return reader.getDocument(kryo, document);
+        } finally {
+            pool.release(kryo);
+        }
+    }
+    
+    /**
+     * A Value referring to one Document of a decoded block. The bytes of the Value are those of the whole block.
+     */
+    public static class DocumentValue extends Value {
+        private final ColumnarDocumentReader reader;
+        private final int document;
+        
+        DocumentValue(byte[] block, ColumnarDocumentReader reader, int document) {
+            super(block, false);
+            this.reader = reader;
+            this.document = document;
+        }
+        
+        public int getDocument() {
+            return document;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package datawave.query.function.deserializer;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Map.Entry;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.Document;
+import datawave.query.function.DocumentKryoPool;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.google.common.collect.Maps;
+
+/**
+ * Transform bytes written by the {@link datawave.query.function.serializer.PooledKryoDocumentSerializer} back into a Document using a pooled {@link Kryo}
+ * instance. Uncompressed values are read in place from the Value's bytes through a reused {@link Input}. Ordering of Attributes is <b>not</b> guaranteed
+ * across serialization.
+ */
+public class PooledKryoDocumentDeserializer extends DocumentDeserializer implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    // reads values in place, so it never has a buffer of its own that could be overwritten
+    private transient Input bytesInput;
+    private transient Input streamInput;
+    
+    @Override
+    public Entry<Key,Document> apply(Entry<Key,Value> from) {
+        byte[] data = from.getValue().get();
+        
+        Document document;
+        if (DocumentSerialization.NONE == DocumentSerialization.readHeader(data)) {
+            if (bytesInput == null) {
+                bytesInput = new Input();
+            }
+            bytesInput.setBuffer(data);
+            bytesInput.setPosition(DocumentSerialization.HEADER_LENGTH);
+            document = read(bytesInput);
+        } else {
+            document = deserialize(DocumentSerialization.consumeHeader(data));
+        }
+        
+        return Maps.immutableEntry(from.getKey(), document);
+    }
+    
+    @Override
+    public Document deserialize(InputStream data) {
+        if (streamInput == null) {
+            streamInput = new Input(4096);
+        }
+        streamInput.setInputStream(data);
+        try {
+            return read(streamInput);
+        } finally {
+            streamInput.setInputStream(null);
+        }
+    }
+    
+    private Document read(Input input) {
+        DocumentKryoPool pool = DocumentKryoPool.get(true);
+        Kryo kryo = pool.borrow();
+        Document document;
+        try {
+            document = kryo.readObject(input, Document.class);
+        } finally {
+            pool.release(kryo);
+        }
+        
+        if (null == document) {
+            throw new RuntimeException("Deserialized null Document");
+        }
+        
+        return document;
+    }
+}
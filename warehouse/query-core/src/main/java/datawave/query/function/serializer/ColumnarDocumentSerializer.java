@@ -0,0 +1,120 @@
+package datawave.query.function.serializer;
+
+import java.util.Map.Entry;
+
+import datawave.query.attributes.ColumnarDocumentWriter;
+import datawave.query.attributes.Document;
+import datawave.query.function.DocumentKryoPool;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.trace.instrument.Span;
+import org.apache.accumulo.trace.instrument.Trace;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Maps;
+
+/**
+ * Transform Documents into columnar blocks, see {@link ColumnarDocumentWriter}. Used as a function this writes a block holding a single Document; the
+ * {@link datawave.query.iterator.ColumnarBatchingIterator} instead {@link #add(Key, Document) adds} Documents until a batch is complete and then
+ * {@link #flush() flushes} them as one block. The blocks are read with the {@link datawave.query.function.deserializer.ColumnarDocumentDeserializer}.
+ */
+public class ColumnarDocumentSerializer extends DocumentSerializer {
+    
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    // buffers grown past this by an unusually large block are not kept around
+    private static final int MAX_RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+    
+    private final ColumnarDocumentWriter writer;
+    private final Output output = new Output(INITIAL_BUFFER_SIZE, -1);
+    
+    public ColumnarDocumentSerializer() {
+        this(false, false);
+    }
+    
+    public ColumnarDocumentSerializer(boolean reducedResponse) {
+        this(reducedResponse, false);
+    }
+    
+    public ColumnarDocumentSerializer(boolean reducedResponse, boolean compress) {
+        super(reducedResponse, compress);
+        this.writer = new ColumnarDocumentWriter(reducedResponse);
+    }
+    
+    @Override
+    public Entry<Key,Value> apply(Entry<Key,Document> from) {
+        add(from.getKey(), from.getValue());
+        return Maps.immutableEntry(from.getKey(), flush());
+    }
+    
+    @Override
+    public byte[] serialize(Document doc) {
+        writer.clear();
+        // the key is only used to compress the timestamps of the values
+        writer.add(doc.getMetadata() != null ? doc.getMetadata() : new Key(), doc);
+        return write();
+    }
+    
+    /**
+     * Add a Document to the current block
+     */
+    public void add(Key key, Document doc) {
+        writer.add(key, doc);
+    }
+    
+    /**
+     * @return the number of Documents in the current block
+     */
+    public int getBufferedDocuments() {
+        return writer.size();
+    }
+    
+    /**
+     * @return the estimated in memory size of the Documents in the current block
+     */
+    public long getBufferedBytes() {
+        return writer.sizeInBytes();
+    }
+    
+    /**
+     * Write the current block and start a new one
+     *
+     * @return the block, including the serialization header
+     */
+    public Value flush() {
+        Span s = null;
+        try {
+            s = Trace.start("Document Serialization");
+            s.data("Serialization type", this.concreteName);
+            s.data("Documents", Integer.toString(writer.size()));
+            
+            byte[] bytes = write();
+            
+            s.data("Raw size", Integer.toString(bytes.length));
+            
+            return getValue(bytes, s);
+        } finally {
+            if (null != s) {
+                s.stop();
+            }
+        }
+    }
+    
+    private byte[] write() {
+        output.setPosition(0);
+        DocumentKryoPool pool = DocumentKryoPool.get(isReducedResponse());
+        Kryo kryo = pool.borrow();
+        try {
+            writer.write(kryo, output);
+        } finally {
+            pool.release(kryo);
+            writer.clear();
+        }
+        byte[] bytes = output.toBytes();
+        if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+            output.setBuffer(new byte[INITIAL_BUFFER_SIZE], -1);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,141 @@
+package datawave.query.function.serializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.Document;
+import datawave.query.exceptions.InvalidDocumentHeader;
+import datawave.query.function.DocumentKryoPool;
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.exception.QueryException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.trace.instrument.Span;
+import org.apache.accumulo.trace.instrument.Trace;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Maps;
+
+/**
+ * Transform the Document into a Kryo-serialized version using a pooled {@link Kryo} instance. The Document is written into a reusable buffer directly after
+ * space reserved for the header, so each Value is copied out of the buffer exactly once instead of going through a separate byte array for the serialized
+ * Document and the header. Attribute classes are written as registered ids, so the values must be read with the
+ * {@link datawave.query.function.deserializer.PooledKryoDocumentDeserializer}.
+ */
+public class PooledKryoDocumentSerializer extends DocumentSerializer {
+    
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    // buffers grown past this by an unusually large document are not kept around
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+    
+    private final Output output = new Output(INITIAL_BUFFER_SIZE, -1);
+    private Output compressed;
+    private Deflater deflater;
+    
+    public PooledKryoDocumentSerializer() {
+        this(false, false);
+    }
+    
+    public PooledKryoDocumentSerializer(boolean reducedResponse) {
+        this(reducedResponse, false);
+    }
+    
+    public PooledKryoDocumentSerializer(boolean reducedResponse, boolean compress) {
+        super(reducedResponse, compress);
+    }
+    
+    @Override
+    public Entry<Key,Value> apply(Entry<Key,Document> from) {
+        Span s = null;
+        try {
+            s = Trace.start("Document Serialization");
+            s.data("Serialization type", this.concreteName);
+            
+            int rawSize = write(from.getValue(), DocumentSerialization.HEADER_LENGTH);
+            
+            s.data("Raw size", Integer.toString(rawSize));
+            
+            Value v;
+            if (DocumentSerialization.NONE != this.compression && rawSize > minCompressionSize) {
+                v = new Value(compress(output.getBuffer(), rawSize));
+                s.data("Compressed size", Integer.toString(v.getSize() - DocumentSerialization.HEADER_LENGTH));
+            } else {
+                byte[] buffer = output.getBuffer();
+                DocumentSerialization.writeHeader(buffer, DocumentSerialization.NONE);
+                v = new Value(Arrays.copyOf(buffer, output.position()));
+            }
+            trim(output);
+            
+            return Maps.immutableEntry(from.getKey(), v);
+        } finally {
+            if (null != s) {
+                s.stop();
+            }
+        }
+    }
+    
+    @Override
+    public byte[] serialize(Document doc) {
+        write(doc, 0);
+        byte[] bytes = output.toBytes();
+        trim(output);
+        return bytes;
+    }
+    
+    /**
+     * Write the document into the output buffer following <code>offset</code> reserved bytes
+     *
+     * @return the number of bytes written for the document
+     */
+    private int write(Document doc, int offset) {
+        output.setPosition(offset);
+        
+        DocumentKryoPool pool = DocumentKryoPool.get(isReducedResponse());
+        Kryo kryo = pool.borrow();
+        try {
+            kryo.writeObject(output, doc);
+        } finally {
+            pool.release(kryo);
+        }
+        
+        return output.position() - offset;
+    }
+    
+    /**
+     * Deflate the document following the header in <code>buffer</code>, returning the header and the compressed document
+     */
+    private byte[] compress(byte[] buffer, int length) {
+        if (compressed == null) {
+            compressed = new Output(INITIAL_BUFFER_SIZE, -1);
+            deflater = new Deflater(DocumentSerialization.ZLIB_NUMBER);
+        }
+        
+        compressed.setPosition(0);
+        compressed.write(DocumentSerialization.getHeader(compression));
+        deflater.reset();
+        try {
+            DeflaterOutputStream deflate = new DeflaterOutputStream(compressed, deflater, 1024);
+            deflate.write(buffer, DocumentSerialization.HEADER_LENGTH, length);
+            deflate.finish();
+        } catch (IOException e) {
+            QueryException qe = new QueryException(DatawaveErrorCode.GZIP_STREAM_WRITE_ERROR, e);
+            throw new InvalidDocumentHeader(qe);
+        }
+        
+        byte[] value = Arrays.copyOf(compressed.getBuffer(), compressed.position());
+        trim(compressed);
+        return value;
+    }
+    
+    private static void trim(Output output) {
+        if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+            output.setBuffer(new byte[INITIAL_BUFFER_SIZE], -1);
+        }
+    }
+}
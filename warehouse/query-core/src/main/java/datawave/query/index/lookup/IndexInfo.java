@@ -5,8 +5,10 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
 
 import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
 import org.apache.commons.jexl2.parser.ASTOrNode;
@@ -25,6 +27,7 @@ import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 
 import datawave.query.jexl.JexlNodeFactory;
@@ -339,34 +342,10 @@ public class IndexInfo implements Writable, UidIntersector {
             merged.count = count + o.count;
             merged.uids = ImmutableSortedSet.of();
         } else {
-            HashMultimap<String,JexlNode> ids = HashMultimap.create();
-            
             /**
-             * Concatenate all UIDs, and merge the individual nodes
+             * Merge the sorted UIDs, and merge the individual nodes
              */
-            for (IndexMatch match : Iterables.concat(uids, o.uids)) {
-                
-                JexlNode newNode = match.getNode();
-                if (null != newNode)
-                    ids.put(match.uid, newNode);
-            }
-            
-            Set<IndexMatch> matches = Sets.newHashSet();
-            
-            for (String uid : ids.keySet()) {
-                
-                Set<JexlNode> nodes = Sets.newHashSet(ids.get(uid));
-                if (!nodes.isEmpty()) {
-                    nodes.addAll(delayedNodes);
-                    
-                    IndexMatch currentMatch = new IndexMatch(nodes, uid, IndexMatchType.OR);
-                    
-                    matches.add(currentMatch);
-                }
-                
-            }
-            
-            merged.uids = ImmutableSortedSet.copyOf(matches);
+            merged.uids = union(uids.asList(), o.uids.asList(), delayedNodes);
             merged.count = merged.uids.size();
             
         }
@@ -580,34 +559,18 @@ public class IndexInfo implements Writable, UidIntersector {
                      */
                     merged.count = count;
                     
-                    HashMultimap<String,JexlNode> ids = HashMultimap.create();
-                    for (IndexMatch match : uids) {
-                        JexlNode newNode = match.getNode();
-                        if (null != newNode)
-                            ids.put(match.uid, newNode);
-                    }
-                    
                     List<JexlNode> ourDelayedNodes = Lists.newArrayList();
                     ourDelayedNodes.addAll(delayedNodes);
                     // we may actually have no node on o
                     if (null != o.getNode())
                         ourDelayedNodes.add(o.getNode());
                     
-                    Set<IndexMatch> matches = buildNodeList(ids, IndexMatchType.AND, true, ourDelayedNodes);
-                    
-                    merged.uids = ImmutableSortedSet.copyOf(matches);
+                    merged.uids = intersect(uids.asList(), ourDelayedNodes);
                     merged.count = merged.uids.size();
                 } else if (o.onlyEvents()) {
                     /**
                      * E) We have LARGE AND SMALL
                      */
-                    HashMultimap<String,JexlNode> ids = HashMultimap.create();
-                    for (IndexMatch match : o.uids) {
-                        JexlNode newNode = match.getNode();
-                        if (null != newNode)
-                            ids.put(match.uid, newNode);
-                    }
-                    
                     List<JexlNode> ourDelayedNodes = Lists.newArrayList();
                     ourDelayedNodes.addAll(delayedNodes);
                     // possible, depending on how query is processed
@@ -615,9 +578,7 @@ public class IndexInfo implements Writable, UidIntersector {
                     if (null != getNode())
                         ourDelayedNodes.add(getNode());
                     
-                    Set<IndexMatch> matches = buildNodeList(ids, IndexMatchType.AND, true, ourDelayedNodes);
-                    
-                    merged.uids = ImmutableSortedSet.copyOf(matches);
+                    merged.uids = intersect(o.uids.asList(), ourDelayedNodes);
                     merged.count = merged.uids.size();
                 } else {
                     
@@ -637,8 +598,44 @@ public class IndexInfo implements Writable, UidIntersector {
         
     }
     
+    /**
+     * Intersect two sets of UIDs. When both sets are sorted by UID, as those held by an IndexInfo are, the sets are intersected in a single pass over the
+     * smaller set that gallops through the larger one, and the result is also sorted.
+     */
     @Override
     public Set<IndexMatch> intersect(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        if (isSortedByUid(uids1) && isSortedByUid(uids2)) {
+            List<IndexMatch> smaller = asList(uids1);
+            List<IndexMatch> larger = asList(uids2);
+            if (smaller.size() > larger.size()) {
+                List<IndexMatch> swap = smaller;
+                smaller = larger;
+                larger = swap;
+            }
+            
+            List<IndexMatch> matches = new ArrayList<>(smaller.size());
+            int position = 0;
+            for (IndexMatch match : smaller) {
+                position = gallop(larger, position, match);
+                if (position == larger.size()) {
+                    break;
+                }
+                IndexMatch other = larger.get(position);
+                if (match.compareTo(other) == 0) {
+                    position++;
+                    // only those ids with two distinct JexlNodes make it through, as with buildNodeList
+                    JexlNode node = match.getNode();
+                    JexlNode otherNode = other.getNode();
+                    if (null != node && null != otherNode && !node.equals(otherNode)) {
+                        Set<JexlNode> nodes = Sets.newHashSet(node, otherNode);
+                        nodes.addAll(delayedNodes);
+                        matches.add(new IndexMatch(nodes, match.uid, IndexMatchType.AND));
+                    }
+                }
+            }
+            return ImmutableSortedSet.copyOf(matches);
+        }
+        
         HashMultimap<String,JexlNode> ids = HashMultimap.create();
         for (IndexMatch match : Iterables.concat(uids1, uids2)) {
             JexlNode newNode = match.getNode();
@@ -651,6 +648,112 @@ public class IndexInfo implements Writable, UidIntersector {
         return buildNodeList(ids, IndexMatchType.AND, false, delayedNodes);
     }
     
+    /**
+     * AND the node of each of the sorted matches with the delayed nodes, as buildNodeList would for a single set of matches
+     */
+    protected ImmutableSortedSet<IndexMatch> intersect(List<IndexMatch> sorted, List<JexlNode> delayedNodes) {
+        if (delayedNodes.isEmpty()) {
+            return ImmutableSortedSet.of();
+        }
+        List<IndexMatch> matches = new ArrayList<>(sorted.size());
+        for (IndexMatch match : sorted) {
+            JexlNode node = match.getNode();
+            if (null != node) {
+                Set<JexlNode> nodes = Sets.newHashSet(node);
+                nodes.addAll(delayedNodes);
+                matches.add(new IndexMatch(nodes, match.uid, IndexMatchType.AND));
+            }
+        }
+        return ImmutableSortedSet.copyOf(matches);
+    }
+    
+    /**
+     * Merge two lists of matches sorted by UID, ORing the nodes of the matches sharing a UID. Matches without a node are dropped.
+     */
+    protected ImmutableSortedSet<IndexMatch> union(List<IndexMatch> first, List<IndexMatch> second, List<JexlNode> delayedNodes) {
+        List<IndexMatch> matches = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        while (i < first.size() || j < second.size()) {
+            IndexMatch match;
+            IndexMatch other = null;
+            if (j == second.size()) {
+                match = first.get(i++);
+            } else if (i == first.size()) {
+                match = second.get(j++);
+            } else {
+                int comparison = first.get(i).compareTo(second.get(j));
+                if (comparison < 0) {
+                    match = first.get(i++);
+                } else if (comparison > 0) {
+                    match = second.get(j++);
+                } else {
+                    match = first.get(i++);
+                    other = second.get(j++);
+                }
+            }
+            
+            Set<JexlNode> nodes = Sets.newHashSet();
+            JexlNode node = match.getNode();
+            if (null != node)
+                nodes.add(node);
+            if (null != other) {
+                node = other.getNode();
+                if (null != node)
+                    nodes.add(node);
+            }
+            if (!nodes.isEmpty()) {
+                nodes.addAll(delayedNodes);
+                matches.add(new IndexMatch(nodes, match.uid, IndexMatchType.OR));
+            }
+        }
+        return ImmutableSortedSet.copyOf(matches);
+    }
+    
+    /**
+     * Find the first match at or after start whose UID is not less than that of the given match, doubling the step until it is passed and then searching
+     * back within the last step
+     */
+    protected static int gallop(List<IndexMatch> sorted, int start, IndexMatch match) {
+        int size = sorted.size();
+        if (start >= size || sorted.get(start).compareTo(match) >= 0) {
+            return start;
+        }
+        // sorted[low] < match throughout
+        int low = start;
+        int step = 1;
+        while (low + step < size && sorted.get(low + step).compareTo(match) < 0) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, size);
+        // sorted[high] >= match, or high == size
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (sorted.get(mid).compareTo(match) < 0) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+    
+    private static boolean isSortedByUid(Set<IndexMatch> matches) {
+        if (matches instanceof SortedSet) {
+            Comparator<?> comparator = ((SortedSet<IndexMatch>) matches).comparator();
+            return comparator == null || Ordering.natural().equals(comparator);
+        }
+        return false;
+    }
+    
+    private static List<IndexMatch> asList(Set<IndexMatch> sorted) {
+        if (sorted instanceof ImmutableSortedSet) {
+            return ((ImmutableSortedSet<IndexMatch>) sorted).asList();
+        }
+        return new ArrayList<>(sorted);
+    }
+    
     protected Set<IndexMatch> buildNodeList(HashMultimap<String,JexlNode> ids, IndexMatchType type, boolean allowsDelayed, List<JexlNode> delayedNodes) {
         Set<IndexMatch> matches = Sets.newHashSet();
         for (String uid : ids.keySet()) {
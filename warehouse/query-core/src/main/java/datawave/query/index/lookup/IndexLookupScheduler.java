@@ -0,0 +1,417 @@
+package datawave.query.index.lookup;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the global index lookups of every query planning on this server with a shared set of threads, rather than a set of thread pools per query. Each query
+ * submits its work through {@link ExecutorService}s obtained from {@link #newExecutor(Lane, String, int)}, which limit the number of its tasks running at once.
+ * <p>
+ * Within a lane, the threads take tasks from the queries in turn, so every query with work queued gets an equal share of the threads. A thread that finds the
+ * next query at its limit moves on to the one after, so threads left idle by one query are taken up by the others.
+ * <p>
+ * The lanes mirror the pools a {@link RangeStream} used to create: tasks in the {@link Lane#LOOKUP} lane may wait on tasks in the {@link Lane#SCAN} lane, but
+ * not the other way around, so a lane full of waiting lookups can not starve the scans they wait on.
+ */
+public class IndexLookupScheduler {
+    
+    private static final Logger log = Logger.getLogger(IndexLookupScheduler.class);
+    
+    public enum Lane {
+        // lookups that initialize and combine index streams
+        LOOKUP,
+        // scans of the global index
+        SCAN
+    }
+    
+    public static final String THREADS_PROPERTY = "datawave.query.index.lookup.threads";
+    public static final int DEFAULT_THREADS = 100;
+    
+    // idle threads above this are stopped
+    private static final long KEEP_ALIVE_MILLIS = 60000;
+    
+    private static final IndexLookupScheduler instance = new IndexLookupScheduler(Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS));
+    
+    private final Map<Lane,LaneScheduler> lanes = new EnumMap<>(Lane.class);
+    
+    /**
+     * @return the scheduler shared by all of the queries on this server
+     */
+    public static IndexLookupScheduler getInstance() {
+        return instance;
+    }
+    
+    /**
+     * @param maxThreads
+     *            the maximum number of threads of each lane
+     */
+    public IndexLookupScheduler(int maxThreads) {
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneScheduler(lane, maxThreads));
+        }
+    }
+    
+    /**
+     * Change the maximum number of threads of each lane. Threads above the new maximum stop once they finish their current task.
+     */
+    public void setMaxThreads(int maxThreads) {
+        for (LaneScheduler lane : lanes.values()) {
+            lane.setMaxThreads(maxThreads);
+        }
+    }
+    
+    /**
+     * Create an executor for one query
+     *
+     * @param lane
+     *            the lane to run the tasks in
+     * @param name
+     *            the name of the query, used when naming threads and logging
+     * @param maxConcurrent
+     *            the maximum number of tasks of this executor that run at once
+     * @return the executor, which must be shut down once the query no longer needs it
+     */
+    public ExecutorService newExecutor(Lane lane, String name, int maxConcurrent) {
+        return new QueryExecutor(lanes.get(lane), name, Math.max(1, maxConcurrent));
+    }
+    
+    /**
+     * @return the number of tasks waiting to run in a lane
+     */
+    public int getQueuedTasks(Lane lane) {
+        return lanes.get(lane).getQueuedTasks();
+    }
+    
+    /**
+     * @return the number of tasks running in a lane
+     */
+    public int getRunningTasks(Lane lane) {
+        return lanes.get(lane).getRunningTasks();
+    }
+    
+    /**
+     * @return the number of tasks that have been run in a lane
+     */
+    public long getCompletedTasks(Lane lane) {
+        return lanes.get(lane).getCompletedTasks();
+    }
+    
+    /**
+     * @return the average time the tasks of a lane waited in the queue before they were run
+     */
+    public double getAverageWaitMillis(Lane lane) {
+        return lanes.get(lane).getAverageWaitMillis();
+    }
+    
+    /**
+     * @return the longest time a task of a lane waited in the queue before it was run
+     */
+    public long getMaxWaitMillis(Lane lane) {
+        return lanes.get(lane).getMaxWaitMillis();
+    }
+    
+    private static class Task {
+        private final QueryExecutor executor;
+        private final Runnable runnable;
+        private final long queued = System.nanoTime();
+        
+        Task(QueryExecutor executor, Runnable runnable) {
+            this.executor = executor;
+            this.runnable = runnable;
+        }
+    }
+    
+    /**
+     * The threads and queue of one lane. All of the state of the lane and of its executors is guarded by the lane.
+     */
+    private static class LaneScheduler {
+        private final Lane lane;
+        private int maxThreads;
+        private int threads = 0;
+        private int idleThreads = 0;
+        private int threadNumber = 1;
+        
+        // the executors with tasks queued, in the order they will be served
+        private final Deque<QueryExecutor> ready = new ArrayDeque<>();
+        private int queued = 0;
+        private int running = 0;
+        
+        private long completed = 0;
+        private long totalWaitNanos = 0;
+        private long maxWaitNanos = 0;
+        
+        LaneScheduler(Lane lane, int maxThreads) {
+            this.lane = lane;
+            this.maxThreads = Math.max(1, maxThreads);
+        }
+        
+        synchronized void setMaxThreads(int maxThreads) {
+            this.maxThreads = Math.max(1, maxThreads);
+            notifyAll();
+        }
+        
+        synchronized void submit(Task task) {
+            task.executor.pending.add(task);
+            queued++;
+            if (!ready.contains(task.executor)) {
+                ready.add(task.executor);
+            }
+            if (idleThreads > 0) {
+                notifyAll();
+            } else if (threads < maxThreads) {
+                threads++;
+                Thread thread = new Thread(this::work, "Datawave index " + lane.name().toLowerCase() + " scheduler -" + threadNumber++);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        
+        /**
+         * Take the next task, waiting for one if needed
+         *
+         * @return the task, or null if this thread should stop
+         */
+        private synchronized Task take() {
+            while (true) {
+                if (threads > maxThreads) {
+                    threads--;
+                    return null;
+                }
+                Task task = next();
+                if (task != null) {
+                    return task;
+                }
+                
+                long start = System.currentTimeMillis();
+                idleThreads++;
+                try {
+                    wait(KEEP_ALIVE_MILLIS);
+                } catch (InterruptedException e) {
+                    // these threads are only interrupted to cancel a task, which may have finished already
+                } finally {
+                    idleThreads--;
+                }
+                if (System.currentTimeMillis() - start >= KEEP_ALIVE_MILLIS && ready.isEmpty()) {
+                    threads--;
+                    return null;
+                }
+            }
+        }
+        
+        /**
+         * Take a task from the next executor that is below its limit, moving that executor to the back of the line
+         */
+        private Task next() {
+            for (int i = ready.size(); i > 0; i--) {
+                QueryExecutor executor = ready.poll();
+                if (executor.pending.isEmpty()) {
+                    continue;
+                }
+                if (executor.running >= executor.maxConcurrent) {
+                    ready.add(executor);
+                    continue;
+                }
+                
+                Task task = executor.pending.poll();
+                if (!executor.pending.isEmpty()) {
+                    ready.add(executor);
+                }
+                queued--;
+                running++;
+                executor.running++;
+                executor.threads.add(Thread.currentThread());
+                
+                long wait = System.nanoTime() - task.queued;
+                totalWaitNanos += wait;
+                maxWaitNanos = Math.max(maxWaitNanos, wait);
+                executor.totalWaitNanos += wait;
+                executor.maxWaitNanos = Math.max(executor.maxWaitNanos, wait);
+                return task;
+            }
+            return null;
+        }
+        
+        private synchronized void finished(Task task) {
+            QueryExecutor executor = task.executor;
+            executor.threads.remove(Thread.currentThread());
+            // clear an interrupt meant for the task, which may have arrived after it finished
+            Thread.interrupted();
+            
+            running--;
+            completed++;
+            executor.running--;
+            executor.completed++;
+            if (!executor.pending.isEmpty() && !ready.contains(executor)) {
+                ready.add(executor);
+            }
+            if (executor.isTerminatedLocked()) {
+                executor.logStats();
+            }
+            notifyAll();
+        }
+        
+        private void work() {
+            Thread thread = Thread.currentThread();
+            String threadName = thread.getName();
+            Task task;
+            while ((task = take()) != null) {
+                thread.setName(threadName + " " + task.executor.name);
+                try {
+                    task.runnable.run();
+                } catch (Throwable t) {
+                    log.error("Index lookup for " + task.executor.name + " failed", t);
+                } finally {
+                    thread.setName(threadName);
+                    finished(task);
+                }
+            }
+        }
+        
+        synchronized void cancel(QueryExecutor executor, List<Runnable> cancelled) {
+            for (Task task : executor.pending) {
+                cancelled.add(task.runnable);
+            }
+            queued -= executor.pending.size();
+            executor.pending.clear();
+            ready.remove(executor);
+            for (Thread thread : executor.threads) {
+                thread.interrupt();
+            }
+        }
+        
+        synchronized int getQueuedTasks() {
+            return queued;
+        }
+        
+        synchronized int getRunningTasks() {
+            return running;
+        }
+        
+        synchronized long getCompletedTasks() {
+            return completed;
+        }
+        
+        synchronized double getAverageWaitMillis() {
+            return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos) / (double) completed;
+        }
+        
+        synchronized long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+    }
+    
+    /**
+     * The tasks of one query in one lane
+     */
+    private static class QueryExecutor extends AbstractExecutorService {
+        private final LaneScheduler lane;
+        private final String name;
+        private final int maxConcurrent;
+        
+        private final Deque<Task> pending = new ArrayDeque<>();
+        private final Set<Thread> threads = new HashSet<>();
+        private int running = 0;
+        private boolean shutdown = false;
+        
+        private long completed = 0;
+        private long totalWaitNanos = 0;
+        private long maxWaitNanos = 0;
+        
+        QueryExecutor(LaneScheduler lane, String name, int maxConcurrent) {
+            this.lane = lane;
+            this.name = name;
+            this.maxConcurrent = maxConcurrent;
+        }
+        
+        @Override
+        public void execute(Runnable command) {
+            synchronized (lane) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("Index lookups for " + name + " have been shut down");
+                }
+                lane.submit(new Task(this, command));
+            }
+        }
+        
+        @Override
+        public void shutdown() {
+            synchronized (lane) {
+                if (!shutdown) {
+                    shutdown = true;
+                    if (isTerminatedLocked()) {
+                        logStats();
+                    }
+                    lane.notifyAll();
+                }
+            }
+        }
+        
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> cancelled = new ArrayList<>();
+            synchronized (lane) {
+                boolean wasShutdown = shutdown;
+                shutdown = true;
+                lane.cancel(this, cancelled);
+                if (!wasShutdown && isTerminatedLocked()) {
+                    logStats();
+                }
+                lane.notifyAll();
+            }
+            return cancelled;
+        }
+        
+        @Override
+        public boolean isShutdown() {
+            synchronized (lane) {
+                return shutdown;
+            }
+        }
+        
+        @Override
+        public boolean isTerminated() {
+            synchronized (lane) {
+                return isTerminatedLocked();
+            }
+        }
+        
+        private boolean isTerminatedLocked() {
+            return shutdown && pending.isEmpty() && running == 0;
+        }
+        
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (lane) {
+                while (!isTerminatedLocked()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lane, remaining);
+                }
+                return true;
+            }
+        }
+        
+        private void logStats() {
+            if (log.isDebugEnabled() && completed > 0) {
+                log.debug("Index " + lane.lane.name().toLowerCase() + "s for " + name + ": " + completed + " tasks, average queue wait "
+                                + TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / completed) + "ms, max queue wait " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos)
+                                + "ms");
+            }
+        }
+    }
+}
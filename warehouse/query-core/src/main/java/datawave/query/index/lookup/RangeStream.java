@@ -86,12 +86,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import static com.google.common.collect.Iterators.concat;
 import static com.google.common.collect.Iterators.filter;
@@ -118,8 +113,6 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
     protected Class<? extends SortedKeyValueIterator<Key,Value>> createCondensedUidIteratorClass = CondensedUidIterator.class;
     protected Multimap<String,Type<?>> fieldDataTypes;
     
-    protected BlockingQueue<Runnable> runnables;
-    
     protected JexlNode tree = null;
     
     protected UidIntersector uidIntersector = new IndexInfo();
@@ -148,10 +141,11 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         this.scanners = scanners;
         this.metadataHelper = metadataHelper;
         int maxLookup = (int) Math.max(Math.ceil(config.getNumIndexLookupThreads()), 1);
-        executor = Executors.newFixedThreadPool(maxLookup);
-        runnables = new LinkedBlockingDeque<>();
-        int executeLookupMin = (int) Math.max(maxLookup / 2, 1);
-        streamExecutor = new ThreadPoolExecutor(executeLookupMin, maxLookup, 100, TimeUnit.MILLISECONDS, runnables);
+        // the threads are shared with the other queries on this server, maxLookup only limits how many of them this query uses at once
+        String queryId = (config.getQuery() == null ? "unknown query" : String.valueOf(config.getQuery().getId()));
+        IndexLookupScheduler scheduler = IndexLookupScheduler.getInstance();
+        executor = scheduler.newExecutor(IndexLookupScheduler.Lane.LOOKUP, queryId, maxLookup);
+        streamExecutor = scheduler.newExecutor(IndexLookupScheduler.Lane.SCAN, queryId, maxLookup);
         fieldDataTypes = config.getQueryFieldsDatatypes();
         collapseUids = config.getCollapseUids();
         try {
@@ -0,0 +1,83 @@
+package datawave.query.iterator;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import datawave.query.attributes.Document;
+import datawave.query.function.serializer.ColumnarDocumentSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Collects Documents into columnar blocks, returning a block once it holds the maximum number of Documents or its Documents reach the byte threshold, or when
+ * the source is exhausted. Each block is keyed by the key of its last Document so that a scan resumed after the block continues with the next Document.
+ * <p>
+ * If the source yields while a block is partially filled, the yield is held back until the block has been returned, as returning a result from a yielded
+ * iterator would drop it.
+ */
+public class ColumnarBatchingIterator implements Iterator<Entry<Key,Value>> {
+    
+    private final Iterator<Entry<Key,Document>> documents;
+    private final ColumnarDocumentSerializer serializer;
+    private final int maxDocuments;
+    private final long maxBytes;
+    private final YieldCallbackWrapper<Key> yield;
+    
+    private Entry<Key,Value> next = null;
+    private Key pendingYield = null;
+    
+    public ColumnarBatchingIterator(Iterator<Entry<Key,Document>> documents, ColumnarDocumentSerializer serializer, int maxDocuments, long maxBytes,
+                    YieldCallbackWrapper<Key> yield) {
+        this.documents = documents;
+        this.serializer = serializer;
+        this.maxDocuments = Math.max(1, maxDocuments);
+        this.maxBytes = maxBytes;
+        this.yield = yield;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = fill();
+        }
+        return next != null;
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Entry<Key,Value> result = next;
+        next = null;
+        return result;
+    }
+    
+    private Entry<Key,Value> fill() {
+        if (pendingYield != null) {
+            yield.yield(pendingYield);
+            pendingYield = null;
+            return null;
+        }
+        
+        Key last = null;
+        while (serializer.getBufferedDocuments() < maxDocuments && (maxBytes <= 0 || serializer.getBufferedBytes() < maxBytes) && documents.hasNext()) {
+            Entry<Key,Document> document = documents.next();
+            serializer.add(document.getKey(), document.getValue());
+            last = document.getKey();
+        }
+        
+        if (last == null) {
+            return null;
+        }
+        
+        if (yield != null && yield.hasYielded()) {
+            pendingYield = yield.getPositionAndReset();
+        }
+        return Maps.immutableEntry(last, serializer.flush());
+    }
+}
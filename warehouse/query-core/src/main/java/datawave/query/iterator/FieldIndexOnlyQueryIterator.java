@@ -11,7 +11,9 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import datawave.query.function.PrefixEquality;
+import datawave.query.function.serializer.ColumnarDocumentSerializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
+import datawave.query.function.serializer.PooledKryoDocumentSerializer;
 import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.iterator.errors.UnindexedException;
 import datawave.query.iterator.filter.FieldIndexKeyDataTypeFilter;
@@ -341,6 +343,12 @@ public class FieldIndexOnlyQueryIterator extends QueryIterator {
         if (this.getReturnType() == ReturnType.kryo) {
             // Serialize the Document using Kryo
             this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+        } else if (this.getReturnType() == ReturnType.pooledkryo) {
+            // Serialize the Document using pooled Kryo instances and registered Attribute classes
+            this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new PooledKryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+        } else if (this.getReturnType() == ReturnType.columnar) {
+            // Serialize each Document as a columnar block of one
+            this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new ColumnarDocumentSerializer(isReducedResponse(), isCompressResults()));
         } else if (this.getReturnType() == ReturnType.writable) {
             // Use the Writable interface to serialize the Document
             this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new WritableDocumentSerializer(isReducedResponse()));
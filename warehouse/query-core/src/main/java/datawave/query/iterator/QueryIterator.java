@@ -32,8 +32,13 @@ import datawave.query.function.LimitFields;
 import datawave.query.function.MaskedValueFilterFactory;
 import datawave.query.function.MaskedValueFilterInterface;
 import datawave.query.function.RemoveGroupingContext;
+import datawave.query.function.deserializer.ColumnarDocumentDeserializer;
+import datawave.query.function.deserializer.DocumentDeserializer;
 import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.deserializer.PooledKryoDocumentDeserializer;
+import datawave.query.function.serializer.ColumnarDocumentSerializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
+import datawave.query.function.serializer.PooledKryoDocumentSerializer;
 import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
 import datawave.query.iterator.aggregation.DocumentData;
@@ -361,8 +366,8 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
             // Create the pipeline iterator for document aggregation and
             // evaluation within a thread pool
             PipelineIterator pipelineIter = PipelineFactory.createIterator(this.seekKeySource, getMaxEvaluationPipelines(), getMaxPipelineCachedResults(),
-                            getSerialPipelineRequest(), querySpanCollector, trackingSpan, this, sourceForDeepCopies.deepCopy(myEnvironment), myEnvironment,
-                            yield, yieldThresholdMs);
+                            getSerialPipelineRequest(), getEvaluationPipelineBatchSize(), querySpanCollector, trackingSpan, this,
+                            sourceForDeepCopies.deepCopy(myEnvironment), myEnvironment, yield, yieldThresholdMs);
             
             pipelineIter.setCollectTimingDetails(collectTimingDetails);
             // TODO pipelineIter.setStatsdHostAndPort(statsdHostAndPort);
@@ -382,7 +387,20 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
             // now apply the unique transform if requested
             UniqueTransform uniquify = getUniqueTransform();
             if (uniquify != null) {
-                pipelineDocuments = Iterators.filter(pipelineDocuments, uniquify.getUniquePredicate());
+                Predicate<Entry<Key,Document>> unique = uniquify.getUniquePredicate();
+                QueryStatsDClient client = getStatsdClient();
+                if (client != null) {
+                    // report the duplicates removed by this tserver
+                    Predicate<Entry<Key,Document>> uniqueDocument = unique;
+                    unique = keyDocumentEntry -> {
+                        boolean isUnique = uniqueDocument.apply(keyDocumentEntry);
+                        if (!isUnique) {
+                            client.uniqueDuplicate();
+                        }
+                        return isUnique;
+                    };
+                }
+                pipelineDocuments = Iterators.filter(pipelineDocuments, unique);
             }
             
             // apply the grouping transform if requested and if the batch size is greater than zero
@@ -404,6 +422,13 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
             if (this.getReturnType() == ReturnType.kryo) {
                 // Serialize the Document using Kryo
                 this.serializedDocuments = Iterators.transform(pipelineDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+            } else if (this.getReturnType() == ReturnType.pooledkryo) {
+                // Serialize the Document using pooled Kryo instances and registered Attribute classes
+                this.serializedDocuments = Iterators.transform(pipelineDocuments, new PooledKryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+            } else if (this.getReturnType() == ReturnType.columnar) {
+                // Pack batches of Documents into columnar blocks
+                this.serializedDocuments = new ColumnarBatchingIterator(pipelineDocuments, new ColumnarDocumentSerializer(isReducedResponse(),
+                                isCompressResults()), getColumnarBatchSize(), getColumnarBatchBytes(), yield);
             } else if (this.getReturnType() == ReturnType.writable) {
                 // Use the Writable interface to serialize the Document
                 this.serializedDocuments = Iterators.transform(pipelineDocuments, new WritableDocumentSerializer(isReducedResponse()));
@@ -415,9 +440,8 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
             }
             
             if (log.isTraceEnabled()) {
-                KryoDocumentDeserializer dser = new KryoDocumentDeserializer();
                 this.serializedDocuments = Iterators.filter(this.serializedDocuments, keyValueEntry -> {
-                    log.trace("after serializing, keyValueEntry:" + dser.apply(keyValueEntry));
+                    log.trace("after serializing, keyValueEntry:" + deserializeForLogging(keyValueEntry));
                     return true;
                 });
             }
@@ -439,9 +463,8 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
                                 this.getReturnType(), this.isReducedResponse(), this.isCompressResults(), this.yield);
             }
             if (log.isTraceEnabled()) {
-                KryoDocumentDeserializer dser = new KryoDocumentDeserializer();
                 this.serializedDocuments = Iterators.filter(this.serializedDocuments, keyValueEntry -> {
-                    log.debug("finally, considering:" + dser.apply(keyValueEntry));
+                    log.debug("finally, considering:" + deserializeForLogging(keyValueEntry));
                     return true;
                 });
             }
@@ -1029,6 +1052,18 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
         }
     }
     
+    /**
+     * Deserialize a serialized result so that it can be logged
+     */
+    private Object deserializeForLogging(Entry<Key,Value> keyValueEntry) {
+        if (this.getReturnType() == ReturnType.columnar) {
+            ColumnarDocumentDeserializer dser = new ColumnarDocumentDeserializer();
+            return Lists.newArrayList(Iterators.transform(dser.expand(keyValueEntry), dser::apply));
+        }
+        DocumentDeserializer dser = (this.getReturnType() == ReturnType.pooledkryo ? new PooledKryoDocumentDeserializer() : new KryoDocumentDeserializer());
+        return dser.apply(keyValueEntry);
+    }
+    
     private void prepareKeyValue(Span span) {
         if (this.serializedDocuments.hasNext()) {
             Entry<Key,Value> entry = this.serializedDocuments.next();
@@ -1287,6 +1322,8 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
                         .setIvaratorCacheScanPersistThreshold(this.getIvaratorCacheScanPersistThreshold())
                         .setIvaratorCacheScanTimeout(this.getIvaratorCacheScanTimeout()).setMaxRangeSplit(this.getMaxIndexRangeSplit())
                         .setIvaratorMaxOpenFiles(this.getIvaratorMaxOpenFiles()).setIvaratorSources(this, this.getMaxIvaratorSources())
+                        .setIvaratorSpillBackend(this.getIvaratorSpillBackend()).setIvaratorLocalSpillDirs(this.getIvaratorLocalSpillDirs())
+                        .setIvaratorLocalSpillMinFreeBytes(this.getIvaratorLocalSpillMinFreeBytes())
                         .setIncludes(indexedFields).setTermFrequencyFields(this.getTermFrequencyFields()).setIsQueryFullySatisfied(isQueryFullySatisfied)
                         .setSortedUIDs(sortedUIDs).limit(documentRange).disableIndexOnly(disableFiEval).limit(this.sourceLimit)
                         .setCollectTimingDetails(this.collectTimingDetails).setQuerySpanCollector(this.querySpanCollector)
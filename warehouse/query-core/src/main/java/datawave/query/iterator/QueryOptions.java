@@ -14,6 +14,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import datawave.core.iterators.ColumnRangeIterator;
+import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl;
 import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl.HdfsBackedControl;
 import datawave.core.iterators.filesystem.FileSystemCache;
 import datawave.core.iterators.querylock.QueryLock;
@@ -45,6 +46,7 @@ import datawave.query.statsd.QueryStatsDClient;
 import datawave.query.tables.async.Scan;
 import datawave.query.util.TypeMetadata;
 import datawave.query.util.TypeMetadataProvider;
+import datawave.query.util.sortedset.SpillBackend;
 import datawave.util.StringUtils;
 import datawave.util.UniversalSet;
 import org.apache.accumulo.core.data.Key;
@@ -199,6 +201,12 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String MAX_IVARATOR_OPEN_FILES = "max.ivarator.open.files";
     
+    public static final String IVARATOR_SPILL_BACKEND = "ivarator.spill.backend";
+    
+    public static final String IVARATOR_LOCAL_SPILL_DIRS = "ivarator.local.spill.dirs";
+    
+    public static final String IVARATOR_LOCAL_SPILL_MIN_FREE_BYTES = "ivarator.local.spill.min.free.bytes";
+    
     public static final String MAX_IVARATOR_SOURCES = "max.ivarator.sources";
     
     public static final String COMPRESS_SERVER_SIDE_RESULTS = "compress.server.side.results";
@@ -209,6 +217,12 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String MAX_PIPELINE_CACHED_RESULTS = "max.pipeline.cached.results";
     
+    public static final String EVALUATION_PIPELINE_BATCH_SIZE = "evaluation.pipeline.batch.size";
+    
+    public static final String COLUMNAR_BATCH_SIZE = "columnar.batch.size";
+    
+    public static final String COLUMNAR_BATCH_BYTES = "columnar.batch.bytes";
+    
     public static final String BATCHED_QUERY = "query.iterator.batch";
     
     public static final String BATCHED_QUERY_RANGE_PREFIX = "query.iterator.batch.range.";
@@ -263,6 +277,9 @@ public class QueryOptions implements OptionDescriber {
     
     protected int maxEvaluationPipelines = 25;
     protected int maxPipelineCachedResults = 25;
+    protected int evaluationPipelineBatchSize = 1;
+    protected int columnarBatchSize = 100;
+    protected long columnarBatchBytes = 1024L * 1024L;
     
     protected Set<String> indexOnlyFields = Sets.newHashSet();
     protected Set<String> ignoreColumnFamilies = Sets.newHashSet();
@@ -305,6 +322,9 @@ public class QueryOptions implements OptionDescriber {
     
     protected int maxIndexRangeSplit = 11;
     protected int ivaratorMaxOpenFiles = 100;
+    protected SpillBackend ivaratorSpillBackend = SpillBackend.HDFS;
+    protected List<String> ivaratorLocalSpillDirs = Collections.emptyList();
+    protected long ivaratorLocalSpillMinFreeBytes = DatawaveFieldIndexCachingIteratorJexl.DEFAULT_LOCAL_SPILL_MIN_FREE_BYTES;
     
     protected int maxIvaratorSources = 33;
     
@@ -425,6 +445,9 @@ public class QueryOptions implements OptionDescriber {
         this.hdfsFileCompressionCodec = other.hdfsFileCompressionCodec;
         this.maxIndexRangeSplit = other.maxIndexRangeSplit;
         this.ivaratorMaxOpenFiles = other.ivaratorMaxOpenFiles;
+        this.ivaratorSpillBackend = other.ivaratorSpillBackend;
+        this.ivaratorLocalSpillDirs = other.ivaratorLocalSpillDirs;
+        this.ivaratorLocalSpillMinFreeBytes = other.ivaratorLocalSpillMinFreeBytes;
         this.maxIvaratorSources = other.maxIvaratorSources;
         
         this.yieldThresholdMs = other.yieldThresholdMs;
@@ -872,6 +895,38 @@ public class QueryOptions implements OptionDescriber {
         this.ivaratorMaxOpenFiles = ivaratorMaxOpenFiles;
     }
     
+    public SpillBackend getIvaratorSpillBackend() {
+        return ivaratorSpillBackend;
+    }
+    
+    public void setIvaratorSpillBackend(SpillBackend ivaratorSpillBackend) {
+        this.ivaratorSpillBackend = ivaratorSpillBackend;
+    }
+    
+    public List<String> getIvaratorLocalSpillDirs() {
+        return ivaratorLocalSpillDirs;
+    }
+    
+    public void setIvaratorLocalSpillDirs(List<String> ivaratorLocalSpillDirs) {
+        this.ivaratorLocalSpillDirs = ivaratorLocalSpillDirs;
+    }
+    
+    public void setIvaratorLocalSpillDirs(String ivaratorLocalSpillDirs) {
+        if (ivaratorLocalSpillDirs == null || ivaratorLocalSpillDirs.isEmpty()) {
+            this.ivaratorLocalSpillDirs = Collections.emptyList();
+        } else {
+            this.ivaratorLocalSpillDirs = Arrays.asList(StringUtils.split(ivaratorLocalSpillDirs, ','));
+        }
+    }
+    
+    public long getIvaratorLocalSpillMinFreeBytes() {
+        return ivaratorLocalSpillMinFreeBytes;
+    }
+    
+    public void setIvaratorLocalSpillMinFreeBytes(long ivaratorLocalSpillMinFreeBytes) {
+        this.ivaratorLocalSpillMinFreeBytes = ivaratorLocalSpillMinFreeBytes;
+    }
+    
     public int getMaxIvaratorSources() {
         return maxIvaratorSources;
     }
@@ -1040,6 +1095,11 @@ public class QueryOptions implements OptionDescriber {
                         "The maximum number of ranges to split a field index scan (ivarator) range into for multithreading.  Note the thread pool size is controlled via an accumulo property.");
         options.put(MAX_IVARATOR_OPEN_FILES,
                         "The maximum number of files that can be opened at one time during a merge sort.  If more that this number of files are created, then compactions will occur");
+        options.put(IVARATOR_SPILL_BACKEND,
+                        "Where ivarators persist their sorted sets: hdfs (the ivarator cache dirs) or local (memory mapped files in the local spill dirs).  Default is hdfs.");
+        options.put(IVARATOR_LOCAL_SPILL_DIRS, "A comma-delimited list of local directories used by ivarators when the spill backend is local");
+        options.put(IVARATOR_LOCAL_SPILL_MIN_FREE_BYTES,
+                        "The free space a local spill directory must have to be used; when no directory qualifies the ivarator cache dirs are used.  Default is 1GB.");
         options.put(MAX_IVARATOR_SOURCES,
                         " The maximum number of sources to use for ivarators across all ivarated terms within the query.  Note the thread pool size is controlled via an accumulo property.");
         options.put(YIELD_THRESHOLD_MS,
@@ -1048,6 +1108,10 @@ public class QueryOptions implements OptionDescriber {
         options.put(MAX_EVALUATION_PIPELINES, "The max number of evaluation pipelines");
         options.put(SERIAL_EVALUATION_PIPELINE, "Forces us to use the serial pipeline. Allows us to still have a single thread for evaluation");
         options.put(MAX_PIPELINE_CACHED_RESULTS, "The max number of non-null evaluated results to cache beyond the evaluation pipelines in queue");
+        options.put(EVALUATION_PIPELINE_BATCH_SIZE,
+                        "The number of documents each evaluation pipeline evaluates per task.  A value greater than 1 enables the batched pipeline.  Default is 1.");
+        options.put(COLUMNAR_BATCH_SIZE, "The max number of documents packed into each result when the return type is columnar.  Default is 100.");
+        options.put(COLUMNAR_BATCH_BYTES, "The estimated size of the documents in bytes at which a columnar result is returned.  Default is 1048576.");
         options.put(DATE_INDEX_TIME_TRAVEL, "Whether the shards from before the event should be gathered from the dateIndex");
         
         options.put(SORTED_UIDS,
@@ -1415,6 +1479,18 @@ public class QueryOptions implements OptionDescriber {
             this.setIvaratorMaxOpenFiles(Integer.parseInt(options.get(MAX_IVARATOR_OPEN_FILES)));
         }
         
+        if (options.containsKey(IVARATOR_SPILL_BACKEND)) {
+            this.setIvaratorSpillBackend(SpillBackend.parse(options.get(IVARATOR_SPILL_BACKEND)));
+        }
+        
+        if (options.containsKey(IVARATOR_LOCAL_SPILL_DIRS)) {
+            this.setIvaratorLocalSpillDirs(options.get(IVARATOR_LOCAL_SPILL_DIRS));
+        }
+        
+        if (options.containsKey(IVARATOR_LOCAL_SPILL_MIN_FREE_BYTES)) {
+            this.setIvaratorLocalSpillMinFreeBytes(Long.parseLong(options.get(IVARATOR_LOCAL_SPILL_MIN_FREE_BYTES)));
+        }
+        
         if (options.containsKey(MAX_IVARATOR_SOURCES)) {
             this.setMaxIvaratorSources(Integer.parseInt(options.get(MAX_IVARATOR_SOURCES)));
         }
@@ -1439,6 +1515,18 @@ public class QueryOptions implements OptionDescriber {
             this.setMaxPipelineCachedResults(Integer.parseInt(options.get(MAX_PIPELINE_CACHED_RESULTS)));
         }
         
+        if (options.containsKey(EVALUATION_PIPELINE_BATCH_SIZE)) {
+            this.setEvaluationPipelineBatchSize(Integer.parseInt(options.get(EVALUATION_PIPELINE_BATCH_SIZE)));
+        }
+        
+        if (options.containsKey(COLUMNAR_BATCH_SIZE)) {
+            this.setColumnarBatchSize(Integer.parseInt(options.get(COLUMNAR_BATCH_SIZE)));
+        }
+        
+        if (options.containsKey(COLUMNAR_BATCH_BYTES)) {
+            this.setColumnarBatchBytes(Long.parseLong(options.get(COLUMNAR_BATCH_BYTES)));
+        }
+        
         if (options.containsKey(TERM_FREQUENCIES_REQUIRED)) {
             this.setTermFrequenciesRequired(Boolean.parseBoolean(options.get(TERM_FREQUENCIES_REQUIRED)));
         }
@@ -1830,6 +1918,30 @@ public class QueryOptions implements OptionDescriber {
         this.maxPipelineCachedResults = maxCachedResults;
     }
     
+    public int getEvaluationPipelineBatchSize() {
+        return evaluationPipelineBatchSize;
+    }
+    
+    public void setEvaluationPipelineBatchSize(int evaluationPipelineBatchSize) {
+        this.evaluationPipelineBatchSize = evaluationPipelineBatchSize;
+    }
+    
+    public int getColumnarBatchSize() {
+        return columnarBatchSize;
+    }
+    
+    public void setColumnarBatchSize(int columnarBatchSize) {
+        this.columnarBatchSize = columnarBatchSize;
+    }
+    
+    public long getColumnarBatchBytes() {
+        return columnarBatchBytes;
+    }
+    
+    public void setColumnarBatchBytes(long columnarBatchBytes) {
+        this.columnarBatchBytes = columnarBatchBytes;
+    }
+    
     public String getStatsdHostAndPort() {
         return statsdHostAndPort;
     }
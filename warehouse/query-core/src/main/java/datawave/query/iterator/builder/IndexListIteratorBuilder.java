@@ -103,6 +103,7 @@ public class IndexListIteratorBuilder extends IvaratorBuilder implements Iterato
                                     .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).allowDirResuse(true)
                                     .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
                                     .withCompositeMetadata(compositeMetadata).withCompositeSeekThreshold(compositeSeekThreshold).withTypeMetadata(typeMetadata)
+                                    .withSpillBackend(spillBackend).withLocalSpillDirs(localSpillDirs).withLocalSpillMinFreeBytes(localSpillMinFreeBytes)
                                     .build();
                     
                 } else {
@@ -114,6 +115,7 @@ public class IndexListIteratorBuilder extends IvaratorBuilder implements Iterato
                                     .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).allowDirResuse(true)
                                     .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
                                     .withCompositeMetadata(compositeMetadata).withCompositeSeekThreshold(compositeSeekThreshold).withTypeMetadata(typeMetadata)
+                                    .withSpillBackend(spillBackend).withLocalSpillDirs(localSpillDirs).withLocalSpillMinFreeBytes(localSpillMinFreeBytes)
                                     .build();
                     
                 }
@@ -71,6 +71,7 @@ public class IndexRangeIteratorBuilder extends IvaratorBuilder implements Iterat
                                 .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).allowDirResuse(true)
                                 .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
                                 .withCompositeMetadata(compositeMetadata).withCompositeSeekThreshold(compositeSeekThreshold).withTypeMetadata(typeMetadata)
+                                .withSpillBackend(spillBackend).withLocalSpillDirs(localSpillDirs).withLocalSpillMinFreeBytes(localSpillMinFreeBytes)
                                 .build();
                 
                 if (collectTimingDetails) {
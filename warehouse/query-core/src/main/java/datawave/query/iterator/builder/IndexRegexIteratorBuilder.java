@@ -64,6 +64,7 @@ public class IndexRegexIteratorBuilder extends IvaratorBuilder implements Iterat
                                 .withFileSystem(hdfsFileSystem).withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).allowDirResuse(true)
                                 .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
                                 .withCompositeMetadata(compositeMetadata).withCompositeSeekThreshold(compositeSeekThreshold).withTypeMetadata(typeMetadata)
+                                .withSpillBackend(spillBackend).withLocalSpillDirs(localSpillDirs).withLocalSpillMinFreeBytes(localSpillMinFreeBytes)
                                 .build();
                 
                 if (collectTimingDetails) {
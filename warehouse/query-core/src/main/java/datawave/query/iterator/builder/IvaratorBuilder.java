@@ -1,10 +1,15 @@
 package datawave.query.iterator.builder;
 
+import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.query.composite.CompositeMetadata;
 import datawave.query.iterator.profile.QuerySpanCollector;
+import datawave.query.util.sortedset.SpillBackend;
 import org.apache.hadoop.fs.FileSystem;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * A base class used to build ivarators
  */
@@ -23,6 +28,9 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
     protected QuerySpanCollector querySpanCollector = null;
     protected CompositeMetadata compositeMetadata;
     protected int compositeSeekThreshold;
+    protected SpillBackend spillBackend = SpillBackend.HDFS;
+    protected List<String> localSpillDirs = Collections.emptyList();
+    protected long localSpillMinFreeBytes = DatawaveFieldIndexCachingIteratorJexl.DEFAULT_LOCAL_SPILL_MIN_FREE_BYTES;
     
     public FileSystem getHdfsFileSystem() {
         return hdfsFileSystem;
@@ -119,4 +127,28 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
     public void setCompositeSeekThreshold(int compositeSeekThreshold) {
         this.compositeSeekThreshold = compositeSeekThreshold;
     }
+    
+    public SpillBackend getSpillBackend() {
+        return spillBackend;
+    }
+    
+    public void setSpillBackend(SpillBackend spillBackend) {
+        this.spillBackend = spillBackend;
+    }
+    
+    public List<String> getLocalSpillDirs() {
+        return localSpillDirs;
+    }
+    
+    public void setLocalSpillDirs(List<String> localSpillDirs) {
+        this.localSpillDirs = localSpillDirs;
+    }
+    
+    public long getLocalSpillMinFreeBytes() {
+        return localSpillMinFreeBytes;
+    }
+    
+    public void setLocalSpillMinFreeBytes(long localSpillMinFreeBytes) {
+        this.localSpillMinFreeBytes = localSpillMinFreeBytes;
+    }
 }
@@ -36,7 +36,9 @@ import datawave.query.function.DocumentCountCardinality;
 import datawave.query.function.JexlEvaluation;
 import datawave.query.function.KeyToDocumentData;
 import datawave.query.function.MinimumEstimation;
+import datawave.query.function.serializer.ColumnarDocumentSerializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
+import datawave.query.function.serializer.PooledKryoDocumentSerializer;
 import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
 import datawave.query.iterator.AccumuloTreeIterable;
@@ -257,6 +259,12 @@ public class DynamicFacetIterator extends FieldIndexOnlyQueryIterator {
         if (this.getReturnType() == ReturnType.kryo) {
             // Serialize the Document using Kryo
             this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+        } else if (this.getReturnType() == ReturnType.pooledkryo) {
+            // Serialize the Document using pooled Kryo instances and registered Attribute classes
+            this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new PooledKryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+        } else if (this.getReturnType() == ReturnType.columnar) {
+            // Serialize each Document as a columnar block of one
+            this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new ColumnarDocumentSerializer(isReducedResponse(), isCompressResults()));
         } else if (this.getReturnType() == ReturnType.writable) {
             // Use the Writable interface to serialize the Document
             this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new WritableDocumentSerializer(isReducedResponse()));
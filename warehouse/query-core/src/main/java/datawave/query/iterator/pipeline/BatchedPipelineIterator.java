@@ -0,0 +1,366 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import datawave.core.iterators.IteratorThreadPoolManager;
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.NestedQuery;
+import datawave.query.iterator.NestedQueryIterator;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.YieldCallbackWrapper;
+import datawave.query.iterator.profile.QuerySpan;
+import datawave.query.iterator.profile.QuerySpanCollector;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IterationInterruptedException;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A pipeline iterator that evaluates runs of up to batchSize documents per task instead of one document per task. Each batch is assigned a sequence number
+ * when it is submitted, and the evaluation threads publish completed batches into a bounded ring buffer indexed by that sequence number. The consuming thread
+ * takes the batches out of the ring strictly in sequence order, so the results are returned in the same order as the {@link PipelineIterator} would return
+ * them, without locking or polling futures.
+ *
+ * The ring has one slot per pipeline and a pipeline is checked out for every batch in flight, so a slot is never reused before it has been consumed.
+ *
+ * Yielding follows the {@link PipelineIterator}: we only yield when no results are cached, and we yield at the last key of the last batch consumed.
+ */
+public class BatchedPipelineIterator extends PipelineIterator {
+    
+    private static final Logger log = Logger.getLogger(BatchedPipelineIterator.class);
+    
+    protected final int batchSize;
+    // the completed batches, indexed by sequence number modulo the number of pipelines
+    protected final AtomicReferenceArray<PipelineBatch> ring;
+    // the batches submitted but not yet consumed, in sequence order
+    protected final Queue<PipelineBatch> inFlight;
+    // batches available for reuse
+    protected final Queue<PipelineBatch> freeBatches;
+    // the sequence number of the next batch to submit
+    protected long submitSequence = 0;
+    // the sequence number of the next batch to consume
+    protected long consumeSequence = 0;
+    // the thread waiting on the ring, unparked by the evaluation threads when a batch is published
+    protected volatile Thread waiter = null;
+    
+    // a document pulled from the source that could not be added to the previous batch
+    private Key pendingKey = null;
+    private Document pendingDocument = null;
+    private NestedQuery<Key> pendingNestedQuery = null;
+    
+    public BatchedPipelineIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, int batchSize,
+                    QuerySpanCollector querySpanCollector, QuerySpan querySpan, QueryIterator sourceIterator,
+                    SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env, YieldCallbackWrapper<Key> yieldCallback,
+                    long yieldThresholdMs) {
+        super(documents, maxPipelines, maxCachedResults, querySpanCollector, querySpan, sourceIterator, sourceForDeepCopy, env, yieldCallback, yieldThresholdMs);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The pipeline batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.ring = new AtomicReferenceArray<>(maxPipelines);
+        this.inFlight = new ArrayDeque<>(maxPipelines);
+        this.freeBatches = new ArrayDeque<>(maxPipelines);
+    }
+    
+    @Override
+    public boolean hasNext() {
+        Entry<Key,Document> next = getNext(false);
+        if (log.isTraceEnabled()) {
+            log.trace("QueryIterator.hasNext() -> " + (next == null ? null : next.getKey()));
+        }
+        return (next != null);
+    }
+    
+    @Override
+    public Entry<Key,Document> next() {
+        Entry<Key,Document> next = getNext(true);
+        if (log.isTraceEnabled()) {
+            log.trace("QueryIterator.next() -> " + (next == null ? null : next.getKey()));
+        }
+        return next;
+    }
+    
+    @Override
+    public void startPipeline() {
+        // start up to maxPipeline batches
+        while (inFlight.size() < pipelines.maxPipelines && submitNextBatch()) {
+            // keep submitting
+        }
+    }
+    
+    /**
+     * Get the next non-null result. Pop/remove that result as specified.
+     *
+     * @param remove
+     * @return the next non-null entry. null if there are no more entries to get.
+     */
+    private Entry<Key,Document> getNext(boolean remove) {
+        try {
+            // cache the next non-null results if we do not already have any
+            if (results.isEmpty()) {
+                cacheNextResults();
+            }
+            
+            // flush any completed batches to the results queue
+            flushCompletedBatches();
+            
+            if (log.isTraceEnabled()) {
+                log.trace("getNext(" + remove + ") in flight: " + inFlight.size() + " cached: " + results.size());
+            }
+            
+            if (results.isEmpty()) {
+                return null;
+            }
+            return (remove ? results.poll() : results.peek());
+        } catch (Exception e) {
+            // cancel out existing executions
+            cancel();
+            log.error("Failed to retrieve evaluation pipeline result", e);
+            throw new RuntimeException("Failed to retrieve evaluation pipeline result", e);
+        }
+    }
+    
+    /**
+     * Consume batches in sequence order until we have at least one non-null result or there is nothing left to evaluate
+     */
+    private void cacheNextResults() throws InterruptedException {
+        long startMs = System.currentTimeMillis();
+        while (results.isEmpty() && consumeSequence < submitSequence) {
+            PipelineBatch batch;
+            // we must have at least evaluated one thing in order to yield, otherwise we will have not progressed at all
+            if (yield != null && lastKeyEvaluated != null) {
+                long remaining = yieldThresholdMs - (System.currentTimeMillis() - startMs);
+                batch = (remaining > 0 ? take(remaining) : null);
+                if (batch == null) {
+                    yield.yield(lastKeyEvaluated);
+                    throw new IterationInterruptedException("Yielding at " + lastKeyEvaluated);
+                }
+            } else {
+                batch = take(Long.MAX_VALUE);
+            }
+            consume(batch);
+        }
+    }
+    
+    /**
+     * Consume the batches that are already complete, in sequence order, up to the max number of cached results
+     */
+    private void flushCompletedBatches() {
+        while (consumeSequence < submitSequence && results.size() < maxResults) {
+            PipelineBatch batch = ring.get(slot(consumeSequence));
+            if (batch == null) {
+                break;
+            }
+            consume(batch);
+        }
+    }
+    
+    /**
+     * Wait for the batch with the next sequence number to be published
+     *
+     * @param waitMs
+     *            the maximum time to wait, Long.MAX_VALUE to wait indefinitely
+     * @return the batch, or null if it was not published in time
+     */
+    private PipelineBatch take(long waitMs) throws InterruptedException {
+        int slot = slot(consumeSequence);
+        PipelineBatch batch = ring.get(slot);
+        if (batch != null) {
+            return batch;
+        }
+        
+        long start = System.currentTimeMillis();
+        long deadline = (waitMs == Long.MAX_VALUE ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs));
+        // publish the waiter before checking the slot again so that a batch completing in between will unpark us
+        waiter = Thread.currentThread();
+        try {
+            while ((batch = ring.get(slot)) == null) {
+                if (waitMs == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Interrupted waiting for pipeline batch " + consumeSequence);
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+        
+        if (log.isDebugEnabled()) {
+            long wait = System.currentTimeMillis() - start;
+            log.debug("Waited " + wait + "ms for the top batch in a queue of " + inFlight.size() + " batches");
+        }
+        return batch;
+    }
+    
+    /**
+     * Move the results of the next batch into the results queue, and reuse its pipeline to start the next batch.
+     */
+    private void consume(PipelineBatch batch) {
+        ring.set(slot(consumeSequence), null);
+        consumeSequence++;
+        inFlight.poll();
+        
+        if (batch.error != null) {
+            Key docKey = batch.keys.get(batch.evaluated);
+            log.error("Failed evaluating " + docKey + "; cancelling remaining evaluations and flushing results", batch.error);
+            pipelines.checkIn(batch.pipeline);
+            throw new RuntimeException("Failed evaluating " + docKey, batch.error);
+        }
+        
+        results.addAll(batch.results);
+        lastKeyEvaluated = batch.keys.get(batch.keys.size() - 1);
+        
+        // return the pipeline and batch for reuse
+        pipelines.checkIn(batch.pipeline);
+        batch.clear();
+        freeBatches.add(batch);
+        
+        // start a new evaluation if we can
+        submitNextBatch();
+    }
+    
+    /**
+     * Pull up to batchSize documents from the source and submit them for evaluation on a single pipeline. A batch is cut short when the nested query changes,
+     * since a pipeline evaluates against a single nested query.
+     *
+     * @return true if a batch was submitted, false if the source is exhausted
+     */
+    private boolean submitNextBatch() {
+        PipelineBatch batch = null;
+        while (batch == null || batch.keys.size() < batchSize) {
+            if (pendingKey == null) {
+                if (!docSource.hasNext()) {
+                    break;
+                }
+                pendingKey = docSource.next();
+                pendingDocument = docSource.document();
+                pendingNestedQuery = (docSource instanceof NestedQueryIterator ? ((NestedQueryIterator<Key>) docSource).getNestedQuery() : null);
+            }
+            
+            if (batch == null) {
+                Pipeline pipeline = pipelines.checkOut(pendingKey, pendingDocument, pendingNestedQuery);
+                batch = (freeBatches.isEmpty() ? new PipelineBatch(batchSize) : freeBatches.poll());
+                batch.pipeline = pipeline;
+                batch.nestedQuery = pendingNestedQuery;
+            } else if (batch.nestedQuery != pendingNestedQuery) {
+                break;
+            }
+            
+            batch.keys.add(pendingKey);
+            batch.documents.add(pendingDocument);
+            pendingKey = null;
+            pendingDocument = null;
+            pendingNestedQuery = null;
+        }
+        
+        if (batch == null) {
+            return false;
+        }
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Adding evaluation of " + batch.keys.size() + " documents starting at " + batch.keys.get(0) + " to pipeline");
+        }
+        batch.sequence = submitSequence++;
+        inFlight.add(batch);
+        batch.future = IteratorThreadPoolManager.executeEvaluation(batch, batch.pipeline.toString());
+        if (collectTimingDetails) {
+            querySpanCollector.addQuerySpan(querySpan);
+        }
+        return true;
+    }
+    
+    private int slot(long sequence) {
+        return (int) (sequence % ring.length());
+    }
+    
+    /**
+     * Cancel all of the queued evaluations
+     */
+    private void cancel() {
+        PipelineBatch batch;
+        while ((batch = inFlight.poll()) != null) {
+            batch.future.cancel(true);
+            pipelines.checkIn(batch.pipeline);
+        }
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+        consumeSequence = submitSequence;
+        results.clear();
+    }
+    
+    /**
+     * A run of documents evaluated sequentially on one pipeline by one evaluation thread
+     */
+    protected class PipelineBatch implements Runnable {
+        private final List<Key> keys;
+        private final List<Document> documents;
+        private final List<Entry<Key,Document>> results;
+        private Pipeline pipeline;
+        private NestedQuery<Key> nestedQuery;
+        private long sequence;
+        private Future<?> future;
+        private int evaluated;
+        private volatile Throwable error;
+        
+        PipelineBatch(int batchSize) {
+            this.keys = new ArrayList<>(batchSize);
+            this.documents = new ArrayList<>(batchSize);
+            this.results = new ArrayList<>(batchSize);
+        }
+        
+        @Override
+        public void run() {
+            try {
+                for (evaluated = 0; evaluated < keys.size(); evaluated++) {
+                    pipeline.setSource(Maps.immutableEntry(keys.get(evaluated), documents.get(evaluated)));
+                    pipeline.run();
+                    Entry<Key,Document> result = pipeline.getResult();
+                    if (result != null) {
+                        results.add(result);
+                    }
+                }
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                // publishing the batch is the happens-before edge for everything written above
+                ring.set(slot(sequence), this);
+                Thread consumer = waiter;
+                if (consumer != null) {
+                    LockSupport.unpark(consumer);
+                }
+            }
+        }
+        
+        void clear() {
+            keys.clear();
+            documents.clear();
+            results.clear();
+            pipeline = null;
+            nestedQuery = null;
+            future = null;
+            evaluated = 0;
+            error = null;
+        }
+    }
+}
@@ -4,7 +4,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import datawave.query.function.serializer.ColumnarDocumentSerializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
+import datawave.query.function.serializer.PooledKryoDocumentSerializer;
 import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.iterator.YieldCallbackWrapper;
 import org.apache.accumulo.core.data.ArrayByteSequence;
@@ -98,6 +100,12 @@ public class FinalDocumentTrackingIterator implements Iterator<Map.Entry<Key,Val
         if (returnType == DocumentSerialization.ReturnType.kryo) {
             // Serialize the Document using Kryo
             serializedDocuments = Iterators.transform(emptyDocumentIterator, new KryoDocumentSerializer(isReducedResponse, isCompressResults));
+        } else if (returnType == DocumentSerialization.ReturnType.pooledkryo) {
+            // Serialize the Document using pooled Kryo instances and registered Attribute classes
+            serializedDocuments = Iterators.transform(emptyDocumentIterator, new PooledKryoDocumentSerializer(isReducedResponse, isCompressResults));
+        } else if (returnType == DocumentSerialization.ReturnType.columnar) {
+            // Serialize each Document as a columnar block of one
+            serializedDocuments = Iterators.transform(emptyDocumentIterator, new ColumnarDocumentSerializer(isReducedResponse, isCompressResults));
         } else if (returnType == DocumentSerialization.ReturnType.writable) {
             // Use the Writable interface to serialize the Document
             serializedDocuments = Iterators.transform(emptyDocumentIterator, new WritableDocumentSerializer(isReducedResponse));
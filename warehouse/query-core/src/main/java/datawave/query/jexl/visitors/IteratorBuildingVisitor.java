@@ -5,6 +5,7 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl;
 import datawave.core.iterators.SourcePool;
 import datawave.core.iterators.ThreadLocalPooledSource;
 import datawave.core.iterators.filesystem.FileSystemCache;
@@ -49,6 +50,7 @@ import datawave.query.predicate.Filter;
 import datawave.query.predicate.TimeFilter;
 import datawave.query.util.IteratorToSortedKeyValueIterator;
 import datawave.query.util.TypeMetadata;
+import datawave.query.util.sortedset.SpillBackend;
 import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.QueryException;
 import org.apache.accumulo.core.data.Key;
@@ -132,6 +134,9 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     protected int ivaratorCacheBufferSize = 10000;
     protected int maxRangeSplit = 11;
     protected int ivaratorMaxOpenFiles = 100;
+    protected SpillBackend ivaratorSpillBackend = SpillBackend.HDFS;
+    protected List<String> ivaratorLocalSpillDirs = Collections.emptyList();
+    protected long ivaratorLocalSpillMinFreeBytes = DatawaveFieldIndexCachingIteratorJexl.DEFAULT_LOCAL_SPILL_MIN_FREE_BYTES;
     protected SourcePool ivaratorSources = null;
     protected SortedKeyValueIterator<Key,Value> ivaratorSource = null;
     protected int ivaratorCount = 0;
@@ -1226,6 +1231,9 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         builder.setIvaratorCacheScanTimeout(ivaratorCacheScanTimeout);
         builder.setMaxRangeSplit(maxRangeSplit);
         builder.setIvaratorMaxOpenFiles(ivaratorMaxOpenFiles);
+        builder.setSpillBackend(ivaratorSpillBackend);
+        builder.setLocalSpillDirs(ivaratorLocalSpillDirs);
+        builder.setLocalSpillMinFreeBytes(ivaratorLocalSpillMinFreeBytes);
         builder.setCollectTimingDetails(collectTimingDetails);
         builder.setQuerySpanCollector(querySpanCollector);
         builder.setSortedUIDs(sortedUIDs);
@@ -1448,6 +1456,21 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setIvaratorSpillBackend(SpillBackend ivaratorSpillBackend) {
+        this.ivaratorSpillBackend = ivaratorSpillBackend;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setIvaratorLocalSpillDirs(List<String> ivaratorLocalSpillDirs) {
+        this.ivaratorLocalSpillDirs = ivaratorLocalSpillDirs;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setIvaratorLocalSpillMinFreeBytes(long ivaratorLocalSpillMinFreeBytes) {
+        this.ivaratorLocalSpillMinFreeBytes = ivaratorLocalSpillMinFreeBytes;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setIvaratorSources(SourceFactory sourceFactory, int maxIvaratorSources) {
         this.ivaratorSources = new SourcePool(sourceFactory, maxIvaratorSources);
         this.ivaratorSource = new ThreadLocalPooledSource<>(ivaratorSources);
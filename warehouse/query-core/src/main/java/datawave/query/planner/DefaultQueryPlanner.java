@@ -1565,8 +1565,16 @@ public class DefaultQueryPlanner extends QueryPlanner {
                             addOption(cfg, QueryOptions.COLLECT_TIMING_DETAILS, Boolean.toString(config.getCollectTimingDetails()), false);
                             addOption(cfg, QueryOptions.MAX_INDEX_RANGE_SPLIT, Integer.toString(config.getMaxFieldIndexRangeSplit()), false);
                             addOption(cfg, QueryOptions.MAX_IVARATOR_OPEN_FILES, Integer.toString(config.getIvaratorMaxOpenFiles()), false);
+                            addOption(cfg, QueryOptions.IVARATOR_SPILL_BACKEND, config.getIvaratorSpillBackend().name(), false);
+                            if (config.getIvaratorLocalSpillDirs() != null && !config.getIvaratorLocalSpillDirs().isEmpty()) {
+                                addOption(cfg, QueryOptions.IVARATOR_LOCAL_SPILL_DIRS, StringUtils.join(config.getIvaratorLocalSpillDirs(), ','), false);
+                            }
+                            addOption(cfg, QueryOptions.IVARATOR_LOCAL_SPILL_MIN_FREE_BYTES, Long.toString(config.getIvaratorLocalSpillMinFreeBytes()), false);
                             addOption(cfg, QueryOptions.MAX_EVALUATION_PIPELINES, Integer.toString(config.getMaxEvaluationPipelines()), false);
                             addOption(cfg, QueryOptions.MAX_PIPELINE_CACHED_RESULTS, Integer.toString(config.getMaxPipelineCachedResults()), false);
+                            addOption(cfg, QueryOptions.EVALUATION_PIPELINE_BATCH_SIZE, Integer.toString(config.getEvaluationPipelineBatchSize()), false);
+                            addOption(cfg, QueryOptions.COLUMNAR_BATCH_SIZE, Integer.toString(config.getColumnarBatchSize()), false);
+                            addOption(cfg, QueryOptions.COLUMNAR_BATCH_BYTES, Long.toString(config.getColumnarBatchBytes()), false);
                             addOption(cfg, QueryOptions.MAX_IVARATOR_SOURCES, Integer.toString(config.getMaxIvaratorSources()), false);
                             
                             if (config.getYieldThresholdMs() != Long.MAX_VALUE && config.getYieldThresholdMs() > 0) {
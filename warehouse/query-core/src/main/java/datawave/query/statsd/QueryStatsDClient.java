@@ -32,6 +32,7 @@ public class QueryStatsDClient extends ConvenienceMethodProvidingStatsDClient {
     private final AtomicInteger nextCalls = new AtomicInteger(0);
     private final AtomicInteger seekCalls = new AtomicInteger(0);
     private final AtomicInteger sources = new AtomicInteger(0);
+    private final AtomicInteger uniqueDuplicates = new AtomicInteger(0);
     private final Multimap<String,Long> timings;
     private final String prefix;
     
@@ -101,6 +102,11 @@ public class QueryStatsDClient extends ConvenienceMethodProvidingStatsDClient {
                 count("sources", value);
                 flushed = true;
             }
+            value = uniqueDuplicates.getAndSet(0);
+            if (value > 0) {
+                count("unique_duplicates", value);
+                flushed = true;
+            }
             if (!timings.isEmpty()) {
                 synchronized (timings) {
                     if (!timings.isEmpty()) {
@@ -144,13 +150,18 @@ public class QueryStatsDClient extends ConvenienceMethodProvidingStatsDClient {
         flushAsNeeded();
     }
     
+    public void uniqueDuplicate() {
+        uniqueDuplicates.incrementAndGet();
+        flushAsNeeded();
+    }
+    
     public void timing(String call, long time) {
         timings.put(call, time);
         flushAsNeeded();
     }
     
     public int getSize() {
-        return nextCalls.get() + seekCalls.get() + sources.get() + timings.size();
+        return nextCalls.get() + seekCalls.get() + sources.get() + uniqueDuplicates.get() + timings.size();
     }
     
     /**
@@ -0,0 +1,41 @@
+package datawave.query.tables;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import datawave.query.function.deserializer.ColumnarDocumentDeserializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * Splits the columnar blocks returned by the tservers into one entry per document, so that the deduping and the transformer see each document on its own. The
+ * value of each entry still refers to the whole block, which is only decoded once.
+ */
+class ColumnarDocumentIterator implements Iterator<Entry<Key,Value>> {
+    private final Iterator<Entry<Key,Value>> delegate;
+    private final ColumnarDocumentDeserializer deserializer = new ColumnarDocumentDeserializer();
+    private Iterator<Entry<Key,Value>> documents = Collections.emptyIterator();
+    
+    public ColumnarDocumentIterator(Iterator<Entry<Key,Value>> iterator) {
+        this.delegate = iterator;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (!documents.hasNext() && delegate.hasNext()) {
+            documents = deserializer.expand(delegate.next());
+        }
+        return documents.hasNext();
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return documents.next();
+    }
+}
@@ -44,6 +44,7 @@ import datawave.query.util.DateIndexHelperFactory;
 import datawave.query.util.MetadataHelper;
 import datawave.query.util.MetadataHelperFactory;
 import datawave.query.util.QueryStopwatch;
+import datawave.query.util.sortedset.SpillBackend;
 import datawave.util.StringUtils;
 import datawave.util.time.TraceStopwatch;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
@@ -69,6 +70,7 @@ import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.log4j.Logger;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -184,6 +186,9 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     
     private CardinalityConfiguration cardinalityConfiguration = null;
     
+    // the transforms created for this query that hold resources, such as spill files, until they are closed
+    private final List<Closeable> closeableTransforms = Collections.synchronizedList(new ArrayList<>());
+    
     /**
      * Basic constructor
      */
@@ -547,6 +552,10 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.scanner = null;
         this.iterator = this.scheduler.iterator();
         
+        if (config.getReturnType() == DocumentSerialization.ReturnType.columnar) {
+            this.iterator = new ColumnarDocumentIterator(this.iterator);
+        }
+        
         if (!config.isSortedUIDs()) {
             this.iterator = new DedupingIterator(this.iterator);
         }
@@ -586,10 +595,16 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             transformer.setProjectFields(config.getProjectFields());
             transformer.setBlacklistedFields(config.getBlacklistedFields());
             if (config.getUniqueFields() != null && !config.getUniqueFields().isEmpty()) {
-                transformer.addTransform(new UniqueTransform(this, config.getUniqueFields()));
+                UniqueTransform uniqueTransform = new UniqueTransform(this, config.getUniqueFields(), config.getUniqueFieldsMaxMemory(),
+                                config.getUniqueFieldsSpillDir());
+                closeableTransforms.add(uniqueTransform);
+                transformer.addTransform(uniqueTransform);
             }
             if (config.getGroupFields() != null && !config.getGroupFields().isEmpty()) {
-                transformer.addTransform(new GroupingTransform(this, config.getGroupFields()));
+                GroupingTransform groupingTransform = new GroupingTransform(this, config.getGroupFields(), config.getGroupFieldsMaxMemory(),
+                                config.getGroupFieldsSpillDir());
+                closeableTransforms.add(groupingTransform);
+                transformer.addTransform(groupingTransform);
             }
         }
         
@@ -1113,6 +1128,16 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             }
         }
         
+        synchronized (closeableTransforms) {
+            for (Closeable transform : closeableTransforms) {
+                try {
+                    transform.close();
+                } catch (IOException e) {
+                    log.error("Caught exception trying to close " + transform.getClass().getSimpleName(), e);
+                }
+            }
+            closeableTransforms.clear();
+        }
     }
     
     public ShardQueryConfiguration getConfig() {
@@ -1224,10 +1249,42 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         return this.config.getGroupFieldsBatchSize();
     }
     
+    public long getGroupFieldsMaxMemory() {
+        return this.config.getGroupFieldsMaxMemory();
+    }
+    
+    public void setGroupFieldsMaxMemory(long groupFieldsMaxMemory) {
+        this.config.setGroupFieldsMaxMemory(groupFieldsMaxMemory);
+    }
+    
+    public String getGroupFieldsSpillDir() {
+        return this.config.getGroupFieldsSpillDir();
+    }
+    
+    public void setGroupFieldsSpillDir(String groupFieldsSpillDir) {
+        this.config.setGroupFieldsSpillDir(groupFieldsSpillDir);
+    }
+    
     public Set<String> getUniqueFields() {
         return this.config.getUniqueFields();
     }
     
+    public long getUniqueFieldsMaxMemory() {
+        return this.config.getUniqueFieldsMaxMemory();
+    }
+    
+    public void setUniqueFieldsMaxMemory(long uniqueFieldsMaxMemory) {
+        this.config.setUniqueFieldsMaxMemory(uniqueFieldsMaxMemory);
+    }
+    
+    public String getUniqueFieldsSpillDir() {
+        return this.config.getUniqueFieldsSpillDir();
+    }
+    
+    public void setUniqueFieldsSpillDir(String uniqueFieldsSpillDir) {
+        this.config.setUniqueFieldsSpillDir(uniqueFieldsSpillDir);
+    }
+    
     public void setUniqueFields(Set<String> uniqueFields) {
         this.config.setUniqueFields(uniqueFields);
     }
@@ -1671,6 +1728,30 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.config.setIvaratorMaxOpenFiles(ivaratorMaxOpenFiles);
     }
     
+    public String getIvaratorSpillBackend() {
+        return this.config.getIvaratorSpillBackend().name().toLowerCase();
+    }
+    
+    public void setIvaratorSpillBackend(String ivaratorSpillBackend) {
+        this.config.setIvaratorSpillBackend(SpillBackend.parse(ivaratorSpillBackend));
+    }
+    
+    public List<String> getIvaratorLocalSpillDirs() {
+        return this.config.getIvaratorLocalSpillDirs();
+    }
+    
+    public void setIvaratorLocalSpillDirs(List<String> ivaratorLocalSpillDirs) {
+        this.config.setIvaratorLocalSpillDirs(ivaratorLocalSpillDirs);
+    }
+    
+    public long getIvaratorLocalSpillMinFreeBytes() {
+        return this.config.getIvaratorLocalSpillMinFreeBytes();
+    }
+    
+    public void setIvaratorLocalSpillMinFreeBytes(long ivaratorLocalSpillMinFreeBytes) {
+        this.config.setIvaratorLocalSpillMinFreeBytes(ivaratorLocalSpillMinFreeBytes);
+    }
+    
     public int getMaxIvaratorSources() {
         return this.config.getMaxIvaratorSources();
     }
@@ -1695,6 +1776,30 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.config.setMaxPipelineCachedResults(maxCachedResults);
     }
     
+    public int getEvaluationPipelineBatchSize() {
+        return this.config.getEvaluationPipelineBatchSize();
+    }
+    
+    public void setEvaluationPipelineBatchSize(int evaluationPipelineBatchSize) {
+        this.config.setEvaluationPipelineBatchSize(evaluationPipelineBatchSize);
+    }
+    
+    public int getColumnarBatchSize() {
+        return this.config.getColumnarBatchSize();
+    }
+    
+    public void setColumnarBatchSize(int columnarBatchSize) {
+        this.config.setColumnarBatchSize(columnarBatchSize);
+    }
+    
+    public long getColumnarBatchBytes() {
+        return this.config.getColumnarBatchBytes();
+    }
+    
+    public void setColumnarBatchBytes(long columnarBatchBytes) {
+        this.config.setColumnarBatchBytes(columnarBatchBytes);
+    }
+    
     public double getMinimumSelectivity() {
         return this.config.getMinSelectivity();
     }
@@ -0,0 +1,500 @@
+package datawave.query.transformer;
+
+import datawave.data.type.Type;
+import datawave.query.attributes.Attribute;
+import datawave.query.attributes.TypeAttribute;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Counts the distinct groups of field values collected by the {@link GroupingTransform}. Each group is reduced to a compact key holding a column id (the field
+ * name and type) and the value of each of its fields, and is counted with a primitive counter along with the ids of the visibilities it was seen with.
+ * <p>
+ * When a memory budget is set and the estimated size of the groups exceeds it, the groups are sorted by key and spilled to a local file. Once all of the
+ * groups have been added, {@link #drain()} merges the spilled files with the groups still in memory, so only one group per file is held in memory at a time.
+ * Each spilled file is deleted once it has been merged, and {@link #close()} deletes any that remain.
+ */
+public class GroupAggregator implements Closeable {
+    
+    private static final Logger log = Logger.getLogger(GroupAggregator.class);
+    
+    // estimated size of a group in the map, excluding the bytes of its key
+    private static final int GROUP_OVERHEAD = 96;
+    
+    private final long maxMemory;
+    private final File spillDir;
+    
+    // the columns and visibilities seen so far, which the keys and the spilled groups refer to by id
+    private final List<Column> columns = new ArrayList<>();
+    private final Map<String,Integer> columnIds = new HashMap<>();
+    private final List<ColumnVisibility> visibilities = new ArrayList<>();
+    private final Map<ColumnVisibility,Integer> visibilityIds = new HashMap<>();
+    
+    private Map<GroupKey,Counter> groups = new HashMap<>();
+    private long memory = 0;
+    private final List<File> spills = new ArrayList<>();
+    private MergingIterator merging = null;
+    
+    private final ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+    private final DataOutputStream keyOutput = new DataOutputStream(keyBytes);
+    
+    /**
+     * @param maxMemory
+     *            the estimated size of the groups held in memory before they are spilled, or 0 to never spill
+     * @param spillDir
+     *            the directory to spill to, or null for the default temporary directory
+     */
+    public GroupAggregator(long maxMemory, String spillDir) {
+        this.maxMemory = maxMemory;
+        this.spillDir = (spillDir == null ? null : new File(spillDir));
+    }
+    
+    /**
+     * Add to the count of a group
+     *
+     * @param attributes
+     *            the {@link TypeAttribute}s of the group, whose metadata row is the name of the field
+     * @param visibility
+     *            the visibility of the document the group was found in
+     * @param count
+     *            the number of times the group was found
+     */
+    public void add(Collection<Attribute<?>> attributes, ColumnVisibility visibility, long count) {
+        GroupKey key = toKey(attributes);
+        Counter counter = groups.get(key);
+        if (counter == null) {
+            counter = new Counter();
+            groups.put(key, counter);
+            memory += GROUP_OVERHEAD + key.bytes.length;
+        }
+        counter.count += count;
+        if (counter.addVisibility(visibilityId(visibility))) {
+            memory += 4;
+        }
+        
+        if (maxMemory > 0 && memory > maxMemory) {
+            spill();
+        }
+    }
+    
+    /**
+     * @return true if no groups have been added since the last {@link #drain()}
+     */
+    public boolean isEmpty() {
+        return groups.isEmpty() && spills.isEmpty();
+    }
+    
+    /**
+     * @return the number of files the groups have been spilled to since the last {@link #drain()}
+     */
+    public int getSpillCount() {
+        return spills.size();
+    }
+    
+    /**
+     * Return the groups added so far, merging any spilled groups, and start counting anew
+     *
+     * @return the distinct groups and their counts. When groups were spilled they are returned in key order.
+     */
+    public Iterator<Group> drain() {
+        if (spills.isEmpty()) {
+            final Iterator<Map.Entry<GroupKey,Counter>> entries = groups.entrySet().iterator();
+            groups = new HashMap<>();
+            memory = 0;
+            return new Iterator<Group>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+                
+                @Override
+                public Group next() {
+                    Map.Entry<GroupKey,Counter> entry = entries.next();
+                    return toGroup(entry.getKey(), entry.getValue());
+                }
+            };
+        }
+        
+        if (!groups.isEmpty()) {
+            spill();
+        }
+        closeMerge();
+        merging = new MergingIterator(new ArrayList<>(spills));
+        spills.clear();
+        return merging;
+    }
+    
+    @Override
+    public void close() {
+        closeMerge();
+        for (File spill : spills) {
+            delete(spill);
+        }
+        spills.clear();
+        groups = new HashMap<>();
+        memory = 0;
+    }
+    
+    private void closeMerge() {
+        if (merging != null) {
+            merging.close();
+            merging = null;
+        }
+    }
+    
+    private GroupKey toKey(Collection<Attribute<?>> attributes) {
+        // order the fields by column so that the same group always has the same key
+        int[] ids = new int[attributes.size()];
+        String[] values = new String[attributes.size()];
+        int i = 0;
+        for (Attribute<?> attribute : attributes) {
+            Type<?> type = ((TypeAttribute<?>) attribute).getType();
+            ids[i] = columnId(attribute.getMetadata().getRow().toString(), type.getClass());
+            values[i] = type.getDelegateAsString();
+            i++;
+        }
+        Integer[] order = new Integer[ids.length];
+        for (i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+        
+        keyBytes.reset();
+        try {
+            for (int index : order) {
+                WritableUtils.writeVInt(keyOutput, ids[index]);
+                byte[] value = values[index].getBytes(StandardCharsets.UTF_8);
+                WritableUtils.writeVInt(keyOutput, value.length);
+                keyOutput.write(value);
+            }
+            keyOutput.flush();
+        } catch (IOException e) {
+            // writing to memory
+            throw new UncheckedIOException(e);
+        }
+        return new GroupKey(keyBytes.toByteArray());
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Group toGroup(GroupKey key, Counter counter) {
+        List<Attribute<?>> attributes = new ArrayList<>();
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(key.bytes));
+        try {
+            while (input.available() > 0) {
+                Column column = columns.get(WritableUtils.readVInt(input));
+                byte[] value = new byte[WritableUtils.readVInt(input)];
+                input.readFully(value);
+                
+                Type type = column.type.newInstance();
+                type.setDelegateFromString(new String(value, StandardCharsets.UTF_8));
+                attributes.add(new TypeAttribute(type, new Key(column.field), true));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Unable to create a type for group " + key, e);
+        }
+        
+        List<ColumnVisibility> groupVisibilities = new ArrayList<>(counter.numVisibilities);
+        for (int i = 0; i < counter.numVisibilities; i++) {
+            groupVisibilities.add(visibilities.get(counter.visibilities[i]));
+        }
+        return new Group(attributes, counter.count, groupVisibilities);
+    }
+    
+    private int columnId(String field, Class<?> type) {
+        String name = field + '\u0000' + type.getName();
+        Integer id = columnIds.get(name);
+        if (id == null) {
+            id = columns.size();
+            columns.add(new Column(field, type.asSubclass(Type.class)));
+            columnIds.put(name, id);
+        }
+        return id;
+    }
+    
+    private int visibilityId(ColumnVisibility visibility) {
+        Integer id = visibilityIds.get(visibility);
+        if (id == null) {
+            id = visibilities.size();
+            visibilities.add(visibility);
+            visibilityIds.put(visibility, id);
+        }
+        return id;
+    }
+    
+    private void spill() {
+        List<Map.Entry<GroupKey,Counter>> sorted = new ArrayList<>(groups.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+        
+        File file = null;
+        try {
+            file = File.createTempFile("grouping", ".spill", spillDir);
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                for (Map.Entry<GroupKey,Counter> entry : sorted) {
+                    byte[] key = entry.getKey().bytes;
+                    Counter counter = entry.getValue();
+                    WritableUtils.writeVInt(output, key.length);
+                    output.write(key);
+                    WritableUtils.writeVLong(output, counter.count);
+                    WritableUtils.writeVInt(output, counter.numVisibilities);
+                    for (int i = 0; i < counter.numVisibilities; i++) {
+                        WritableUtils.writeVInt(output, counter.visibilities[i]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (file != null) {
+                delete(file);
+            }
+            throw new UncheckedIOException("Unable to spill groups to " + file, e);
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Spilled " + sorted.size() + " groups, estimated at " + memory + " bytes, to " + file);
+        }
+        spills.add(file);
+        groups = new HashMap<>();
+        memory = 0;
+    }
+    
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Unable to delete grouping spill file " + file);
+        }
+    }
+    
+    /**
+     * A distinct group of field values and the number of times it was found
+     */
+    public static class Group {
+        private final List<Attribute<?>> attributes;
+        private final long count;
+        private final List<ColumnVisibility> visibilities;
+        
+        Group(List<Attribute<?>> attributes, long count, List<ColumnVisibility> visibilities) {
+            this.attributes = attributes;
+            this.count = count;
+            this.visibilities = visibilities;
+        }
+        
+        public List<Attribute<?>> getAttributes() {
+            return attributes;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public List<ColumnVisibility> getVisibilities() {
+            return visibilities;
+        }
+    }
+    
+    private static class Column {
+        private final String field;
+        private final Class<? extends Type> type;
+        
+        Column(String field, Class<? extends Type> type) {
+            this.field = field;
+            this.type = type;
+        }
+    }
+    
+    private static class GroupKey implements Comparable<GroupKey> {
+        private final byte[] bytes;
+        private final int hash;
+        
+        GroupKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof GroupKey && hash == ((GroupKey) o).hash && Arrays.equals(bytes, ((GroupKey) o).bytes);
+        }
+        
+        @Override
+        public int compareTo(GroupKey o) {
+            return WritableComparator.compareBytes(bytes, 0, bytes.length, o.bytes, 0, o.bytes.length);
+        }
+        
+        @Override
+        public String toString() {
+            return Arrays.toString(bytes);
+        }
+    }
+    
+    private static class Counter {
+        private long count = 0;
+        // the sorted ids of the visibilities
+        private int[] visibilities = new int[1];
+        private int numVisibilities = 0;
+        
+        /**
+         * @return true if the visibility was not already present
+         */
+        boolean addVisibility(int id) {
+            int index = Arrays.binarySearch(visibilities, 0, numVisibilities, id);
+            if (index >= 0) {
+                return false;
+            }
+            index = -(index + 1);
+            if (numVisibilities == visibilities.length) {
+                visibilities = Arrays.copyOf(visibilities, numVisibilities * 2);
+            }
+            System.arraycopy(visibilities, index, visibilities, index + 1, numVisibilities - index);
+            visibilities[index] = id;
+            numVisibilities++;
+            return true;
+        }
+    }
+    
+    /**
+     * Reads the groups of a spill file in key order
+     */
+    private static class SpillReader implements Comparable<SpillReader> {
+        private final File file;
+        private final DataInputStream input;
+        private GroupKey key;
+        private long count;
+        private int[] visibilities;
+        
+        SpillReader(File file) throws IOException {
+            this.file = file;
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+        
+        /**
+         * @return false once the file has been read, in which case it is closed and deleted
+         */
+        boolean advance() throws IOException {
+            int length;
+            try {
+                length = WritableUtils.readVInt(input);
+            } catch (EOFException e) {
+                close();
+                return false;
+            }
+            byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            key = new GroupKey(bytes);
+            count = WritableUtils.readVLong(input);
+            visibilities = new int[WritableUtils.readVInt(input)];
+            for (int i = 0; i < visibilities.length; i++) {
+                visibilities[i] = WritableUtils.readVInt(input);
+            }
+            return true;
+        }
+        
+        void close() {
+            try {
+                input.close();
+            } catch (IOException e) {
+                log.warn("Unable to close grouping spill file " + file, e);
+            }
+            delete(file);
+        }
+        
+        @Override
+        public int compareTo(SpillReader o) {
+            return key.compareTo(o.key);
+        }
+    }
+    
+    /**
+     * Merges the spill files, combining the counts and visibilities of the groups found in more than one of them
+     */
+    private class MergingIterator implements Iterator<Group> {
+        private final PriorityQueue<SpillReader> readers = new PriorityQueue<>();
+        private final List<File> files;
+        
+        MergingIterator(List<File> files) {
+            this.files = files;
+            try {
+                for (File file : files) {
+                    SpillReader reader = new SpillReader(file);
+                    if (reader.advance()) {
+                        readers.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Unable to read grouping spill files", e);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !readers.isEmpty();
+        }
+        
+        @Override
+        public Group next() {
+            if (readers.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            GroupKey key = readers.peek().key;
+            Counter counter = new Counter();
+            try {
+                while (!readers.isEmpty() && readers.peek().key.equals(key)) {
+                    SpillReader reader = readers.poll();
+                    counter.count += reader.count;
+                    for (int visibility : reader.visibilities) {
+                        counter.addVisibility(visibility);
+                    }
+                    if (reader.advance()) {
+                        readers.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Unable to read grouping spill files", e);
+            }
+            return toGroup(key, counter);
+        }
+        
+        void close() {
+            for (SpillReader reader : readers) {
+                reader.close();
+            }
+            readers.clear();
+            for (File file : files) {
+                delete(file);
+            }
+        }
+    }
+}
@@ -1,11 +1,8 @@
 package datawave.query.transformer;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multiset;
 import com.google.common.collect.TreeMultimap;
 import datawave.data.type.NumberType;
 import datawave.data.type.Type;
@@ -22,34 +19,52 @@ import org.apache.log4j.Logger;
 import org.springframework.util.Assert;
 
 import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
-public class GroupingTransform extends DocumentTransform.DefaultDocumentTransform {
+/**
+ * Counts the distinct combinations of the values of the group fields found in the documents, returning a document holding the values and a COUNT field for
+ * each combination once all of the documents have been seen. The counts are kept by a {@link GroupAggregator}, which spills them to local disk when they
+ * exceed the memory budget. The aggregator is closed, deleting any spilled counts, once the groups have been flushed or the transform is closed.
+ */
+public class GroupingTransform extends DocumentTransform.DefaultDocumentTransform implements Closeable {
     
     private static final Logger log = Logger.getLogger(GroupingTransform.class);
     
     private Set<String> groupFieldsSet;
     private Map<String,Attribute<?>> fieldMap = Maps.newHashMap();
-    private Multimap<Collection<Attribute<?>>,String> fieldDatatypes = HashMultimap.create();
-    private Multimap<Collection<Attribute<?>>,ColumnVisibility> fieldVisibilities = HashMultimap.create();
-    private Multiset<Collection<Attribute<?>>> multiset = HashMultiset.create();
-    private LinkedList<Document> documents = null;
+    private final GroupAggregator aggregator;
+    private Iterator<GroupAggregator.Group> groups = null;
     private Map<String,String> reverseModelMapping = null;
     
-    private List<Key> keys = new ArrayList<>();
+    // the key of the first document seen, which is used as the key of the grouped documents
+    private Key docKey = null;
     
     public GroupingTransform(BaseQueryLogic<Entry<Key,Value>> logic, Collection<String> groupFieldsSet) {
+        this(logic, groupFieldsSet, 0, null);
+    }
+    
+    /**
+     * @param logic
+     *            the query logic, used to find the query model
+     * @param groupFieldsSet
+     *            the fields to group by
+     * @param maxMemory
+     *            the estimated size of the counts held in memory before they are spilled to disk, or 0 to keep them in memory
+     * @param spillDir
+     *            the directory to spill to, or null for the default temporary directory
+     */
+    public GroupingTransform(BaseQueryLogic<Entry<Key,Value>> logic, Collection<String> groupFieldsSet, long maxMemory, String spillDir) {
         this.groupFieldsSet = new HashSet<>(groupFieldsSet);
+        this.aggregator = new GroupAggregator(maxMemory, spillDir);
         if (logic != null) {
             QueryModel model = ((ShardQueryLogic) logic).getQueryModel();
             if (model != null) {
@@ -95,16 +110,27 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
             
             @Override
             public boolean hasNext() {
-                for (int i = 0; i < max && in.hasNext(); i++) {
-                    GroupingTransform.this.apply(in.next());
+                if (next == null) {
+                    // return the remaining groups of the last batch before aggregating the next one
+                    next = GroupingTransform.this.flush();
+                }
+                if (next == null) {
+                    for (int i = 0; i < max && in.hasNext(); i++) {
+                        GroupingTransform.this.apply(in.next());
+                    }
+                    next = GroupingTransform.this.flush();
                 }
-                next = GroupingTransform.this.flush();
                 return next != null;
             }
             
             @Override
             public Entry<Key,Document> next() {
-                return next;
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry<Key,Document> result = next;
+                next = null;
+                return result;
             }
         };
         
@@ -112,47 +138,53 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
     
     @Override
     public Entry<Key,Document> flush() {
-        if (documents == null) {
-            documents = new LinkedList<>();
-        }
-        if (!multiset.isEmpty()) {
+        if ((groups == null || !groups.hasNext()) && !aggregator.isEmpty()) {
             if (log.isTraceEnabled()) {
-                log.trace("flush will use the multiset:" + multiset);
-            }
-            for (Collection<Attribute<?>> entry : multiset.elementSet()) {
-                ColumnVisibility vis;
-                try {
-                    vis = toColumnVisibility(fieldVisibilities.get(entry));
-                } catch (Exception e) {
-                    throw new IllegalStateException("Unable to merge column visibilities: " + fieldVisibilities.get(entry), e);
-                }
-                // grab a key from those saved during getListKeyCounts
-                Assert.notEmpty(keys, "no available keys for grouping results");
-                Key docKey = keys.get(0);
-                Document d = new Document(docKey, true);
-                
-                for (Attribute base : entry) {
-                    d.put(getFieldName(base), base);
-                }
-                NumberType type = new NumberType();
-                type.setDelegate(new BigDecimal(multiset.count(entry)));
-                TypeAttribute<BigDecimal> attr = new TypeAttribute<>(type, new Key("count"), true);
-                d.put("COUNT", attr);
-                documents.add(d);
+                log.trace("flush will drain the aggregated groups, spilled to " + aggregator.getSpillCount() + " files");
             }
+            groups = aggregator.drain();
         }
-        if (!documents.isEmpty()) {
-            Document d = documents.pop();
+        if (groups != null && groups.hasNext()) {
+            GroupAggregator.Group group = groups.next();
+            ColumnVisibility vis;
+            try {
+                vis = toColumnVisibility(group.getVisibilities());
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to merge column visibilities: " + group.getVisibilities(), e);
+            }
+            // use the key saved during getListKeyCounts
+            Assert.notNull(docKey, "no available keys for grouping results");
+            Document d = new Document(docKey, true);
+            
+            for (Attribute<?> base : group.getAttributes()) {
+                d.put(getFieldName(base), base);
+            }
+            NumberType type = new NumberType();
+            type.setDelegate(BigDecimal.valueOf(group.getCount()));
+            TypeAttribute<BigDecimal> attr = new TypeAttribute<>(type, new Key("count"), true);
+            d.put("COUNT", attr);
+            
             Entry<Key,Document> entry = Maps.immutableEntry(d.getMetadata(), d);
             if (log.isTraceEnabled()) {
                 log.trace("flushing out " + entry);
             }
-            multiset.clear();
             return entry;
         }
+        // every group has been returned, so release what the aggregator holds
+        groups = null;
+        aggregator.close();
         return null;
     }
     
+    /**
+     * Delete any spilled counts, for a query closed before all of its groups were flushed
+     */
+    @Override
+    public void close() {
+        groups = null;
+        aggregator.close();
+    }
+    
     private Multimap<String,String> getFieldToFieldWithGroupingContextMap(Document d, Set<String> expandedGroupFieldsList) {
         Multimap<String,String> fieldToFieldWithContextMap = TreeMultimap.create();
         for (Map.Entry<String,Attribute<? extends Comparable<?>>> entry : d.entrySet()) {
@@ -213,8 +245,11 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
         if (log.isTraceEnabled()) {
             log.trace("get list key counts for:" + entry);
         }
-        keys.add(entry.getKey());
-        int count = 1;
+        if (docKey == null) {
+            docKey = entry.getKey();
+        }
+        fieldMap.clear();
+        long count = 1;
         Set<String> expandedGroupFieldsList = new LinkedHashSet<>();
         // if the incoming Documents have been aggregated on the tserver, they will have a COUNT field.
         // use the value in the COUNT field as a loop max when the fields are put into the multiset
@@ -222,7 +257,7 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
         // field sets in the multiset
         if (entry.getValue().getDictionary().containsKey("COUNT")) {
             TypeAttribute countTypeAttribute = ((TypeAttribute) entry.getValue().getDictionary().get("COUNT"));
-            count = ((BigDecimal) countTypeAttribute.getType().getDelegate()).intValue();
+            count = ((BigDecimal) countTypeAttribute.getType().getDelegate()).longValue();
         }
         Multimap<String,String> fieldToFieldWithContextMap = this.getFieldToFieldWithGroupingContextMap(entry.getValue(), expandedGroupFieldsList);
         if (log.isTraceEnabled())
@@ -253,11 +288,7 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
             }
             if (fieldCollection.size() == expandedGroupFieldsList.size()) {
                 // see above comment about the COUNT field
-                for (int j = 0; j < count; j++) {
-                    multiset.add(fieldCollection);
-                }
-                fieldDatatypes.put(fieldCollection, getDataType(entry));
-                fieldVisibilities.put(fieldCollection, getColumnVisibility(entry));
+                aggregator.add(fieldCollection, getColumnVisibility(entry), count);
                 if (log.isTraceEnabled())
                     log.trace("added fieldList to the map:" + fieldCollection);
             } else {
@@ -268,13 +299,6 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
                 }
             }
         }
-        if (log.isTraceEnabled())
-            log.trace("map:" + multiset);
-    }
-    
-    private String getDataType(Entry<Key,Document> e) {
-        String colf = e.getKey().getColumnFamily().toString();
-        return colf.substring(0, colf.indexOf('\0'));
     }
     
     private ColumnVisibility getColumnVisibility(Entry<Key,Document> e) {
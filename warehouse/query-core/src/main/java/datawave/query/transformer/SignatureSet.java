@@ -0,0 +1,456 @@
+package datawave.query.transformer;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.io.CountingOutputStream;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * An exact set of document signatures used by the {@link UniqueTransform}, which holds a bounded amount of memory.
+ * <p>
+ * When spilling, the signatures held in memory are sorted and written to a local file once their estimated size exceeds the memory budget, and the files are
+ * merged once there are too many of them. Each file keeps a sparse index in memory, so a lookup reads a single block of each file. A cascade of bloom filters,
+ * each twice the size of the one before it, sits in front of the files so that new signatures, which the bloom filters rule out, never touch the disk. The bloom
+ * filters only avoid lookups: a signature is only reported as seen once it has been found, so nothing is dropped because of a false positive. The bloom filters
+ * count against the memory budget and may use up to half of it, after which the last of them takes the new signatures at a rising false positive rate.
+ * <p>
+ * The spill files are deleted when the set is closed, which its owner must do once the set is no longer needed.
+ * <p>
+ * When not spilling, the signatures stop being recorded once the memory budget is reached, and any signature not recorded is reported as unseen. This suits the
+ * tservers, where removing duplicates early is an optimization and the web server removes the remainder.
+ */
+public class SignatureSet implements Closeable {
+    
+    private static final Logger log = Logger.getLogger(SignatureSet.class);
+    
+    private static final int INITIAL_BLOOM_CAPACITY = 100000;
+    private static final double INITIAL_BLOOM_FPP = 1e-4;
+    // estimated size of a signature in the hash set, excluding its bytes
+    private static final int ENTRY_OVERHEAD = 64;
+    // the number of signatures per indexed block of a spill file
+    private static final int BLOCK_SIZE = 128;
+    // the number of spill files that are merged into one
+    private static final int MAX_SPILL_FILES = 8;
+    // the smallest bloom filter created, when the memory budget is too small for the initial capacity
+    private static final int MIN_BLOOM_CAPACITY = 1000;
+    
+    private final long maxMemory;
+    private final boolean spill;
+    private final File spillDir;
+    
+    private final List<BloomFilter<byte[]>> blooms = new ArrayList<>();
+    private int bloomCapacity;
+    private double bloomFpp = INITIAL_BLOOM_FPP;
+    private long bloomInsertions = 0;
+    private long bloomMemory = 0;
+    
+    private Set<ByteSequence> signatures = new HashSet<>();
+    private long memory = 0;
+    private final List<SpillFile> spillFiles = new ArrayList<>();
+    private boolean full = false;
+    
+    private long size = 0;
+    private long spills = 0;
+    private long diskLookups = 0;
+    private long falsePositives = 0;
+    
+    /**
+     * @param maxMemory
+     *            the estimated size of the signatures held in memory
+     * @param spill
+     *            true to spill the signatures to disk when the memory budget is reached, false to stop recording them
+     * @param spillDir
+     *            the directory to spill to, or null for the default temporary directory
+     */
+    public SignatureSet(long maxMemory, boolean spill, String spillDir) {
+        this.maxMemory = maxMemory;
+        this.spill = spill;
+        this.spillDir = (spillDir == null ? null : new File(spillDir));
+        this.bloomCapacity = INITIAL_BLOOM_CAPACITY;
+        while (bloomCapacity > MIN_BLOOM_CAPACITY && bloomBytes(bloomCapacity, bloomFpp) > maxMemory / 4) {
+            bloomCapacity /= 2;
+        }
+    }
+    
+    /**
+     * Add a signature to the set
+     *
+     * @param signature
+     *            the signature
+     * @return true if the signature had not been seen before
+     */
+    public synchronized boolean add(byte[] signature) {
+        ByteSequence sequence = new ArrayByteSequence(signature);
+        if (!spill) {
+            if (signatures.contains(sequence)) {
+                return false;
+            }
+            if (!full) {
+                record(sequence);
+                if (memory > maxMemory) {
+                    full = true;
+                    log.info("Stopped recording unique signatures after " + size + " signatures, later duplicates will be removed by the web server");
+                }
+            }
+            return true;
+        }
+        
+        if (mightContain(signature)) {
+            if (signatures.contains(sequence) || spillFilesContain(signature)) {
+                return false;
+            }
+            falsePositives++;
+        }
+        
+        putBloom(signature);
+        record(sequence);
+        // the signatures may use whatever the bloom filters do not, and at least half of the budget
+        if (memory > Math.max(maxMemory - bloomMemory, maxMemory / 2)) {
+            spill();
+        }
+        return true;
+    }
+    
+    /**
+     * @return the number of signatures recorded
+     */
+    public synchronized long size() {
+        return size;
+    }
+    
+    /**
+     * @return the number of times the signatures were spilled to disk
+     */
+    public synchronized long getSpills() {
+        return spills;
+    }
+    
+    /**
+     * @return the number of lookups that had to read the spill files
+     */
+    public synchronized long getDiskLookups() {
+        return diskLookups;
+    }
+    
+    /**
+     * @return the number of new signatures that the bloom filters could not rule out
+     */
+    public synchronized long getFalsePositives() {
+        return falsePositives;
+    }
+    
+    /**
+     * @return the estimated size of the bloom filters
+     */
+    public synchronized long getBloomMemory() {
+        return bloomMemory;
+    }
+    
+    /**
+     * Release the signatures and delete the spill files
+     */
+    @Override
+    public synchronized void close() {
+        for (SpillFile spillFile : spillFiles) {
+            spillFile.close();
+        }
+        spillFiles.clear();
+        signatures = new HashSet<>();
+        memory = 0;
+        blooms.clear();
+        bloomMemory = 0;
+    }
+    
+    private void record(ByteSequence sequence) {
+        signatures.add(sequence);
+        memory += ENTRY_OVERHEAD + sequence.length();
+        size++;
+    }
+    
+    private boolean mightContain(byte[] signature) {
+        for (BloomFilter<byte[]> bloom : blooms) {
+            if (bloom.mightContain(signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void putBloom(byte[] signature) {
+        if (blooms.isEmpty()) {
+            addBloom();
+        } else if (bloomInsertions >= bloomCapacity && bloomCapacity <= Integer.MAX_VALUE / 2
+                        && bloomMemory + bloomBytes(bloomCapacity * 2, bloomFpp / 2) <= maxMemory / 2) {
+            bloomCapacity *= 2;
+            bloomFpp /= 2;
+            addBloom();
+        }
+        // once the budget allows no more bloom filters, the last one is filled past its capacity
+        blooms.get(blooms.size() - 1).put(signature);
+        bloomInsertions++;
+    }
+    
+    private void addBloom() {
+        blooms.add(BloomFilter.create(new UniqueTransform.ByteFunnel(), bloomCapacity, bloomFpp));
+        bloomMemory += bloomBytes(bloomCapacity, bloomFpp);
+        bloomInsertions = 0;
+    }
+    
+    /**
+     * @return the estimated size of a bloom filter, as sized by guava
+     */
+    private static long bloomBytes(long capacity, double fpp) {
+        return (long) (-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)) / 8);
+    }
+    
+    private boolean spillFilesContain(byte[] signature) {
+        if (spillFiles.isEmpty()) {
+            return false;
+        }
+        diskLookups++;
+        try {
+            for (SpillFile spillFile : spillFiles) {
+                if (spillFile.contains(signature)) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read unique signature spill files", e);
+        }
+        return false;
+    }
+    
+    private void spill() {
+        List<ByteSequence> sorted = new ArrayList<>(signatures);
+        sorted.sort(null);
+        final Iterator<ByteSequence> sequences = sorted.iterator();
+        spillFiles.add(write(new Iterator<byte[]>() {
+            @Override
+            public boolean hasNext() {
+                return sequences.hasNext();
+            }
+            
+            @Override
+            public byte[] next() {
+                return sequences.next().toArray();
+            }
+        }));
+        if (log.isDebugEnabled()) {
+            log.debug("Spilled " + sorted.size() + " unique signatures, estimated at " + memory + " bytes");
+        }
+        signatures = new HashSet<>();
+        memory = 0;
+        spills++;
+        
+        if (spillFiles.size() > MAX_SPILL_FILES) {
+            List<SpillFile> merging = new ArrayList<>(spillFiles);
+            SpillFile merged = write(new MergingIterator(merging));
+            for (SpillFile spillFile : merging) {
+                spillFile.close();
+            }
+            spillFiles.clear();
+            spillFiles.add(merged);
+        }
+    }
+    
+    /**
+     * Write sorted signatures to a new spill file
+     */
+    private SpillFile write(Iterator<byte[]> sorted) {
+        File file = null;
+        try {
+            file = File.createTempFile("unique", ".spill", spillDir);
+            List<byte[]> index = new ArrayList<>();
+            List<Long> offsets = new ArrayList<>();
+            try (CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(file));
+                            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(counter))) {
+                int count = 0;
+                while (sorted.hasNext()) {
+                    byte[] signature = sorted.next();
+                    if (count++ % BLOCK_SIZE == 0) {
+                        output.flush();
+                        index.add(signature);
+                        offsets.add(counter.getCount());
+                    }
+                    WritableUtils.writeVInt(output, signature.length);
+                    output.write(signature);
+                }
+            }
+            return new SpillFile(file, index.toArray(new byte[index.size()][]), offsets);
+        } catch (IOException e) {
+            if (file != null && !file.delete()) {
+                log.warn("Unable to delete unique signature spill file " + file);
+            }
+            throw new UncheckedIOException("Unable to spill unique signatures to " + file, e);
+        }
+    }
+    
+    private static int compare(byte[] a, byte[] b) {
+        return WritableComparator.compareBytes(a, 0, a.length, b, 0, b.length);
+    }
+    
+    /**
+     * A sorted file of signatures, with the first signature and offset of each block held in memory
+     */
+    private static class SpillFile {
+        private final File file;
+        private final byte[][] index;
+        private final long[] offsets;
+        private final RandomAccessFile input;
+        
+        SpillFile(File file, byte[][] index, List<Long> offsets) throws IOException {
+            this.file = file;
+            this.index = index;
+            this.offsets = new long[offsets.size() + 1];
+            for (int i = 0; i < offsets.size(); i++) {
+                this.offsets[i] = offsets.get(i);
+            }
+            this.offsets[offsets.size()] = file.length();
+            this.input = new RandomAccessFile(file, "r");
+        }
+        
+        boolean contains(byte[] signature) throws IOException {
+            // find the last block starting at or before the signature
+            int low = 0;
+            int high = index.length - 1;
+            int block = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compare(index[mid], signature);
+                if (comparison == 0) {
+                    return true;
+                } else if (comparison < 0) {
+                    block = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (block < 0) {
+                return false;
+            }
+            
+            byte[] bytes = new byte[(int) (offsets[block + 1] - offsets[block])];
+            input.seek(offsets[block]);
+            input.readFully(bytes);
+            DataInputStream records = new DataInputStream(new ByteArrayInputStream(bytes));
+            while (records.available() > 0) {
+                byte[] candidate = new byte[WritableUtils.readVInt(records)];
+                records.readFully(candidate);
+                int comparison = compare(candidate, signature);
+                if (comparison == 0) {
+                    return true;
+                } else if (comparison > 0) {
+                    return false;
+                }
+            }
+            return false;
+        }
+        
+        DataInputStream open() throws IOException {
+            return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+        
+        void close() {
+            try {
+                input.close();
+            } catch (IOException e) {
+                log.warn("Unable to close unique signature spill file " + file, e);
+            }
+            if (file.exists() && !file.delete()) {
+                log.warn("Unable to delete unique signature spill file " + file);
+            }
+        }
+    }
+    
+    /**
+     * Merges the signatures of several spill files in order
+     */
+    private static class MergingIterator implements Iterator<byte[]> {
+        private final PriorityQueue<Reader> readers = new PriorityQueue<>();
+        
+        MergingIterator(List<SpillFile> spillFiles) {
+            try {
+                for (SpillFile spillFile : spillFiles) {
+                    Reader reader = new Reader(spillFile.open());
+                    if (reader.advance()) {
+                        readers.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to merge unique signature spill files", e);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !readers.isEmpty();
+        }
+        
+        @Override
+        public byte[] next() {
+            if (readers.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Reader reader = readers.poll();
+            byte[] signature = reader.signature;
+            try {
+                if (reader.advance()) {
+                    readers.add(reader);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to merge unique signature spill files", e);
+            }
+            return signature;
+        }
+        
+        private static class Reader implements Comparable<Reader> {
+            private final DataInputStream input;
+            private byte[] signature;
+            
+            Reader(DataInputStream input) {
+                this.input = input;
+            }
+            
+            boolean advance() throws IOException {
+                try {
+                    signature = new byte[WritableUtils.readVInt(input)];
+                } catch (EOFException e) {
+                    input.close();
+                    return false;
+                }
+                input.readFully(signature);
+                return true;
+            }
+            
+            @Override
+            public int compareTo(Reader o) {
+                return compare(signature, o.signature);
+            }
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnel;
 import com.google.common.hash.PrimitiveSink;
 import datawave.query.attributes.Attribute;
@@ -14,14 +13,13 @@ import datawave.query.model.QueryModel;
 import datawave.query.tables.ShardQueryLogic;
 import datawave.util.StringUtils;
 import datawave.webservice.query.logic.BaseQueryLogic;
-import org.apache.accumulo.core.data.ArrayByteSequence;
-import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.log4j.Logger;
 
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
@@ -35,27 +33,41 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is a iterator that will filter documents base on a uniqueness across a set of configured fields. Only the first instance of an event with a unique set
  * of those fields will be returned. This transform is thread safe.
+ * <p>
+ * The tservers remove the duplicates within their scan using a bounded set of signatures held in memory, which stops recording new signatures once full. The
+ * web server removes the remainder using a {@link SignatureSet} that spills to local disk, so that no document is dropped unless it is a duplicate. The spilled
+ * signatures are deleted once the transform is flushed or closed.
  */
-public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform {
+public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform implements Closeable {
     
-    private static final Logger log = Logger.getLogger(GroupingTransform.class);
+    private static final Logger log = Logger.getLogger(UniqueTransform.class);
     
-    private BloomFilter<byte[]> bloom = null;
-    private HashSet<ByteSequence> seen;
+    // the estimated size of the signatures a tserver holds for a scan
+    public static final long DEFAULT_SCAN_MAX_MEMORY = 16L * 1024L * 1024L;
+    
+    private final SignatureSet signatures;
+    private final AtomicLong duplicates = new AtomicLong(0);
+    private boolean logged = false;
     private Set<String> fields;
     private Multimap<String,String> modelMapping;
-    private final boolean DEBUG = false;
     
+    /**
+     * Create a transform that removes the duplicates it can within a bounded amount of memory, as used by the tservers
+     *
+     * @param fields
+     */
     public UniqueTransform(Set<String> fields) {
+        this(fields, new SignatureSet(DEFAULT_SCAN_MAX_MEMORY, false, null));
+    }
+    
+    private UniqueTransform(Set<String> fields, SignatureSet signatures) {
         this.fields = fields;
-        this.bloom = BloomFilter.create(new ByteFunnel(), 500000, 1e-15);
-        if (DEBUG) {
-            this.seen = new HashSet<>();
-        }
+        this.signatures = signatures;
         if (log.isTraceEnabled())
             log.trace("unique fields: " + this.fields);
     }
@@ -67,7 +79,21 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
      * @param fields
      */
     public UniqueTransform(BaseQueryLogic<Entry<Key,Value>> logic, Set<String> fields) {
-        this(fields);
+        this(logic, fields, DEFAULT_SCAN_MAX_MEMORY, null);
+    }
+    
+    /**
+     * Create a transform that removes all duplicates, spilling the signatures of the documents seen to disk once they exceed the memory budget
+     *
+     * @param logic
+     * @param fields
+     * @param maxMemory
+     *            the estimated size of the signatures held in memory
+     * @param spillDir
+     *            the directory to spill to, or null for the default temporary directory
+     */
+    public UniqueTransform(BaseQueryLogic<Entry<Key,Value>> logic, Set<String> fields, long maxMemory, String spillDir) {
+        this(fields, new SignatureSet(maxMemory, true, spillDir));
         QueryModel model = ((ShardQueryLogic) logic).getQueryModel();
         if (model != null) {
             modelMapping = HashMultimap.create();
@@ -87,6 +113,36 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
         return input -> UniqueTransform.this.apply(input) != null;
     }
     
+    /**
+     * @return the number of documents removed as duplicates
+     */
+    public long getDuplicatesRemoved() {
+        return duplicates.get();
+    }
+    
+    /**
+     * Nothing is held back by this transform, so this only logs the number of duplicates removed and releases the signatures once all of the documents have
+     * been seen.
+     */
+    @Override
+    public Entry<Key,Document> flush() {
+        if (!logged) {
+            logged = true;
+            log.info("Removed " + duplicates.get() + " duplicates from " + (signatures.size() + duplicates.get()) + " documents, spilled " + signatures.getSpills()
+                            + " times with " + signatures.getDiskLookups() + " disk lookups");
+            signatures.close();
+        }
+        return null;
+    }
+    
+    /**
+     * Release the signatures and delete any spill files, for a query closed before all of its documents were seen
+     */
+    @Override
+    public void close() {
+        signatures.close();
+    }
+    
     /**
      * Apply uniqueness to a document.
      * 
@@ -99,6 +155,7 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
         if (keyDocumentEntry != null) {
             try {
                 if (isDuplicate(keyDocumentEntry.getValue())) {
+                    duplicates.incrementAndGet();
                     keyDocumentEntry = null;
                 }
             } catch (IOException ioe) {
@@ -116,22 +173,7 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
      * @throws IOException
      */
     private boolean isDuplicate(Document document) throws IOException {
-        byte[] bytes = getBytes(document);
-        ByteSequence byteSeq = new ArrayByteSequence(bytes);
-        synchronized (bloom) {
-            if (bloom.mightContain(bytes)) {
-                if (DEBUG && !seen.contains(byteSeq)) {
-                    throw new IllegalStateException("This event is 1 in 1Q!");
-                } else {
-                    return true;
-                }
-            }
-            bloom.put(bytes);
-            if (DEBUG) {
-                seen.add(byteSeq);
-            }
-        }
-        return false;
+        return !signatures.add(getBytes(document));
     }
     
     /**
@@ -147,7 +189,6 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
         DataOutputStream output = new DataOutputStream(bytes);
         List<FieldSet> fieldSets = getOrderedFieldSets(document);
-        System.out.println(fieldSets);
         int count = 0;
         for (FieldSet fieldSet : fieldSets) {
             String separator = "f" + (count++) + ":";
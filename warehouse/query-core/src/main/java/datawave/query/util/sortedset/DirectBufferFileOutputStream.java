@@ -0,0 +1,90 @@
+package datawave.query.util.sortedset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An output stream that writes a local file through a FileChannel, staging the bytes in an off-heap (direct) buffer. This avoids the extra copy into a
+ * temporary direct buffer that the JDK makes when a heap buffer is written to a channel, and keeps the staging memory out of the java heap.
+ */
+public class DirectBufferFileOutputStream extends OutputStream {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    private final FileChannel channel;
+    private final SpillCounters counters;
+    private ByteBuffer buffer;
+    private long bytesWritten = 0;
+    
+    public DirectBufferFileOutputStream(File file, SpillCounters counters) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE, counters);
+    }
+    
+    public DirectBufferFileOutputStream(File file, int bufferSize, SpillCounters counters) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.counters = counters;
+    }
+    
+    private ByteBuffer buffer() throws IOException {
+        if (buffer == null) {
+            throw new IOException("Stream closed");
+        }
+        return buffer;
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        ByteBuffer buf = buffer();
+        if (!buf.hasRemaining()) {
+            drain();
+        }
+        buf.put((byte) b);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ByteBuffer buf = buffer();
+        while (len > 0) {
+            if (!buf.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(len, buf.remaining());
+            buf.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        buffer();
+        drain();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            try {
+                drain();
+            } finally {
+                buffer = null;
+                channel.close();
+                if (counters != null) {
+                    counters.spilled(bytesWritten);
+                }
+            }
+        }
+    }
+}
@@ -275,7 +275,12 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @throws IOException
      */
     protected ObjectInputStream getInputStream() throws IOException {
-        return new ObjectInputStream(new BufferedInputStream(handler.getInputStream()));
+        InputStream stream = handler.getInputStream();
+        // a memory mapped stream reads directly from the page cache, so buffering it would only add a copy
+        if (!(stream instanceof MappedFileInputStream)) {
+            stream = new BufferedInputStream(stream);
+        }
+        return new ObjectInputStream(stream);
     }
     
     /**
@@ -285,7 +290,12 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @throws IOException
      */
     protected ObjectOutputStream getOutputStream() throws IOException {
-        return new ObjectOutputStream(new BufferedOutputStream(handler.getOutputStream()));
+        OutputStream stream = handler.getOutputStream();
+        // the direct buffer stream is already buffered (off heap)
+        if (!(stream instanceof DirectBufferFileOutputStream)) {
+            stream = new BufferedOutputStream(stream);
+        }
+        return new ObjectOutputStream(stream);
     }
     
     /**
@@ -0,0 +1,213 @@
+package datawave.query.util.sortedset;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+
+import datawave.query.util.sortedset.FileSortedSet.SortedSetFileHandler;
+import datawave.query.util.sortedset.HdfsBackedSortedSet.SortedSetHdfsFileHandlerFactory;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * A buffered file backed sorted set that persists its buffers to local scratch directories. Files are written through an off-heap staging buffer and read back
+ * through memory mappings, so merging the persisted sets does not copy through intermediate heap buffers. When none of the local directories has more than the
+ * configured minimum of free space, the files are written to the fallback (hdfs) directory instead.
+ *
+ * Unlike the {@link HdfsBackedSortedSet}, this set does not load files left over in its directories: local scratch is not visible to other tservers, so the
+ * contents of a local directory can never be trusted as a complete result.
+ */
+public class LocalBackedSortedSet<E extends Serializable> extends BufferedFileBackedSortedSet<E> implements SortedSet<E> {
+    private static final Logger log = Logger.getLogger(LocalBackedSortedSet.class);
+    private static final String FILENAME_PREFIX = "SortedSetFile.";
+    
+    public LocalBackedSortedSet(LocalBackedSortedSet<E> other) {
+        super(other);
+    }
+    
+    public LocalBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, int maxOpenFiles, List<File> localDirs, long minFreeBytes,
+                    FileSystem fallbackFs, Path fallbackDir) throws IOException {
+        this(comparator, bufferPersistThreshold, maxOpenFiles, localDirs, minFreeBytes, fallbackFs, fallbackDir, new SpillCounters());
+    }
+    
+    public LocalBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, int maxOpenFiles, List<File> localDirs, long minFreeBytes,
+                    FileSystem fallbackFs, Path fallbackDir, SpillCounters counters) throws IOException {
+        super(comparator, bufferPersistThreshold, maxOpenFiles, new SortedSetLocalFileHandlerFactory(localDirs, minFreeBytes, fallbackFs, fallbackDir, counters));
+    }
+    
+    public SpillCounters getCounters() {
+        return ((SortedSetLocalFileHandlerFactory) handlerFactory).getCounters();
+    }
+    
+    @Override
+    public void compact(int maxFiles) throws IOException {
+        SpillCounters counters = getCounters();
+        long spilledBefore = counters.getBytesSpilled();
+        super.compact(maxFiles);
+        counters.merged(counters.getBytesSpilled() - spilledBefore);
+    }
+    
+    public static class SortedSetLocalFileHandlerFactory implements SortedSetFileHandlerFactory {
+        private final List<File> localDirs;
+        private final long minFreeBytes;
+        private final SortedSetHdfsFileHandlerFactory fallbackFactory;
+        private final SpillCounters counters;
+        private int fileCount = 0;
+        private int nextDir = 0;
+        
+        public SortedSetLocalFileHandlerFactory(List<File> localDirs, long minFreeBytes, FileSystem fallbackFs, Path fallbackDir, SpillCounters counters) {
+            this.localDirs = new ArrayList<>(localDirs);
+            this.minFreeBytes = minFreeBytes;
+            this.fallbackFactory = (fallbackFs == null ? null : new SortedSetHdfsFileHandlerFactory(fallbackFs, fallbackDir));
+            this.counters = counters;
+            // spread the files of concurrent ivarators across the directories
+            Collections.shuffle(this.localDirs);
+        }
+        
+        public SpillCounters getCounters() {
+            return counters;
+        }
+        
+        @Override
+        public SortedSetFileHandler createHandler() throws IOException {
+            for (int i = 0; i < localDirs.size(); i++) {
+                File dir = localDirs.get(nextDir);
+                nextDir = (nextDir + 1) % localDirs.size();
+                if (hasSpace(dir)) {
+                    fileCount++;
+                    return new SortedSetLocalFileHandler(new File(dir, FILENAME_PREFIX + fileCount + '.' + System.currentTimeMillis()), counters);
+                }
+            }
+            
+            if (fallbackFactory == null) {
+                throw new IOException("No local spill directory out of " + localDirs + " has " + minFreeBytes + " bytes free and there is no fallback");
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Local spill directories " + localDirs + " are exhausted, falling back to " + fallbackFactory);
+            }
+            counters.fallback();
+            return new CountingFileHandler(fallbackFactory.createHandler(), counters);
+        }
+        
+        private boolean hasSpace(File dir) {
+            if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+                log.warn("Unable to create local spill directory " + dir);
+                return false;
+            }
+            return dir.getUsableSpace() > minFreeBytes;
+        }
+        
+        @Override
+        public String toString() {
+            return localDirs + " (fileCount=" + fileCount + ", fallback=" + fallbackFactory + ')';
+        }
+    }
+    
+    public static class SortedSetLocalFileHandler implements SortedSetFileHandler {
+        private final File file;
+        private final SpillCounters counters;
+        
+        public SortedSetLocalFileHandler(File file, SpillCounters counters) {
+            this.file = file;
+            this.counters = counters;
+        }
+        
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (log.isDebugEnabled()) {
+                log.debug("Reading " + file);
+            }
+            return new MappedFileInputStream(file);
+        }
+        
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            if (log.isDebugEnabled()) {
+                log.debug("Creating " + file);
+            }
+            return new DirectBufferFileOutputStream(file, counters);
+        }
+        
+        @Override
+        public long getSize() {
+            return file.exists() ? file.length() : -1;
+        }
+        
+        @Override
+        public void deleteFile() {
+            if (log.isDebugEnabled()) {
+                log.debug("Deleting " + file);
+            }
+            if (file.exists() && !file.delete()) {
+                log.error("Failed to delete file " + file);
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+    }
+    
+    /**
+     * Wraps a fallback file handler so that the bytes written to it are included in the spill counters
+     */
+    public static class CountingFileHandler implements SortedSetFileHandler {
+        private final SortedSetFileHandler delegate;
+        private final SpillCounters counters;
+        
+        public CountingFileHandler(SortedSetFileHandler delegate, SpillCounters counters) {
+            this.delegate = delegate;
+            this.counters = counters;
+        }
+        
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return delegate.getInputStream();
+        }
+        
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            final CountingOutputStream stream = new CountingOutputStream(delegate.getOutputStream());
+            return new FilterOutputStream(stream) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+                
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    counters.spilled(stream.getCount());
+                }
+            };
+        }
+        
+        @Override
+        public long getSize() {
+            return delegate.getSize();
+        }
+        
+        @Override
+        public void deleteFile() {
+            delegate.deleteFile();
+        }
+        
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package datawave.query.util.sortedset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An input stream that reads a local file through read-only memory mappings. Reads are served directly from the page cache, so there is no read system call
+ * per buffer fill and no need for an intermediate heap buffer (e.g. a BufferedInputStream) on top of this stream.
+ *
+ * A single mapping is limited to 2GB, so the file is mapped one bounded window at a time and the next window is mapped once the current one has been read.
+ */
+public class MappedFileInputStream extends InputStream {
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    // the file offset of the current window
+    private long windowStart = 0;
+    private MappedByteBuffer buffer;
+    private boolean closed = false;
+    
+    public MappedFileInputStream(File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+    
+    public MappedFileInputStream(File file, int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("The window size must be positive: " + windowSize);
+        }
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.windowSize = windowSize;
+        try {
+            this.size = channel.size();
+            map(0);
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Map the window starting at the specified file offset
+     * 
+     * @param start
+     * @throws IOException
+     */
+    private void map(long start) throws IOException {
+        // the previous mapping is released when the buffer is garbage collected
+        this.windowStart = start;
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+    
+    private long position() {
+        return windowStart + buffer.position();
+    }
+    
+    /**
+     * Get the current window, mapping the next one if the current window has been read
+     * 
+     * @return the window, or null at the end of the file
+     * @throws IOException
+     */
+    private MappedByteBuffer window() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (!buffer.hasRemaining()) {
+            long position = position();
+            if (position >= size) {
+                return null;
+            }
+            map(position);
+        }
+        return buffer;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        MappedByteBuffer buf = window();
+        return buf == null ? -1 : (buf.get() & 0xFF);
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        MappedByteBuffer buf = window();
+        if (buf == null) {
+            return -1;
+        }
+        int count = Math.min(len, buf.remaining());
+        buf.get(b, off, count);
+        return count;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        MappedByteBuffer buf = window();
+        if (buf == null || n <= 0) {
+            return 0;
+        }
+        long count = Math.min(n, size - position());
+        if (count <= buf.remaining()) {
+            buf.position(buf.position() + (int) count);
+        } else {
+            map(position() + count);
+        }
+        return count;
+    }
+    
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size - position());
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            buffer = null;
+            // the mapping remains valid after the channel is closed, until the buffer is garbage collected
+            file.close();
+        }
+    }
+}
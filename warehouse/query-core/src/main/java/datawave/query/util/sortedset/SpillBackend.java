@@ -0,0 +1,28 @@
+package datawave.query.util.sortedset;
+
+/**
+ * The file systems a buffered file backed sorted set may spill to
+ */
+public enum SpillBackend {
+    /**
+     * Spill to the (hdfs) file system of the ivarator cache directory. This is the default.
+     */
+    HDFS,
+    /**
+     * Spill to local scratch directories through memory mapped files, falling back to the hdfs cache directory when local space is exhausted.
+     */
+    LOCAL;
+    
+    /**
+     * Parse a backend name, ignoring case
+     * 
+     * @param name
+     * @return the backend, or HDFS if name is null or empty
+     */
+    public static SpillBackend parse(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return HDFS;
+        }
+        return SpillBackend.valueOf(name.trim().toUpperCase());
+    }
+}
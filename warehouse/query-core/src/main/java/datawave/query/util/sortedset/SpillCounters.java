@@ -0,0 +1,48 @@
+package datawave.query.util.sortedset;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing the disk activity of a file backed sorted set: the bytes written when buffers are persisted or sets are compacted, the portion of
+ * those bytes written by compactions (merges), and the number of files that had to fall back to the secondary (hdfs) file system.
+ */
+public class SpillCounters {
+    private final AtomicLong bytesSpilled = new AtomicLong(0);
+    private final AtomicLong bytesMerged = new AtomicLong(0);
+    private final AtomicLong filesSpilled = new AtomicLong(0);
+    private final AtomicLong fallbackFiles = new AtomicLong(0);
+    
+    public void spilled(long bytes) {
+        bytesSpilled.addAndGet(bytes);
+        filesSpilled.incrementAndGet();
+    }
+    
+    public void merged(long bytes) {
+        bytesMerged.addAndGet(bytes);
+    }
+    
+    public void fallback() {
+        fallbackFiles.incrementAndGet();
+    }
+    
+    public long getBytesSpilled() {
+        return bytesSpilled.get();
+    }
+    
+    public long getBytesMerged() {
+        return bytesMerged.get();
+    }
+    
+    public long getFilesSpilled() {
+        return filesSpilled.get();
+    }
+    
+    public long getFallbackFiles() {
+        return fallbackFiles.get();
+    }
+    
+    @Override
+    public String toString() {
+        return "bytesSpilled=" + bytesSpilled + ", bytesMerged=" + bytesMerged + ", filesSpilled=" + filesSpilled + ", fallbackFiles=" + fallbackFiles;
+    }
+}
@@ -0,0 +1,154 @@
+package datawave.query.function.serializer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import datawave.query.attributes.Attributes;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.Numeric;
+import datawave.query.function.deserializer.ColumnarDocumentDeserializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class ColumnarDocumentSerializerTest {
+    
+    private Key docKey(int uid) {
+        return new Key("20190101_0", "datatype\u0000uid." + uid, "", "ALL", 1000L + uid);
+    }
+    
+    private Document document(int uid, int fields) {
+        Key docKey = docKey(uid);
+        Document doc = new Document(docKey, true);
+        for (int i = 0; i < fields; i++) {
+            doc.put("FIELD_" + i, new Content("value " + uid + " " + i, docKey, true));
+        }
+        doc.put("NUMBER", new Numeric(uid, docKey, true));
+        Attributes attrs = new Attributes(true);
+        attrs.add(new Content("first", new Key("20190101_0", "datatype\u0000uid." + uid, "", "A&B", 500L), true));
+        attrs.add(new Content("second", docKey, true));
+        doc.put("MULTI", attrs);
+        return doc;
+    }
+    
+    private List<Entry<Key,Document>> roundTrip(ColumnarDocumentSerializer serializer, ColumnarDocumentDeserializer deserializer, List<Document> docs) {
+        Key last = null;
+        for (Document doc : docs) {
+            last = doc.getMetadata();
+            serializer.add(last, doc);
+        }
+        Assert.assertEquals(docs.size(), serializer.getBufferedDocuments());
+        Entry<Key,Value> block = Maps.immutableEntry(last, serializer.flush());
+        Assert.assertEquals(0, serializer.getBufferedDocuments());
+        
+        List<Entry<Key,Document>> results = new ArrayList<>();
+        Iterator<Entry<Key,Value>> expanded = deserializer.expand(block);
+        while (expanded.hasNext()) {
+            results.add(deserializer.apply(expanded.next()));
+        }
+        return results;
+    }
+    
+    private List<Document> documents(int count, int fields) {
+        List<Document> docs = new ArrayList<>();
+        for (int uid = 0; uid < count; uid++) {
+            // vary the fields between documents so that some columns have absent values
+            docs.add(document(uid, fields + (uid % 3)));
+        }
+        return docs;
+    }
+    
+    @Test
+    public void testSingleDocument() {
+        ColumnarDocumentSerializer serializer = new ColumnarDocumentSerializer(false, false);
+        ColumnarDocumentDeserializer deserializer = new ColumnarDocumentDeserializer();
+        
+        Document doc = document(1, 5);
+        Entry<Key,Document> result = deserializer.apply(serializer.apply(Maps.immutableEntry(docKey(1), doc)));
+        Assert.assertEquals(docKey(1), result.getKey());
+        Assert.assertEquals(doc, result.getValue());
+    }
+    
+    @Test
+    public void testBlockRoundTrip() {
+        ColumnarDocumentSerializer serializer = new ColumnarDocumentSerializer(false, false);
+        ColumnarDocumentDeserializer deserializer = new ColumnarDocumentDeserializer();
+        
+        // reusing the serializer must not leak state between blocks
+        for (int count = 1; count < 20; count += 6) {
+            List<Document> docs = documents(count, 4);
+            List<Entry<Key,Document>> results = roundTrip(serializer, deserializer, docs);
+            Assert.assertEquals(docs.size(), results.size());
+            for (int i = 0; i < docs.size(); i++) {
+                Assert.assertEquals(docs.get(i).getMetadata(), results.get(i).getKey());
+                Assert.assertEquals(docs.get(i), results.get(i).getValue());
+            }
+        }
+    }
+    
+    @Test
+    public void testMetadataRoundTrip() {
+        ColumnarDocumentSerializer serializer = new ColumnarDocumentSerializer(false, false);
+        ColumnarDocumentDeserializer deserializer = new ColumnarDocumentDeserializer();
+        
+        Document result = roundTrip(serializer, deserializer, documents(3, 1)).get(2).getValue();
+        Attributes multi = (Attributes) result.get("MULTI");
+        List<ColumnVisibility> visibilities = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        multi.getAttributes().forEach(attr -> {
+            visibilities.add(attr.getColumnVisibility());
+            timestamps.add(attr.getTimestamp());
+        });
+        Assert.assertTrue(visibilities.contains(new ColumnVisibility("A&B")));
+        Assert.assertTrue(visibilities.contains(new ColumnVisibility("ALL")));
+        Assert.assertTrue(timestamps.contains(500L));
+        Assert.assertTrue(timestamps.contains(1002L));
+    }
+    
+    @Test
+    public void testReducedResponse() {
+        ColumnarDocumentSerializer serializer = new ColumnarDocumentSerializer(true, false);
+        ColumnarDocumentDeserializer deserializer = new ColumnarDocumentDeserializer();
+        
+        List<Document> docs = documents(5, 3);
+        List<Entry<Key,Document>> results = roundTrip(serializer, deserializer, docs);
+        for (int i = 0; i < docs.size(); i++) {
+            Assert.assertEquals(docs.get(i), results.get(i).getValue());
+        }
+    }
+    
+    @Test
+    public void testCompressedRoundTrip() {
+        ColumnarDocumentSerializer serializer = new ColumnarDocumentSerializer(false, true);
+        ColumnarDocumentDeserializer deserializer = new ColumnarDocumentDeserializer();
+        
+        List<Document> docs = documents(50, 200);
+        List<Entry<Key,Document>> results = roundTrip(serializer, deserializer, docs);
+        for (int i = 0; i < docs.size(); i++) {
+            Assert.assertEquals(docs.get(i), results.get(i).getValue());
+        }
+    }
+    
+    @Test
+    public void testSmallerThanKryoBatch() {
+        List<Document> docs = documents(20, 10);
+        
+        ColumnarDocumentSerializer columnar = new ColumnarDocumentSerializer(false, false);
+        KryoDocumentSerializer kryo = new KryoDocumentSerializer(false, false);
+        int kryoSize = 0;
+        for (Document doc : docs) {
+            columnar.add(doc.getMetadata(), doc);
+            kryoSize += kryo.apply(Maps.immutableEntry(doc.getMetadata(), doc)).getValue().getSize();
+        }
+        int columnarSize = columnar.flush().getSize();
+        Assert.assertTrue(columnarSize + " >= " + kryoSize, columnarSize < kryoSize);
+    }
+}
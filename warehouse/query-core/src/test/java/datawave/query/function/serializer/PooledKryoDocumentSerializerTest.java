@@ -0,0 +1,72 @@
+package datawave.query.function.serializer;
+
+import java.util.Map.Entry;
+
+import datawave.query.attributes.Attributes;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.Numeric;
+import datawave.query.function.deserializer.PooledKryoDocumentDeserializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class PooledKryoDocumentSerializerTest {
+    
+    private final Key docKey = new Key("20190101_0", "datatype\u0000uid.123", "", "ALL");
+    
+    private Document document(int fields) {
+        Document doc = new Document(docKey, true);
+        for (int i = 0; i < fields; i++) {
+            doc.put("FIELD_" + i, new Content("value " + i, docKey, true));
+        }
+        doc.put("NUMBER", new Numeric(42, docKey, true));
+        Attributes attrs = new Attributes(true);
+        attrs.add(new Content("first", docKey, true));
+        attrs.add(new Content("second", docKey, true));
+        doc.put("MULTI", attrs);
+        return doc;
+    }
+    
+    private Document roundTrip(DocumentSerializer serializer, PooledKryoDocumentDeserializer deserializer, Document doc) {
+        Entry<Key,Value> serialized = serializer.apply(Maps.immutableEntry(docKey, doc));
+        return deserializer.apply(serialized).getValue();
+    }
+    
+    @Test
+    public void testRoundTrip() {
+        PooledKryoDocumentSerializer serializer = new PooledKryoDocumentSerializer(false, false);
+        PooledKryoDocumentDeserializer deserializer = new PooledKryoDocumentDeserializer();
+        
+        // reusing the serializer and deserializer must not leak state between documents
+        for (int fields = 0; fields < 10; fields++) {
+            Document doc = document(fields);
+            Assert.assertEquals(doc, roundTrip(serializer, deserializer, doc));
+        }
+    }
+    
+    @Test
+    public void testCompressedRoundTrip() {
+        PooledKryoDocumentSerializer serializer = new PooledKryoDocumentSerializer(false, true);
+        PooledKryoDocumentDeserializer deserializer = new PooledKryoDocumentDeserializer();
+        
+        // large enough to be compressed, followed by one that is not
+        Document large = document(2000);
+        Document small = document(1);
+        Assert.assertEquals(large, roundTrip(serializer, deserializer, large));
+        Assert.assertEquals(small, roundTrip(serializer, deserializer, small));
+        Assert.assertEquals(large, roundTrip(serializer, deserializer, large));
+    }
+    
+    @Test
+    public void testSmallerThanClassNames() {
+        Document doc = document(10);
+        int pooled = new PooledKryoDocumentSerializer(false, false).apply(Maps.immutableEntry(docKey, doc)).getValue().getSize();
+        int named = new KryoDocumentSerializer(false, false).apply(Maps.immutableEntry(docKey, doc)).getValue().getSize();
+        Assert.assertTrue(pooled + " >= " + named, pooled < named);
+    }
+}
@@ -0,0 +1,108 @@
+package datawave.query.index.lookup;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import datawave.query.jexl.JexlASTHelper;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexInfoTest {
+    
+    @Test
+    public void testGallop() {
+        List<IndexMatch> sorted = new ArrayList<>();
+        for (int i = 0; i < 100; i += 2) {
+            sorted.add(new IndexMatch(uid(i)));
+        }
+        for (int start = 0; start <= sorted.size(); start++) {
+            for (int i = 0; i < 102; i++) {
+                int expected = Math.max(start, (i + 1) / 2);
+                assertEquals(Math.min(expected, sorted.size()), IndexInfo.gallop(sorted, start, new IndexMatch(uid(i))));
+            }
+        }
+    }
+    
+    @Test
+    public void testSortedIntersectMatchesUnsorted() throws ParseException {
+        JexlNode delayed = JexlASTHelper.parseJexlQuery("C == '3'");
+        Random random = new Random(42);
+        for (int trial = 0; trial < 50; trial++) {
+            IndexInfo first = info(random, random.nextInt(200), "A == '1'");
+            IndexInfo second = info(random, random.nextInt(20), "B == '2'");
+            List<JexlNode> delayedNodes = (trial % 2 == 0 ? Collections.emptyList() : Lists.newArrayList(delayed));
+            
+            Set<IndexMatch> sorted = first.intersect(first.uids(), second.uids(), delayedNodes);
+            Set<IndexMatch> unsorted = first.intersect(Sets.newHashSet(first.uids()), Sets.newHashSet(second.uids()), delayedNodes);
+            assertSameMatches(unsorted, sorted);
+            assertTrue(sorted instanceof ImmutableSortedSet);
+        }
+    }
+    
+    @Test
+    public void testUnionMatchesUids() throws ParseException {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 50; trial++) {
+            IndexInfo first = info(random, random.nextInt(50), "A == '1'");
+            IndexInfo second = info(random, random.nextInt(50), "B == '2'");
+            
+            IndexInfo union = first.union(second);
+            Set<IndexMatch> expected = Sets.newTreeSet(first.uids());
+            expected.addAll(second.uids());
+            assertEquals(Lists.newArrayList(expected), Lists.newArrayList(union.uids()));
+            assertEquals(expected.size(), union.count());
+            for (IndexMatch match : union.uids()) {
+                int nodes = (first.uids().contains(match) ? 1 : 0) + (second.uids().contains(match) ? 1 : 0);
+                assertEquals(nodes, match.nodeStrings.size());
+            }
+        }
+    }
+    
+    @Test
+    public void testIntersectSmallAndLarge() throws ParseException {
+        IndexInfo small = info(new Random(3), 10, "A == '1'");
+        IndexInfo large = new IndexInfo(1000);
+        large.applyNode(JexlASTHelper.parseJexlQuery("B == '2'"));
+        
+        IndexInfo merged = small.intersect(large);
+        assertEquals(Lists.newArrayList(small.uids()), Lists.newArrayList(merged.uids()));
+        for (IndexMatch match : merged.uids()) {
+            assertEquals(2, match.nodeStrings.size());
+        }
+    }
+    
+    private static void assertSameMatches(Set<IndexMatch> expected, Set<IndexMatch> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<IndexMatch> matches = Sets.newTreeSet(expected).iterator();
+        for (IndexMatch match : actual) {
+            IndexMatch expectedMatch = matches.next();
+            assertEquals(expectedMatch.getUid(), match.getUid());
+            assertEquals(expectedMatch.nodeStrings, match.nodeStrings);
+        }
+    }
+    
+    private static IndexInfo info(Random random, int size, String query) throws ParseException {
+        List<IndexMatch> matches = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            matches.add(new IndexMatch(uid(random.nextInt(400))));
+        }
+        IndexInfo info = new IndexInfo(matches);
+        info.applyNode(JexlASTHelper.parseJexlQuery(query));
+        return info;
+    }
+    
+    private static String uid(int i) {
+        return String.format("uid%05d", i);
+    }
+}
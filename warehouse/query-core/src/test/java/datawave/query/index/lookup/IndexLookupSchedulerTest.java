@@ -0,0 +1,107 @@
+package datawave.query.index.lookup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexLookupSchedulerTest {
+    
+    @Test
+    public void testQueryLimit() throws Exception {
+        IndexLookupScheduler scheduler = new IndexLookupScheduler(8);
+        ExecutorService executor = scheduler.newExecutor(IndexLookupScheduler.Lane.LOOKUP, "query", 2);
+        
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        
+        assertTrue(maxRunning.get() <= 2);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(20, scheduler.getCompletedTasks(IndexLookupScheduler.Lane.LOOKUP));
+        assertEquals(0, scheduler.getQueuedTasks(IndexLookupScheduler.Lane.LOOKUP));
+    }
+    
+    @Test
+    public void testFairShare() throws Exception {
+        IndexLookupScheduler scheduler = new IndexLookupScheduler(1);
+        ExecutorService busy = scheduler.newExecutor(IndexLookupScheduler.Lane.LOOKUP, "busy", 10);
+        ExecutorService quiet = scheduler.newExecutor(IndexLookupScheduler.Lane.LOOKUP, "quiet", 10);
+        
+        // hold the only thread while both queries queue their work
+        final CountDownLatch release = new CountDownLatch(1);
+        busy.submit(() -> {
+            release.await();
+            return null;
+        });
+        final AtomicInteger busyCompleted = new AtomicInteger();
+        Future<?> last = null;
+        for (int i = 0; i < 100; i++) {
+            last = busy.submit(busyCompleted::incrementAndGet);
+        }
+        Future<Integer> quietTask = quiet.submit(busyCompleted::get);
+        release.countDown();
+        
+        // the quiet query is served next rather than after the work queued by the busy query
+        assertTrue(quietTask.get(10, TimeUnit.SECONDS) <= 1);
+        
+        last.get(10, TimeUnit.SECONDS);
+        busy.shutdown();
+        quiet.shutdown();
+        assertTrue(busy.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(quiet.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testShutdownNow() throws Exception {
+        IndexLookupScheduler scheduler = new IndexLookupScheduler(1);
+        ExecutorService executor = scheduler.newExecutor(IndexLookupScheduler.Lane.SCAN, "query", 1);
+        
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            executor.submit(() -> {});
+        }
+        
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(5, executor.shutdownNow().size());
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        
+        // the thread is still available to the other queries
+        ExecutorService other = scheduler.newExecutor(IndexLookupScheduler.Lane.SCAN, "other", 1);
+        other.submit(() -> {}).get(10, TimeUnit.SECONDS);
+        other.shutdown();
+    }
+}
@@ -0,0 +1,137 @@
+package datawave.query.iterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import datawave.query.attributes.Document;
+import datawave.query.attributes.Numeric;
+import datawave.query.function.deserializer.ColumnarDocumentDeserializer;
+import datawave.query.function.serializer.ColumnarDocumentSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class ColumnarBatchingIteratorTest {
+    
+    private static Key docKey(int uid) {
+        return new Key("20190101_0", "datatype\u0000uid." + uid, "", "ALL", 1000L);
+    }
+    
+    private static List<Entry<Key,Document>> documents(int count) {
+        List<Entry<Key,Document>> documents = new ArrayList<>();
+        for (int uid = 0; uid < count; uid++) {
+            Document doc = new Document(docKey(uid), true);
+            doc.put("NUMBER", new Numeric(uid, docKey(uid), true));
+            documents.add(Maps.immutableEntry(docKey(uid), doc));
+        }
+        return documents;
+    }
+    
+    private static List<Key> keys(Entry<Key,Value> block) {
+        List<Key> keys = new ArrayList<>();
+        new ColumnarDocumentDeserializer().expand(block).forEachRemaining(e -> keys.add(e.getKey()));
+        return keys;
+    }
+    
+    @Test
+    public void testBatches() {
+        ColumnarBatchingIterator iterator = new ColumnarBatchingIterator(documents(7).iterator(), new ColumnarDocumentSerializer(false, false), 3, 0, null);
+        
+        List<Entry<Key,Value>> blocks = new ArrayList<>();
+        iterator.forEachRemaining(blocks::add);
+        Assert.assertEquals(3, blocks.size());
+        
+        // each block is keyed by its last document
+        int uid = 0;
+        for (Entry<Key,Value> block : blocks) {
+            List<Key> keys = keys(block);
+            Assert.assertEquals(keys.get(keys.size() - 1), block.getKey());
+            for (Key key : keys) {
+                Assert.assertEquals(docKey(uid++), key);
+            }
+        }
+        Assert.assertEquals(7, uid);
+    }
+    
+    @Test
+    public void testYieldIsDeferredUntilTheBlockIsReturned() {
+        TestYieldCallback callback = new TestYieldCallback();
+        Key yieldKey = docKey(3);
+        Iterator<Entry<Key,Document>> source = new YieldingIterator(documents(10).iterator(), 3, callback, yieldKey);
+        ColumnarBatchingIterator iterator = new ColumnarBatchingIterator(source, new ColumnarDocumentSerializer(false, false), 5, 0,
+                        new YieldCallbackWrapper<>(callback));
+        
+        // the partially filled block is returned without the yield being visible
+        Assert.assertTrue(iterator.hasNext());
+        Entry<Key,Value> block = iterator.next();
+        Assert.assertFalse(callback.hasYielded());
+        Assert.assertEquals(docKey(2), block.getKey());
+        Assert.assertEquals(3, keys(block).size());
+        
+        // then the yield is restored, and nothing more is returned
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertTrue(callback.hasYielded());
+        Assert.assertEquals(yieldKey, callback.getPositionAndReset());
+    }
+    
+    /**
+     * Yields after returning a number of documents, as the QueryIterator does when it runs out of time
+     */
+    private static class YieldingIterator implements Iterator<Entry<Key,Document>> {
+        private final Iterator<Entry<Key,Document>> delegate;
+        private final TestYieldCallback callback;
+        private final Key yieldKey;
+        private int remaining;
+        
+        YieldingIterator(Iterator<Entry<Key,Document>> delegate, int count, TestYieldCallback callback, Key yieldKey) {
+            this.delegate = delegate;
+            this.remaining = count;
+            this.callback = callback;
+            this.yieldKey = yieldKey;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (remaining == 0) {
+                if (!callback.hasYielded()) {
+                    callback.yield(yieldKey);
+                }
+                return false;
+            }
+            return delegate.hasNext();
+        }
+        
+        @Override
+        public Entry<Key,Document> next() {
+            remaining--;
+            return delegate.next();
+        }
+    }
+    
+    /**
+     * The methods of a yield callback, which the {@link YieldCallbackWrapper} calls by reflection
+     */
+    public static class TestYieldCallback {
+        private Key position = null;
+        
+        public void yield(Key key) {
+            position = key;
+        }
+        
+        public boolean hasYielded() {
+            return position != null;
+        }
+        
+        public Key getPositionAndReset() {
+            Key key = position;
+            position = null;
+            return key;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedQueryIterator;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.YieldCallbackWrapper;
+import datawave.query.iterator.logic.ArrayIterator;
+import datawave.query.iterator.profile.QuerySpanCollector;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IterationInterruptedException;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class BatchedPipelineIteratorTest {
+    
+    private final CountDownLatch release = new CountDownLatch(1);
+    
+    @After
+    public void cleanup() {
+        // never leave an evaluation thread blocked
+        release.countDown();
+    }
+    
+    private static Key docKey(int uid) {
+        return new Key("20190101_0", String.format("datatype\u0000uid.%03d", uid), "", "ALL", 1000L);
+    }
+    
+    private static int uid(Key key) {
+        String cf = key.getColumnFamily().toString();
+        return Integer.parseInt(cf.substring(cf.lastIndexOf('.') + 1));
+    }
+    
+    private static Key[] docKeys(int from, int to) {
+        Key[] keys = new Key[to - from];
+        for (int uid = from; uid < to; uid++) {
+            keys[uid - from] = docKey(uid);
+        }
+        return keys;
+    }
+    
+    /**
+     * Create a batched pipeline iterator whose pipelines apply the specified evaluation to each document, a null evaluation dropping the document
+     */
+    private BatchedPipelineIterator createIterator(Key[] keys, int maxPipelines, int maxCachedResults, int batchSize, Function<Key,Key> evaluation,
+                    YieldCallbackWrapper<Key> yield, long yieldThresholdMs) {
+        QueryIterator sourceIterator = new QueryIterator() {
+            @Override
+            public Iterator<Entry<Key,Document>> createDocumentPipeline(SortedKeyValueIterator<Key,Value> deepSourceCopy,
+                            NestedQueryIterator<Key> documentSpecificSource, QuerySpanCollector querySpanCollector) {
+                return new EvaluationIterator(documentSpecificSource, evaluation);
+            }
+        };
+        SortedKeyValueIterator<Key,Value> sourceForDeepCopy = new SortedMapIterator(new TreeMap<>());
+        BatchedPipelineIterator iterator = new BatchedPipelineIterator(new ArrayIterator<>(keys), maxPipelines, maxCachedResults, batchSize, null, null,
+                        sourceIterator, sourceForDeepCopy, null, yield, yieldThresholdMs);
+        iterator.startPipeline();
+        return iterator;
+    }
+    
+    @Test
+    public void testResultsAreOrderedAcrossBatches() {
+        Random random = new Random(42);
+        List<Integer> delays = new ArrayList<>();
+        for (int uid = 0; uid < 100; uid++) {
+            delays.add(random.nextInt(3));
+        }
+        
+        // batches complete out of order, and every third document is dropped by the evaluation
+        Function<Key,Key> evaluation = key -> {
+            int uid = uid(key);
+            sleep(delays.get(uid));
+            return (uid % 3 == 0 ? null : key);
+        };
+        BatchedPipelineIterator iterator = createIterator(docKeys(0, 100), 4, 10, 3, evaluation, null, 0);
+        
+        List<Integer> expected = new ArrayList<>();
+        for (int uid = 0; uid < 100; uid++) {
+            if (uid % 3 != 0) {
+                expected.add(uid);
+            }
+        }
+        List<Integer> uids = new ArrayList<>();
+        while (iterator.hasNext()) {
+            uids.add(uid(iterator.next().getKey()));
+        }
+        Assert.assertEquals(expected, uids);
+    }
+    
+    @Test
+    public void testYieldAndReseek() {
+        // the batch holding document 4 does not complete until released
+        Function<Key,Key> evaluation = key -> {
+            if (uid(key) == 4) {
+                await(release);
+            }
+            return key;
+        };
+        TestYieldCallback callback = new TestYieldCallback();
+        BatchedPipelineIterator iterator = createIterator(docKeys(0, 10), 2, 1, 2, evaluation, new YieldCallbackWrapper<>(callback), 500);
+        
+        List<Integer> uids = new ArrayList<>();
+        try {
+            while (iterator.hasNext()) {
+                uids.add(uid(iterator.next().getKey()));
+            }
+            Assert.fail("Expected the iterator to yield");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IterationInterruptedException);
+        }
+        
+        // we yield at the last key of the last batch consumed
+        Assert.assertTrue(callback.hasYielded());
+        Key yieldKey = callback.getPositionAndReset();
+        Assert.assertEquals(docKey(3), yieldKey);
+        Assert.assertEquals(4, uids.size());
+        release.countDown();
+        
+        // re-seeking after the yield key picks up where the results left off
+        iterator = createIterator(docKeys(uid(yieldKey) + 1, 10), 2, 1, 2, evaluation, new YieldCallbackWrapper<>(callback), 500);
+        while (iterator.hasNext()) {
+            uids.add(uid(iterator.next().getKey()));
+        }
+        Assert.assertFalse(callback.hasYielded());
+        for (int uid = 0; uid < 10; uid++) {
+            Assert.assertEquals(Integer.valueOf(uid), uids.get(uid));
+        }
+        Assert.assertEquals(10, uids.size());
+    }
+    
+    @Test
+    public void testBatchErrorIsPropagated() {
+        IllegalStateException failure = new IllegalStateException("evaluation failed");
+        Function<Key,Key> evaluation = key -> {
+            if (uid(key) == 5) {
+                throw failure;
+            }
+            return key;
+        };
+        BatchedPipelineIterator iterator = createIterator(docKeys(0, 10), 2, 1, 2, evaluation, null, 0);
+        
+        // the batches before the failed one are returned
+        List<Integer> uids = new ArrayList<>();
+        try {
+            while (iterator.hasNext()) {
+                uids.add(uid(iterator.next().getKey()));
+            }
+            Assert.fail("Expected the evaluation failure to be propagated");
+        } catch (RuntimeException e) {
+            Assert.assertNotNull(e.getCause());
+            Assert.assertTrue(e.getCause().getMessage().contains(docKey(5).toString()));
+            Assert.assertSame(failure, e.getCause().getCause());
+        }
+        Assert.assertEquals(4, uids.size());
+        for (int uid = 0; uid < 4; uid++) {
+            Assert.assertEquals(Integer.valueOf(uid), uids.get(uid));
+        }
+        
+        // the remaining evaluations were cancelled
+        Assert.assertFalse(iterator.hasNext());
+    }
+    
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out waiting to be released");
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * A document pipeline that evaluates the document set on its document specific source
+     */
+    private static class EvaluationIterator implements Iterator<Entry<Key,Document>> {
+        private final NestedQueryIterator<Key> source;
+        private final Function<Key,Key> evaluation;
+        private Entry<Key,Document> next = null;
+        
+        EvaluationIterator(NestedQueryIterator<Key> source, Function<Key,Key> evaluation) {
+            this.source = source;
+            this.evaluation = evaluation;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (next == null && source.hasNext()) {
+                Key key = evaluation.apply(source.next());
+                if (key != null) {
+                    next = Maps.immutableEntry(key, source.document());
+                }
+            }
+            return next != null;
+        }
+        
+        @Override
+        public Entry<Key,Document> next() {
+            Entry<Key,Document> result = next;
+            next = null;
+            return result;
+        }
+    }
+    
+    /**
+     * The methods of a yield callback, which the {@link YieldCallbackWrapper} calls by reflection
+     */
+    public static class TestYieldCallback {
+        private Key position = null;
+        
+        public void yield(Key key) {
+            position = key;
+        }
+        
+        public boolean hasYielded() {
+            return position != null;
+        }
+        
+        public Key getPositionAndReset() {
+            Key key = position;
+            position = null;
+            return key;
+        }
+    }
+}
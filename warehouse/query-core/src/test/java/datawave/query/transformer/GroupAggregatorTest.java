@@ -0,0 +1,122 @@
+package datawave.query.transformer;
+
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.data.type.NumberType;
+import datawave.data.type.Type;
+import datawave.query.attributes.Attribute;
+import datawave.query.attributes.TypeAttribute;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class GroupAggregatorTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private Attribute<?> attribute(String field, Type<?> type, String value) {
+        type.setDelegateFromString(value);
+        return new TypeAttribute(type, new Key(field), true);
+    }
+    
+    private List<Attribute<?>> group(int gender, int age) {
+        List<Attribute<?>> group = new ArrayList<>();
+        // vary the order of the attributes, which must not matter
+        if (age % 2 == 0) {
+            group.add(attribute("GEN", new LcNoDiacriticsType(), "gender" + gender));
+            group.add(attribute("AG", new NumberType(), Integer.toString(age)));
+        } else {
+            group.add(attribute("AG", new NumberType(), Integer.toString(age)));
+            group.add(attribute("GEN", new LcNoDiacriticsType(), "gender" + gender));
+        }
+        return group;
+    }
+    
+    private String name(List<Attribute<?>> attributes) {
+        String gender = null;
+        String age = null;
+        for (Attribute<?> attribute : attributes) {
+            String value = ((TypeAttribute<?>) attribute).getType().getDelegateAsString();
+            if (attribute.getMetadata().getRow().toString().equals("GEN")) {
+                gender = value;
+            } else {
+                age = value;
+            }
+        }
+        return gender + "-" + age;
+    }
+    
+    private Map<String,Long> aggregate(GroupAggregator aggregator, Map<String,Set<ColumnVisibility>> visibilities) {
+        ColumnVisibility[] vis = {new ColumnVisibility("A"), new ColumnVisibility("B"), new ColumnVisibility("A&B")};
+        for (int pass = 0; pass < 3; pass++) {
+            for (int gender = 0; gender < 2; gender++) {
+                for (int age = 0; age < 500; age++) {
+                    aggregator.add(group(gender, age), vis[(age + pass) % vis.length], pass + 1);
+                }
+            }
+        }
+        
+        Map<String,Long> counts = new HashMap<>();
+        Iterator<GroupAggregator.Group> groups = aggregator.drain();
+        while (groups.hasNext()) {
+            GroupAggregator.Group group = groups.next();
+            String name = name(group.getAttributes());
+            Assert.assertNull("group returned more than once: " + name, counts.put(name, group.getCount()));
+            visibilities.put(name, new HashSet<>(group.getVisibilities()));
+        }
+        return counts;
+    }
+    
+    private void verify(Map<String,Long> counts, Map<String,Set<ColumnVisibility>> visibilities) {
+        Assert.assertEquals(1000, counts.size());
+        for (Map.Entry<String,Long> count : counts.entrySet()) {
+            Assert.assertEquals(count.getKey(), Long.valueOf(6), count.getValue());
+            Assert.assertEquals(count.getKey(), 3, visibilities.get(count.getKey()).size());
+        }
+    }
+    
+    @Test
+    public void testInMemory() {
+        GroupAggregator aggregator = new GroupAggregator(0, null);
+        Map<String,Set<ColumnVisibility>> visibilities = new HashMap<>();
+        verify(aggregate(aggregator, visibilities), visibilities);
+        Assert.assertTrue(aggregator.isEmpty());
+    }
+    
+    @Test
+    public void testSpilled() throws Exception {
+        // small enough to spill several times per pass
+        GroupAggregator aggregator = new GroupAggregator(16 * 1024, temporaryFolder.getRoot().getAbsolutePath());
+        Map<String,Set<ColumnVisibility>> visibilities = new HashMap<>();
+        verify(aggregate(aggregator, visibilities), visibilities);
+        Assert.assertTrue(aggregator.isEmpty());
+        
+        // the spill files are removed once merged
+        Assert.assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+    
+    @Test
+    public void testClose() throws Exception {
+        GroupAggregator aggregator = new GroupAggregator(1024, temporaryFolder.getRoot().getAbsolutePath());
+        for (int age = 0; age < 100; age++) {
+            aggregator.add(group(0, age), new ColumnVisibility("A"), 1);
+        }
+        Assert.assertTrue(aggregator.getSpillCount() > 0);
+        Assert.assertTrue(temporaryFolder.getRoot().list().length > 0);
+        
+        aggregator.close();
+        Assert.assertTrue(aggregator.isEmpty());
+        Assert.assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+}
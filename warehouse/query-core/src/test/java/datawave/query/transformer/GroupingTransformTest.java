@@ -0,0 +1,76 @@
+package datawave.query.transformer;
+
+import com.google.common.collect.Maps;
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.data.type.NumberType;
+import datawave.data.type.Type;
+import datawave.marking.MarkingFunctions;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.TypeAttribute;
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map.Entry;
+
+public class GroupingTransformTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private GroupingTransform transform(File spillDir) {
+        GroupingTransform transform = new GroupingTransform(null, Arrays.asList("GEN", "AG"), 1024, spillDir.getPath());
+        transform.initialize(null, new MarkingFunctions.NoOp());
+        return transform;
+    }
+    
+    private TypeAttribute<?> attribute(String field, Type<?> type, String value, Key key) {
+        type.setDelegateFromString(value);
+        return new TypeAttribute(type, new Key(key.getRow(), key.getColumnFamily(), new Text(field), key.getColumnVisibility()), true);
+    }
+    
+    private void addDocuments(GroupingTransform transform, int count) {
+        for (int i = 0; i < count; i++) {
+            Key key = new Key("20180101_0", "datatype\0uid" + i, "", "A");
+            Document d = new Document(key, true);
+            d.put("GEN", attribute("GEN", new LcNoDiacriticsType(), "gender" + (i % 2), key));
+            d.put("AG", attribute("AG", new NumberType(), Integer.toString(i), key));
+            transform.apply(Maps.immutableEntry(key, d));
+        }
+    }
+    
+    @Test
+    public void testSpillFilesAreDeletedOnceFlushed() {
+        File spillDir = temporaryFolder.getRoot();
+        GroupingTransform transform = transform(spillDir);
+        addDocuments(transform, 200);
+        Assert.assertNotEquals(0, spillDir.list().length);
+        
+        int groups = 0;
+        for (Entry<Key,Document> entry = transform.flush(); entry != null; entry = transform.flush()) {
+            Assert.assertTrue(entry.getValue().containsKey("COUNT"));
+            groups++;
+        }
+        Assert.assertEquals(200, groups);
+        Assert.assertEquals(0, spillDir.list().length);
+    }
+    
+    @Test
+    public void testSpillFilesAreDeletedOnClose() {
+        File spillDir = temporaryFolder.getRoot();
+        GroupingTransform transform = transform(spillDir);
+        addDocuments(transform, 200);
+        Assert.assertNotNull(transform.flush());
+        Assert.assertNotEquals(0, spillDir.list().length);
+        
+        // a query closed before all of its groups were returned
+        transform.close();
+        Assert.assertEquals(0, spillDir.list().length);
+        Assert.assertNull(transform.flush());
+    }
+}
@@ -0,0 +1,77 @@
+package datawave.query.transformer;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class SignatureSetTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private byte[] signature(int i) {
+        return ("FIELD_A=value" + i + ",FIELD_B=" + (i % 7)).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testSpilledSetIsExact() throws Exception {
+        // small enough to spill often and to merge the spill files
+        SignatureSet signatures = new SignatureSet(8 * 1024, true, temporaryFolder.getRoot().getAbsolutePath());
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(10000);
+            Assert.assertEquals("signature " + value, expected.add(value), signatures.add(signature(value)));
+        }
+        Assert.assertEquals(expected.size(), signatures.size());
+        Assert.assertTrue(signatures.getSpills() > 8);
+        Assert.assertTrue(signatures.getDiskLookups() > 0);
+        Assert.assertTrue(temporaryFolder.getRoot().list().length > 0);
+        
+        signatures.close();
+        Assert.assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+    
+    @Test
+    public void testBloomFiltersStayWithinBudget() throws Exception {
+        long maxMemory = 64 * 1024;
+        SignatureSet signatures = new SignatureSet(maxMemory, true, temporaryFolder.getRoot().getAbsolutePath());
+        for (int i = 0; i < 50000; i++) {
+            Assert.assertTrue(signatures.add(signature(i)));
+        }
+        Assert.assertTrue(signatures.getBloomMemory() > 0);
+        Assert.assertTrue(signatures.getBloomMemory() <= maxMemory / 2);
+        
+        // past the capacity of the bloom filters, the signatures are still exact
+        for (int i = 0; i < 50000; i += 97) {
+            Assert.assertFalse(signatures.add(signature(i)));
+        }
+        Assert.assertTrue(signatures.add(signature(50000)));
+        
+        signatures.close();
+        Assert.assertEquals(0, signatures.getBloomMemory());
+        Assert.assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+    
+    @Test
+    public void testBoundedSetNeverDropsUnseen() {
+        SignatureSet signatures = new SignatureSet(8 * 1024, false, null);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(signatures.add(signature(i)));
+        }
+        long recorded = signatures.size();
+        Assert.assertTrue(recorded < 1000);
+        
+        for (int i = 0; i < 1000; i++) {
+            // only the recorded signatures are known to be duplicates
+            Assert.assertEquals(i >= recorded, signatures.add(signature(i)));
+        }
+        Assert.assertEquals(0, signatures.getSpills());
+    }
+}
@@ -12,6 +12,7 @@ import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Attributes;
 import datawave.query.attributes.DiacriticContent;
 import datawave.query.attributes.Document;
+import datawave.query.tables.ShardQueryLogic;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.collections4.Transformer;
@@ -19,7 +20,9 @@ import org.apache.commons.collections4.iterators.TransformIterator;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -34,6 +37,9 @@ public class UniqueTransformTest {
     private List<String> values = new ArrayList();
     private List<String> visibilities = new ArrayList();
     
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
     @Before
     public void setup() {
         Random random = new Random(1000);
@@ -185,6 +191,33 @@ public class UniqueTransformTest {
         Assert.assertNull(transform.apply(null));
     }
     
+    @Test
+    public void testSpillFilesAreDeletedOnFlushAndClose() {
+        Random random = new Random(3000);
+        String spillDir = temporaryFolder.getRoot().getAbsolutePath();
+        
+        UniqueTransform flushed = new UniqueTransform(new ShardQueryLogic(), Collections.singleton("Attr0"), 1024, spillDir);
+        addDocuments(flushed, random);
+        Assert.assertTrue(temporaryFolder.getRoot().list().length > 0);
+        Assert.assertNull(flushed.flush());
+        Assert.assertEquals(0, temporaryFolder.getRoot().list().length);
+        
+        // a query closed before all of its documents were seen
+        UniqueTransform closed = new UniqueTransform(new ShardQueryLogic(), Collections.singleton("Attr0"), 1024, spillDir);
+        addDocuments(closed, random);
+        Assert.assertTrue(temporaryFolder.getRoot().list().length > 0);
+        closed.close();
+        Assert.assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+    
+    private void addDocuments(UniqueTransform transform, Random random) {
+        for (int i = 0; i < 500; i++) {
+            Document d = new Document(createDocKey(random), true);
+            d.put("Attr0", new DiacriticContent("value" + (i % 400), d.getMetadata(), true), false, false);
+            Assert.assertEquals(i < 400, transform.apply(Maps.immutableEntry(d.getMetadata(), d)) != null);
+        }
+    }
+    
     /**
      * Test that groups get placed into separate field sets
      */
@@ -0,0 +1,98 @@
+package datawave.query.util.sortedset;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalBackedSortedSetTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private SortedSet<String> expected(int count) {
+        SortedSet<String> expected = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            expected.add(String.format("value.%05d", i));
+        }
+        return expected;
+    }
+    
+    private void addShuffled(SortedSet<String> set, SortedSet<String> values) {
+        List<String> shuffled = new ArrayList<>(values);
+        Collections.shuffle(shuffled);
+        // add one at a time so that the buffer is persisted every bufferPersistThreshold values
+        for (String value : shuffled) {
+            set.add(value);
+        }
+    }
+    
+    @Test
+    public void testPersistAndMerge() throws Exception {
+        List<File> dirs = new ArrayList<>();
+        dirs.add(temporaryFolder.newFolder("local1"));
+        dirs.add(temporaryFolder.newFolder("local2"));
+        
+        SortedSet<String> expected = expected(1000);
+        LocalBackedSortedSet<String> set = new LocalBackedSortedSet<>(null, 50, 5, dirs, 0L, null, null);
+        addShuffled(set, expected);
+        
+        // adding enough buffers to exceed the max open files forces compactions
+        Assert.assertTrue(set.isPersisted());
+        Assert.assertEquals(expected.size(), set.size());
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        
+        SpillCounters counters = set.getCounters();
+        Assert.assertTrue(counters.getFilesSpilled() > 0);
+        Assert.assertTrue(counters.getBytesSpilled() > 0);
+        Assert.assertTrue(counters.getBytesMerged() > 0);
+        Assert.assertEquals(0, counters.getFallbackFiles());
+        
+        // files are spread across the directories
+        Assert.assertTrue(dirs.get(0).list().length > 0);
+        Assert.assertTrue(dirs.get(1).list().length > 0);
+        
+        set.clear();
+        Assert.assertEquals(0, dirs.get(0).list().length);
+        Assert.assertEquals(0, dirs.get(1).list().length);
+    }
+    
+    @Test
+    public void testFallback() throws Exception {
+        File localDir = temporaryFolder.newFolder("local");
+        File fallbackDir = temporaryFolder.newFolder("fallback");
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+        
+        SortedSet<String> expected = expected(200);
+        // no directory will ever have this much free space
+        LocalBackedSortedSet<String> set = new LocalBackedSortedSet<>(null, 50, 100, Collections.singletonList(localDir), Long.MAX_VALUE, fs,
+                        new Path(fallbackDir.toURI()));
+        addShuffled(set, expected);
+        set.persist();
+        
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        Assert.assertEquals(0, localDir.list().length);
+        Assert.assertTrue(set.getCounters().getFallbackFiles() > 0);
+        Assert.assertTrue(set.getCounters().getBytesSpilled() > 0);
+        
+        set.clear();
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testNoSpaceWithoutFallback() throws Exception {
+        LocalBackedSortedSet<String> set = new LocalBackedSortedSet<>(null, 50, 100, Collections.singletonList(temporaryFolder.newFolder("local")),
+                        Long.MAX_VALUE, null, null);
+        // the file handler is created with the first buffer
+        set.add("value");
+    }
+}
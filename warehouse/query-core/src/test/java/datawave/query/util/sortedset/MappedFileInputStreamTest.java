@@ -0,0 +1,83 @@
+package datawave.query.util.sortedset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileInputStreamTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private byte[] contents(int size) {
+        byte[] contents = new byte[size];
+        for (int i = 0; i < size; i++) {
+            contents[i] = (byte) i;
+        }
+        return contents;
+    }
+    
+    private File write(byte[] contents) throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), contents);
+        return file;
+    }
+    
+    @Test
+    public void testReadAcrossWindows() throws Exception {
+        byte[] contents = contents(1000);
+        // a window size that does not divide the file, so reads span the window boundaries
+        try (MappedFileInputStream stream = new MappedFileInputStream(write(contents), 64)) {
+            Assert.assertEquals(1000, stream.available());
+            Assert.assertEquals(0, stream.read());
+            
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            read.write(0);
+            byte[] buffer = new byte[100];
+            for (int count = stream.read(buffer, 0, buffer.length); count != -1; count = stream.read(buffer, 0, buffer.length)) {
+                Assert.assertTrue(count <= 64);
+                read.write(buffer, 0, count);
+            }
+            Assert.assertArrayEquals(contents, read.toByteArray());
+            Assert.assertEquals(0, stream.available());
+            Assert.assertEquals(-1, stream.read());
+        }
+    }
+    
+    @Test
+    public void testSkipAcrossWindows() throws Exception {
+        byte[] contents = contents(1000);
+        try (MappedFileInputStream stream = new MappedFileInputStream(write(contents), 64)) {
+            Assert.assertEquals(10, stream.skip(10));
+            Assert.assertEquals(10, stream.read());
+            Assert.assertEquals(200, stream.skip(200));
+            Assert.assertEquals(contents[211], (byte) stream.read());
+            Assert.assertEquals(788, stream.available());
+            Assert.assertEquals(788, stream.skip(5000));
+            Assert.assertEquals(0, stream.skip(1));
+            Assert.assertEquals(-1, stream.read());
+        }
+    }
+    
+    @Test
+    public void testEmptyFile() throws Exception {
+        try (MappedFileInputStream stream = new MappedFileInputStream(write(new byte[0]))) {
+            Assert.assertEquals(0, stream.available());
+            Assert.assertEquals(-1, stream.read());
+            Assert.assertEquals(-1, stream.read(new byte[10], 0, 10));
+        }
+    }
+    
+    @Test(expected = IOException.class)
+    public void testReadAfterClose() throws Exception {
+        MappedFileInputStream stream = new MappedFileInputStream(write(contents(10)));
+        stream.close();
+        stream.read();
+    }
+}
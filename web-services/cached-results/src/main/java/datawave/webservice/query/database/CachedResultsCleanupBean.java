@@ -1,5 +1,6 @@
 package datawave.webservice.query.database;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -7,6 +8,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -26,7 +28,9 @@ import javax.sql.rowset.RowSetFactory;
 import javax.sql.rowset.RowSetProvider;
 
 import datawave.configuration.spring.SpringBean;
+import datawave.webservice.results.cached.CachedResultsConfiguration;
 import datawave.webservice.results.cached.CachedResultsParameters;
+import datawave.webservice.results.cached.ColumnarResultsStore;
 import org.apache.log4j.Logger;
 
 /**
@@ -62,6 +66,11 @@ public class CachedResultsCleanupBean {
     @SpringBean(refreshable = true)
     protected CachedResultsCleanupConfiguration cachedResultsCleanupConfiguration;
     
+    // reference "datawave/query/CachedResults.xml"
+    @Inject
+    @SpringBean(required = false, refreshable = true)
+    protected CachedResultsConfiguration cachedResultsConfiguration;
+    
     private RowSetFactory rowSetProvider;
     
     @PostConstruct
@@ -104,6 +113,15 @@ public class CachedResultsCleanupBean {
         } catch (SQLException e) {
             log.error("Error cleaning up cached result objects: " + e.getMessage());
         }
+        
+        // results loaded into the columnar store in place of tables
+        String columnarDir = (cachedResultsConfiguration == null ? null : cachedResultsConfiguration.getColumnarDir());
+        if (columnarDir != null) {
+            ColumnarResultsStore columnarStore = new ColumnarResultsStore(new File(columnarDir));
+            for (String view : columnarStore.removeOlderThan(TimeUnit.DAYS.toMillis(cachedResultsCleanupConfiguration.getDaysToLive()))) {
+                removeCrqRow(view);
+            }
+        }
     }
     
     private void removeCrqRow(String id) {
@@ -247,6 +247,7 @@ public class CachedResultsBean {
     private static Set<String> loadingQueries = Collections.synchronizedSet(new HashSet<>());
     private URL importFileUrl = null;
     private CachedResultsParameters cp = new CachedResultsParameters();
+    private ColumnarResultsStore columnarStore = null;
     
     @PostConstruct
     public void init() {
@@ -265,7 +266,14 @@ public class CachedResultsBean {
             importFileUrl = null;
         }
         
+        String columnarDir = cachedResultsConfiguration.getColumnarDir();
+        if (columnarDir != null) {
+            columnarStore = new ColumnarResultsStore(new File(columnarDir));
+            log.info("Loading cached results into the columnar store in " + columnarDir);
+        }
+        
         CachedRunningQuery.setDatasource(ds);
+        CachedRunningQuery.setColumnarStore(columnarStore);
         CachedRunningQuery.setQueryFactory(queryFactory);
         CachedRunningQuery.setResponseObjectFactory(responseObjectFactory);
         
@@ -364,6 +372,8 @@ public class CachedResultsBean {
         String viewName = "v" + nameBase;
         Connection con = null;
         PreparedStatement ps = null;
+        CachedResultsLoader loader = null;
+        ColumnarResultsStore.Writer columnarWriter = null;
         boolean tableCreated = false;
         boolean viewCreated = false;
         CachedRunningQuery crq = null;
@@ -501,20 +511,33 @@ public class CachedResultsBean {
             }
             
             try {
-                con = ds.getConnection();
-                // Create the result table for this query
-                Statement s = con.createStatement();
-                String createTable = cachedResultsConfiguration.getParameters().get("CREATE_TABLE");
-                createTable = createTable.replace(TABLE, tableName);
-                s.execute(createTable);
-                s.close();
-                tableCreated = true;
-                // Parse the PreparedStatement
-                String insert = cachedResultsConfiguration.getParameters().get("INSERT");
-                insert = insert.replace(TABLE, tableName);
-                ps = con.prepareStatement(insert);
-            } catch (SQLException sqle) {
-                throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, sqle);
+                if (columnarStore != null) {
+                    // the rows are written to the columnar store, under the name of the view, in place of a table
+                    columnarWriter = columnarStore.create(viewName);
+                } else {
+                    con = ds.getConnection();
+                    // Create the result table for this query
+                    Statement s = con.createStatement();
+                    String createTable = cachedResultsConfiguration.getParameters().get("CREATE_TABLE");
+                    createTable = createTable.replace(TABLE, tableName);
+                    s.execute(createTable);
+                    s.close();
+                    tableCreated = true;
+                    String bulkLoad = cachedResultsConfiguration.getBulkLoad();
+                    if (bulkLoad != null) {
+                        // stage the rows and bulk load them while the results are read
+                        String stagingDir = cachedResultsConfiguration.getStagingDir();
+                        loader = new CachedResultsLoader(con, tableName, bulkLoad, (stagingDir == null ? null : new File(stagingDir)),
+                                        cachedResultsConfiguration.getRowsPerBulkLoad(), executor);
+                    } else {
+                        // Parse the PreparedStatement
+                        String insert = cachedResultsConfiguration.getParameters().get("INSERT");
+                        insert = insert.replace(TABLE, tableName);
+                        ps = con.prepareStatement(insert);
+                    }
+                }
+            } catch (SQLException | IOException e) {
+                throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, e);
             }
             
             // Object for keeping track of which fields are placed in which
@@ -560,6 +583,15 @@ public class CachedResultsBean {
                     
                     for (CacheableQueryRow cacheableQueryObject : cacheableQueryRowList) {
                         
+                        if (columnarWriter != null) {
+                            columnarWriter.add(owner, queryId, logic.getLogicName(), fieldMap, cacheableQueryObject);
+                            continue;
+                        }
+                        if (loader != null) {
+                            loader.add(owner, queryId, logic.getLogicName(), fieldMap, cacheableQueryObject);
+                            continue;
+                        }
+                        
                         Collection<String> values = ((CacheableQueryRow) cacheableQueryObject).getColumnValues().values();
                         int maxValueLength = 0;
                         for (String s : values) {
@@ -617,6 +649,14 @@ public class CachedResultsBean {
                 rowsWritten = 0;
             }
             
+            // wait for the staged rows to load
+            if (loader != null) {
+                long rowsLoaded = loader.finish();
+                if (log.isDebugEnabled()) {
+                    log.debug("Bulk loaded " + rowsLoaded + " of " + loader.getRowsStaged() + " rows into " + tableName);
+                }
+            }
+            
             // Dump the fieldMap for debugging
             if (log.isTraceEnabled()) {
                 for (Entry<String,Integer> e : fieldMap.entrySet()) {
@@ -624,14 +664,24 @@ public class CachedResultsBean {
                 }
             }
             
-            // Create the view of the table
-            viewCreated = createView(tableName, viewName, con, viewCreated, fieldMap);
+            if (columnarWriter != null) {
+                long rowsStored = columnarWriter.finish();
+                if (log.isDebugEnabled()) {
+                    log.debug("Stored " + rowsStored + " rows in the columnar store as " + viewName);
+                }
+            } else {
+                // Create the view of the table
+                viewCreated = createView(tableName, viewName, con, viewCreated, fieldMap);
+            }
             
             // create the CachedRunningQuery and store it under the originalQueryName, but do not activate it
             crq = new CachedRunningQuery(q, logic, viewName, alias, owner, viewName, cachedResultsConfiguration.getDefaultPageSize(), queryId,
                             fieldMap.keySet(), null, metricFactory);
             crq.setOriginalQueryId(queryId);
             crq.setTableName(tableName);
+            // the columnar store is local to this node, so record which node loaded the results
+            crq.setBackend(columnarWriter != null ? CachedRunningQuery.Backend.COLUMNAR : CachedRunningQuery.Backend.SQL);
+            crq.setBackendHost(System.getProperty("jboss.host.name"));
             crq.setStatus(CachedRunningQuery.Status.LOADED);
             crq.setPrincipal(ctx.getCallerPrincipal());
             persist(crq, owner);
@@ -692,6 +742,9 @@ public class CachedResultsBean {
             } else {
                 log.error(t.getMessage(), t);
             }
+            if (columnarWriter != null) {
+                columnarStore.remove(viewName);
+            }
             if (con != null) {
                 Statement s = null;
                 try {
@@ -730,6 +783,13 @@ public class CachedResultsBean {
             }
             throw new DatawaveWebApplicationException(t, response, statusCode);
         } finally {
+            if (loader != null) {
+                // stop any load in progress before its connection is closed
+                loader.close();
+            }
+            if (columnarWriter != null) {
+                columnarWriter.close();
+            }
             DbUtils.closeQuietly(con, ps, null);
             if (queryLockedException == false) {
                 CachedResultsBean.loadingQueryMap.remove(queryId);
@@ -1169,32 +1229,48 @@ public class CachedResultsBean {
                 throw new UnauthorizedQueryException(DatawaveErrorCode.QUERY_OWNER_MISMATCH, MessageFormat.format("{0} != {1}", crq.getUser(), owner));
             }
             
+            verifyCachedOnThisNode(crq);
+            
             String view = crq.getView();
             response.setView(view);
             
             List<String> columns = new ArrayList<>();
             Integer numRows = null;
-            try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
-                try (ResultSet rs = s.executeQuery("select count(*) from " + view)) {
-                    if (rs.next()) {
-                        numRows = rs.getInt(1);
+            if (columnarStore != null && columnarStore.exists(view)) {
+                try {
+                    ColumnarResultsStore.Table table = columnarStore.open(view);
+                    numRows = table.getRows();
+                    for (String column : table.getColumns()) {
+                        if (!CacheableQueryRow.getFixedColumnSet().contains(column)) {
+                            columns.add(column);
+                        }
                     }
+                } catch (IOException e) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR, e);
                 }
-                
-                try (ResultSet rs = s.executeQuery("show columns from " + view)) {
-                    Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
-                    while (rs.next()) {
-                        String column = rs.getString(1);
-                        if (!fixedColumns.contains(column)) {
-                            columns.add(column);
+            } else {
+                try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
+                    try (ResultSet rs = s.executeQuery("select count(*) from " + view)) {
+                        if (rs.next()) {
+                            numRows = rs.getInt(1);
                         }
                     }
+                    
+                    try (ResultSet rs = s.executeQuery("show columns from " + view)) {
+                        Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
+                        while (rs.next()) {
+                            String column = rs.getString(1);
+                            if (!fixedColumns.contains(column)) {
+                                columns.add(column);
+                            }
+                        }
+                    }
+                    
+                } catch (SQLSyntaxErrorException e) {
+                    throw new NotFoundQueryException(DatawaveErrorCode.VIEW_NOT_FOUND);
+                } catch (SQLException e) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR);
                 }
-                
-            } catch (SQLSyntaxErrorException e) {
-                throw new NotFoundQueryException(DatawaveErrorCode.VIEW_NOT_FOUND);
-            } catch (SQLException e) {
-                throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR);
             }
             
             response.setColumns(columns);
@@ -1256,6 +1332,7 @@ public class CachedResultsBean {
             if (!loadCrq.getUser().equals(owner)) {
                 throw new UnauthorizedQueryException(DatawaveErrorCode.QUERY_OWNER_MISMATCH, MessageFormat.format("{0} != {1}", loadCrq.getUser(), owner));
             }
+            verifyCachedOnThisNode(loadCrq);
             
             if (cp.getPagesize() <= 0) {
                 cp.setPagesize(cachedResultsConfiguration.getDefaultPageSize());
@@ -1285,6 +1362,8 @@ public class CachedResultsBean {
             crq.setStatus(CachedRunningQuery.Status.CREATING);
             crq.setOriginalQueryId(originalQueryId);
             crq.setTableName(table);
+            crq.setBackend(loadCrq.getBackend());
+            crq.setBackendHost(loadCrq.getBackendHost());
             persist(crq, owner);
             // see above comment about using loadCrq.getView() instead of cp.getView()
             CachedRunningQuery.removeFromDatabase(loadCrq.getView());
@@ -1441,6 +1520,7 @@ public class CachedResultsBean {
                 synchronized (crq) {
                     
                     if (crq.isActivated() == false) {
+                        verifyCachedOnThisNode(crq);
                         Connection connection = ds.getConnection();
                         String logicName = crq.getQueryLogicName();
                         if (logicName != null) {
@@ -1549,6 +1629,7 @@ public class CachedResultsBean {
                 synchronized (crq) {
                     if (crq.isActivated() == false) {
                         if (crq.getShouldAutoActivate()) {
+                            verifyCachedOnThisNode(crq);
                             Connection connection = ds.getConnection();
                             String logicName = crq.getQueryLogicName();
                             QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
@@ -1663,6 +1744,7 @@ public class CachedResultsBean {
                         closeCrqConnection(crq);
                     }
                     
+                    verifyCachedOnThisNode(crq);
                     Connection connection = ds.getConnection();
                     String logicName = crq.getQueryLogicName();
                     QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
@@ -1760,6 +1842,7 @@ public class CachedResultsBean {
                 synchronized (crq) {
                     if (crq.isActivated() == false) {
                         if (crq.getShouldAutoActivate()) {
+                            verifyCachedOnThisNode(crq);
                             Connection connection = ds.getConnection();
                             String logicName = crq.getQueryLogicName();
                             QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
@@ -1903,6 +1986,7 @@ public class CachedResultsBean {
                 synchronized (crq) {
                     
                     if (crq.isActivated() == false) {
+                        verifyCachedOnThisNode(crq);
                         Connection connection = ds.getConnection();
                         String logicName = crq.getQueryLogicName();
                         QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
@@ -2477,6 +2561,16 @@ public class CachedResultsBean {
         }
     }
     
+    /**
+     * Results loaded into the columnar store can only be read on the node that loaded them, so fail rather than look for them in the database
+     */
+    private static void verifyCachedOnThisNode(CachedRunningQuery crq) throws QueryException {
+        if (!crq.isCachedOnThisNode()) {
+            throw new PreConditionFailedQueryException(DatawaveErrorCode.CACHED_RESULTS_ON_OTHER_NODE, MessageFormat.format("view: {0}, host: {1}",
+                            crq.getView(), crq.getBackendHost()));
+        }
+    }
+    
     public static void closeCrqConnection(CachedRunningQuery crq) {
         
         if (log.isTraceEnabled()) {
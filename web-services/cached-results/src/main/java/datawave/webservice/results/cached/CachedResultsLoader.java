@@ -0,0 +1,320 @@
+package datawave.webservice.results.cached;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import datawave.marking.MarkingFunctions;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Loads rows into a cached results table through the database's bulk load path rather than one insert per row. Rows are staged into CSV files in the column
+ * order of the cached results template table, and each file is handed to a bulk load statement once it holds the configured number of rows. The statement
+ * is run on an executor while the next file is staged, so that the loading overlaps with reading the query's results, and at most one file is loading while
+ * another is being written.
+ * <p>
+ * The bulk load statement replaces {@code $table} with the name of the table and {@code $file} with the path of the staging file. Every value in the file is
+ * enclosed in double quotes, with any double quotes in it doubled, and a null value is written as an unquoted {@code NULL}. The first line of the file holds
+ * the column names. For MySQL this is
+ * 
+ * <pre>
+ * LOAD DATA LOCAL INFILE '$file' INTO TABLE $table CHARACTER SET utf8
+ *     FIELDS TERMINATED BY ',' ENCLOSED BY '"' ESCAPED BY '' LINES TERMINATED BY '\n' IGNORE 1 LINES
+ * </pre>
+ * 
+ * and for H2 it is
+ * 
+ * <pre>
+ * INSERT INTO $table SELECT * FROM CSVREAD('$file', NULL, 'charset=UTF-8 fieldSeparator=, fieldDelimiter=" escape=" null=NULL')
+ * </pre>
+ */
+public class CachedResultsLoader implements Closeable {
+    
+    private static final Logger log = Logger.getLogger(CachedResultsLoader.class);
+    
+    protected static final String FILE = "$file";
+    
+    /** the number of field columns in the cached results template table */
+    public static final int MAX_FIELDS = 900;
+    
+    private static final String NULL = "NULL";
+    
+    private final Connection con;
+    private final String tableName;
+    private final String bulkLoad;
+    private final File stagingDir;
+    private final int rowsPerFile;
+    private final ExecutorService executor;
+    private final int fixedColumns = CacheableQueryRow.getFixedColumnSet().size();
+    private final String[] columns = new String[fixedColumns + MAX_FIELDS];
+    
+    private File file = null;
+    private Writer writer = null;
+    private int rowsInFile = 0;
+    private File loadingFile = null;
+    private Future<Integer> loading = null;
+    private long rowsStaged = 0;
+    private long rowsLoaded = 0;
+    
+    /**
+     * @param con
+     *            the connection to load the table with, which must not be used by anything else until the loader is finished
+     * @param tableName
+     *            the name of the table to load
+     * @param bulkLoad
+     *            the bulk load statement
+     * @param stagingDir
+     *            the directory to stage the files in, or null for the temporary directory
+     * @param rowsPerFile
+     *            the number of rows staged in a file before it is loaded
+     * @param executor
+     *            the executor to run the bulk loads on, or null to run them in the caller's thread
+     */
+    public CachedResultsLoader(Connection con, String tableName, String bulkLoad, File stagingDir, int rowsPerFile, ExecutorService executor) {
+        this.con = con;
+        this.tableName = tableName;
+        this.bulkLoad = bulkLoad.replace(CachedResultsBean.TABLE, tableName);
+        this.stagingDir = stagingDir;
+        this.rowsPerFile = Math.max(1, rowsPerFile);
+        this.executor = executor;
+    }
+    
+    /**
+     * Stage a row, loading the staged rows if the file is full
+     * 
+     * @param owner
+     *            the user the results are cached for
+     * @param queryId
+     *            the id of the query
+     * @param logicName
+     *            the name of the query logic
+     * @param fieldMap
+     *            the column numbers of the fields, to which the fields of this row are added
+     * @param cqo
+     *            the row
+     * @return false if the row had fields that did not fit in the table, which were dropped
+     * @throws IOException
+     *             if the row could not be staged
+     * @throws SQLException
+     *             if an earlier file failed to load
+     * @throws InterruptedException
+     *             if interrupted while waiting for an earlier file to load
+     */
+    public boolean add(String owner, String queryId, String logicName, Map<String,Integer> fieldMap, CacheableQueryRow cqo) throws IOException, SQLException,
+                    InterruptedException {
+        boolean complete = true;
+        for (int i = fixedColumns; i < columns.length; i++) {
+            columns[i] = null;
+        }
+        columns[0] = owner;
+        columns[1] = queryId;
+        columns[2] = logicName;
+        columns[3] = cqo.getDataType();
+        columns[4] = cqo.getEventId();
+        columns[5] = cqo.getRow();
+        columns[6] = cqo.getColFam();
+        columns[7] = MarkingFunctions.Encoding.toString(new TreeMap<>(cqo.getMarkings()));
+        for (Entry<String,String> e : cqo.getColumnValues().entrySet()) {
+            // column numbers are 1-based, as for the insert statement
+            Integer columnNumber = fieldMap.get(e.getKey());
+            if (columnNumber == null) {
+                if (fieldMap.size() >= MAX_FIELDS) {
+                    log.warn("Dropping field " + e.getKey() + " of " + cqo.getEventId() + ", table " + tableName + " already has " + MAX_FIELDS + " fields");
+                    complete = false;
+                    continue;
+                }
+                columnNumber = fixedColumns + fieldMap.size() + 1;
+                fieldMap.put(e.getKey(), columnNumber);
+            }
+            columns[columnNumber - 1] = e.getValue();
+        }
+        columns[8] = cqo.getColumnSecurityMarkingString(fieldMap);
+        columns[9] = cqo.getColumnTimestampString(fieldMap);
+        
+        if (writer == null) {
+            openFile();
+        }
+        writeLine(columns, true);
+        rowsStaged++;
+        if (++rowsInFile >= rowsPerFile) {
+            loadFile();
+        }
+        return complete;
+    }
+    
+    /**
+     * Load the rows that are still staged, and wait for all of the rows to be loaded
+     * 
+     * @return the number of rows loaded
+     * @throws IOException
+     *             if the staged rows could not be written
+     * @throws SQLException
+     *             if a file failed to load
+     * @throws InterruptedException
+     *             if interrupted while waiting for the rows to load
+     */
+    public long finish() throws IOException, SQLException, InterruptedException {
+        if (rowsInFile > 0) {
+            loadFile();
+        }
+        waitForLoad();
+        return rowsLoaded;
+    }
+    
+    public long getRowsStaged() {
+        return rowsStaged;
+    }
+    
+    public long getRowsLoaded() {
+        return rowsLoaded;
+    }
+    
+    /**
+     * Stop any load that is running and delete the staging files
+     */
+    @Override
+    public void close() {
+        if (loading != null) {
+            loading.cancel(true);
+            loading = null;
+        }
+        closeWriter();
+        delete(loadingFile);
+        delete(file);
+        loadingFile = null;
+        file = null;
+    }
+    
+    private void openFile() throws IOException {
+        file = File.createTempFile("cachedresults-" + tableName + "-", ".csv", stagingDir);
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+        rowsInFile = 0;
+        
+        String[] names = new String[columns.length];
+        int i = 0;
+        for (String name : CacheableQueryRow.getFixedColumnSet()) {
+            names[i++] = name;
+        }
+        for (int field = 0; field < MAX_FIELDS; field++) {
+            names[i++] = CachedResultsBean.FIELD + field;
+        }
+        writeLine(names, false);
+    }
+    
+    private void writeLine(String[] values, boolean quote) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                writer.write(NULL);
+            } else if (!quote) {
+                writer.write(value);
+            } else {
+                writer.write('"');
+                if (value.indexOf('"') < 0) {
+                    writer.write(value);
+                } else {
+                    writer.write(value.replace("\"", "\"\""));
+                }
+                writer.write('"');
+            }
+        }
+        writer.write('\n');
+    }
+    
+    /**
+     * Close the current file and hand it to the bulk load, once the previous file has loaded
+     */
+    private void loadFile() throws IOException, SQLException, InterruptedException {
+        writer.close();
+        writer = null;
+        final File staged = file;
+        final int rows = rowsInFile;
+        file = null;
+        rowsInFile = 0;
+        
+        waitForLoad();
+        loadingFile = staged;
+        if (executor != null) {
+            try {
+                loading = executor.submit(() -> load(staged, rows));
+                return;
+            } catch (RejectedExecutionException e) {
+                log.warn("Bulk load rejected by executor, loading " + staged + " in line", e);
+            }
+        }
+        try {
+            rowsLoaded += load(staged, rows);
+        } finally {
+            delete(staged);
+            loadingFile = null;
+        }
+    }
+    
+    private void waitForLoad() throws SQLException, InterruptedException {
+        if (loading == null) {
+            return;
+        }
+        try {
+            rowsLoaded += loading.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Failed to bulk load " + loadingFile + " into " + tableName, e.getCause());
+        } finally {
+            loading = null;
+            delete(loadingFile);
+            loadingFile = null;
+        }
+    }
+    
+    private int load(File staged, int rows) throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Statement s = con.createStatement()) {
+            int loaded = s.executeUpdate(bulkLoad.replace(FILE, staged.getAbsolutePath()));
+            if (loaded != rows) {
+                log.warn("Bulk load of " + staged + " into " + tableName + " loaded " + loaded + " of " + rows + " rows");
+            } else if (log.isDebugEnabled()) {
+                log.debug("Bulk loaded " + loaded + " rows into " + tableName + " in " + (System.currentTimeMillis() - start) + "ms");
+            }
+            return loaded;
+        }
+    }
+    
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close " + file, e);
+            }
+            writer = null;
+        }
+    }
+    
+    private static void delete(File f) {
+        if (f != null && f.exists() && !f.delete()) {
+            log.warn("Failed to delete cached results staging file " + f);
+        }
+    }
+}
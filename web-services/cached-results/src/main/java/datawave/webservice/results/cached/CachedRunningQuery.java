@@ -48,6 +48,8 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private static Logger log = Logger.getLogger(CachedRunningQuery.class);
     
     private static DataSource datasource = null;
+    private static ColumnarResultsStore columnarStore = null;
+    private static volatile boolean backendColumnsVerified = false;
     
     private static final long serialVersionUID = 1L;
     
@@ -56,6 +58,12 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private transient CachedRowSet crs = null;
     private transient Statement statement = null;
     
+    // the table and the rows selected from it, when the results were loaded into the columnar store
+    private transient ColumnarResultsStore.Table table = null;
+    private transient int[] selection = null;
+    private transient List<String> selectedColumns = null;
+    private transient int pageStart = 0;
+    
     private transient CacheableLogic cacheableLogic = null;
     private transient QueryLogic<?> queryLogic = null;
     private transient QueryLogicTransformer transformer = null;
@@ -68,6 +76,13 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         BEFORE_FIRST, MIDDLE, AFTER_LAST
     };
     
+    /**
+     * Where the results were loaded. The columnar store is local to the node that loaded the results.
+     */
+    public enum Backend {
+        SQL, COLUMNAR
+    }
+    
     private transient position currentRow = position.BEFORE_FIRST;
     private static QueryLogicFactory queryFactory = null;
     
@@ -96,6 +111,8 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private Status status = Status.NONE;
     private String statusMessage = "";
     private Principal principal = null;
+    private Backend backend = null;
+    private String backendHost = null;
     
     private boolean shouldAutoActivate = false;
     
@@ -118,20 +135,24 @@ public class CachedRunningQuery extends AbstractRunningQuery {
                     + "grouping LONGTEXT," + "orderBy LONGTEXT," + "variableFields LONGTEXT," + "originalQuery LONGTEXT," + "originalQueryBegin TIMESTAMP,"
                     + "originalQueryEnd TIMESTAMP," + "originalQueryAuths LONGTEXT," + "originalQueryLogicName VARCHAR(100),"
                     + "originalQueryName VARCHAR(200)," + "originalQueryUserDn VARCHAR(200)," + "originalQueryId VARCHAR(200)," + "originalQueryPageSize LONG,"
-                    + "fixedFieldsInEvent VARCHAR(2000)," + "optionalQueryParameters BLOB," + "UNIQUE (queryId))";
+                    + "fixedFieldsInEvent VARCHAR(2000)," + "optionalQueryParameters BLOB," + "backend VARCHAR(20)," + "backendHost VARCHAR(200),"
+                    + "UNIQUE (queryId))";
+    
+    private static String alterCrqTable = "ALTER TABLE cachedResultsQuery ADD COLUMN (backend VARCHAR(20), backendHost VARCHAR(200))";
     
     private static String insertCrqTable = "INSERT INTO cachedResultsQuery ("
                     + "queryId, alias, lastUpdate, pagesize, user, view, tableName, status, statusMessage, fields, "
                     + "conditions, grouping, orderBy, variableFields, originalQuery, " + "originalQueryBegin, originalQueryEnd, originalQueryAuths, "
                     + "originalQueryLogicName, originalQueryName, "
-                    + "originalQueryUserDn, originalQueryId, originalQueryPageSize, fixedFieldsInEvent, optionalQueryParameters) "
-                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                    + "originalQueryUserDn, originalQueryId, originalQueryPageSize, fixedFieldsInEvent, optionalQueryParameters, backend, backendHost) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     
     private static String updateCrqTable = "UPDATE cachedResultsQuery SET "
                     + "queryId=?, alias=?, lastUpdate=?, pagesize=?, user=?, view=?, tableName=?, status=?, statusMessage=?, fields=?, conditions=?, "
                     + "grouping=?, orderBy=?, variableFields=?, originalQuery=?, originalQueryBegin=?, originalQueryEnd=?, "
                     + "originalQueryAuths=?, originalQueryLogicName=?, originalQueryName=?, "
-                    + "originalQueryUserDn=?, originalQueryId=?, originalQueryPageSize=?, fixedFieldsInEvent=?, optionalQueryParameters=? WHERE queryId=?";
+                    + "originalQueryUserDn=?, originalQueryId=?, originalQueryPageSize=?, fixedFieldsInEvent=?, optionalQueryParameters=?, "
+                    + "backend=?, backendHost=? WHERE queryId=?";
     
     private static String updateSatusCrqTable = "INSERT INTO cachedResultsQuery (queryId, alias, user, status, statusMessage)  " + "VALUES (?, ?, ?, ?, ?) "
                     + "ON DUPLICATE KEY UPDATE alias=?, lastUpdate=?, status=?, statusMessage=?";
@@ -550,6 +571,11 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     
     private List<String> getViewColumnNames(Connection connection, String view) throws SQLException {
         CachedResultsParameters.validate(view);
+        if (isColumnar()) {
+            List<String> columns = new ArrayList<>(openTable().getColumns());
+            columns.removeAll(CacheableQueryRow.getFixedColumnSet());
+            return columns;
+        }
         List<String> columns = new ArrayList<>();
         Statement s = connection.createStatement();
         ResultSet rs = s.executeQuery("show columns from " + view);
@@ -603,6 +629,11 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.sqlQuery = this.generateSql(this.view, this.fields, this.conditions, this.grouping, this.order, this.user, this.connection);
         this.getMetric().setQuery(sqlQuery);
         
+        if (isColumnar()) {
+            initializeColumnar();
+            return;
+        }
+        
         this.crs = RowSetProvider.newFactory().createCachedRowSet();
         this.crs.setCommand(this.sqlQuery);
         
@@ -632,6 +663,141 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.currentRow = position.BEFORE_FIRST;
     }
     
+    private boolean isColumnar() throws SQLException {
+        if (this.backend == null) {
+            // the results were loaded before the backend was recorded
+            return columnarStore != null && this.view != null && columnarStore.exists(this.view);
+        }
+        if (!isCachedOnThisNode()) {
+            throw new SQLException("Cached results " + this.view + " are on another node: " + this.backendHost);
+        }
+        return this.backend == Backend.COLUMNAR;
+    }
+    
+    /**
+     * @return false if the results were loaded into the columnar store of another node, and can not be read here
+     */
+    public boolean isCachedOnThisNode() {
+        return this.backend != Backend.COLUMNAR || (columnarStore != null && this.view != null && columnarStore.exists(this.view));
+    }
+    
+    private ColumnarResultsStore.Table openTable() throws SQLException {
+        if (this.table == null) {
+            try {
+                this.table = columnarStore.open(this.view);
+            } catch (IOException e) {
+                throw new SQLException("Unable to open columnar cached results " + this.view, e);
+            }
+        }
+        return this.table;
+    }
+    
+    /**
+     * Select the rows from the columnar store, in place of running the SQL query. The conditions and order are pushed down to the store, which does not
+     * support grouping or functions.
+     */
+    private void initializeColumnar() throws SQLException {
+        if (StringUtils.isNotBlank(this.grouping)) {
+            throw new IllegalArgumentException("Grouping is not supported for columnar cached results");
+        }
+        ColumnarResultsStore.Table t = openTable();
+        ColumnarCondition where = ColumnarCondition.and(ColumnarCondition.equalTo("_user_", this.user), ColumnarCondition.parse(this.conditions));
+        try {
+            this.selection = t.select(where, getSortKeys());
+        } catch (IOException e) {
+            throw new SQLException("Unable to select from columnar cached results " + this.view, e);
+        }
+        this.selectedColumns = getSelectedColumns();
+        this.totalRows = this.selection.length;
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Selected " + this.totalRows + " rows where " + where);
+        }
+        
+        this.pageStart = 0;
+        this.crs = readColumnarRows(0, getColumnarPageSize());
+        this.currentRow = position.BEFORE_FIRST;
+    }
+    
+    private List<ColumnarResultsStore.SortKey> getSortKeys() {
+        List<ColumnarResultsStore.SortKey> keys = new ArrayList<>();
+        if (StringUtils.isBlank(this.order)) {
+            // the order that getRows defaults to
+            keys.add(new ColumnarResultsStore.SortKey("_eventId_", false));
+            return keys;
+        }
+        for (String s : tokenizeOutsideParens(this.order, ',')) {
+            String[] parts = StringUtils.split(s.replace(BACKTICK, "").trim());
+            if (parts.length == 0) {
+                continue;
+            }
+            if (parts[0].contains(LPAREN)) {
+                throw new IllegalArgumentException("Functions are not supported for columnar cached results: " + this.order);
+            }
+            if (parts.length > 2 || (parts.length == 2 && !parts[1].equalsIgnoreCase("ASC") && !parts[1].equalsIgnoreCase("DESC"))) {
+                throw new IllegalArgumentException("Unsupported order for columnar cached results: " + this.order);
+            }
+            keys.add(new ColumnarResultsStore.SortKey(parts[0], parts.length == 2 && parts[1].equalsIgnoreCase("DESC")));
+        }
+        return keys;
+    }
+    
+    /**
+     * @return the fixed columns and the requested fields, or null for every column
+     */
+    private List<String> getSelectedColumns() {
+        if (StringUtils.isBlank(this.fields)) {
+            return null;
+        }
+        LinkedHashSet<String> columns = new LinkedHashSet<>(CacheableQueryRow.getFixedColumnSet());
+        for (String s : tokenizeOutsideParens(this.fields, ',')) {
+            s = s.replace(BACKTICK, "").trim();
+            if (s.equals("*")) {
+                return null;
+            }
+            if (s.contains(LPAREN)) {
+                throw new IllegalArgumentException("Functions are not supported for columnar cached results: " + this.fields);
+            }
+            columns.add(s);
+        }
+        return new ArrayList<>(columns);
+    }
+    
+    private int getColumnarPageSize() {
+        return Math.max(1, this.pagesize);
+    }
+    
+    private CachedRowSet readColumnarRows(int from, int to) throws SQLException {
+        try {
+            return this.table.read(this.selection, from, to, this.selectedColumns);
+        } catch (IOException e) {
+            throw new SQLException("Unable to read columnar cached results " + this.view, e);
+        }
+    }
+    
+    /**
+     * Move to the page of the selected rows that starts at a row, past the end if there are no rows there
+     */
+    private boolean moveToColumnarPage(int start) {
+        int size = getColumnarPageSize();
+        if (start < 0) {
+            this.pageStart = 0;
+            return false;
+        }
+        if (start >= this.totalRows) {
+            this.pageStart = ((this.totalRows + size - 1) / size) * size;
+            return false;
+        }
+        try {
+            this.crs = readColumnarRows(start, start + size);
+            this.pageStart = start;
+            return true;
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+            return false;
+        }
+    }
+    
     public String getUser() {
         return this.user;
     }
@@ -658,6 +824,17 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         ResultsPage resultList;
         int pagesize = (rowEnd - rowBegin) + 1;
         
+        if (this.selection != null) {
+            // the rows were selected from the columnar store when the query was activated
+            try (CachedRowSet crs = readColumnarRows(rowBegin - 1, rowEnd)) {
+                resultList = convert(crs, pageByteTrigger);
+            }
+            long now = System.currentTimeMillis();
+            this.getMetric().addPageTime(resultList.getResults().size(), (now - pageStartTime), pageStartTime, now);
+            updateTimestamp();
+            return resultList;
+        }
+        
         try (PreparedStatement ps = connection.prepareStatement(query.toString()); CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet()) {
             log.debug("Get Rows query: " + query);
             
@@ -679,6 +856,10 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     
     private boolean nextPageOfResults() {
         
+        if (this.selection != null) {
+            return moveToColumnarPage(currentRow == position.BEFORE_FIRST ? 0 : this.pageStart + getColumnarPageSize());
+        }
+        
         boolean hasRows = false;
         if (this.totalRows > 0) {
             if (currentRow == position.BEFORE_FIRST) {
@@ -701,6 +882,10 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     
     private boolean previousPageOfResults() {
         
+        if (this.selection != null) {
+            return moveToColumnarPage(this.pageStart - getColumnarPageSize());
+        }
+        
         boolean hasRows = false;
         if (this.totalRows > 0) {
             try {
@@ -866,6 +1051,9 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.connection = null;
         this.statement = null;
         this.crs = null;
+        this.table = null;
+        this.selection = null;
+        this.selectedColumns = null;
     }
     
     public Connection getConnection() {
@@ -997,11 +1185,27 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         
         try (Connection localConnection = datasource.getConnection(); Statement s = localConnection.createStatement()) {
             s.execute(createCrqTable);
+            if (!backendColumnsVerified) {
+                addBackendColumns(s);
+                backendColumnsVerified = true;
+            }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
     }
     
+    /**
+     * Add the backend columns to a table that was created before they were recorded
+     */
+    private static void addBackendColumns(Statement s) throws SQLException {
+        try {
+            s.executeQuery("SELECT backend, backendHost FROM cachedResultsQuery WHERE 1=0").close();
+        } catch (SQLException e) {
+            log.info("Adding the backend columns to cachedResultsQuery");
+            s.execute(alterCrqTable);
+        }
+    }
+    
     private void saveToDatabase(boolean update) {
         
         verifyCrqTableExists();
@@ -1068,6 +1272,9 @@ public class CachedRunningQuery extends AbstractRunningQuery {
             else
                 ps.setObject(x++, optionalQueryParameters);
             
+            ps.setString(x++, (backend == null) ? null : backend.toString());
+            ps.setString(x++, backendHost);
+            
             if (update == true) {
                 ps.setString(x++, queryId);
             }
@@ -1194,10 +1401,16 @@ public class CachedRunningQuery extends AbstractRunningQuery {
                         }
                     }
                     
+                    String b = resultSet.getString(x++);
+                    if (b != null) {
+                        crq.backend = Backend.valueOf(b);
+                    }
+                    crq.backendHost = resultSet.getString(x++);
+                    
                     crq.query = query;
                     crq.queryLogicName = query.getQueryLogicName();
                     crq.originalQueryId = uuid;
-                    if (crq.view != null && crq.fields != null && crq.user != null) {
+                    if (crq.view != null && crq.fields != null && crq.user != null && crq.isCachedOnThisNode()) {
                         crq.sqlQuery = crq.generateSql(crq.view, crq.fields, crq.conditions, crq.grouping, crq.order, crq.user, localConnection);
                     }
                     if (crq.queryLogicName != null) {
@@ -1219,10 +1432,34 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         CachedRunningQuery.datasource = datasource;
     }
     
+    /**
+     * @param columnarStore
+     *            the store that results are loaded into in place of the database tables, or null if they are loaded into the database
+     */
+    public static void setColumnarStore(ColumnarResultsStore columnarStore) {
+        CachedRunningQuery.columnarStore = columnarStore;
+    }
+    
     public Status getStatus() {
         return status;
     }
     
+    public Backend getBackend() {
+        return backend;
+    }
+    
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+    
+    public String getBackendHost() {
+        return backendHost;
+    }
+    
+    public void setBackendHost(String backendHost) {
+        this.backendHost = backendHost;
+    }
+    
     public void setStatus(Status status) {
         this.status = status;
     }
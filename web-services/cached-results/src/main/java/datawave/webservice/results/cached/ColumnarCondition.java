@@ -0,0 +1,689 @@
+package datawave.webservice.results.cached;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import datawave.webservice.results.cached.ColumnarResultsStore.BlockStats;
+import datawave.webservice.results.cached.ColumnarResultsStore.ColumnBlock;
+import datawave.webservice.results.cached.ColumnarResultsStore.Table.Block;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A condition on the rows of a {@link ColumnarResultsStore}, parsed from the conditions of a cached results query.
+ * <p>
+ * The conditions are the SQL comparisons {@code =, !=, <>, <, <=, >, >=}, {@code LIKE}, {@code IN}, {@code BETWEEN} and {@code IS NULL} of a column against
+ * literals, combined with {@code AND}, {@code OR}, {@code NOT} and parentheses. A quoted literal is compared as a string, and an unquoted number is compared
+ * numerically with the values that are numbers. Strings are compared case insensitively, by the {@link ColumnarResultsStore#COLLATION}, including the patterns
+ * of {@code LIKE}. As in SQL, a null value does not match any comparison, including a negated one.
+ * <p>
+ * A condition is pushed down to the blocks of the store: a block is skipped when the minimum, maximum and number of nulls of its columns show that it can not
+ * match, and otherwise the condition is evaluated once per value in the dictionary of the block, and the rows are matched by their codes.
+ */
+public abstract class ColumnarCondition {
+    
+    private static final Comparator<String> COLLATION = ColumnarResultsStore.COLLATION;
+    
+    /**
+     * @return the columns the condition reads
+     */
+    public abstract Set<String> getColumns();
+    
+    /**
+     * @return false if the statistics of a block show that none of its rows can match
+     */
+    abstract boolean mayMatch(Block block);
+    
+    /**
+     * @return the rows of a block that match
+     */
+    abstract BitSet match(Block block) throws IOException;
+    
+    abstract ColumnarCondition negate();
+    
+    /**
+     * @param conditions
+     *            the conditions of a cached results query
+     * @return the condition, or null if there are none
+     * @throws IllegalArgumentException
+     *             if the conditions are not supported
+     */
+    public static ColumnarCondition parse(String conditions) {
+        if (StringUtils.isBlank(conditions)) {
+            return null;
+        }
+        Parser parser = new Parser(conditions);
+        ColumnarCondition condition = parser.parseOr();
+        if (parser.peek() != null) {
+            throw new IllegalArgumentException("Unexpected " + parser.peek() + " in conditions: " + conditions);
+        }
+        return condition;
+    }
+    
+    public static ColumnarCondition equalTo(String column, String value) {
+        return new Comparison(column, Op.EQ, Collections.singletonList(new Literal(value, false)), false);
+    }
+    
+    /**
+     * @return the conjunction of the conditions that are not null, or null if they all are
+     */
+    public static ColumnarCondition and(ColumnarCondition... conditions) {
+        List<ColumnarCondition> children = new ArrayList<>();
+        for (ColumnarCondition condition : conditions) {
+            if (condition != null) {
+                children.add(condition);
+            }
+        }
+        if (children.isEmpty()) {
+            return null;
+        }
+        return (children.size() == 1 ? children.get(0) : new And(children));
+    }
+    
+    private enum Op {
+        EQ("="), LT("<"), LE("<="), GT(">"), GE(">="), IN("IN"), LIKE("LIKE"), NULL("IS NULL");
+        
+        private final String sql;
+        
+        Op(String sql) {
+            this.sql = sql;
+        }
+    }
+    
+    /**
+     * A literal, compared as a number when it was not quoted
+     */
+    private static class Literal {
+        private final String value;
+        private final Double number;
+        
+        Literal(String value, boolean number) {
+            this.value = value;
+            this.number = (number ? Double.valueOf(value) : null);
+        }
+        
+        /**
+         * @return the comparison of a value with this literal, or null if they can not be compared
+         */
+        Integer compareTo(String s) {
+            if (number == null) {
+                return COLLATION.compare(s, value);
+            }
+            try {
+                return Double.compare(Double.parseDouble(s.trim()), number);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return (number == null ? "'" + value.replace("'", "''") + "'" : value);
+        }
+    }
+    
+    /**
+     * A comparison of a column with literals
+     */
+    private static class Comparison extends ColumnarCondition {
+        private final String column;
+        private final Op op;
+        private final List<Literal> literals;
+        private final boolean negated;
+        private final Pattern pattern;
+        
+        Comparison(String column, Op op, List<Literal> literals, boolean negated) {
+            this.column = column;
+            this.op = op;
+            this.literals = literals;
+            this.negated = negated;
+            this.pattern = (op == Op.LIKE ? likePattern(literals.get(0).value) : null);
+        }
+        
+        @Override
+        public Set<String> getColumns() {
+            return Collections.singleton(column);
+        }
+        
+        @Override
+        boolean mayMatch(Block block) {
+            BlockStats stats = block.getStats(column);
+            if (op == Op.NULL) {
+                return (negated ? stats.nulls < block.getRows() : stats.nulls > 0);
+            }
+            if (stats.min == null) {
+                // every value is null
+                return false;
+            }
+            if (negated) {
+                // only a block holding nothing but the value can be ruled out
+                return !(op == Op.EQ && literals.get(0).number == null && COLLATION.compare(stats.min, stats.max) == 0
+                                && COLLATION.compare(stats.min, literals.get(0).value) == 0);
+            }
+            for (Literal literal : literals) {
+                if (literal.number != null) {
+                    // numbers are not ordered as strings are
+                    return true;
+                }
+            }
+            String value = literals.get(0).value;
+            switch (op) {
+                case EQ:
+                    return COLLATION.compare(stats.min, value) <= 0 && COLLATION.compare(stats.max, value) >= 0;
+                case LT:
+                    return COLLATION.compare(stats.min, value) < 0;
+                case LE:
+                    return COLLATION.compare(stats.min, value) <= 0;
+                case GT:
+                    return COLLATION.compare(stats.max, value) > 0;
+                case GE:
+                    return COLLATION.compare(stats.max, value) >= 0;
+                case IN:
+                    for (Literal literal : literals) {
+                        if (COLLATION.compare(stats.min, literal.value) <= 0 && COLLATION.compare(stats.max, literal.value) >= 0) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case LIKE:
+                    String prefix = likePrefix(value);
+                    boolean minHasPrefix = stats.min.regionMatches(true, 0, prefix, 0, prefix.length());
+                    return prefix.isEmpty() || ((COLLATION.compare(stats.min, prefix) < 0 || minHasPrefix) && COLLATION.compare(stats.max, prefix) >= 0);
+                default:
+                    return true;
+            }
+        }
+        
+        @Override
+        BitSet match(Block block) throws IOException {
+            ColumnBlock columnBlock = block.getColumn(column);
+            
+            // evaluate the condition once per value in the dictionary, and then match the rows by code
+            boolean[] matches = new boolean[columnBlock.dictionary.length + 1];
+            matches[0] = (op == Op.NULL && !negated);
+            for (int i = 0; i < columnBlock.dictionary.length; i++) {
+                matches[i + 1] = (op == Op.NULL ? negated : matches(columnBlock.dictionary[i]) != negated);
+            }
+            
+            BitSet rows = new BitSet(columnBlock.codes.length);
+            int[] codes = columnBlock.codes;
+            for (int r = 0; r < codes.length; r++) {
+                if (matches[codes[r]]) {
+                    rows.set(r);
+                }
+            }
+            return rows;
+        }
+        
+        private boolean matches(String value) {
+            if (op == Op.LIKE) {
+                return pattern.matcher(value).matches();
+            }
+            if (op == Op.IN) {
+                for (Literal literal : literals) {
+                    Integer cmp = literal.compareTo(value);
+                    if (cmp != null && cmp == 0) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            Integer cmp = literals.get(0).compareTo(value);
+            if (cmp == null) {
+                return false;
+            }
+            switch (op) {
+                case EQ:
+                    return cmp == 0;
+                case LT:
+                    return cmp < 0;
+                case LE:
+                    return cmp <= 0;
+                case GT:
+                    return cmp > 0;
+                case GE:
+                    return cmp >= 0;
+                default:
+                    return false;
+            }
+        }
+        
+        @Override
+        ColumnarCondition negate() {
+            return new Comparison(column, op, literals, !negated);
+        }
+        
+        @Override
+        public String toString() {
+            if (op == Op.NULL) {
+                return column + (negated ? " IS NOT NULL" : " IS NULL");
+            }
+            String value = (op == Op.IN ? "(" + StringUtils.join(literals, ", ") + ")" : literals.get(0).toString());
+            if (negated) {
+                return (op == Op.EQ ? column + " != " + value : "NOT " + column + " " + op.sql + " " + value);
+            }
+            return column + " " + op.sql + " " + value;
+        }
+        
+        private static String likePrefix(String like) {
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < like.length(); i++) {
+                char c = like.charAt(i);
+                if (c == '%' || c == '_') {
+                    break;
+                } else if (c == '\\' && i + 1 < like.length()) {
+                    c = like.charAt(++i);
+                }
+                prefix.append(c);
+            }
+            return prefix.toString();
+        }
+        
+        private static Pattern likePattern(String like) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < like.length(); i++) {
+                char c = like.charAt(i);
+                if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else {
+                    if (c == '\\' && i + 1 < like.length()) {
+                        c = like.charAt(++i);
+                    }
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+    }
+    
+    private static class And extends ColumnarCondition {
+        private final List<ColumnarCondition> children;
+        
+        And(List<ColumnarCondition> children) {
+            this.children = children;
+        }
+        
+        @Override
+        public Set<String> getColumns() {
+            Set<String> columns = new LinkedHashSet<>();
+            for (ColumnarCondition child : children) {
+                columns.addAll(child.getColumns());
+            }
+            return columns;
+        }
+        
+        @Override
+        boolean mayMatch(Block block) {
+            for (ColumnarCondition child : children) {
+                if (!child.mayMatch(block)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        BitSet match(Block block) throws IOException {
+            BitSet rows = null;
+            for (ColumnarCondition child : children) {
+                if (rows == null) {
+                    rows = child.match(block);
+                } else {
+                    rows.and(child.match(block));
+                }
+                if (rows.isEmpty()) {
+                    // the remaining columns need not be read
+                    break;
+                }
+            }
+            return rows;
+        }
+        
+        @Override
+        ColumnarCondition negate() {
+            List<ColumnarCondition> negated = new ArrayList<>();
+            for (ColumnarCondition child : children) {
+                negated.add(child.negate());
+            }
+            return new Or(negated);
+        }
+        
+        @Override
+        public String toString() {
+            return "(" + StringUtils.join(children, " AND ") + ")";
+        }
+    }
+    
+    private static class Or extends ColumnarCondition {
+        private final List<ColumnarCondition> children;
+        
+        Or(List<ColumnarCondition> children) {
+            this.children = children;
+        }
+        
+        @Override
+        public Set<String> getColumns() {
+            Set<String> columns = new LinkedHashSet<>();
+            for (ColumnarCondition child : children) {
+                columns.addAll(child.getColumns());
+            }
+            return columns;
+        }
+        
+        @Override
+        boolean mayMatch(Block block) {
+            for (ColumnarCondition child : children) {
+                if (child.mayMatch(block)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        BitSet match(Block block) throws IOException {
+            BitSet rows = new BitSet(block.getRows());
+            for (ColumnarCondition child : children) {
+                // a child that can not match this block need not be read
+                if (child.mayMatch(block)) {
+                    rows.or(child.match(block));
+                }
+            }
+            return rows;
+        }
+        
+        @Override
+        ColumnarCondition negate() {
+            List<ColumnarCondition> negated = new ArrayList<>();
+            for (ColumnarCondition child : children) {
+                negated.add(child.negate());
+            }
+            return new And(negated);
+        }
+        
+        @Override
+        public String toString() {
+            return "(" + StringUtils.join(children, " OR ") + ")";
+        }
+    }
+    
+    /**
+     * A recursive descent parser of conditions
+     */
+    private static class Parser {
+        
+        private static final Set<String> KEYWORDS = new LinkedHashSet<>(Arrays.asList("AND", "OR", "NOT", "LIKE", "IN", "IS", "NULL", "BETWEEN"));
+        
+        private final String conditions;
+        private final List<Token> tokens = new ArrayList<>();
+        private int position = 0;
+        
+        Parser(String conditions) {
+            this.conditions = conditions;
+            tokenize();
+        }
+        
+        ColumnarCondition parseOr() {
+            List<ColumnarCondition> children = new ArrayList<>();
+            children.add(parseAnd());
+            while (acceptKeyword("OR")) {
+                children.add(parseAnd());
+            }
+            return (children.size() == 1 ? children.get(0) : new Or(children));
+        }
+        
+        private ColumnarCondition parseAnd() {
+            List<ColumnarCondition> children = new ArrayList<>();
+            children.add(parseNot());
+            while (acceptKeyword("AND")) {
+                children.add(parseNot());
+            }
+            return (children.size() == 1 ? children.get(0) : new And(children));
+        }
+        
+        private ColumnarCondition parseNot() {
+            if (acceptKeyword("NOT")) {
+                return parseNot().negate();
+            }
+            if (accept("(")) {
+                ColumnarCondition condition = parseOr();
+                expect(")");
+                return condition;
+            }
+            return parseComparison();
+        }
+        
+        private ColumnarCondition parseComparison() {
+            Token token = next();
+            if (token.type != Type.COLUMN) {
+                throw error("Expected a column", token);
+            }
+            String column = token.text;
+            if (accept("(")) {
+                throw new IllegalArgumentException("Functions are not supported in the conditions of columnar cached results: " + conditions);
+            }
+            
+            if (acceptKeyword("IS")) {
+                boolean negated = acceptKeyword("NOT");
+                expectKeyword("NULL");
+                return new Comparison(column, Op.NULL, Collections.emptyList(), negated);
+            }
+            boolean negated = acceptKeyword("NOT");
+            if (acceptKeyword("LIKE")) {
+                Literal pattern = literal();
+                if (pattern.number != null) {
+                    pattern = new Literal(pattern.value, false);
+                }
+                return new Comparison(column, Op.LIKE, Collections.singletonList(pattern), negated);
+            } else if (acceptKeyword("IN")) {
+                expect("(");
+                List<Literal> literals = new ArrayList<>();
+                do {
+                    literals.add(literal());
+                } while (accept(","));
+                expect(")");
+                return new Comparison(column, Op.IN, literals, negated);
+            } else if (acceptKeyword("BETWEEN")) {
+                Literal low = literal();
+                expectKeyword("AND");
+                Literal high = literal();
+                List<ColumnarCondition> range = new ArrayList<>();
+                range.add(new Comparison(column, Op.GE, Collections.singletonList(low), false));
+                range.add(new Comparison(column, Op.LE, Collections.singletonList(high), false));
+                ColumnarCondition between = new And(range);
+                return (negated ? between.negate() : between);
+            } else if (negated) {
+                throw error("Expected LIKE, IN or BETWEEN", peek());
+            }
+            
+            token = next();
+            if (token.type != Type.OPERATOR) {
+                throw error("Expected a comparison", token);
+            }
+            Literal literal = literal();
+            switch (token.text) {
+                case "=":
+                    return new Comparison(column, Op.EQ, Collections.singletonList(literal), false);
+                case "!=":
+                case "<>":
+                    return new Comparison(column, Op.EQ, Collections.singletonList(literal), true);
+                case "<":
+                    return new Comparison(column, Op.LT, Collections.singletonList(literal), false);
+                case "<=":
+                    return new Comparison(column, Op.LE, Collections.singletonList(literal), false);
+                case ">":
+                    return new Comparison(column, Op.GT, Collections.singletonList(literal), false);
+                case ">=":
+                    return new Comparison(column, Op.GE, Collections.singletonList(literal), false);
+                default:
+                    throw error("Unsupported comparison", token);
+            }
+        }
+        
+        private Literal literal() {
+            Token token = next();
+            if (token.type == Type.STRING) {
+                return new Literal(token.text, false);
+            } else if (token.type == Type.NUMBER) {
+                return new Literal(token.text, true);
+            }
+            throw error("Expected a literal", token);
+        }
+        
+        Token peek() {
+            return (position < tokens.size() ? tokens.get(position) : null);
+        }
+        
+        private Token next() {
+            Token token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("Unexpected end of conditions: " + conditions);
+            }
+            position++;
+            return token;
+        }
+        
+        private boolean accept(String punctuation) {
+            Token token = peek();
+            if (token != null && token.type == Type.PUNCTUATION && token.text.equals(punctuation)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+        
+        private boolean acceptKeyword(String keyword) {
+            Token token = peek();
+            if (token != null && token.type == Type.KEYWORD && token.text.equals(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(String punctuation) {
+            if (!accept(punctuation)) {
+                throw error("Expected " + punctuation, peek());
+            }
+        }
+        
+        private void expectKeyword(String keyword) {
+            if (!acceptKeyword(keyword)) {
+                throw error("Expected " + keyword, peek());
+            }
+        }
+        
+        private IllegalArgumentException error(String message, Token token) {
+            return new IllegalArgumentException(message + (token == null ? " at the end" : " at " + token) + " of conditions: " + conditions);
+        }
+        
+        private void tokenize() {
+            int i = 0;
+            int length = conditions.length();
+            while (i < length) {
+                char c = conditions.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '\'' || c == '"') {
+                    // a string, in which the quote is escaped by doubling it or with a backslash
+                    StringBuilder s = new StringBuilder();
+                    i++;
+                    while (true) {
+                        if (i >= length) {
+                            throw new IllegalArgumentException("Unterminated string in conditions: " + conditions);
+                        }
+                        char ch = conditions.charAt(i++);
+                        if (ch == '\\' && i < length) {
+                            s.append(conditions.charAt(i++));
+                        } else if (ch == c && i < length && conditions.charAt(i) == c) {
+                            s.append(c);
+                            i++;
+                        } else if (ch == c) {
+                            break;
+                        } else {
+                            s.append(ch);
+                        }
+                    }
+                    tokens.add(new Token(Type.STRING, s.toString()));
+                } else if (c == '`') {
+                    int end = conditions.indexOf('`', i + 1);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Unterminated column name in conditions: " + conditions);
+                    }
+                    tokens.add(new Token(Type.COLUMN, conditions.substring(i + 1, end)));
+                    i = end + 1;
+                } else if (c == '(' || c == ')' || c == ',') {
+                    tokens.add(new Token(Type.PUNCTUATION, String.valueOf(c)));
+                    i++;
+                } else if (c == '=' || c == '<' || c == '>' || c == '!') {
+                    int end = i + 1;
+                    if (end < length && (conditions.charAt(end) == '=' || (c == '<' && conditions.charAt(end) == '>'))) {
+                        end++;
+                    }
+                    tokens.add(new Token(Type.OPERATOR, conditions.substring(i, end)));
+                    i = end;
+                } else if (Character.isDigit(c) || ((c == '-' || c == '.') && i + 1 < length && Character.isDigit(conditions.charAt(i + 1)))) {
+                    int end = i + 1;
+                    while (end < length && (Character.isDigit(conditions.charAt(end)) || conditions.charAt(end) == '.')) {
+                        end++;
+                    }
+                    String number = conditions.substring(i, end);
+                    try {
+                        Double.parseDouble(number);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid number " + number + " in conditions: " + conditions);
+                    }
+                    tokens.add(new Token(Type.NUMBER, number));
+                    i = end;
+                } else if (Character.isLetter(c) || c == '_') {
+                    int end = i + 1;
+                    while (end < length && isColumnChar(conditions.charAt(end))) {
+                        end++;
+                    }
+                    String word = conditions.substring(i, end);
+                    if (KEYWORDS.contains(word.toUpperCase())) {
+                        tokens.add(new Token(Type.KEYWORD, word.toUpperCase()));
+                    } else {
+                        tokens.add(new Token(Type.COLUMN, word));
+                    }
+                    i = end;
+                } else {
+                    throw new IllegalArgumentException("Unexpected character " + c + " in conditions: " + conditions);
+                }
+            }
+        }
+    }
+    
+    private static boolean isColumnChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+    
+    private enum Type {
+        COLUMN, KEYWORD, STRING, NUMBER, OPERATOR, PUNCTUATION
+    }
+    
+    private static class Token {
+        private final Type type;
+        private final String text;
+        
+        Token(Type type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+        
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
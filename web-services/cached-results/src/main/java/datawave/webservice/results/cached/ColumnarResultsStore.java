@@ -0,0 +1,837 @@
+package datawave.webservice.results.cached;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import datawave.marking.MarkingFunctions;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A store of cached results in local columnar files, used by the {@link CachedResultsBean} in place of the tables and views of the cached results database
+ * when a columnar directory is configured.
+ * <p>
+ * Each loaded query is a directory named after its view, holding a file per column and a metadata file. The columns are those of the cached results template
+ * table: the fixed columns followed by one column per field, in the order the fields were first seen. A column file is a sequence of blocks of rows, and each
+ * block is dictionary encoded: the distinct values of the block in sorted order, followed by a code per row into them, where zero is a null. The metadata
+ * holds the offset of each block along with the minimum and maximum value and the number of nulls in it, so that a scan can skip the blocks that a condition
+ * can not match without reading them, and evaluates the condition once per dictionary value of the blocks that it does read.
+ * <p>
+ * Strings are compared case insensitively, as they are by the default collation of the cached results database, in conditions, in the order of the rows and in
+ * the minimum and maximum of the blocks. Unlike that collation, accents and trailing spaces are significant.
+ * <p>
+ * The store is local to the node that loaded the results. Another node does not find the results in its own store, and falls back to the cached results
+ * database, where there is no view for them.
+ */
+public class ColumnarResultsStore {
+    
+    private static final Logger log = Logger.getLogger(ColumnarResultsStore.class);
+    
+    public static final int DEFAULT_ROWS_PER_BLOCK = 4096;
+    
+    /**
+     * The order of the strings in the store, which matches the case insensitive collation of the cached results database
+     */
+    static final Comparator<String> COLLATION = String.CASE_INSENSITIVE_ORDER;
+    
+    // the order of a dictionary, which breaks the ties of the collation so that the dictionary of a block does not depend on the order of its rows
+    private static final Comparator<String> DICTIONARY_ORDER = COLLATION.thenComparing(Comparator.naturalOrder());
+    
+    // version 2 orders the dictionaries and statistics of the blocks by the collation
+    private static final int VERSION = 2;
+    private static final String META = "meta";
+    private static final String COLUMN = "c";
+    private static final int FIXED_COLUMNS = CacheableQueryRow.getFixedColumnSet().size();
+    
+    private final File dir;
+    private final int rowsPerBlock;
+    
+    public ColumnarResultsStore(File dir) {
+        this(dir, DEFAULT_ROWS_PER_BLOCK);
+    }
+    
+    /**
+     * @param dir
+     *            the directory of the store
+     * @param rowsPerBlock
+     *            the number of rows in a block of a column
+     */
+    public ColumnarResultsStore(File dir, int rowsPerBlock) {
+        this.dir = dir;
+        this.rowsPerBlock = Math.max(1, rowsPerBlock);
+    }
+    
+    public File getDir() {
+        return dir;
+    }
+    
+    /**
+     * @return true if the results of a view have been written to this store
+     */
+    public boolean exists(String view) {
+        return new File(tableDir(view), META).isFile();
+    }
+    
+    /**
+     * Start writing the results of a view, replacing any that were written before
+     * 
+     * @param view
+     *            the name of the view
+     * @return the writer, which must be finished for the results to exist
+     * @throws IOException
+     *             if the directory for the view could not be created
+     */
+    public Writer create(String view) throws IOException {
+        File tableDir = tableDir(view);
+        remove(view);
+        if (!tableDir.mkdirs()) {
+            throw new IOException("Unable to create columnar cached results directory " + tableDir);
+        }
+        return new Writer(tableDir, rowsPerBlock);
+    }
+    
+    /**
+     * @param view
+     *            the name of the view
+     * @return the results of the view
+     * @throws IOException
+     *             if the results do not exist or could not be read
+     */
+    public Table open(String view) throws IOException {
+        File tableDir = tableDir(view);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(tableDir, META))))) {
+            return new Table(tableDir, in);
+        } catch (FileNotFoundException e) {
+            throw new IOException("No columnar cached results for " + view, e);
+        }
+    }
+    
+    /**
+     * Remove the results of a view, if they exist
+     */
+    public void remove(String view) {
+        delete(tableDir(view));
+    }
+    
+    /**
+     * Remove the results that were written more than a given time ago
+     * 
+     * @param ageMs
+     *            the age in milliseconds
+     * @return the names of the views removed
+     */
+    public List<String> removeOlderThan(long ageMs) {
+        List<String> removed = new ArrayList<>();
+        File[] tableDirs = dir.listFiles(File::isDirectory);
+        if (tableDirs != null) {
+            long cutoff = System.currentTimeMillis() - ageMs;
+            for (File tableDir : tableDirs) {
+                File meta = new File(tableDir, META);
+                // results that are still being written have no metadata yet
+                long written = (meta.isFile() ? meta.lastModified() : tableDir.lastModified());
+                if (written < cutoff) {
+                    delete(tableDir);
+                    removed.add(tableDir.getName());
+                }
+            }
+        }
+        return removed;
+    }
+    
+    private File tableDir(String view) {
+        return new File(dir, CachedResultsParameters.validate(view));
+    }
+    
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (f.exists() && !f.delete()) {
+            log.warn("Failed to delete columnar cached results file " + f);
+        }
+    }
+    
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+    
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] b = new byte[length];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Writes the rows of a view, a block of rows at a time
+     */
+    public static class Writer implements Closeable {
+        
+        private final File tableDir;
+        private final int rowsPerBlock;
+        private final List<String> columns = new ArrayList<>(CacheableQueryRow.getFixedColumnSet());
+        private final List<String[]> values = new ArrayList<>();
+        private final List<OutputStream> files = new ArrayList<>();
+        private final List<List<BlockStats>> stats = new ArrayList<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private int rowsInBlock = 0;
+        private int blocks = 0;
+        private long rows = 0;
+        private boolean finished = false;
+        
+        Writer(File tableDir, int rowsPerBlock) {
+            this.tableDir = tableDir;
+            this.rowsPerBlock = rowsPerBlock;
+            for (int i = 0; i < columns.size(); i++) {
+                addColumn();
+            }
+        }
+        
+        /**
+         * Add a row, writing the block of rows if it is full
+         * 
+         * @param owner
+         *            the user the results are cached for
+         * @param queryId
+         *            the id of the query
+         * @param logicName
+         *            the name of the query logic
+         * @param fieldMap
+         *            the column numbers of the fields, to which the fields of this row are added
+         * @param cqo
+         *            the row
+         * @throws IOException
+         *             if the block could not be written
+         */
+        public void add(String owner, String queryId, String logicName, Map<String,Integer> fieldMap, CacheableQueryRow cqo) throws IOException {
+            if (rows == Integer.MAX_VALUE) {
+                throw new IOException("Too many rows for columnar cached results " + tableDir.getName());
+            }
+            set(0, owner);
+            set(1, queryId);
+            set(2, logicName);
+            set(3, cqo.getDataType());
+            set(4, cqo.getEventId());
+            set(5, cqo.getRow());
+            set(6, cqo.getColFam());
+            set(7, MarkingFunctions.Encoding.toString(new TreeMap<>(cqo.getMarkings())));
+            for (Entry<String,String> e : cqo.getColumnValues().entrySet()) {
+                // column numbers are 1-based, as for the cached results tables
+                Integer columnNumber = fieldMap.get(e.getKey());
+                if (columnNumber == null) {
+                    columnNumber = FIXED_COLUMNS + fieldMap.size() + 1;
+                    fieldMap.put(e.getKey(), columnNumber);
+                }
+                while (columns.size() < columnNumber) {
+                    columns.add(null);
+                    addColumn();
+                }
+                columns.set(columnNumber - 1, e.getKey());
+                set(columnNumber - 1, e.getValue());
+            }
+            set(8, cqo.getColumnSecurityMarkingString(fieldMap));
+            set(9, cqo.getColumnTimestampString(fieldMap));
+            
+            rows++;
+            if (++rowsInBlock >= rowsPerBlock) {
+                writeBlock();
+            }
+        }
+        
+        /**
+         * Write the remaining rows and the metadata, after which the rows can be read
+         * 
+         * @return the number of rows written
+         * @throws IOException
+         *             if the rows or the metadata could not be written
+         */
+        public long finish() throws IOException {
+            if (rowsInBlock > 0) {
+                writeBlock();
+            }
+            for (OutputStream file : files) {
+                if (file != null) {
+                    file.close();
+                }
+            }
+            
+            // write the metadata last, as it marks the results as complete
+            File tmp = new File(tableDir, META + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(VERSION);
+                out.writeInt((int) rows);
+                out.writeInt(rowsPerBlock);
+                out.writeInt(blocks);
+                out.writeInt(columns.size());
+                for (int c = 0; c < columns.size(); c++) {
+                    writeString(out, columns.get(c));
+                    List<BlockStats> columnStats = stats.get(c);
+                    for (int b = 0; b < blocks; b++) {
+                        // a column that was added after a block was written has no values in it
+                        BlockStats s = (b < columnStats.size() ? columnStats.get(b) : null);
+                        if (s == null) {
+                            out.writeLong(-1);
+                        } else {
+                            out.writeLong(s.offset);
+                            out.writeInt(s.length);
+                            out.writeInt(s.nulls);
+                            writeString(out, s.min);
+                            writeString(out, s.max);
+                        }
+                    }
+                }
+            }
+            if (!tmp.renameTo(new File(tableDir, META))) {
+                throw new IOException("Unable to rename " + tmp);
+            }
+            finished = true;
+            return rows;
+        }
+        
+        /**
+         * Close the column files, removing the results if they were not finished
+         */
+        @Override
+        public void close() {
+            for (OutputStream file : files) {
+                if (file != null) {
+                    try {
+                        file.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close columnar cached results file in " + tableDir, e);
+                    }
+                }
+            }
+            if (!finished) {
+                delete(tableDir);
+            }
+        }
+        
+        private void addColumn() {
+            values.add(new String[rowsPerBlock]);
+            files.add(null);
+            stats.add(new ArrayList<>());
+            offsets.add(0L);
+        }
+        
+        private void set(int column, String value) {
+            values.get(column)[rowsInBlock] = value;
+        }
+        
+        private void writeBlock() throws IOException {
+            for (int c = 0; c < columns.size(); c++) {
+                String[] columnValues = values.get(c);
+                
+                // the dictionary of the block is its distinct values in sorted order, so the first and last are its minimum and maximum
+                Map<String,Integer> codes = new HashMap<>();
+                int nulls = 0;
+                for (int r = 0; r < rowsInBlock; r++) {
+                    if (columnValues[r] == null) {
+                        nulls++;
+                    } else {
+                        codes.put(columnValues[r], 0);
+                    }
+                }
+                String[] dictionary = codes.keySet().toArray(new String[codes.size()]);
+                Arrays.sort(dictionary, DICTIONARY_ORDER);
+                for (int i = 0; i < dictionary.length; i++) {
+                    codes.put(dictionary[i], i + 1);
+                }
+                
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(rowsInBlock);
+                out.writeInt(dictionary.length);
+                for (String value : dictionary) {
+                    writeString(out, value);
+                }
+                int width = codeWidth(dictionary.length);
+                for (int r = 0; r < rowsInBlock; r++) {
+                    int code = (columnValues[r] == null ? 0 : codes.get(columnValues[r]));
+                    columnValues[r] = null;
+                    if (width == 1) {
+                        out.writeByte(code);
+                    } else if (width == 2) {
+                        out.writeShort(code);
+                    } else {
+                        out.writeInt(code);
+                    }
+                }
+                out.flush();
+                
+                if (files.get(c) == null) {
+                    files.set(c, new BufferedOutputStream(new FileOutputStream(new File(tableDir, COLUMN + c)), 1 << 16));
+                }
+                List<BlockStats> columnStats = stats.get(c);
+                while (columnStats.size() < blocks) {
+                    columnStats.add(null);
+                }
+                long offset = offsets.get(c);
+                bytes.writeTo(files.get(c));
+                offsets.set(c, offset + bytes.size());
+                columnStats.add(new BlockStats(offset, bytes.size(), nulls, (dictionary.length == 0 ? null : dictionary[0]),
+                                (dictionary.length == 0 ? null : dictionary[dictionary.length - 1])));
+            }
+            blocks++;
+            rowsInBlock = 0;
+        }
+    }
+    
+    private static int codeWidth(int dictionarySize) {
+        if (dictionarySize < 0xFF) {
+            return 1;
+        } else if (dictionarySize < 0xFFFF) {
+            return 2;
+        } else {
+            return 4;
+        }
+    }
+    
+    /**
+     * The statistics of a block of a column
+     */
+    static class BlockStats {
+        final long offset;
+        final int length;
+        final int nulls;
+        final String min;
+        final String max;
+        
+        BlockStats(long offset, int length, int nulls, String min, String max) {
+            this.offset = offset;
+            this.length = length;
+            this.nulls = nulls;
+            this.min = min;
+            this.max = max;
+        }
+    }
+    
+    /**
+     * A dictionary encoded block of a column
+     */
+    static class ColumnBlock {
+        /** the distinct values of the block, in sorted order */
+        final String[] dictionary;
+        /** the position of each row's value in the dictionary, plus one, or zero for a null */
+        final int[] codes;
+        
+        ColumnBlock(String[] dictionary, int[] codes) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+        
+        String get(int row) {
+            int code = codes[row];
+            return (code == 0 ? null : dictionary[code - 1]);
+        }
+    }
+    
+    /**
+     * The results of a view, which are read a column at a time
+     */
+    public static class Table {
+        
+        private final File tableDir;
+        private final int rows;
+        private final int rowsPerBlock;
+        private final int blocks;
+        private final List<String> columns = new ArrayList<>();
+        private final Map<String,Integer> columnIndex = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final BlockStats[][] stats;
+        private long blocksRead = 0;
+        private long blocksSkipped = 0;
+        
+        Table(File tableDir, DataInputStream in) throws IOException {
+            this.tableDir = tableDir;
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported columnar cached results version " + version + " in " + tableDir);
+            }
+            rows = in.readInt();
+            rowsPerBlock = in.readInt();
+            blocks = in.readInt();
+            int numColumns = in.readInt();
+            stats = new BlockStats[numColumns][blocks];
+            for (int c = 0; c < numColumns; c++) {
+                String column = readString(in);
+                columns.add(column);
+                columnIndex.put(column, c);
+                for (int b = 0; b < blocks; b++) {
+                    long offset = in.readLong();
+                    if (offset >= 0) {
+                        stats[c][b] = new BlockStats(offset, in.readInt(), in.readInt(), readString(in), readString(in));
+                    }
+                }
+            }
+        }
+        
+        /**
+         * @return the names of the columns, in the order of the cached results table
+         */
+        public List<String> getColumns() {
+            return Collections.unmodifiableList(columns);
+        }
+        
+        public int getRows() {
+            return rows;
+        }
+        
+        /**
+         * @return the number of blocks that were scanned for the conditions of a select
+         */
+        public long getBlocksRead() {
+            return blocksRead;
+        }
+        
+        /**
+         * @return the number of blocks that were skipped, as their statistics showed that the conditions of a select could not match them
+         */
+        public long getBlocksSkipped() {
+            return blocksSkipped;
+        }
+        
+        /**
+         * Select the rows that match a condition
+         * 
+         * @param where
+         *            the condition, or null to select every row
+         * @param order
+         *            the columns to sort the rows by, ties being left in the order they were written
+         * @return the numbers of the rows selected, in order
+         * @throws IOException
+         *             if the columns could not be read
+         */
+        public int[] select(ColumnarCondition where, List<SortKey> order) throws IOException {
+            if (where != null) {
+                for (String column : where.getColumns()) {
+                    checkColumn(column);
+                }
+            }
+            for (SortKey key : order) {
+                checkColumn(key.column);
+            }
+            
+            int[] selected = new int[16];
+            int count = 0;
+            try (Reader reader = new Reader()) {
+                for (int b = 0; b < blocks; b++) {
+                    Block block = new Block(reader, b);
+                    if (where != null && !where.mayMatch(block)) {
+                        blocksSkipped++;
+                        continue;
+                    }
+                    blocksRead++;
+                    BitSet matches;
+                    if (where == null) {
+                        matches = new BitSet(block.getRows());
+                        matches.set(0, block.getRows());
+                    } else {
+                        matches = where.match(block);
+                    }
+                    if (selected.length < count + matches.cardinality()) {
+                        selected = Arrays.copyOf(selected, Math.max(selected.length * 2, count + matches.cardinality()));
+                    }
+                    for (int r = matches.nextSetBit(0); r >= 0; r = matches.nextSetBit(r + 1)) {
+                        selected[count++] = b * rowsPerBlock + r;
+                    }
+                }
+                selected = Arrays.copyOf(selected, count);
+                
+                if (!order.isEmpty() && count > 1) {
+                    String[][] keys = new String[order.size()][];
+                    for (int k = 0; k < order.size(); k++) {
+                        keys[k] = reader.values(columnIndex.get(order.get(k).column), selected);
+                    }
+                    Integer[] positions = new Integer[count];
+                    for (int i = 0; i < count; i++) {
+                        positions[i] = i;
+                    }
+                    Arrays.sort(positions, (p1, p2) -> {
+                        for (int k = 0; k < keys.length; k++) {
+                            int cmp = compare(keys[k][p1], keys[k][p2]);
+                            if (cmp != 0) {
+                                return (order.get(k).descending ? -cmp : cmp);
+                            }
+                        }
+                        return Integer.compare(p1, p2);
+                    });
+                    int[] sorted = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        sorted[i] = selected[positions[i]];
+                    }
+                    selected = sorted;
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Selected " + count + " of " + rows + " rows from " + tableDir.getName() + ", read " + blocksRead + " and skipped " + blocksSkipped
+                                + " blocks");
+            }
+            return selected;
+        }
+        
+        /**
+         * Read selected rows into a row set, with a column for each of the columns requested
+         * 
+         * @param selected
+         *            the numbers of the rows selected
+         * @param from
+         *            the first of the selected rows to read
+         * @param to
+         *            the end of the selected rows to read, exclusive
+         * @param names
+         *            the columns to read, or null for every column
+         * @return the rows, in the order selected
+         * @throws IOException
+         *             if the columns could not be read
+         * @throws SQLException
+         *             if the row set could not be populated
+         */
+        public CachedRowSet read(int[] selected, int from, int to, List<String> names) throws IOException, SQLException {
+            if (names == null) {
+                names = columns;
+            }
+            int[] page = Arrays.copyOfRange(selected, Math.max(0, from), Math.max(Math.max(0, from), Math.min(to, selected.length)));
+            String[][] pageValues = new String[names.size()][];
+            try (Reader reader = new Reader()) {
+                for (int c = 0; c < names.size(); c++) {
+                    pageValues[c] = reader.values(checkColumn(names.get(c)), page);
+                }
+            }
+            
+            RowSetMetaDataImpl metadata = new RowSetMetaDataImpl();
+            metadata.setColumnCount(names.size());
+            for (int c = 0; c < names.size(); c++) {
+                String name = columns.get(columnIndex.get(names.get(c)));
+                metadata.setColumnName(c + 1, name);
+                metadata.setColumnLabel(c + 1, name);
+                metadata.setColumnType(c + 1, Types.VARCHAR);
+                metadata.setNullable(c + 1, ResultSetMetaData.columnNullable);
+            }
+            CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet();
+            crs.setMetaData(metadata);
+            for (int r = 0; r < page.length; r++) {
+                // rows are inserted before the cursor, so keep it on the last row
+                crs.last();
+                crs.moveToInsertRow();
+                for (int c = 0; c < names.size(); c++) {
+                    if (pageValues[c][r] == null) {
+                        crs.updateNull(c + 1);
+                    } else {
+                        crs.updateString(c + 1, pageValues[c][r]);
+                    }
+                }
+                crs.insertRow();
+                crs.moveToCurrentRow();
+            }
+            crs.beforeFirst();
+            return crs;
+        }
+        
+        private int checkColumn(String column) {
+            Integer c = columnIndex.get(column);
+            if (c == null) {
+                throw new IllegalArgumentException("Unknown column " + column + " in " + tableDir.getName());
+            }
+            return c;
+        }
+        
+        private static int compare(String s1, String s2) {
+            if (s1 == null) {
+                return (s2 == null ? 0 : -1);
+            }
+            return (s2 == null ? 1 : COLLATION.compare(s1, s2));
+        }
+        
+        /**
+         * Reads the blocks of the columns of the table
+         */
+        class Reader implements Closeable {
+            
+            private final Map<Integer,RandomAccessFile> files = new HashMap<>();
+            
+            ColumnBlock readBlock(int column, int block) throws IOException {
+                BlockStats s = stats[column][block];
+                int blockRows = getBlockRows(block);
+                if (s == null) {
+                    return new ColumnBlock(new String[0], new int[blockRows]);
+                }
+                RandomAccessFile file = files.get(column);
+                if (file == null) {
+                    file = new RandomAccessFile(new File(tableDir, COLUMN + column), "r");
+                    files.put(column, file);
+                }
+                byte[] bytes = new byte[s.length];
+                file.seek(s.offset);
+                file.readFully(bytes);
+                
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+                int[] codes = new int[in.readInt()];
+                String[] dictionary = new String[in.readInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(in);
+                }
+                int width = codeWidth(dictionary.length);
+                for (int r = 0; r < codes.length; r++) {
+                    if (width == 1) {
+                        codes[r] = in.readUnsignedByte();
+                    } else if (width == 2) {
+                        codes[r] = in.readUnsignedShort();
+                    } else {
+                        codes[r] = in.readInt();
+                    }
+                }
+                return new ColumnBlock(dictionary, codes);
+            }
+            
+            /**
+             * @return the values of a column for rows in any order, reading each block that they fall in once
+             */
+            String[] values(int column, int[] rowNumbers) throws IOException {
+                // sort the rows by number, keeping their positions in the low bits
+                long[] sorted = new long[rowNumbers.length];
+                for (int i = 0; i < rowNumbers.length; i++) {
+                    sorted[i] = ((long) rowNumbers[i] << 32) | i;
+                }
+                Arrays.sort(sorted);
+                
+                String[] columnValues = new String[rowNumbers.length];
+                ColumnBlock columnBlock = null;
+                int current = -1;
+                for (long s : sorted) {
+                    int row = (int) (s >>> 32);
+                    int block = row / rowsPerBlock;
+                    if (block != current) {
+                        columnBlock = readBlock(column, block);
+                        current = block;
+                    }
+                    columnValues[(int) s] = columnBlock.get(row % rowsPerBlock);
+                }
+                return columnValues;
+            }
+            
+            @Override
+            public void close() {
+                for (RandomAccessFile file : files.values()) {
+                    try {
+                        file.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close columnar cached results file in " + tableDir, e);
+                    }
+                }
+                files.clear();
+            }
+        }
+        
+        private int getBlockRows(int block) {
+            return Math.min(rowsPerBlock, rows - block * rowsPerBlock);
+        }
+        
+        /**
+         * A block of rows of the table, whose column blocks are read as a condition needs them
+         */
+        class Block {
+            
+            private final Reader reader;
+            private final int block;
+            private final Map<Integer,ColumnBlock> columnBlocks = new HashMap<>();
+            
+            Block(Reader reader, int block) {
+                this.reader = reader;
+                this.block = block;
+            }
+            
+            int getRows() {
+                return getBlockRows(block);
+            }
+            
+            /**
+             * @return the statistics of a column in this block, which has no minimum or maximum if every value is null
+             */
+            BlockStats getStats(String column) {
+                BlockStats s = stats[checkColumn(column)][block];
+                return (s == null ? new BlockStats(-1, 0, getRows(), null, null) : s);
+            }
+            
+            ColumnBlock getColumn(String column) throws IOException {
+                int c = checkColumn(column);
+                ColumnBlock columnBlock = columnBlocks.get(c);
+                if (columnBlock == null) {
+                    columnBlock = reader.readBlock(c, block);
+                    columnBlocks.put(c, columnBlock);
+                }
+                return columnBlock;
+            }
+        }
+    }
+    
+    /**
+     * A column to sort by
+     */
+    public static class SortKey {
+        private final String column;
+        private final boolean descending;
+        
+        public SortKey(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+        
+        public String getColumn() {
+            return column;
+        }
+        
+        public boolean isDescending() {
+            return descending;
+        }
+        
+        @Override
+        public String toString() {
+            return column + (descending ? " DESC" : " ASC");
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package datawave.webservice.results.cached;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.ejb.EJBContext;
+import javax.ws.rs.core.MultivaluedMap;
+
+import datawave.security.authorization.DatawavePrincipal;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import datawave.security.util.DnUtils.NpeUtils;
+import datawave.webservice.common.audit.Auditor.AuditType;
+import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import datawave.webservice.common.exception.DatawaveWebApplicationException;
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.QueryParameters;
+import datawave.webservice.query.cache.CachedResultsQueryCache;
+import datawave.webservice.query.cache.CreatedQueryLogicCacheBean;
+import datawave.webservice.query.cache.QueryCache;
+import datawave.webservice.query.cache.QueryExpirationConfiguration;
+import datawave.webservice.query.cache.QueryMetricFactory;
+import datawave.webservice.query.cache.QueryMetricFactoryImpl;
+import datawave.webservice.query.cache.ResultsPage;
+import datawave.webservice.query.cache.RunningQueryTimingImpl;
+import datawave.webservice.query.cachedresults.CacheableLogic;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.logic.QueryLogic;
+import datawave.webservice.query.logic.QueryLogicFactory;
+import datawave.webservice.query.logic.QueryLogicTransformer;
+import datawave.webservice.query.result.event.ResponseObjectFactory;
+import datawave.webservice.query.runner.AccumuloConnectionRequestBean;
+import datawave.webservice.query.runner.RunningQuery;
+import datawave.webservice.result.BaseQueryResponse;
+import datawave.webservice.result.BaseResponse;
+import datawave.webservice.result.CachedResultsDescribeResponse;
+import datawave.webservice.result.CachedResultsResponse;
+import datawave.webservice.result.DefaultEventQueryResponse;
+import datawave.webservice.result.GenericResponse;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.commons.collections4.TransformerUtils;
+import org.apache.commons.collections4.iterators.TransformIterator;
+import org.easymock.EasyMock;
+import org.h2.jdbcx.JdbcDataSource;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.reflect.Whitebox;
+
+/**
+ * Runs cached results through the {@link CachedResultsBean} with the columnar store configured, from the load of a query's results through paging.
+ */
+public class CachedResultsBeanTest {
+    
+    private static final int ROWS = 100;
+    private static final String[] COLORS = {"red", "green", "blue"};
+    private static final String ALIAS = "colors";
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private CachedResultsBean bean;
+    private DatawavePrincipal principal;
+    private String owner;
+    private QueryLogic<?> logic;
+    private QueryImpl query;
+    private ResultsPage lastPage;
+    
+    @Before
+    public void setup() throws Exception {
+        System.setProperty(NpeUtils.NPE_OU_PROPERTY, "iamnotaperson");
+        DatawaveUser user = new DatawaveUser(SubjectIssuerDNPair.of("CN=Guy Some Other soguy, OU=acme", "CN=ca, OU=acme"), UserType.USER, Arrays.asList("A",
+                        "B"), Collections.singleton("AuthorizedUser"), null, 0L);
+        principal = new DatawavePrincipal(Collections.singletonList(user));
+        owner = principal.getShortName();
+        
+        List<CacheableQueryRow> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Map<String,String> values = new LinkedHashMap<>();
+            values.put("SEQ", String.format("%03d", i));
+            values.put("COLOR", COLORS[i % 3]);
+            values.put("NUM", Integer.toString(i));
+            if (i % 2 == 0) {
+                values.put("EVEN", "true");
+            }
+            rows.add(row(String.format("uid%03d", i), values));
+        }
+        
+        query = new QueryImpl();
+        query.setId(UUID.randomUUID());
+        query.setQueryName("colors");
+        query.setQueryLogicName("EventQuery");
+        query.setQuery("COLOR == 'red'");
+        query.setQueryAuthorizations("A");
+        query.setOwner(owner);
+        query.setUserDN(principal.getUserDN().subjectDN());
+        query.setPagesize(25);
+        
+        CacheableTransformer transformer = EasyMock.createNiceMock(CacheableTransformer.class);
+        EasyMock.expect(transformer.writeToCache(EasyMock.anyObject())).andAnswer(
+                        () -> Collections.singletonList((CacheableQueryRow) EasyMock.getCurrentArguments()[0])).anyTimes();
+        EasyMock.expect(transformer.readFromCache(EasyMock.anyObject())).andAnswer(() -> new ArrayList<Object>((List<?>) EasyMock.getCurrentArguments()[0]))
+                        .anyTimes();
+        EasyMock.expect(transformer.createResponse(EasyMock.anyObject())).andAnswer(() -> {
+            lastPage = (ResultsPage) EasyMock.getCurrentArguments()[0];
+            return new DefaultEventQueryResponse();
+        }).anyTimes();
+        
+        ResponseObjectFactory responseObjectFactory = EasyMock.createNiceMock(ResponseObjectFactory.class);
+        EasyMock.expect(responseObjectFactory.getEventQueryResponse()).andAnswer(DefaultEventQueryResponse::new).anyTimes();
+        
+        GenericQueryConfiguration configuration = EasyMock.createNiceMock(GenericQueryConfiguration.class);
+        
+        logic = EasyMock.createNiceMock(QueryLogic.class);
+        EasyMock.expect(logic.getLogicName()).andReturn("EventQuery").anyTimes();
+        EasyMock.expect(logic.clone()).andReturn(logic).anyTimes();
+        EasyMock.expect(logic.getAuditType(EasyMock.anyObject())).andReturn(AuditType.NONE).anyTimes();
+        EasyMock.expect(logic.getTransformer(EasyMock.anyObject())).andReturn(transformer).anyTimes();
+        EasyMock.expect(logic.getResponseObjectFactory()).andReturn(responseObjectFactory).anyTimes();
+        EasyMock.expect(logic.initialize(EasyMock.anyObject(), EasyMock.anyObject(), EasyMock.anyObject())).andReturn(configuration).anyTimes();
+        EasyMock.expect(logic.getTransformIterator(EasyMock.anyObject())).andAnswer(
+                        () -> new TransformIterator<Object,Object>(rows.iterator(), TransformerUtils.nopTransformer())).anyTimes();
+        
+        QueryLogicFactory queryFactory = EasyMock.createNiceMock(QueryLogicFactory.class);
+        EasyMock.expect(queryFactory.getQueryLogic("EventQuery", principal)).andReturn((QueryLogic) logic).anyTimes();
+        
+        Connector connector = EasyMock.createNiceMock(Connector.class);
+        AccumuloConnectionFactory connectionFactory = EasyMock.createNiceMock(AccumuloConnectionFactory.class);
+        EasyMock.expect(connectionFactory.getConnection(EasyMock.anyObject(AccumuloConnectionFactory.Priority.class), EasyMock.anyObject())).andReturn(
+                        connector).anyTimes();
+        
+        EJBContext ctx = EasyMock.createNiceMock(EJBContext.class);
+        EasyMock.expect(ctx.getCallerPrincipal()).andReturn(principal).anyTimes();
+        
+        CreatedQueryLogicCacheBean qlCache = EasyMock.createNiceMock(CreatedQueryLogicCacheBean.class);
+        AccumuloConnectionRequestBean accumuloConnectionRequestBean = EasyMock.createNiceMock(AccumuloConnectionRequestBean.class);
+        QueryCache runningQueryCache = EasyMock.createNiceMock(QueryCache.class);
+        
+        EasyMock.replay(transformer, responseObjectFactory, configuration, logic, queryFactory, connector, connectionFactory, ctx, qlCache,
+                        accumuloConnectionRequestBean);
+        
+        // the query whose results are loaded, as created by the query executor
+        QueryExpirationConfiguration queryExpirationConf = new QueryExpirationConfiguration();
+        QueryMetricFactory metricFactory = new QueryMetricFactoryImpl();
+        RunningQuery runningQuery = new RunningQuery(null, null, AccumuloConnectionFactory.Priority.NORMAL, logic, query, query.getQueryAuthorizations(),
+                        principal, new RunningQueryTimingImpl(queryExpirationConf, 0), null, null, metricFactory);
+        EasyMock.expect(runningQueryCache.get(query.getId().toString())).andReturn(runningQuery).anyTimes();
+        EasyMock.replay(runningQueryCache);
+        
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:cachedresultsbean;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        
+        CachedResultsConfiguration cachedResultsConfiguration = new CachedResultsConfiguration();
+        cachedResultsConfiguration.setDefaultPageSize(10);
+        cachedResultsConfiguration.setMaxPageSize(100);
+        cachedResultsConfiguration.getParameters().put("TEMPLATE_TABLE", "CREATE TABLE IF NOT EXISTS template (id INT)");
+        cachedResultsConfiguration.getParameters().put("ROWS_PER_BATCH", "10");
+        cachedResultsConfiguration.getParameters().put("COLUMNAR_DIR", folder.getRoot().getPath());
+        
+        CachedResultsQueryCache cachedRunningQueryCache = new CachedResultsQueryCache();
+        cachedRunningQueryCache.init();
+        
+        bean = new CachedResultsBean();
+        Whitebox.setInternalState(bean, "ctx", ctx);
+        Whitebox.setInternalState(bean, "connectionFactory", connectionFactory);
+        Whitebox.setInternalState(bean, "queryFactory", queryFactory);
+        Whitebox.setInternalState(bean, "ds", ds);
+        Whitebox.setInternalState(bean, "runningQueryCache", runningQueryCache);
+        Whitebox.setInternalState(bean, "qlCache", qlCache);
+        Whitebox.setInternalState(bean, "responseObjectFactory", responseObjectFactory);
+        Whitebox.setInternalState(bean, "cachedResultsConfiguration", cachedResultsConfiguration);
+        Whitebox.setInternalState(bean, "cachedRunningQueryCache", cachedRunningQueryCache);
+        Whitebox.setInternalState(bean, "queryExpirationConf", queryExpirationConf);
+        Whitebox.setInternalState(bean, "metricFactory", metricFactory);
+        Whitebox.setInternalState(bean, "accumuloConnectionRequestBean", accumuloConnectionRequestBean);
+        bean.init();
+    }
+    
+    @After
+    public void teardown() {
+        CachedRunningQuery.setColumnarStore(null);
+    }
+    
+    @Test
+    public void testColumnarCachedResults() throws Exception {
+        // load
+        GenericResponse<String> loaded = bean.load(query.getId().toString(), ALIAS);
+        String view = loaded.getResult();
+        Assert.assertTrue(new ColumnarResultsStore(folder.getRoot()).exists(view));
+        Assert.assertEquals("LOADED", bean.status(ALIAS).getResult());
+        
+        // describe
+        CachedResultsDescribeResponse description = bean.describe(ALIAS);
+        Assert.assertEquals(view, description.getView());
+        Assert.assertEquals(Integer.valueOf(ROWS), description.getNumRows());
+        Assert.assertEquals(4, description.getColumns().size());
+        Assert.assertTrue(description.getColumns().containsAll(Arrays.asList("SEQ", "COLOR", "NUM", "EVEN")));
+        
+        // create, where the conditions are compared case insensitively
+        MultivaluedMap<String,String> parameters = new MultivaluedMapImpl<>();
+        parameters.putSingle(CachedResultsParameters.VIEW, ALIAS);
+        parameters.putSingle(CachedResultsParameters.FIELDS, "SEQ, COLOR");
+        parameters.putSingle(CachedResultsParameters.CONDITIONS, "COLOR = 'RED'");
+        parameters.putSingle(CachedResultsParameters.ORDER, "SEQ DESC");
+        parameters.putSingle(QueryParameters.QUERY_PAGESIZE, "10");
+        CachedResultsResponse created = bean.create("cq1", parameters);
+        Assert.assertEquals(Integer.valueOf(34), created.getTotalRows());
+        Assert.assertEquals(view, created.getViewName());
+        Assert.assertEquals("AVAILABLE", bean.status("cq1").getResult());
+        
+        // next and previous, activating the query on the first call
+        assertPage(bean.next("cq1"), 99, 10);
+        assertPage(bean.next("cq1"), 69, 10);
+        assertPage(bean.next("cq1"), 39, 10);
+        assertPage(bean.next("cq1"), 9, 4);
+        assertNoResults(() -> bean.next("cq1"));
+        assertPage(bean.previous("cq1"), 9, 4);
+        assertPage(bean.previous("cq1"), 39, 10);
+        
+        // getRows
+        assertPage(bean.getRows("cq1", 2, 3), 96, 2);
+        assertNoResults(() -> bean.getRows("cq1", 35, 40));
+    }
+    
+    @Test
+    public void testResultsCachedOnAnotherNode() throws Exception {
+        String view = bean.load(query.getId().toString(), ALIAS).getResult();
+        
+        // the results are not in the columnar store of this node, and must not be looked for in the database
+        new ColumnarResultsStore(folder.getRoot()).remove(view);
+        assertCachedOnAnotherNode(() -> bean.describe(view));
+        
+        MultivaluedMap<String,String> parameters = new MultivaluedMapImpl<>();
+        parameters.putSingle(CachedResultsParameters.VIEW, view);
+        parameters.putSingle(QueryParameters.QUERY_PAGESIZE, "10");
+        assertCachedOnAnotherNode(() -> bean.create("cq2", parameters));
+    }
+    
+    private void assertPage(BaseQueryResponse response, int firstNum, int size) {
+        Assert.assertTrue(response.getHasResults());
+        Assert.assertEquals(34, ((DefaultEventQueryResponse) response).getTotalResults());
+        Assert.assertEquals(size, lastPage.getResults().size());
+        CacheableQueryRow first = (CacheableQueryRow) lastPage.getResults().get(0);
+        Assert.assertEquals(String.format("uid%03d", firstNum), first.getEventId());
+    }
+    
+    private static void assertNoResults(Runnable call) {
+        try {
+            call.run();
+            Assert.fail("Expected no results");
+        } catch (DatawaveWebApplicationException e) {
+            Assert.assertEquals(204, e.getResponse().getStatus());
+        }
+    }
+    
+    private static void assertCachedOnAnotherNode(Runnable call) {
+        try {
+            call.run();
+            Assert.fail("Expected the results to be cached on another node");
+        } catch (DatawaveWebApplicationException e) {
+            BaseResponse response = (BaseResponse) e.getResponse().getEntity();
+            Assert.assertEquals(DatawaveErrorCode.CACHED_RESULTS_ON_OTHER_NODE.getErrorCode(), response.getExceptions().get(0).getCode());
+        }
+    }
+    
+    private static CacheableQueryRow row(String eventId, Map<String,String> values) {
+        CacheableQueryRow row = EasyMock.createNiceMock(CacheableQueryRow.class);
+        EasyMock.expect(row.getDataType()).andReturn("csv").anyTimes();
+        EasyMock.expect(row.getEventId()).andReturn(eventId).anyTimes();
+        EasyMock.expect(row.getRow()).andReturn("20180101_0").anyTimes();
+        EasyMock.expect(row.getColFam()).andReturn("csv\0" + eventId).anyTimes();
+        EasyMock.expect(row.getMarkings()).andReturn(Collections.singletonMap("columnVisibility", "A")).anyTimes();
+        EasyMock.expect(row.getColumnValues()).andReturn(values).anyTimes();
+        EasyMock.expect(row.getColumnSecurityMarkingString(EasyMock.anyObject())).andReturn("columnVisibility=A\u000011").anyTimes();
+        EasyMock.expect(row.getColumnTimestampString(EasyMock.anyObject())).andReturn("0\u000011").anyTimes();
+        EasyMock.replay(row);
+        return row;
+    }
+    
+    interface CacheableTransformer extends QueryLogicTransformer, CacheableLogic {}
+}
@@ -0,0 +1,138 @@
+package datawave.webservice.results.cached;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachedResultsLoaderTest {
+    
+    private static final String BULK_LOAD = "INSERT INTO $table SELECT * FROM CSVREAD('$file', NULL,"
+                    + " 'charset=UTF-8 fieldSeparator=, fieldDelimiter=\" escape=\" null=NULL')";
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private Connection con;
+    private ExecutorService executor;
+    
+    @Before
+    public void setup() throws Exception {
+        con = DriverManager.getConnection("jdbc:h2:mem:cachedresults;DB_CLOSE_DELAY=-1");
+        executor = Executors.newSingleThreadExecutor();
+        
+        // the template table, with fewer characters per value
+        StringBuilder create = new StringBuilder("CREATE TABLE t1 (");
+        String sep = "";
+        for (String column : CacheableQueryRow.getFixedColumnSet()) {
+            create.append(sep).append(column).append(" VARCHAR(2000) NOT NULL");
+            sep = ", ";
+        }
+        for (int i = 0; i < CachedResultsLoader.MAX_FIELDS; i++) {
+            create.append(sep).append(CachedResultsBean.FIELD).append(i).append(" VARCHAR(2000)");
+        }
+        create.append(")");
+        try (Statement s = con.createStatement()) {
+            s.execute(create.toString());
+        }
+    }
+    
+    @After
+    public void teardown() throws Exception {
+        executor.shutdownNow();
+        try (Statement s = con.createStatement()) {
+            s.execute("DROP ALL OBJECTS");
+        }
+        con.close();
+    }
+    
+    @Test
+    public void testBulkLoad() throws Exception {
+        Map<String,Integer> fieldMap = new HashMap<>();
+        try (CachedResultsLoader loader = new CachedResultsLoader(con, "t1", BULK_LOAD, folder.getRoot(), 10, executor)) {
+            for (int i = 0; i < 25; i++) {
+                Map<String,String> values = new LinkedHashMap<>();
+                values.put("NAME", "name \"" + i + "\", with a\nnewline");
+                if (i % 2 == 0) {
+                    values.put("EVEN", "NULL");
+                }
+                Assert.assertTrue(loader.add("user", "query1", "EventQuery", fieldMap, row("uid" + i, values)));
+            }
+            Assert.assertEquals(25, loader.finish());
+            Assert.assertEquals(25, loader.getRowsStaged());
+        }
+        
+        Assert.assertEquals(2, fieldMap.size());
+        Assert.assertEquals(0, folder.getRoot().listFiles().length);
+        try (Statement s = con.createStatement()) {
+            String name = CachedResultsBean.FIELD + (fieldMap.get("NAME") - CacheableQueryRow.getFixedColumnSet().size() - 1);
+            String even = CachedResultsBean.FIELD + (fieldMap.get("EVEN") - CacheableQueryRow.getFixedColumnSet().size() - 1);
+            try (ResultSet rs = s.executeQuery("SELECT _user_, _eventId_, " + name + ", " + even + " FROM t1 WHERE _eventId_ IN ('uid2', 'uid3')"
+                            + " ORDER BY _eventId_")) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals("user", rs.getString(1));
+                Assert.assertEquals("uid2", rs.getString(2));
+                Assert.assertEquals("name \"2\", with a\nnewline", rs.getString(3));
+                // a quoted NULL is a value
+                Assert.assertEquals("NULL", rs.getString(4));
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals("uid3", rs.getString(2));
+                Assert.assertNull(rs.getString(4));
+                Assert.assertFalse(rs.next());
+            }
+            try (ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM t1")) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(25, rs.getInt(1));
+            }
+        }
+    }
+    
+    @Test
+    public void testFailedLoadIsThrown() throws Exception {
+        Map<String,Integer> fieldMap = new HashMap<>();
+        try (CachedResultsLoader loader = new CachedResultsLoader(con, "t2", BULK_LOAD, folder.getRoot(), 10, executor)) {
+            for (int i = 0; i < 5; i++) {
+                loader.add("user", "query1", "EventQuery", fieldMap, row("uid" + i, Collections.singletonMap("NAME", "name")));
+            }
+            try {
+                loader.finish();
+                Assert.fail("Expected the load into a missing table to fail");
+            } catch (SQLException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(0, folder.getRoot().listFiles().length);
+    }
+    
+    private static CacheableQueryRow row(String eventId, Map<String,String> values) {
+        CacheableQueryRow row = EasyMock.createNiceMock(CacheableQueryRow.class);
+        EasyMock.expect(row.getDataType()).andReturn("csv").anyTimes();
+        EasyMock.expect(row.getEventId()).andReturn(eventId).anyTimes();
+        EasyMock.expect(row.getRow()).andReturn("20180101_0").anyTimes();
+        EasyMock.expect(row.getColFam()).andReturn("csv\0" + eventId).anyTimes();
+        EasyMock.expect(row.getMarkings()).andReturn(Collections.singletonMap("columnVisibility", "A")).anyTimes();
+        EasyMock.expect(row.getColumnValues()).andReturn(values).anyTimes();
+        EasyMock.expect(row.getColumnSecurityMarkingString(EasyMock.anyObject())).andReturn("columnVisibility=A").anyTimes();
+        EasyMock.expect(row.getColumnTimestampString(EasyMock.anyObject())).andReturn("0\u00000").anyTimes();
+        EasyMock.replay(row);
+        return row;
+    }
+}
@@ -0,0 +1,257 @@
+package datawave.webservice.results.cached;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.rowset.CachedRowSet;
+
+import datawave.webservice.query.Query;
+import datawave.webservice.query.cache.QueryMetricFactoryImpl;
+import datawave.webservice.query.cache.ResultsPage;
+import datawave.webservice.query.cachedresults.CacheableLogic;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.logic.QueryLogic;
+import datawave.webservice.query.logic.QueryLogicTransformer;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ColumnarResultsStoreTest {
+    
+    private static final int ROWS = 100;
+    private static final String[] COLORS = {"red", "green", "blue"};
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private ColumnarResultsStore store;
+    private Map<String,Integer> fieldMap = new HashMap<>();
+    
+    @Before
+    public void setup() throws Exception {
+        store = new ColumnarResultsStore(folder.getRoot(), 10);
+        try (ColumnarResultsStore.Writer writer = store.create("v1")) {
+            for (int i = 0; i < ROWS; i++) {
+                Map<String,String> values = new LinkedHashMap<>();
+                values.put("SEQ", String.format("%03d", i));
+                values.put("COLOR", COLORS[i % 3]);
+                values.put("NUM", Integer.toString(i));
+                if (i % 2 == 0) {
+                    values.put("EVEN", "true");
+                }
+                writer.add("user", "query1", "EventQuery", fieldMap, row(String.format("uid%03d", i), values));
+            }
+            Assert.assertEquals(ROWS, writer.finish());
+        }
+    }
+    
+    @After
+    public void teardown() {
+        CachedRunningQuery.setColumnarStore(null);
+    }
+    
+    @Test
+    public void testBlocksAreSkipped() throws Exception {
+        ColumnarResultsStore.Table table = store.open("v1");
+        Assert.assertEquals(ROWS, table.getRows());
+        Assert.assertEquals(14, table.getColumns().size());
+        
+        // the sequence increases with the rows, so only the last block can match
+        int[] rows = table.select(ColumnarCondition.parse("SEQ >= '090'"), Collections.emptyList());
+        Assert.assertEquals(10, rows.length);
+        Assert.assertEquals(90, rows[0]);
+        Assert.assertEquals(1, table.getBlocksRead());
+        Assert.assertEquals(9, table.getBlocksSkipped());
+        
+        rows = table.select(ColumnarCondition.parse("`SEQ` LIKE '01%' OR SEQ = '055'"), Collections.emptyList());
+        Assert.assertEquals(11, rows.length);
+        Assert.assertEquals(3, table.getBlocksRead());
+        Assert.assertEquals(17, table.getBlocksSkipped());
+    }
+    
+    @Test
+    public void testConditions() throws Exception {
+        ColumnarResultsStore.Table table = store.open("v1");
+        Assert.assertEquals(10, select(table, "COLOR = 'red' AND NUM < 30"));
+        Assert.assertEquals(10, select(table, "COLOR = 'RED' AND NUM < 30"));
+        Assert.assertEquals(34, select(table, "COLOR LIKE 'R%'"));
+        Assert.assertEquals(6, select(table, "NOT (COLOR = 'red') AND SEQ LIKE '00_'"));
+        Assert.assertEquals(50, select(table, "EVEN IS NULL"));
+        Assert.assertEquals(50, select(table, "even is not null"));
+        Assert.assertEquals(10, select(table, "SEQ BETWEEN '010' AND '019'"));
+        Assert.assertEquals(67, select(table, "COLOR IN ('red', \"blue\")"));
+        Assert.assertEquals(33, select(table, "COLOR NOT IN ('red', 'blue')"));
+        // null values do not match a negated comparison
+        Assert.assertEquals(0, select(table, "EVEN != 'true'"));
+        Assert.assertEquals(0, select(table, "COLOR = 'it''s'"));
+        
+        for (String unsupported : new String[] {"COLOR = ", "LOWER(COLOR) = 'red'", "COLOR = 'red' AND", "MISSING = 'a'", "COLOR ~ 'r'"}) {
+            try {
+                select(table, unsupported);
+                Assert.fail("Expected the conditions to be rejected: " + unsupported);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+    
+    @Test
+    public void testOrderAndRead() throws Exception {
+        ColumnarResultsStore.Table table = store.open("v1");
+        List<ColumnarResultsStore.SortKey> order = new ArrayList<>();
+        order.add(new ColumnarResultsStore.SortKey("COLOR", true));
+        order.add(new ColumnarResultsStore.SortKey("EVEN", false));
+        int[] rows = table.select(ColumnarCondition.parse("NUM < 10"), order);
+        
+        List<String> columns = new ArrayList<>(CacheableQueryRow.getFixedColumnSet());
+        columns.add("NUM");
+        columns.add("EVEN");
+        try (CachedRowSet crs = table.read(rows, 0, 5, columns)) {
+            Assert.assertEquals(12, crs.getMetaData().getColumnCount());
+            Assert.assertEquals("NUM", crs.getMetaData().getColumnLabel(11));
+            // red before green, and the nulls first
+            String[] expected = {"3", "9", "0", "6", "1"};
+            for (String num : expected) {
+                Assert.assertTrue(crs.next());
+                Assert.assertEquals("user", crs.getString(1));
+                Assert.assertEquals(String.format("uid%03d", Integer.parseInt(num)), crs.getString(5));
+                Assert.assertEquals(num, crs.getString(11));
+                Assert.assertEquals((Integer.parseInt(num) % 2 == 0 ? "true" : null), crs.getString(12));
+            }
+            Assert.assertFalse(crs.next());
+        }
+    }
+    
+    @Test
+    public void testCaseInsensitive() throws Exception {
+        // the first block holds lower case names and the second upper case names
+        try (ColumnarResultsStore.Writer writer = store.create("v3")) {
+            for (int i = 0; i < 20; i++) {
+                String name = String.format(i < 10 ? "a%03d" : "A%03d", i);
+                writer.add("user", "query3", "EventQuery", new HashMap<>(), row("uid" + i, Collections.singletonMap("NAME", name)));
+            }
+            writer.finish();
+        }
+        ColumnarResultsStore.Table table = store.open("v3");
+        
+        Assert.assertEquals(1, select(table, "NAME = 'A005'"));
+        Assert.assertEquals(19, select(table, "NAME != 'A005'"));
+        Assert.assertEquals(2, select(table, "NAME IN ('a005', 'a015')"));
+        
+        // the statistics of the blocks are compared case insensitively as well
+        table = store.open("v3");
+        Assert.assertEquals(5, select(table, "NAME >= 'a015'"));
+        Assert.assertEquals(1, table.getBlocksRead());
+        Assert.assertEquals(1, table.getBlocksSkipped());
+        Assert.assertEquals(10, select(table, "NAME LIKE 'a01%'"));
+        Assert.assertEquals(2, table.getBlocksRead());
+        Assert.assertEquals(2, table.getBlocksSkipped());
+        Assert.assertEquals(20, select(table, "NAME LIKE '_0__'"));
+        
+        int[] rows = table.select(null, Collections.singletonList(new ColumnarResultsStore.SortKey("NAME", true)));
+        Assert.assertEquals(19, rows[0]);
+        Assert.assertEquals(0, rows[19]);
+    }
+    
+    @Test
+    public void testUnfinishedResultsAreRemoved() throws Exception {
+        try (ColumnarResultsStore.Writer writer = store.create("v2")) {
+            writer.add("user", "query2", "EventQuery", new HashMap<>(), row("uid", Collections.singletonMap("SEQ", "000")));
+        }
+        Assert.assertFalse(store.exists("v2"));
+        Assert.assertTrue(store.exists("v1"));
+        
+        Assert.assertTrue(store.removeOlderThan(60000).isEmpty());
+        Assert.assertEquals(Collections.singletonList("v1"), store.removeOlderThan(-60000));
+        Assert.assertFalse(store.exists("v1"));
+    }
+    
+    @Test
+    public void testCachedRunningQuery() throws Exception {
+        CachedRunningQuery.setColumnarStore(store);
+        
+        Connection connection = EasyMock.createNiceMock(Connection.class);
+        Query query = EasyMock.createNiceMock(Query.class);
+        CacheableTransformer transformer = EasyMock.createNiceMock(CacheableTransformer.class);
+        EasyMock.expect(transformer.readFromCache(EasyMock.anyObject())).andAnswer(() -> new ArrayList<Object>((List<?>) EasyMock.getCurrentArguments()[0]))
+                        .anyTimes();
+        QueryLogic<?> logic = EasyMock.createNiceMock(QueryLogic.class);
+        EasyMock.expect(logic.getLogicName()).andReturn("EventQuery").anyTimes();
+        EasyMock.expect(logic.getTransformer(query)).andReturn(transformer).anyTimes();
+        EasyMock.replay(connection, query, transformer, logic);
+        
+        // create
+        CachedRunningQuery crq = new CachedRunningQuery(connection, query, logic, "q1", null, "user", "v1", "SEQ, COLOR", "COLOR = 'red'", null, "SEQ DESC",
+                        10, fieldMap.keySet(), null, new QueryMetricFactoryImpl());
+        Assert.assertEquals(34, crq.getTotalRows());
+        
+        // next and previous
+        assertPage(crq.next(0), 99, 10);
+        assertPage(crq.next(0), 69, 10);
+        assertPage(crq.next(0), 39, 10);
+        assertPage(crq.next(0), 9, 4);
+        Assert.assertTrue(crq.next(0).getResults().isEmpty());
+        assertPage(crq.previous(0), 9, 4);
+        assertPage(crq.previous(0), 39, 10);
+        
+        // getRows
+        assertPage(crq.getRows(2, 3, 0), 96, 2);
+        
+        // update
+        Assert.assertTrue(crq.update(null, "NUM >= 50 AND EVEN IS NOT NULL", null, null, 20));
+        crq.resetConnection();
+        crq.activate(connection, logic);
+        Assert.assertEquals(25, crq.getTotalRows());
+        assertPage(crq.next(0), 50, 20);
+        assertPage(crq.next(0), 90, 5);
+        
+        // the rows of other users are not visible
+        CachedRunningQuery other = new CachedRunningQuery(connection, query, logic, "q2", null, "other", "v1", null, null, null, null, 10, fieldMap.keySet(),
+                        null, new QueryMetricFactoryImpl());
+        Assert.assertEquals(0, other.getTotalRows());
+        
+        try {
+            new CachedRunningQuery(connection, query, logic, "q3", null, "user", "v1", null, null, "COLOR", null, 10, fieldMap.keySet(), null,
+                            new QueryMetricFactoryImpl());
+            Assert.fail("Expected grouping to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+    
+    private static int select(ColumnarResultsStore.Table table, String conditions) throws Exception {
+        return table.select(ColumnarCondition.parse(conditions), Collections.emptyList()).length;
+    }
+    
+    private static void assertPage(ResultsPage page, int firstNum, int size) {
+        Assert.assertEquals(size, page.getResults().size());
+        CacheableQueryRow first = (CacheableQueryRow) page.getResults().get(0);
+        Assert.assertEquals(String.format("uid%03d", firstNum), first.getEventId());
+    }
+    
+    private static CacheableQueryRow row(String eventId, Map<String,String> values) {
+        CacheableQueryRow row = EasyMock.createNiceMock(CacheableQueryRow.class);
+        EasyMock.expect(row.getDataType()).andReturn("csv").anyTimes();
+        EasyMock.expect(row.getEventId()).andReturn(eventId).anyTimes();
+        EasyMock.expect(row.getRow()).andReturn("20180101_0").anyTimes();
+        EasyMock.expect(row.getColFam()).andReturn("csv\0" + eventId).anyTimes();
+        EasyMock.expect(row.getMarkings()).andReturn(Collections.singletonMap("columnVisibility", "A")).anyTimes();
+        EasyMock.expect(row.getColumnValues()).andReturn(values).anyTimes();
+        EasyMock.expect(row.getColumnSecurityMarkingString(EasyMock.anyObject())).andReturn("columnVisibility=A\u000011").anyTimes();
+        EasyMock.expect(row.getColumnTimestampString(EasyMock.anyObject())).andReturn("0\u000011").anyTimes();
+        EasyMock.replay(row);
+        return row;
+    }
+    
+    interface CacheableTransformer extends QueryLogicTransformer, CacheableLogic {}
+}
@@ -5,6 +5,8 @@ import java.util.Map;
 
 public class CachedResultsConfiguration {
     
+    private static final int DEFAULT_ROWS_PER_BULK_LOAD = 100000;
+    
     private int defaultPageSize = 20;
     private int maxPageSize = 0;
     private long pageByteTrigger = 0;
@@ -45,4 +47,33 @@ public class CachedResultsConfiguration {
     public int getRowsPerBatch() {
         return Integer.parseInt(getParameters().get("ROWS_PER_BATCH"));
     }
+    
+    /**
+     * @return the statement that bulk loads a staged file into a cached results table, or null if rows are inserted in batches instead
+     */
+    public String getBulkLoad() {
+        String bulkLoad = getParameters().get("BULK_LOAD");
+        return (bulkLoad == null || bulkLoad.trim().isEmpty() ? null : bulkLoad);
+    }
+    
+    public int getRowsPerBulkLoad() {
+        String rows = getParameters().get("ROWS_PER_BULK_LOAD");
+        return (rows == null || rows.trim().isEmpty() ? DEFAULT_ROWS_PER_BULK_LOAD : Integer.parseInt(rows.trim()));
+    }
+    
+    /**
+     * @return the directory to stage bulk loads in, or null for the temporary directory
+     */
+    public String getStagingDir() {
+        String stagingDir = getParameters().get("STAGING_DIR");
+        return (stagingDir == null || stagingDir.trim().isEmpty() ? null : stagingDir.trim());
+    }
+    
+    /**
+     * @return the directory of the local columnar store that cached results are loaded into in place of the database tables, or null to use the database
+     */
+    public String getColumnarDir() {
+        String columnarDir = getParameters().get("COLUMNAR_DIR");
+        return (columnarDir == null || columnarDir.trim().isEmpty() ? null : columnarDir.trim());
+    }
 }
@@ -116,6 +116,11 @@ public interface QueryLogic<T> extends Iterable<T>, Cloneable, ParameterValidato
      */
     long getPageByteTrigger();
     
+    /**
+     * @return the number of pages of results to read ahead of the client on the query executor, or 0 to only read results as the client asks for them
+     */
+    int getPrefetchPages();
+    
     /**
      * Returns the base iterator priority.
      * 
@@ -153,6 +158,12 @@ public interface QueryLogic<T> extends Iterable<T>, Cloneable, ParameterValidato
      */
     void setPageByteTrigger(long pageByteTrigger);
     
+    /**
+     * @param prefetchPages
+     *            the number of pages of results to read ahead of the client on the query executor, or 0 to only read results as the client asks for them
+     */
+    void setPrefetchPages(int prefetchPages);
+    
     /**
      * Sets the base iterator priority
      * 
@@ -0,0 +1,323 @@
+package datawave.webservice.query.runner;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Alternative;
+
+import datawave.webservice.query.metric.BaseQueryMetric;
+import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
+import datawave.webservice.query.metric.BaseQueryMetric.Prediction;
+
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTFunctionNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.Parser;
+import org.apache.commons.jexl2.parser.TokenMgrError;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Predicts the number of results, the scan time and the resource class of a query from the metrics of the queries that ran before it.
+ * <p>
+ * Completed queries are grouped by their query logic and the shape of their JEXL tree: the number of terms (in powers of two), and whether they have regex or
+ * range terms or functions. Each group keeps a running average of the results and the scan time per day of the date range queried, and a new query is
+ * predicted from the group it falls in, scaled by its own date range. A group is only used once it has seen enough queries, falling back to the averages of
+ * the query logic as a whole, and no prediction is made for a query logic that has not run enough queries yet.
+ * <p>
+ * Queries are predicted from their query string when they are created, and again from their plan once the query logic has planned them. The plan is the
+ * query after the global index lookups, so the number of terms in it reflects how far the index expanded the query's regexes and ranges. The groups for plans
+ * are kept apart from the groups for query strings.
+ * <p>
+ * This predictor is a CDI alternative, and is used in place of the {@link NoOpQueryPredictor} by selecting it in the alternatives of the deployment's
+ * beans.xml.
+ */
+@Alternative
+@ApplicationScoped
+public class CostBasedQueryPredictor implements TrainableQueryPredictor<BaseQueryMetric> {
+    
+    private static final Logger log = Logger.getLogger(CostBasedQueryPredictor.class);
+    
+    public static final String RESULTS = "results";
+    public static final String SCAN_TIME = "scanTimeMs";
+    public static final String RESOURCE_CLASS = "resourceClass";
+    
+    private static final int MAX_TERM_BUCKET = 10;
+    
+    /**
+     * The resources a query is expected to need, from the cheapest to the most expensive
+     */
+    public enum ResourceClass {
+        INTERACTIVE, STANDARD, BATCH;
+        
+        /**
+         * @param predictions
+         *            the predictions for a query, which may be null
+         * @return the resource class in the predictions, or null if there is none
+         */
+        public static ResourceClass fromPredictions(Set<Prediction> predictions) {
+            if (predictions != null) {
+                for (Prediction prediction : predictions) {
+                    if (RESOURCE_CLASS.equals(prediction.getName())) {
+                        int ordinal = (int) prediction.getPrediction();
+                        return (ordinal >= 0 && ordinal < values().length ? values()[ordinal] : null);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+    
+    private final Map<String,Stats> stats = new ConcurrentHashMap<>();
+    
+    private int minObservations = 5;
+    private double smoothing = 0.05;
+    private long interactiveScanTimeMs = TimeUnit.SECONDS.toMillis(5);
+    private long batchScanTimeMs = TimeUnit.MINUTES.toMillis(2);
+    private long batchResults = 1000000;
+    
+    @Override
+    public Set<Prediction> predict(BaseQueryMetric query) throws PredictionException {
+        if (query == null || query.getQueryLogic() == null) {
+            return null;
+        }
+        
+        boolean planned = StringUtils.isNotBlank(query.getPlan());
+        Stats s = getStats(groupKey(query, planned));
+        if (s == null || s.getCount() < minObservations) {
+            s = getStats(query.getQueryLogic());
+        }
+        if (s == null || s.getCount() < minObservations) {
+            return null;
+        }
+        
+        double days = getDays(query);
+        double results = s.getResultsPerDay() * days;
+        double scanTime = s.getScanTimePerDay() * days;
+        
+        Set<Prediction> predictions = new HashSet<>();
+        predictions.add(new Prediction(RESULTS, Math.round(results)));
+        predictions.add(new Prediction(SCAN_TIME, Math.round(scanTime)));
+        predictions.add(new Prediction(RESOURCE_CLASS, classify(results, scanTime).ordinal()));
+        return predictions;
+    }
+    
+    @Override
+    public void train(BaseQueryMetric query) {
+        // queries that failed or never returned a page say nothing about what a query costs
+        if (query == null || query.getQueryLogic() == null || query.getErrorCode() != null || query.getErrorMessage() != null
+                        || query.getNumPages() == 0) {
+            return;
+        }
+        
+        double days = getDays(query);
+        double resultsPerDay = query.getNumResults() / days;
+        double scanTimePerDay = getScanTime(query) / days;
+        
+        add(query.getQueryLogic(), resultsPerDay, scanTimePerDay);
+        add(groupKey(query, false), resultsPerDay, scanTimePerDay);
+        if (StringUtils.isNotBlank(query.getPlan())) {
+            add(groupKey(query, true), resultsPerDay, scanTimePerDay);
+        }
+    }
+    
+    /**
+     * @return the number of completed queries learned from for a query logic
+     */
+    public long getObservations(String queryLogic) {
+        Stats s = getStats(queryLogic);
+        return (s == null ? 0 : s.getCount());
+    }
+    
+    public int getMinObservations() {
+        return minObservations;
+    }
+    
+    public void setMinObservations(int minObservations) {
+        this.minObservations = minObservations;
+    }
+    
+    public double getSmoothing() {
+        return smoothing;
+    }
+    
+    /**
+     * @param smoothing
+     *            the weight given to each new query in the running averages, once a group has seen more than 1/smoothing queries
+     */
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+    
+    public long getInteractiveScanTimeMs() {
+        return interactiveScanTimeMs;
+    }
+    
+    public void setInteractiveScanTimeMs(long interactiveScanTimeMs) {
+        this.interactiveScanTimeMs = interactiveScanTimeMs;
+    }
+    
+    public long getBatchScanTimeMs() {
+        return batchScanTimeMs;
+    }
+    
+    public void setBatchScanTimeMs(long batchScanTimeMs) {
+        this.batchScanTimeMs = batchScanTimeMs;
+    }
+    
+    public long getBatchResults() {
+        return batchResults;
+    }
+    
+    public void setBatchResults(long batchResults) {
+        this.batchResults = batchResults;
+    }
+    
+    protected ResourceClass classify(double results, double scanTime) {
+        if (scanTime >= batchScanTimeMs || results >= batchResults) {
+            return ResourceClass.BATCH;
+        } else if (scanTime <= interactiveScanTimeMs) {
+            return ResourceClass.INTERACTIVE;
+        } else {
+            return ResourceClass.STANDARD;
+        }
+    }
+    
+    private Stats getStats(String key) {
+        return (key == null ? null : stats.get(key));
+    }
+    
+    private void add(String key, double resultsPerDay, double scanTimePerDay) {
+        if (key != null) {
+            stats.computeIfAbsent(key, k -> new Stats()).add(resultsPerDay, scanTimePerDay, smoothing);
+        }
+    }
+    
+    /**
+     * @return the key of the group of a query, or null if its query string or plan could not be parsed as JEXL
+     */
+    private static String groupKey(BaseQueryMetric query, boolean planned) {
+        Features features = Features.parse(planned ? query.getPlan() : query.getQuery());
+        if (features == null) {
+            return null;
+        }
+        return query.getQueryLogic() + (planned ? "/plan/" : "/query/") + features;
+    }
+    
+    /**
+     * @return the number of days queried, and at least one
+     */
+    private static double getDays(BaseQueryMetric query) {
+        if (query.getBeginDate() == null || query.getEndDate() == null) {
+            return 1;
+        }
+        long range = query.getEndDate().getTime() - query.getBeginDate().getTime();
+        return Math.max(1, (double) range / TimeUnit.DAYS.toMillis(1));
+    }
+    
+    /**
+     * @return the time spent setting up the query and producing its pages
+     */
+    private static long getScanTime(BaseQueryMetric query) {
+        long scanTime = Math.max(0, query.getSetupTime());
+        List<PageMetric> pages = query.getPageTimes();
+        if (pages != null) {
+            for (PageMetric page : pages) {
+                scanTime += Math.max(0, (page.getCallTime() == -1 ? page.getReturnTime() : page.getCallTime()));
+            }
+        }
+        return scanTime;
+    }
+    
+    /**
+     * The shape of the JEXL tree of a query
+     */
+    static class Features {
+        private int terms = 0;
+        private int regexes = 0;
+        private int ranges = 0;
+        private int functions = 0;
+        
+        static Features parse(String query) {
+            if (StringUtils.isBlank(query)) {
+                return null;
+            }
+            try {
+                Parser parser = new Parser(new StringReader(";"));
+                Features features = new Features();
+                features.visit(parser.parse(new StringReader(query), null));
+                return features;
+            } catch (Exception | TokenMgrError e) {
+                // not a JEXL query (for example the lucene syntax), so it can only be grouped by its query logic
+                if (log.isTraceEnabled()) {
+                    log.trace("Unable to parse query for prediction: " + query, e);
+                }
+                return null;
+            }
+        }
+        
+        private void visit(JexlNode node) {
+            if (node instanceof ASTEQNode) {
+                terms++;
+            } else if (node instanceof ASTERNode || node instanceof ASTNRNode) {
+                terms++;
+                regexes++;
+            } else if (node instanceof ASTGTNode || node instanceof ASTGENode || node instanceof ASTLTNode || node instanceof ASTLENode) {
+                terms++;
+                ranges++;
+            } else if (node instanceof ASTFunctionNode) {
+                functions++;
+            }
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                visit(node.jjtGetChild(i));
+            }
+        }
+        
+        @Override
+        public String toString() {
+            int termBucket = Math.min(MAX_TERM_BUCKET, 32 - Integer.numberOfLeadingZeros(terms));
+            return "terms" + termBucket + (regexes > 0 ? "/regex" : "") + (ranges > 0 ? "/range" : "") + (functions > 0 ? "/function" : "");
+        }
+    }
+    
+    /**
+     * Running averages of the cost of a group of queries
+     */
+    private static class Stats {
+        private long count = 0;
+        private double resultsPerDay = 0;
+        private double scanTimePerDay = 0;
+        
+        synchronized void add(double resultsPerDay, double scanTimePerDay, double smoothing) {
+            count++;
+            // a plain average until there are enough queries, and then weighted towards the recent ones
+            double weight = Math.max(smoothing, 1.0d / count);
+            this.resultsPerDay += weight * (resultsPerDay - this.resultsPerDay);
+            this.scanTimePerDay += weight * (scanTimePerDay - this.scanTimePerDay);
+        }
+        
+        synchronized long getCount() {
+            return count;
+        }
+        
+        synchronized double getResultsPerDay() {
+            return resultsPerDay;
+        }
+        
+        synchronized double getScanTimePerDay() {
+            return scanTimePerDay;
+        }
+    }
+}
@@ -348,4 +348,17 @@ public interface QueryExecutor {
      */
     StreamingOutput execute(String logicName, MultivaluedMap<String,String> queryParameters, HttpHeaders httpHeaders);
     
+    /**
+     * Creates a query object for the user and streams each of its results as it is read, as lines of JSON or length delimited protobuf messages. When done,
+     * closes the query. Unlike {@link #execute(String, MultivaluedMap, HttpHeaders)}, the results are not collected into a query response for each page, so
+     * the memory used by the query does not grow with the number of results.
+     * 
+     * @param logicName
+     * @param queryParameters
+     * @param httpHeaders
+     *            HttpHeaders object injected by the JAX-RS layer
+     * @return
+     */
+    StreamingOutput stream(String logicName, MultivaluedMap<String,String> queryParameters, HttpHeaders httpHeaders);
+    
 }
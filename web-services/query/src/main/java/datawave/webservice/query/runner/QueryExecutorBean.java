@@ -63,6 +63,7 @@ import datawave.webservice.query.metric.QueryMetric;
 import datawave.webservice.query.metric.QueryMetricsBean;
 import datawave.webservice.query.result.event.ResponseObjectFactory;
 import datawave.webservice.query.result.logic.QueryLogicDescription;
+import datawave.webservice.query.runner.CostBasedQueryPredictor.ResourceClass;
 import datawave.webservice.query.util.GetUUIDCriteria;
 import datawave.webservice.query.util.LookupUUIDUtil;
 import datawave.webservice.query.util.NextContentCriteria;
@@ -642,7 +643,7 @@ public class QueryExecutorBean implements QueryExecutor {
                 }
             }
             
-            priority = qd.logic.getConnectionPriority();
+            priority = getConnectionPriority(qd.logic, q);
             Map<String,String> trackingMap = connectionFactory.getTrackingMap(Thread.currentThread().getStackTrace());
             addQueryToTrackingMap(trackingMap, q);
             accumuloConnectionRequestBean.requestBegin(q.getId().toString());
@@ -2016,6 +2017,43 @@ public class QueryExecutorBean implements QueryExecutor {
         }
     }
     
+    /**
+     * Gets the priority of the connection for a new query. The priority of the query logic is raised for queries predicted to be interactive and lowered for
+     * queries predicted to be batch, so that cheap queries are not kept waiting for a connection behind expensive ones when the connection pool is busy.
+     * 
+     * @param logic
+     *            the query logic
+     * @param q
+     *            the query
+     * @return the connection priority
+     */
+    private AccumuloConnectionFactory.Priority getConnectionPriority(QueryLogic<?> logic, Query q) {
+        AccumuloConnectionFactory.Priority priority = logic.getConnectionPriority();
+        if (predictor == null || priority == AccumuloConnectionFactory.Priority.ADMIN) {
+            return priority;
+        }
+        
+        try {
+            BaseQueryMetric metric = metricFactory.createMetric();
+            q.populateMetric(metric);
+            metric.setQueryType(RunningQuery.class.getSimpleName());
+            metric.setLifecycle(BaseQueryMetric.Lifecycle.DEFINED);
+            
+            ResourceClass resourceClass = ResourceClass.fromPredictions(predictor.predict(metric));
+            if (resourceClass == ResourceClass.INTERACTIVE && priority.compareTo(AccumuloConnectionFactory.Priority.HIGH) < 0) {
+                priority = AccumuloConnectionFactory.Priority.values()[priority.ordinal() + 1];
+            } else if (resourceClass == ResourceClass.BATCH && priority.compareTo(AccumuloConnectionFactory.Priority.LOW) > 0) {
+                priority = AccumuloConnectionFactory.Priority.values()[priority.ordinal() - 1];
+            }
+            if (resourceClass != null && log.isDebugEnabled()) {
+                log.debug("Query " + q.getId() + " predicted " + resourceClass + ", using connection priority " + priority);
+            }
+        } catch (Exception e) {
+            log.warn("Unable to predict the cost of query " + q.getId() + ", using connection priority " + priority, e);
+        }
+        return priority;
+    }
+    
     private void close(RunningQuery query) throws Exception {
         
         query.closeConnection(connectionFactory);
@@ -3164,6 +3202,75 @@ public class QueryExecutorBean implements QueryExecutor {
         return new AsyncResult<>(queryId);
     }
     
+    /**
+     * Creates a query and streams its results as they are read, rather than a page at a time. Each result is written on its own, either as a line of JSON
+     * (application/x-ndjson) or as a length delimited protobuf message (application/x-protobuf), so the server never holds more than a page of results for
+     * the query or builds a query response for them. The results of a page are flushed to the client before the next page is read, so a client that reads
+     * slowly holds up the query rather than the results building up on the server. The response is not compressed, as a gzip stream would hold back the
+     * results of a page until its buffer fills rather than sending them on each flush. When done, closes the query.
+     *
+     * @param logicName
+     * @param queryParameters
+     *
+     * @return the results, one after another
+     * @RequestHeader X-ProxiedEntitiesChain use when proxying request for user, by specifying a chain of DNs of the identities to proxy
+     * @RequestHeader X-ProxiedIssuersChain required when using X-ProxiedEntitiesChain, specify one issuer DN per subject DN listed in X-ProxiedEntitiesChain
+     * @ResponseHeader query-session-id this header and value will be in the Set-Cookie header, subsequent calls for this session will need to supply the
+     *                 query-session-id header in the request in a Cookie header or as a query parameter
+     *
+     * @HTTP 200 success
+     * @HTTP 204 success and no results
+     * @HTTP 400 invalid or missing parameter
+     * @HTTP 500 internal server error
+     */
+    @POST
+    @Produces({"application/x-ndjson", "application/x-protobuf"})
+    @Path("/{logicName}/stream")
+    @Interceptors({ResponseInterceptor.class, RequiredInterceptor.class})
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    @Timed(name = "dw.query.streamQuery", absolute = true)
+    public StreamingOutput stream(@PathParam("logicName") String logicName, MultivaluedMap<String,String> queryParameters, @Context HttpHeaders httpHeaders) {
+        Collection<String> proxyServers = null;
+        Principal p = ctx.getCallerPrincipal();
+        if (p instanceof DatawavePrincipal) {
+            proxyServers = ((DatawavePrincipal) p).getProxyServers();
+        }
+        
+        final MediaType NDJSON_MEDIA_TYPE = new MediaType("application", "x-ndjson");
+        final MediaType PB_MEDIA_TYPE = new MediaType("application", "x-protobuf");
+        final VoidResponse response = new VoidResponse();
+        
+        // HttpHeaders.getAcceptableMediaTypes returns a priority sorted list of acceptable response types.
+        // Find the first one in the list that we support.
+        SerializationType serializationType = null;
+        for (MediaType type : httpHeaders.getAcceptableMediaTypes()) {
+            if (type.equals(NDJSON_MEDIA_TYPE)) {
+                serializationType = SerializationType.JSON;
+                break;
+            } else if (type.equals(PB_MEDIA_TYPE)) {
+                serializationType = SerializationType.PB;
+                break;
+            }
+        }
+        if (null == serializationType) {
+            QueryException qe = new QueryException(DatawaveErrorCode.UNSUPPORTED_MEDIA_TYPE);
+            response.addException(qe);
+            throw new DatawaveWebApplicationException(qe, response);
+        }
+        
+        long start = System.nanoTime();
+        GenericResponse<String> createResponse = this.createQuery(logicName, queryParameters, httpHeaders);
+        long createCallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        final String queryId = createResponse.getResult();
+        
+        // We created the query and put into cache, get the RunningQuery object
+        final RunningQuery rq = queryCache.get(queryId);
+        rq.getMetric().setCreateCallTime(createCallTime);
+        
+        return new StreamResultsOutputResponse(queryId, response, rq, serializationType, proxyServers);
+    }
+    
     private enum SerializationType {
         JSON, XML, PB, YAML;
     }
@@ -3309,6 +3416,136 @@ public class QueryExecutorBean implements QueryExecutor {
         
     }
     
+    /**
+     * Writes the results of a query one at a time, a page at a time, for {@link #stream(String, MultivaluedMap, HttpHeaders)}
+     */
+    public class StreamResultsOutputResponse implements StreamingOutput {
+        private final String queryId;
+        private final VoidResponse errorResponse;
+        private final RunningQuery rq;
+        private final SerializationType serializationType;
+        private final Collection<String> proxies;
+        
+        public StreamResultsOutputResponse(String queryId, VoidResponse errorResponse, RunningQuery rq, SerializationType serializationType,
+                        Collection<String> proxies) {
+            this.queryId = queryId;
+            this.errorResponse = errorResponse;
+            this.rq = rq;
+            this.serializationType = serializationType;
+            this.proxies = proxies;
+        }
+        
+        public String getQueryId() {
+            return queryId;
+        }
+        
+        @Override
+        public void write(OutputStream out) throws IOException, WebApplicationException {
+            try {
+                // Wrap the output stream so that we can get a byte count
+                CountingOutputStream countingStream = new CountingOutputStream(out);
+                LinkedBuffer buffer = LinkedBuffer.allocate(4096);
+                
+                ObjectMapper jsonSerializer = new ObjectMapper();
+                jsonSerializer.enable(MapperFeature.USE_WRAPPER_NAME_AS_PROPERTY_NAME);
+                jsonSerializer.setAnnotationIntrospector(AnnotationIntrospector.pair(new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector(
+                                jsonSerializer.getTypeFactory())));
+                // Don't close the output stream, and only flush it at the end of each page
+                jsonSerializer.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                JsonGenerator jsonGenerator = jsonSerializer.getFactory().createGenerator(countingStream, JsonEncoding.UTF8);
+                jsonGenerator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+                jsonGenerator.setRootValueSeparator(null);
+                
+                boolean sentResults = false;
+                List<PageMetric> pageMetrics = rq.getMetric().getPageTimes();
+                
+                while (true) {
+                    long callStart = System.nanoTime();
+                    ResultsPage page;
+                    Span span = null;
+                    // If we're tracing this query, then continue the trace for each page.
+                    TInfo traceInfo = rq.getTraceInfo();
+                    if (traceInfo != null) {
+                        span = Trace.trace(traceInfo, "query:stream");
+                    }
+                    try {
+                        page = rq.next();
+                        if (span != null) {
+                            span.data("pageNumber", Long.toString(rq.getLastPageNumber()));
+                        }
+                    } catch (RejectedExecutionException e) {
+                        // - race condition, query expired while streaming
+                        throw new PreConditionFailedQueryException(DatawaveErrorCode.QUERY_TIMEOUT_OR_SERVER_ERROR, e, MessageFormat.format("id = {0}",
+                                        queryId));
+                    } finally {
+                        if (span != null) {
+                            span.stop();
+                        }
+                    }
+                    rq.getMetric().setProxyServers(proxies);
+                    testForUncaughtException(rq.getSettings(), page);
+                    if (page.getResults().isEmpty()) {
+                        break;
+                    }
+                    
+                    long bytesBefore = countingStream.getCount();
+                    long serializationStart = System.nanoTime();
+                    for (Object result : page.getResults()) {
+                        switch (serializationType) {
+                            case JSON:
+                                jsonSerializer.writeValue(jsonGenerator, result);
+                                jsonGenerator.writeRaw('\n');
+                                break;
+                            case PB:
+                                if (!(result instanceof Message)) {
+                                    throw new QueryException(DatawaveErrorCode.BAD_RESPONSE_CLASS,
+                                                    MessageFormat.format("Result class: {0}", result.getClass()));
+                                }
+                                @SuppressWarnings("unchecked")
+                                Message<Object> pb = (Message<Object>) result;
+                                ProtobufIOUtil.writeDelimitedTo(countingStream, result, pb.cachedSchema(), buffer);
+                                buffer.clear();
+                                break;
+                            default:
+                                throw new IllegalStateException("Unsupported serialization type " + serializationType);
+                        }
+                    }
+                    // send the page on to the client, which blocks while the client is behind
+                    jsonGenerator.flush();
+                    countingStream.flush();
+                    sentResults = true;
+                    
+                    PageMetric pm = pageMetrics.get(pageMetrics.size() - 1);
+                    pm.setSerializationTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - serializationStart));
+                    pm.setCallTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStart));
+                    pm.setBytesWritten(countingStream.getCount() - bytesBefore);
+                }
+                
+                if (!sentResults) {
+                    throw new NoResultsQueryException(DatawaveErrorCode.RESULTS_NOT_SENT);
+                }
+            } catch (DatawaveWebApplicationException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("StreamResultsOutputResponse write Failed", e);
+                QueryException qe = new QueryException(DatawaveErrorCode.QUERY_NEXT_ERROR, e, MessageFormat.format("query_id: {0}", rq.getSettings().getId()));
+                log.error(qe);
+                errorResponse.addException(qe.getBottomQueryException());
+                int statusCode = qe.getBottomQueryException().getStatusCode();
+                throw new DatawaveWebApplicationException(qe, errorResponse, statusCode);
+            } finally {
+                try {
+                    close(rq);
+                } catch (Exception e) {
+                    log.error("Error closing query after streaming its results", e);
+                    QueryException qe = new QueryException(DatawaveErrorCode.CONNECTION_RETURN_ERROR, e);
+                    log.error(qe);
+                    errorResponse.addException(qe.getBottomQueryException());
+                }
+            }
+        }
+    }
+    
     private void testForUncaughtException(Query settings, ResultsPage resultList) throws QueryException {
         QueryUncaughtExceptionHandler handler = settings.getUncaughtExceptionHandler();
         if (handler != null) {
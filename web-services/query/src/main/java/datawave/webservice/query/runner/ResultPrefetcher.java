@@ -0,0 +1,306 @@
+package datawave.webservice.query.runner;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import datawave.webservice.query.data.ObjectSizeOf;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Reads the results of a query ahead of the client on a background executor, into a buffer that holds up to a configured number of pages. A read task pulls
+ * results from the query's iterator until the buffer is full, the results run out, or the prefetcher is closed. It is submitted again once the client has
+ * taken a page worth of results out of the buffer, so a client that stops reading does not tie up a thread and the query does not hold more than the
+ * configured number of pages.
+ * <p>
+ * When the query logic has a page byte trigger, the size of each result is computed as it is read, the buffer is also limited to that many bytes per page,
+ * and the size is handed to the caller with the result so that it does not have to be computed again.
+ */
+public class ResultPrefetcher {
+    
+    private static final Logger log = Logger.getLogger(ResultPrefetcher.class);
+    
+    private final Iterator<?> iter;
+    private final ExecutorService executor;
+    private final int pageSize;
+    private final long pageByteTrigger;
+    private final int maxResults;
+    private final long maxBytes;
+    
+    private final Deque<Result> buffer = new ArrayDeque<>();
+    private long bufferedBytes = 0;
+    private boolean reading = false;
+    private boolean exhausted = false;
+    private boolean closed = false;
+    private Exception failure = null;
+    private Future<?> future = null;
+    
+    // stats for the life of the query
+    private long hits = 0;
+    private long misses = 0;
+    private long occupancySamples = 0;
+    private long occupancyTotal = 0;
+    private int maxOccupancy = 0;
+    
+    /**
+     * @param iter
+     *            the iterator of query results, which must not be used by anything else once the prefetcher is started
+     * @param executor
+     *            the executor to read the results on
+     * @param pageSize
+     *            the most results in a page
+     * @param pageByteTrigger
+     *            the number of bytes at which a page is returned, or 0 if pages are not limited by size
+     * @param pages
+     *            the number of pages to read ahead
+     */
+    public ResultPrefetcher(Iterator<?> iter, ExecutorService executor, int pageSize, long pageByteTrigger, int pages) {
+        this.iter = iter;
+        this.executor = executor;
+        this.pageSize = Math.max(1, pageSize);
+        this.pageByteTrigger = Math.max(0, pageByteTrigger);
+        this.maxResults = this.pageSize * Math.max(1, pages);
+        this.maxBytes = this.pageByteTrigger * Math.max(1, pages);
+    }
+    
+    /**
+     * Start reading results ahead of the client
+     */
+    public synchronized void start() {
+        resume();
+    }
+    
+    /**
+     * Take the next result, waiting for it to be read if the buffer is empty.
+     * 
+     * @param timeout
+     *            how long to wait for a result
+     * @param unit
+     *            the unit of the timeout
+     * @return the next result, or null if no result was read in time or there are no more results (see {@link #isExhausted()})
+     * @throws ExecutionException
+     *             if reading the results failed
+     * @throws InterruptedException
+     *             if interrupted while waiting for a result
+     */
+    public synchronized Result poll(long timeout, TimeUnit unit) throws ExecutionException, InterruptedException {
+        if (!buffer.isEmpty()) {
+            hits++;
+            return take();
+        }
+        
+        if (!exhausted && !closed) {
+            misses++;
+            resume();
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long remaining = unit.toNanos(timeout);
+            while (buffer.isEmpty() && !exhausted && !closed && remaining > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+            if (!buffer.isEmpty()) {
+                return take();
+            }
+        }
+        
+        if (failure != null && !closed) {
+            throw new ExecutionException(failure);
+        }
+        return null;
+    }
+    
+    /**
+     * @return true if there are no more results to take, because they have all been taken or the prefetcher was closed
+     */
+    public synchronized boolean isExhausted() {
+        return closed || (exhausted && buffer.isEmpty());
+    }
+    
+    /**
+     * Record how many results are in the buffer, as a client asks for the next page
+     */
+    public synchronized void sampleOccupancy() {
+        occupancySamples++;
+        occupancyTotal += buffer.size();
+        maxOccupancy = Math.max(maxOccupancy, buffer.size());
+    }
+    
+    /**
+     * Stop reading results and drop the ones in the buffer
+     */
+    public synchronized void close() {
+        closed = true;
+        buffer.clear();
+        bufferedBytes = 0;
+        if (future != null) {
+            future.cancel(true);
+            future = null;
+        }
+        notifyAll();
+    }
+    
+    /**
+     * Stop reading results and drop the ones in the buffer, then wait for a read task that is still running to stop, so that the iterator is no longer in use
+     * when this returns.
+     *
+     * @param timeout
+     *            how long to wait for the read task
+     * @param unit
+     *            the unit of the timeout
+     * @return true if no read task is running, or false if one was still running when the timeout expired
+     * @throws InterruptedException
+     *             if interrupted while waiting for the read task
+     */
+    public synchronized boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        close();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining = unit.toNanos(timeout);
+        while (reading && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return !reading;
+    }
+    
+    public synchronized int getBufferedResults() {
+        return buffer.size();
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    /**
+     * @return the fraction of results that were already in the buffer when they were asked for
+     */
+    public synchronized double getHitRate() {
+        return (hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+    }
+    
+    /**
+     * @return the average number of results in the buffer when a page was asked for
+     */
+    public synchronized double getAverageOccupancy() {
+        return (occupancySamples == 0 ? 0 : (double) occupancyTotal / occupancySamples);
+    }
+    
+    public synchronized int getMaxOccupancy() {
+        return maxOccupancy;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return "hits: " + hits + ", misses: " + misses + ", hit rate: " + String.format("%.2f", getHitRate()) + ", buffered: " + buffer.size() + "/"
+                        + maxResults + ", average buffered: " + String.format("%.1f", getAverageOccupancy()) + ", max buffered: " + maxOccupancy;
+    }
+    
+    private Result take() {
+        Result result = buffer.poll();
+        bufferedBytes -= result.size;
+        resume();
+        return result;
+    }
+    
+    private boolean isFull() {
+        return buffer.size() >= maxResults || (maxBytes > 0 && bufferedBytes >= maxBytes);
+    }
+    
+    /**
+     * Submit a read task, if one is not running and there is room in the buffer for a full page
+     */
+    private void resume() {
+        if (reading || exhausted || closed) {
+            return;
+        }
+        if (buffer.size() + pageSize > maxResults || (maxBytes > 0 && bufferedBytes + pageByteTrigger > maxBytes)) {
+            return;
+        }
+        reading = true;
+        try {
+            future = executor.submit(this::read);
+        } catch (RejectedExecutionException e) {
+            // fall back to reading in the caller's thread; this only holds the monitor until the buffer is full or the results run out
+            log.warn("Prefetch rejected by executor, reading results in line", e);
+            future = null;
+            read();
+        }
+    }
+    
+    private void read() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (closed || isFull()) {
+                        break;
+                    }
+                }
+                if (!iter.hasNext()) {
+                    synchronized (this) {
+                        exhausted = true;
+                    }
+                    break;
+                }
+                Object o = iter.next();
+                long size = (o != null && pageByteTrigger > 0 ? ObjectSizeOf.Sizer.getObjectSize(o) : 0);
+                synchronized (this) {
+                    if (closed) {
+                        break;
+                    }
+                    if (o == null) {
+                        // a null result marks the end of the results
+                        exhausted = true;
+                        break;
+                    }
+                    buffer.add(new Result(o, size));
+                    bufferedBytes += size;
+                    notifyAll();
+                }
+            }
+        } catch (Exception e) {
+            synchronized (this) {
+                if (!closed) {
+                    log.error("Failed to prefetch query results", e);
+                }
+                failure = e;
+                exhausted = true;
+            }
+        } finally {
+            synchronized (this) {
+                reading = false;
+                future = null;
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * A prefetched result, and its size if the page byte trigger is used
+     */
+    public static class Result {
+        private final Object result;
+        private final long size;
+        
+        private Result(Object result, long size) {
+            this.result = result;
+            this.size = size;
+        }
+        
+        public Object getResult() {
+            return result;
+        }
+        
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -49,6 +49,9 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     
     private static Logger log = Logger.getLogger(RunningQuery.class);
     
+    // how long to wait for a prefetch read task to stop before the logic is closed
+    private static final long PREFETCH_CLOSE_WAIT_MS = 10000;
+    
     private transient Connector connection = null;
     private AccumuloConnectionFactory.Priority connectionPriority = null;
     private transient QueryLogic<?> logic = null;
@@ -65,6 +68,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     private RunningQueryTiming timing = null;
     private ExecutorService executor = null;
     private volatile Future<Object> future = null;
+    private transient volatile ResultPrefetcher prefetcher = null;
     private QueryPredictor predictor = null;
     
     public RunningQuery() {
@@ -161,12 +165,21 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             this.lastPageNumber = 0;
             this.logic.setupQuery(configuration);
             this.iter = this.logic.getTransformIterator(this.settings);
+            if (this.executor != null && this.logic.getPrefetchPages() > 0) {
+                // read the results ahead of the client from here on
+                int pageSize = this.settings.getPagesize();
+                if (this.logic.getMaxPageSize() > 0) {
+                    pageSize = Math.min(pageSize, this.logic.getMaxPageSize());
+                }
+                this.prefetcher = new ResultPrefetcher(this.iter, this.executor, pageSize, this.logic.getPageByteTrigger(), this.logic.getPrefetchPages());
+                this.prefetcher.start();
+            }
             // the configuration query string should now hold the planned query
             this.getMetric().setPlan(configuration.getQueryString());
             this.getMetric().setSetupTime((System.currentTimeMillis() - start));
             this.getMetric().setLifecycle(QueryMetric.Lifecycle.INITIALIZED);
             testForUncaughtException(0);
-            // TODO: applyPrediction("Plan");
+            applyPrediction("Plan");
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             this.getMetric().setError(e);
@@ -192,6 +205,8 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         List<Object> resultList = new ArrayList<>();
         boolean hitPageByteTrigger = false;
         boolean hitPageTimeTrigger = false;
+        // save off the prefetcher as it could be closed and removed by a cancel at any time
+        ResultPrefetcher prefetcher = this.prefetcher;
         try {
             addNDC();
             int currentPageCount = 0;
@@ -200,7 +215,11 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             // test for any exceptions prior to loop as hasNext() would likely be false;
             testForUncaughtException(resultList.size());
             
-            while (!this.finished && ((future != null) || this.iter.hasNext())) {
+            if (prefetcher != null) {
+                prefetcher.sampleOccupancy();
+            }
+            
+            while (!this.finished && ((prefetcher != null) || (future != null) || this.iter.hasNext())) {
                 // if we are canceled, then break out
                 if (this.canceled) {
                     log.info("Query has been cancelled, aborting query.next call");
@@ -250,7 +269,18 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                 scanned++;
                 
                 Object o = null;
-                if (executor != null) {
+                long resultBytes = -1;
+                boolean prefetching = false;
+                if (prefetcher != null) {
+                    ResultPrefetcher.Result result = prefetcher.poll(1, TimeUnit.MINUTES);
+                    if (result != null) {
+                        o = result.getResult();
+                        resultBytes = result.getSize();
+                    } else {
+                        // in this case we are still waiting on the prefetcher, unless there are no more results
+                        prefetching = !prefetcher.isExhausted();
+                    }
+                } else if (executor != null) {
                     if (future == null) {
                         future = executor.submit(() -> iter.next());
                     }
@@ -271,7 +301,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                     o = iter.next();
                 }
                 // if not still waiting on a future, then process the result (or lack thereof)
-                if (future == null) {
+                if (future == null && !prefetching) {
                     if (null == o) {
                         log.debug("Null result encountered, no more results");
                         this.finished = true;
@@ -279,7 +309,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                     }
                     resultList.add(o);
                     if (this.logic.getPageByteTrigger() > 0) {
-                        currentPageBytes += ObjectSizeOf.Sizer.getObjectSize(o);
+                        currentPageBytes += (resultBytes >= 0 ? resultBytes : ObjectSizeOf.Sizer.getObjectSize(o));
                     }
                     currentPageCount++;
                     numResults++;
@@ -298,6 +328,9 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             if (!resultList.isEmpty()) {
                 this.getMetric().setLifecycle(QueryMetric.Lifecycle.RESULTS);
             }
+            if (prefetcher != null && log.isDebugEnabled()) {
+                log.debug("Prefetch after page " + this.lastPageNumber + ": " + prefetcher);
+            }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             this.getMetric().setError(e);
@@ -333,6 +366,11 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         if (future != null) {
             future.cancel(true);
         }
+        // stop reading ahead, leaving the prefetcher to be waited on when the connection is closed
+        ResultPrefetcher prefetcher = this.prefetcher;
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
         
         // change status to cancelled
         this.getMetric().setLifecycle(QueryMetric.Lifecycle.CANCELLED);
@@ -397,9 +435,27 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         }
     }
     
+    protected void trainPredictor() {
+        if (getPredictor() instanceof TrainableQueryPredictor) {
+            try {
+                ((TrainableQueryPredictor) getPredictor()).train(this.getMetric());
+            } catch (Exception e) {
+                log.warn("Unable to train query predictor", e);
+            }
+        }
+    }
+    
     public void closeConnection(AccumuloConnectionFactory factory) throws Exception {
         this.getMetric().setLifecycle(BaseQueryMetric.Lifecycle.CLOSED);
         
+        // stop reading ahead, and wait for the read task to stop, before the logic is closed out from under the prefetcher
+        closePrefetcher();
+        
+        // only learn from queries that were initialized and run
+        if (connection != null) {
+            trainPredictor();
+        }
+        
         if (iter != null && iter.getTransformer() instanceof WritesResultCardinalities) {
             ((WritesResultCardinalities) iter.getTransformer()).writeResultCardinalities();
         }
@@ -430,6 +486,29 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         }
     }
     
+    private void closePrefetcher() {
+        // save off the prefetcher as it could be removed at any time
+        ResultPrefetcher prefetcher = this.prefetcher;
+        if (prefetcher != null) {
+            try {
+                if (!prefetcher.close(PREFETCH_CLOSE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    log.warn("Prefetch for query " + this.settings.getId() + " was still reading after " + PREFETCH_CLOSE_WAIT_MS + "ms, closing anyway");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.prefetcher = null;
+            log.info("Prefetch for query " + this.settings.getId() + ": " + prefetcher);
+        }
+    }
+    
+    /**
+     * @return the prefetcher reading results ahead of the client, or null if the query is not prefetching
+     */
+    public ResultPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+    
     @Override
     public long getLastPageNumber() {
         return this.lastPageNumber;
@@ -0,0 +1,17 @@
+package datawave.webservice.query.runner;
+
+import datawave.webservice.query.metric.BaseQueryMetric;
+
+/**
+ * A query predictor that learns from the metrics of the queries that have completed.
+ */
+public interface TrainableQueryPredictor<T extends BaseQueryMetric> extends QueryPredictor<T> {
+    
+    /**
+     * Learn from the metric of a query that has completed
+     * 
+     * @param query
+     *            the metric of a closed query
+     */
+    void train(T query);
+}
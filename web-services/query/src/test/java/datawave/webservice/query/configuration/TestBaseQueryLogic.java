@@ -46,6 +46,7 @@ public class TestBaseQueryLogic {
         expect(this.copy.getUndisplayedVisibilities()).andReturn(new HashSet<>());
         expect(this.copy.getMaxPageSize()).andReturn(25);
         expect(this.copy.getPageByteTrigger()).andReturn(1024L);
+        expect(this.copy.getPrefetchPages()).andReturn(0);
         expect(this.copy.getCollectQueryMetrics()).andReturn(false);
         expect(this.copy.getConnPoolName()).andReturn("connPool1");
         expect(this.copy.getBaseIteratorPriority()).andReturn(100);
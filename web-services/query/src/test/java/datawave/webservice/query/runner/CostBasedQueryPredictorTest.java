@@ -0,0 +1,101 @@
+package datawave.webservice.query.runner;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import datawave.webservice.query.metric.BaseQueryMetric;
+import datawave.webservice.query.metric.BaseQueryMetric.Prediction;
+import datawave.webservice.query.metric.QueryMetric;
+import datawave.webservice.query.runner.CostBasedQueryPredictor.ResourceClass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CostBasedQueryPredictorTest {
+    
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    
+    private CostBasedQueryPredictor predictor;
+    
+    @Before
+    public void setup() {
+        predictor = new CostBasedQueryPredictor();
+        predictor.setMinObservations(2);
+    }
+    
+    @Test
+    public void testNoPredictionWithoutHistory() throws Exception {
+        assertNull(predictor.predict(metric("EventQuery", "FOO == 'bar'", 1)));
+        
+        predictor.train(completed("EventQuery", "FOO == 'bar'", 1, 10, 100));
+        assertNull(predictor.predict(metric("EventQuery", "FOO == 'bar'", 1)));
+        assertEquals(1, predictor.getObservations("EventQuery"));
+    }
+    
+    @Test
+    public void testPredictsFromQueriesOfTheSameShape() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            predictor.train(completed("EventQuery", "FOO == 'bar'", 1, 10, 1000));
+            predictor.train(completed("EventQuery", "FOO =~ 'ba.*' || BAR =~ 'fo.*'", 1, 100000, 300000));
+        }
+        
+        // a single term query over two days is expected to cost twice as much as the ones seen
+        Set<Prediction> predictions = predictor.predict(metric("EventQuery", "FOO == 'baz'", 2));
+        assertEquals(20, get(predictions, CostBasedQueryPredictor.RESULTS), 0);
+        assertEquals(2000, get(predictions, CostBasedQueryPredictor.SCAN_TIME), 0);
+        assertEquals(ResourceClass.INTERACTIVE, ResourceClass.fromPredictions(predictions));
+        
+        predictions = predictor.predict(metric("EventQuery", "BAR =~ 'a.*' || FOO =~ 'b.*'", 1));
+        assertEquals(100000, get(predictions, CostBasedQueryPredictor.RESULTS), 0);
+        assertEquals(ResourceClass.BATCH, ResourceClass.fromPredictions(predictions));
+        
+        // a query of a new shape falls back to the averages of its query logic
+        predictions = predictor.predict(metric("EventQuery", "FOO == 'a' && BAR > 'b'", 1));
+        assertEquals(50005, get(predictions, CostBasedQueryPredictor.RESULTS), 0);
+        
+        // as does a query that is not jexl
+        predictions = predictor.predict(metric("EventQuery", "FOO:bar AND", 1));
+        assertEquals(50005, get(predictions, CostBasedQueryPredictor.RESULTS), 0);
+        
+        assertNull(predictor.predict(metric("OtherQuery", "FOO == 'baz'", 1)));
+    }
+    
+    @Test
+    public void testFailedQueriesAreNotLearned() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            BaseQueryMetric metric = completed("EventQuery", "FOO == 'bar'", 1, 10, 1000);
+            metric.setError(new IllegalStateException("INTENTIONALLY THROWN TEST EXCEPTION"));
+            predictor.train(metric);
+            predictor.train(metric("EventQuery", "FOO == 'bar'", 1));
+        }
+        assertEquals(0, predictor.getObservations("EventQuery"));
+    }
+    
+    private static double get(Set<Prediction> predictions, String name) {
+        for (Prediction prediction : predictions) {
+            if (prediction.getName().equals(name)) {
+                return prediction.getPrediction();
+            }
+        }
+        throw new IllegalArgumentException("No prediction for " + name + " in " + predictions);
+    }
+    
+    private static BaseQueryMetric completed(String logic, String query, int days, long results, long callTime) {
+        BaseQueryMetric metric = metric(logic, query, days);
+        metric.addPageTime(results, callTime, 0, callTime);
+        return metric;
+    }
+    
+    private static BaseQueryMetric metric(String logic, String query, int days) {
+        BaseQueryMetric metric = new QueryMetric();
+        metric.setQueryLogic(logic);
+        metric.setQuery(query);
+        metric.setBeginDate(new Date(0));
+        metric.setEndDate(new Date(days * DAY));
+        return metric;
+    }
+}
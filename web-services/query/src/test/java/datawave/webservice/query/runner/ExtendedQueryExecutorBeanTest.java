@@ -14,6 +14,8 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.powermock.reflect.Whitebox.setInternalState;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -73,6 +75,7 @@ import datawave.webservice.query.cache.QueryTraceCache.PatternWrapper;
 import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.configuration.LookupUUIDConfiguration;
+import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.NoResultsQueryException;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.factory.Persister;
@@ -86,6 +89,7 @@ import datawave.webservice.query.logic.QueryLogicTransformer;
 import datawave.webservice.query.logic.RoleManager;
 import datawave.webservice.query.metric.QueryMetric;
 import datawave.webservice.query.metric.QueryMetricsBean;
+import datawave.webservice.query.result.event.DefaultField;
 import datawave.webservice.query.result.event.ResponseObjectFactory;
 import datawave.webservice.query.util.GetUUIDCriteria;
 import datawave.webservice.query.util.LookupUUIDUtil;
@@ -122,6 +126,8 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 
+import io.protostuff.ProtobufIOUtil;
+
 @RunWith(PowerMockRunner.class)
 @PowerMockIgnore("javax.security.auth.Subject")
 @PrepareForTest({Trace.class, Tracer.class})
@@ -3131,6 +3137,151 @@ public class ExtendedQueryExecutorBeanTest {
         assertNull("Expected a non-null response", result1);
     }
     
+    /**
+     * Set up a stream of a query whose pages of results are returned in turn, the query failing with the specified exception once they have been read
+     */
+    private StreamingOutput stream(MediaType mediaType, List<List<Object>> pages, Exception failure) throws Exception {
+        String queryLogicName = "queryLogicName";
+        UUID queryId = UUID.randomUUID();
+        MultivaluedMap<String,String> params = new MultivaluedMapImpl<>();
+        GenericResponse<String> createResponse = new GenericResponse<>();
+        createResponse.setResult(queryId.toString());
+        QueryMetric metric = new QueryMetric();
+        metric.addPageTime(10, 0, 0, 0);
+        
+        QueryExecutorBean subject = PowerMock.createPartialMock(QueryExecutorBean.class, "createQuery");
+        
+        // Set expectations of the create logic
+        expect(this.context.getCallerPrincipal()).andReturn(this.principal).anyTimes();
+        expect(this.principal.getProxyServers()).andReturn(new HashSet<>(0)).anyTimes();
+        expect(this.httpHeaders.getAcceptableMediaTypes()).andReturn(Collections.singletonList(mediaType));
+        expect(subject.createQuery(queryLogicName, params, httpHeaders)).andReturn(createResponse);
+        expect(this.cache.get(eq(queryId.toString()))).andReturn(this.runningQuery);
+        expect(this.runningQuery.getMetric()).andReturn(metric).anyTimes();
+        expect(this.runningQuery.getTraceInfo()).andReturn(null).anyTimes();
+        expect(this.runningQuery.getSettings()).andReturn(this.query).anyTimes();
+        expect(this.query.getUncaughtExceptionHandler()).andReturn(null).anyTimes();
+        expect(this.query.getId()).andReturn(queryId).anyTimes();
+        
+        // Set expectations of the stream logic
+        for (List<Object> page : pages) {
+            expect(this.runningQuery.next()).andReturn(new ResultsPage(page));
+        }
+        if (failure != null) {
+            expect(this.runningQuery.next()).andThrow(failure);
+        }
+        
+        // the query is closed whether or not the stream succeeds
+        this.runningQuery.closeConnection(this.connectionFactory);
+        this.cache.remove(queryId.toString());
+        
+        PowerMock.replayAll();
+        setInternalState(subject, EJBContext.class, context);
+        setInternalState(subject, AccumuloConnectionFactory.class, connectionFactory);
+        setInternalState(subject, QueryCache.class, cache);
+        return subject.stream(queryLogicName, params, httpHeaders);
+    }
+    
+    @Test
+    public void testStream_NdjsonLinesFlushedPerPage() throws Exception {
+        List<List<Object>> pages = Arrays.asList(Arrays.asList(Collections.singletonMap("uid", 0), Collections.singletonMap("uid", 1)),
+                        Collections.singletonList(Collections.singletonMap("uid", 2)), Collections.emptyList());
+        StreamingOutput output = stream(new MediaType("application", "x-ndjson"), pages, null);
+        
+        FlushRecordingOutputStream out = new FlushRecordingOutputStream();
+        output.write(out);
+        PowerMock.verifyAll();
+        
+        // one line of JSON per result, and each page is sent on to the client before the next is read
+        assertEquals(Arrays.asList("{\"uid\":0}\n{\"uid\":1}\n", "{\"uid\":0}\n{\"uid\":1}\n{\"uid\":2}\n"), out.flushed);
+        assertEquals("{\"uid\":0}\n{\"uid\":1}\n{\"uid\":2}\n", out.toString("UTF-8"));
+    }
+    
+    @Test
+    public void testStream_ProtobufLengthDelimited() throws Exception {
+        List<Object> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(new DefaultField("FIELD_" + i, "A&B", 1000L, "value " + i));
+        }
+        StreamingOutput output = stream(new MediaType("application", "x-protobuf"), Arrays.asList(results, Collections.emptyList()), null);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+        PowerMock.verifyAll();
+        
+        // each result is a message preceded by its length
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        for (int i = 0; i < 3; i++) {
+            DefaultField field = new DefaultField();
+            ProtobufIOUtil.mergeDelimitedFrom(in, field, field.cachedSchema());
+            assertEquals("FIELD_" + i, field.getName());
+            assertEquals("value " + i, field.getValueString());
+        }
+        assertEquals(-1, in.read());
+    }
+    
+    @Test
+    public void testStream_ProtobufRejectsNonMessageResult() throws Exception {
+        List<List<Object>> pages = Collections.singletonList(Collections.singletonList("not a message"));
+        StreamingOutput output = stream(new MediaType("application", "x-protobuf"), pages, null);
+        
+        try {
+            output.write(new ByteArrayOutputStream());
+            fail("Should have failed due to a result that is not a protostuff message");
+        } catch (DatawaveWebApplicationException e) {
+            QueryException qe = ((QueryException) e.getCause()).getBottomQueryException();
+            assertEquals(DatawaveErrorCode.BAD_RESPONSE_CLASS.getErrorCode(), qe.getErrorCode());
+            assertEquals(500, e.getResponse().getStatus());
+        }
+        PowerMock.verifyAll();
+    }
+    
+    @Test
+    public void testStream_NoResults() throws Exception {
+        StreamingOutput output = stream(new MediaType("application", "x-ndjson"), Collections.singletonList(Collections.emptyList()), null);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            output.write(out);
+            fail("Should have failed due to no results");
+        } catch (DatawaveWebApplicationException e) {
+            assertEquals(204, e.getResponse().getStatus());
+        }
+        PowerMock.verifyAll();
+        assertEquals(0, out.size());
+    }
+    
+    @Test
+    public void testStream_ClosesQueryOnFailure() throws Exception {
+        List<List<Object>> pages = Collections.singletonList(Collections.singletonList(Collections.singletonMap("uid", 0)));
+        StreamingOutput output = stream(new MediaType("application", "x-ndjson"), pages, new IllegalStateException("INTENTIONALLY THROWN TEST EXCEPTION"));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            output.write(out);
+            fail("Should have failed due to the failed page");
+        } catch (DatawaveWebApplicationException e) {
+            QueryException qe = (QueryException) e.getCause();
+            assertEquals(DatawaveErrorCode.QUERY_NEXT_ERROR.getErrorCode(), qe.getErrorCode());
+        }
+        // the results of the earlier page were sent, and the query was closed
+        PowerMock.verifyAll();
+        assertEquals("{\"uid\":0}\n", out.toString("UTF-8"));
+    }
+    
+    /**
+     * Records what had been written each time the stream is flushed
+     */
+    private static class FlushRecordingOutputStream extends ByteArrayOutputStream {
+        private final List<String> flushed = new ArrayList<>();
+        
+        @Override
+        public void flush() throws IOException {
+            super.flush();
+            flushed.add(toString("UTF-8"));
+        }
+    }
+    
     @Test
     public void testLookupUUID_happyPath() {
         UUIDType uuidType = PowerMock.createMock(UUIDType.class);
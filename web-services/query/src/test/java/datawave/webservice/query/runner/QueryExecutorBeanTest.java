@@ -660,7 +660,8 @@ public class QueryExecutorBeanTest {
         
         Set<Prediction> predictions = new HashSet<>();
         predictions.add(new Prediction("source", 1));
-        EasyMock.expect(predictor.predict(metric)).andReturn(predictions);
+        // once to decide the connection priority, and again when the connection is set
+        EasyMock.expect(predictor.predict(metric)).andReturn(predictions).times(2);
         
         connectionRequestBean.requestBegin(q.getId().toString());
         EasyMock.expectLastCall();
@@ -0,0 +1,195 @@
+package datawave.webservice.query.runner;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResultPrefetcherTest {
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setup() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+    
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testReadsAheadUpToTheBuffer() throws Exception {
+        CountingIterator iter = new CountingIterator(100, -1);
+        ResultPrefetcher prefetcher = new ResultPrefetcher(iter, executor, 10, 0, 2);
+        prefetcher.start();
+        
+        // the read task stops once two pages are buffered
+        waitForBuffered(prefetcher, 20);
+        Thread.sleep(100);
+        assertEquals(20, iter.read.get());
+        
+        // taking a page makes room for the read task to fill it again
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, prefetcher.poll(1, TimeUnit.SECONDS).getResult());
+        }
+        waitForBuffered(prefetcher, 20);
+        assertEquals(30, iter.read.get());
+        assertEquals(10, prefetcher.getHits());
+        
+        List<Object> results = new ArrayList<>();
+        ResultPrefetcher.Result result;
+        while ((result = prefetcher.poll(1, TimeUnit.SECONDS)) != null) {
+            results.add(result.getResult());
+        }
+        assertEquals(90, results.size());
+        assertEquals(99, results.get(89));
+        assertTrue(prefetcher.isExhausted());
+        assertTrue(prefetcher.getHitRate() > 0);
+    }
+    
+    @Test
+    public void testResultSizesAreLimitedByPageBytes() throws Exception {
+        CountingIterator iter = new CountingIterator(100, -1);
+        ResultPrefetcher prefetcher = new ResultPrefetcher(iter, executor, 1000, 64, 2);
+        prefetcher.start();
+        
+        // an Integer is 16 bytes, so two pages of 64 bytes hold 8 of them
+        waitForBuffered(prefetcher, 8);
+        Thread.sleep(100);
+        assertEquals(8, iter.read.get());
+        assertEquals(16, prefetcher.poll(1, TimeUnit.SECONDS).getSize());
+    }
+    
+    @Test
+    public void testFailureIsThrownAfterBufferedResults() throws Exception {
+        ResultPrefetcher prefetcher = new ResultPrefetcher(new CountingIterator(100, 5), executor, 10, 0, 2);
+        prefetcher.start();
+        
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(prefetcher.poll(1, TimeUnit.SECONDS));
+        }
+        try {
+            prefetcher.poll(1, TimeUnit.SECONDS);
+            fail("Expected the read failure to be thrown");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+    
+    @Test
+    public void testClose() throws Exception {
+        ResultPrefetcher prefetcher = new ResultPrefetcher(new CountingIterator(100, -1), executor, 10, 0, 2);
+        prefetcher.start();
+        waitForBuffered(prefetcher, 20);
+        
+        prefetcher.sampleOccupancy();
+        assertEquals(20, prefetcher.getMaxOccupancy());
+        
+        prefetcher.close();
+        assertTrue(prefetcher.isExhausted());
+        assertEquals(0, prefetcher.getBufferedResults());
+        assertNull(prefetcher.poll(1, TimeUnit.SECONDS));
+        assertFalse(prefetcher.getHitRate() > 0);
+    }
+    
+    @Test
+    public void testCloseWaitsForTheReadTask() throws Exception {
+        SlowIterator iter = new SlowIterator(500);
+        ResultPrefetcher prefetcher = new ResultPrefetcher(iter, executor, 10, 0, 2);
+        prefetcher.start();
+        assertTrue(iter.started.await(10, TimeUnit.SECONDS));
+        
+        // the read task is in the middle of next(), which ignores the interrupt, so close waits for it to return
+        assertFalse(prefetcher.close(10, TimeUnit.MILLISECONDS));
+        assertTrue(prefetcher.close(10, TimeUnit.SECONDS));
+        assertFalse(iter.inNext);
+        assertEquals(0, prefetcher.getBufferedResults());
+    }
+    
+    private static void waitForBuffered(ResultPrefetcher prefetcher, int results) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (prefetcher.getBufferedResults() < results && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(results, prefetcher.getBufferedResults());
+    }
+    
+    /**
+     * Returns the integers up to a limit, optionally failing part way
+     */
+    private static class CountingIterator implements Iterator<Object> {
+        private final int limit;
+        private final int failAt;
+        private final AtomicInteger read = new AtomicInteger();
+        
+        CountingIterator(int limit, int failAt) {
+            this.limit = limit;
+            this.failAt = failAt;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return read.get() < limit;
+        }
+        
+        @Override
+        public Object next() {
+            if (read.get() == failAt) {
+                throw new IllegalStateException("INTENTIONALLY THROWN TEST EXCEPTION");
+            }
+            return read.getAndIncrement();
+        }
+    }
+    
+    /**
+     * Takes a while to return each result, ignoring interrupts as a scanner might
+     */
+    private static class SlowIterator implements Iterator<Object> {
+        private final long delayMs;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile boolean inNext = false;
+        
+        SlowIterator(long delayMs) {
+            this.delayMs = delayMs;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+        
+        @Override
+        public Object next() {
+            inNext = true;
+            started.countDown();
+            long end = System.currentTimeMillis() + delayMs;
+            while (System.currentTimeMillis() < end) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    // keep going
+                }
+            }
+            inNext = false;
+            return end;
+        }
+    }
+}